@@ -0,0 +1,169 @@
+package io.protostuff;
+
+import java.lang.ref.WeakReference;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Maps the utf8 field names of a {@link Schema} to their numbers, so that inputs reading text keys from raw bytes
+ * (json, msgpack) can resolve a field without creating a {@link String}.
+ * <p>
+ * The {@link Table tables} are cached per schema instance (up to {@link #MAX_CACHED_SCHEMAS}) and shared across
+ * threads. The schemas are weakly referenced, so that a cached table does not keep its schema (and its classloader)
+ * alive. A table is copied on write (when a name is seen for the first time), so reads are lock-free. The reverse
+ * mapping (numbers to encoded names) is {@link KeyCache}.
+ */
+public final class FieldNumberCache {
+
+    /**
+     * Beyond this, the names of other schemas are resolved via {@link Schema#getFieldNumber(String)}.
+     */
+    public static final int MAX_CACHED_SCHEMAS = 4096;
+
+    static final WeakSchemaMap<Table> TABLES = new WeakSchemaMap<Table>();
+
+    private FieldNumberCache() {
+    }
+
+    /**
+     * Returns the table of the schema.
+     */
+    public static Table getTable(Schema<?> schema) {
+        Table table = TABLES.get(schema);
+        if (table != null)
+            return table;
+
+        table = new Table(schema);
+        if (TABLES.size() < MAX_CACHED_SCHEMAS) {
+            final Table last = TABLES.putIfAbsent(schema, table);
+            if (last != null)
+                return last;
+        }
+
+        return table;
+    }
+
+    /**
+     * Returns the number of the field whose utf8 name is in the given range (0 if unknown).
+     */
+    public static int getFieldNumber(Schema<?> schema, byte[] buffer, int offset, int len) {
+        return getTable(schema).getFieldNumber(schema, buffer, offset, len);
+    }
+
+    static final class Entry {
+        final byte[] key;
+        final int hash, number;
+
+        Entry(byte[] key, int hash, int number) {
+            this.key = key;
+            this.hash = hash;
+            this.number = number;
+        }
+    }
+
+    /**
+     * The utf8 field names of a schema mapped to their numbers.
+     */
+    public static final class Table {
+
+        private final WeakReference<Schema<?>> schema;
+        private volatile Entry[] table = new Entry[16];
+        private int size;
+
+        Table(Schema<?> schema) {
+            this.schema = new WeakReference<Schema<?>>(schema);
+        }
+
+        /**
+         * Returns the schema the names belong to (null once collected).
+         */
+        public Schema<?> schema() {
+            return schema.get();
+        }
+
+        static int hash(byte[] buffer, int offset, int len) {
+            int h = 0;
+            for (int i = offset, end = offset + len; i < end; i++)
+                h = 31 * h + buffer[i];
+
+            return h ^ (h >>> 16);
+        }
+
+        static boolean matches(byte[] key, byte[] buffer, int offset, int len) {
+            if (key.length != len)
+                return false;
+
+            for (int i = 0; i < len; i++) {
+                if (key[i] != buffer[offset + i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the number of the field whose utf8 name is in the given range (0 if unknown).
+         */
+        public int getFieldNumber(byte[] buffer, int offset, int len) {
+            final Schema<?> schema = schema();
+            if (schema == null)
+                throw new IllegalStateException("The schema of this table was collected.");
+
+            return getFieldNumber(schema, buffer, offset, len);
+        }
+
+        int getFieldNumber(Schema<?> schema, byte[] buffer, int offset, int len) {
+            final int hash = hash(buffer, offset, len);
+            final Entry[] table = this.table;
+            final int mask = table.length - 1;
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                final Entry e = table[i];
+                if (e == null)
+                    break;
+
+                if (e.hash == hash && matches(e.key, buffer, offset, len))
+                    return e.number;
+            }
+
+            final int number = schema.getFieldNumber(STRING.deser(buffer, offset, len));
+            // unknown names are not cached (the table is bounded by the schema's fields)
+            if (number != 0) {
+                final byte[] key = new byte[len];
+                System.arraycopy(buffer, offset, key, 0, len);
+                put(new Entry(key, hash, number));
+            }
+            return number;
+        }
+
+        private synchronized void put(Entry entry) {
+            final Entry[] table = this.table;
+            int capacity = table.length;
+            if ((size + 1) * 2 > capacity)
+                capacity <<= 1;
+
+            final Entry[] newTable = new Entry[capacity];
+            for (Entry e : table) {
+                if (e != null && !matches(e.key, entry.key, 0, entry.key.length))
+                    insert(newTable, e);
+            }
+            insert(newTable, entry);
+
+            int count = 0;
+            for (Entry e : newTable) {
+                if (e != null)
+                    count++;
+            }
+            size = count;
+            this.table = newTable;
+        }
+
+        private static void insert(Entry[] table, Entry entry) {
+            final int mask = table.length - 1;
+            int i = entry.hash & mask;
+            while (table[i] != null)
+                i = (i + 1) & mask;
+
+            table[i] = entry;
+        }
+    }
+
+}
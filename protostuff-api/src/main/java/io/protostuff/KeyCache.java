@@ -0,0 +1,123 @@
+package io.protostuff;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Caches the pre-encoded field keys of a {@link Schema} (e.g the quoted field name of a json object, along with its
+ * delimiters) so that text outputs do not re-encode the same names for every message they write.
+ * <p>
+ * A key is identified by its field number and a format-specific variant (e.g whether an array or an object follows).
+ * The {@link Keys tables} are shared across outputs and threads: they are cached per schema instance (pipe schemas
+ * included), up to {@value #MAX_CACHED_SCHEMAS} schemas. The schemas are weakly referenced, so that caching their keys
+ * does not keep them (and their classloader) alive. Encodings that do not depend on the schema (e.g numeric keys)
+ * use a single table obtained from {@code getKeys(null)}.
+ */
+public abstract class KeyCache<K> {
+
+    /**
+     * Fields with a greater number are encoded on every write.
+     */
+    public static final int MAX_CACHED_NUMBER = 4096;
+
+    /**
+     * Beyond this, the keys of other schemas are encoded per output (e.g schemas created on the fly).
+     */
+    public static final int MAX_CACHED_SCHEMAS = 4096;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    final int variants;
+
+    private final WeakSchemaMap<Keys<K>> tables = new WeakSchemaMap<Keys<K>>();
+
+    private final Keys<K> schemaless = new Keys<K>(this, null);
+
+    protected KeyCache(int variants) {
+        if (variants < 1)
+            throw new IllegalArgumentException("variants: " + variants);
+
+        this.variants = variants;
+    }
+
+    /**
+     * Encodes the key of the field. Returning null means the key is not cached (e.g an unknown field).
+     *
+     * @param schema
+     *            null when {@link #getKeys(Schema) requested} without a schema.
+     */
+    protected abstract K encode(Schema<?> schema, int number, int variant);
+
+    /**
+     * Returns the cached keys of the schema (or the schema-independent keys when {@code schema} is null).
+     */
+    public final Keys<K> getKeys(Schema<?> schema) {
+        if (schema == null)
+            return schemaless;
+
+        Keys<K> keys = tables.get(schema);
+        if (keys != null)
+            return keys;
+
+        keys = new Keys<K>(this, schema);
+        if (tables.size() < MAX_CACHED_SCHEMAS) {
+            final Keys<K> existing = tables.putIfAbsent(schema, keys);
+            if (existing != null)
+                return existing;
+        }
+
+        return keys;
+    }
+
+    /**
+     * The encoded keys of a schema, filled on first use. Reads are lock-free; the (rare) misses copy the table.
+     */
+    public static final class Keys<K> {
+
+        private final WeakReference<Schema<?>> schema;
+        private final KeyCache<K> cache;
+        private volatile Object[] table = EMPTY;
+
+        Keys(KeyCache<K> cache, Schema<?> schema) {
+            this.cache = cache;
+            this.schema = schema == null ? null : new WeakReference<Schema<?>>(schema);
+        }
+
+        /**
+         * Returns the schema these keys were encoded from (null for the schema-independent keys, or once the schema
+         * is collected).
+         */
+        public Schema<?> schema() {
+            return schema == null ? null : schema.get();
+        }
+
+        /**
+         * Returns the encoded key of the field.
+         */
+        @SuppressWarnings("unchecked")
+        public K get(int number, int variant) {
+            final int index = number * cache.variants + variant;
+            final Object[] table = this.table;
+            if (index >= 0 && index < table.length) {
+                final Object key = table[index];
+                if (key != null)
+                    return (K) key;
+            }
+
+            final K key = cache.encode(schema(), number, variant);
+            if (key != null && number > 0 && number <= MAX_CACHED_NUMBER)
+                put(index, key);
+
+            return key;
+        }
+
+        private synchronized void put(int index, K key) {
+            final Object[] current = table;
+            final Object[] copy = index < current.length ? current.clone()
+                    : Arrays.copyOf(current, Math.max(index + 1, current.length * 3 / 2));
+            copy[index] = key;
+            table = copy;
+        }
+    }
+
+}
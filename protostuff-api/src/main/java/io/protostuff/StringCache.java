@@ -0,0 +1,112 @@
+package io.protostuff;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A bounded cache of decoded strings keyed on their raw UTF-8 bytes, used to return canonical instances for
+ * low-cardinality string fields (e.g country, currency, status) during deserialization.
+ * <p>
+ * The bytes are looked up before decoding, so a hit skips the UTF-8 decode as well as the allocation. Only strings
+ * whose encoded length is at most {@link #maxLength} are cached. The table is direct-mapped: a colliding entry simply
+ * replaces the previous one, so memory is bounded by the capacity.
+ * <p>
+ * Entries are immutable, so an instance can be shared across threads (a racy put only means a missed hit).
+ * <p>
+ * Set it on an input via {@code ByteArrayInput.setStringCache}, {@code ByteBufferInput.setStringCache} or
+ * {@code CodedInput.setStringCache}.
+ */
+public final class StringCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 32;
+
+    /**
+     * Strings longer than this (in utf8 bytes) are decoded as usual and not cached.
+     */
+    public final int maxLength;
+
+    private final Entry[] table;
+    private final int mask;
+
+    public StringCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Creates a cache with {@code capacity} (rounded up to a power of 2) slots.
+     */
+    public StringCache(int capacity, int maxLength) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        if (maxLength < 0)
+            throw new IllegalArgumentException("Invalid maxLength: " + maxLength);
+
+        int size = 1;
+        while (size < capacity)
+            size <<= 1;
+
+        table = new Entry[size];
+        mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the canonical string for the utf8 bytes, decoding (and caching) it on a miss.
+     */
+    public String deser(byte[] buf, int offset, int len) {
+        if (len == 0)
+            return "";
+
+        if (len > maxLength)
+            return STRING.deser(buf, offset, len);
+
+        int h = 0;
+        for (int i = offset, end = offset + len; i < end; i++)
+            h = 31 * h + buf[i];
+        h ^= (h >>> 16);
+
+        final int slot = h & mask;
+        final Entry entry = table[slot];
+        if (entry != null && entry.hash == h && entry.matches(buf, offset, len))
+            return entry.value;
+
+        final String value = STRING.deser(buf, offset, len);
+        final byte[] key = new byte[len];
+        System.arraycopy(buf, offset, key, 0, len);
+        table[slot] = new Entry(h, key, value);
+        return value;
+    }
+
+    /**
+     * Removes all the cached strings.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; i++)
+            table[i] = null;
+    }
+
+    static final class Entry {
+        final int hash;
+        final byte[] key;
+        final String value;
+
+        Entry(int hash, byte[] key, String value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(byte[] buf, int offset, int len) {
+            final byte[] key = this.key;
+            if (key.length != len)
+                return false;
+
+            for (int i = 0; i < len; i++) {
+                if (key[i] != buf[offset + i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+}
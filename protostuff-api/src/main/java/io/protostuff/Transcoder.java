@@ -0,0 +1,112 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Converts a message from one format to another by streaming its fields through a {@link Pipe}, without creating
+ * the message object.
+ * <p>
+ * The {@link Source} opens a pipe over the serialized bytes (e.g {@code ProtostuffIOUtil.transcoderSource()}), and
+ * the {@link Target} writes the pipe in its format (e.g {@code JsonXIOUtil.transcoderTarget(false)}). Strings and
+ * bytes are transferred with {@link Input#transferByteRangeTo}, so they are copied as raw utf8 when both formats
+ * allow it.
+ * <p>
+ * The output is written to a {@link LinkedBuffer} pooled per thread, which is cleared after each call. A transcoder
+ * is immutable and can be shared.
+ */
+public final class Transcoder {
+
+    /**
+     * The size of the pooled buffers (system property {@code protostuff.transcoder.buffer_size}).
+     */
+    public static final int BUFFER_SIZE = Integer.getInteger("protostuff.transcoder.buffer_size",
+            LinkedBuffer.DEFAULT_BUFFER_SIZE);
+
+    private static final ThreadLocal<LinkedBuffer> BUFFERS = new ThreadLocal<LinkedBuffer>() {
+        @Override
+        protected LinkedBuffer initialValue() {
+            return LinkedBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Opens a pipe over the bytes of a message in a given format.
+     */
+    public interface Source {
+
+        Pipe newPipe(byte[] data, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Writes a message read from a pipe in a given format.
+     */
+    public interface Target {
+
+        /**
+         * Writes the message into the (empty) buffer, which grows as needed.
+         */
+        void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema) throws IOException;
+    }
+
+    public final Source source;
+    public final Target target;
+
+    public Transcoder(Source source, Target target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Converts the message in the byte array, and returns the result.
+     */
+    public byte[] transcode(byte[] data, Pipe.Schema<?> pipeSchema) throws IOException {
+        return transcode(data, 0, data.length, pipeSchema);
+    }
+
+    /**
+     * Converts the message in the byte array, and returns the result.
+     */
+    public byte[] transcode(byte[] data, int offset, int length, Pipe.Schema<?> pipeSchema)
+            throws IOException {
+        final LinkedBuffer buffer = BUFFERS.get();
+        try {
+            target.writeTo(buffer, source.newPipe(data, offset, length), pipeSchema);
+            return toByteArray(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Converts the message in the byte array, and writes the result to the {@link OutputStream}.
+     *
+     * @return the total bytes written.
+     */
+    public int transcode(byte[] data, int offset, int length, Pipe.Schema<?> pipeSchema,
+                         OutputStream out) throws IOException {
+        final LinkedBuffer buffer = BUFFERS.get();
+        try {
+            target.writeTo(buffer, source.newPipe(data, offset, length), pipeSchema);
+            return LinkedBuffer.writeTo(out, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    static byte[] toByteArray(LinkedBuffer head) {
+        int size = 0;
+        for (LinkedBuffer node = head; node != null; node = node.next)
+            size += node.offset - node.start;
+
+        final byte[] data = new byte[size];
+        int offset = 0;
+        for (LinkedBuffer node = head; node != null; node = node.next) {
+            final int len = node.offset - node.start;
+            System.arraycopy(node.buffer, node.start, data, offset, len);
+            offset += len;
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.protostuff;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent map keyed by schema identity, where the schemas are weakly referenced: the entry of a schema (e.g
+ * created on the fly, or loaded by a classloader that is discarded on redeploy) is removed once the schema is
+ * collected. The values must not strongly reference their schema, or it would never be collected.
+ */
+final class WeakSchemaMap<V> {
+
+    private final ConcurrentHashMap<Object, V> map = new ConcurrentHashMap<Object, V>();
+
+    private final ReferenceQueue<Schema<?>> queue = new ReferenceQueue<Schema<?>>();
+
+    /**
+     * Returns the value of the schema, or null.
+     */
+    V get(Schema<?> schema) {
+        return map.get(new Lookup(schema));
+    }
+
+    /**
+     * Maps the schema to the value if absent, and returns the previous value (or null).
+     */
+    V putIfAbsent(Schema<?> schema, V value) {
+        expunge();
+        return map.putIfAbsent(new Ref(schema, queue), value);
+    }
+
+    /**
+     * Returns the number of schemas that are still referenced.
+     */
+    int size() {
+        expunge();
+        return map.size();
+    }
+
+    private void expunge() {
+        for (Object ref; (ref = queue.poll()) != null;)
+            map.remove(ref);
+    }
+
+    static final class Ref extends WeakReference<Schema<?>> {
+        final int hash;
+
+        Ref(Schema<?> schema, ReferenceQueue<Schema<?>> queue) {
+            super(schema, queue);
+            hash = System.identityHashCode(schema);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+
+            final Schema<?> schema = get();
+            return schema != null && obj instanceof Ref && ((Ref) obj).get() == schema;
+        }
+    }
+
+    /**
+     * The key of a lookup, equal to the {@link Ref} of the same schema (not allocated as a reference).
+     */
+    static final class Lookup {
+        final Schema<?> schema;
+
+        Lookup(Schema<?> schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Ref && ((Ref) obj).get() == schema;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.protostuff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for {@link FieldNumberCache}.
+ */
+public class FieldNumberCacheTest
+{
+
+    static int getFieldNumber(Schema<?> schema, String name)
+    {
+        final byte[] utf8 = STRING.ser("[" + name + "]");
+        return FieldNumberCache.getFieldNumber(schema, utf8, 1, utf8.length - 2);
+    }
+
+    @Test
+    public void testCachedPerSchema()
+    {
+        final Schema<?> schema = new KeyCacheTest.NumberedSchema();
+        final FieldNumberCache.Table table = FieldNumberCache.getTable(schema);
+        assertSame(table, FieldNumberCache.getTable(schema));
+        assertSame(schema, table.schema());
+
+        // twice, the second time from the table
+        assertEquals(3, getFieldNumber(schema, "f3"));
+        assertEquals(3, getFieldNumber(schema, "f3"));
+        assertEquals(1, getFieldNumber(schema, "f1"));
+        assertEquals(0, getFieldNumber(schema, "unknown"));
+    }
+
+    @Test
+    public void testSchemaNotRetained() throws Exception
+    {
+        Schema<?> schema = new KeyCacheTest.NumberedSchema();
+        assertEquals(2, getFieldNumber(schema, "f2"));
+        final FieldNumberCache.Table table = FieldNumberCache.getTable(schema);
+
+        final WeakReference<Schema<?>> ref = new WeakReference<Schema<?>>(schema);
+        schema = null;
+        assertTrue(KeyCacheTest.collected(ref));
+        assertNull(table.schema());
+    }
+
+}
@@ -0,0 +1,130 @@
+package io.protostuff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link KeyCache}.
+ */
+public class KeyCacheTest
+{
+
+    /**
+     * A schema with the fields "f1", "f2", ...
+     */
+    static final class NumberedSchema implements Schema<Object>
+    {
+        @Override
+        public String getFieldName(int number)
+        {
+            return number > 0 && number < 10 ? "f" + number : null;
+        }
+
+        @Override
+        public int getFieldNumber(String name)
+        {
+            return name.length() == 2 && name.charAt(0) == 'f' ? name.charAt(1) - '0' : 0;
+        }
+
+        @Override
+        public boolean isInitialized(Object message)
+        {
+            return true;
+        }
+
+        @Override
+        public Object newMessage()
+        {
+            return new Object();
+        }
+
+        @Override
+        public String messageName()
+        {
+            return "Numbered";
+        }
+
+        @Override
+        public String messageFullName()
+        {
+            return "Numbered";
+        }
+
+        @Override
+        public Class<? super Object> typeClass()
+        {
+            return Object.class;
+        }
+
+        @Override
+        public void mergeFrom(Input input, Object message) throws IOException
+        {
+        }
+
+        @Override
+        public void writeTo(Output output, Object message) throws IOException
+        {
+        }
+    }
+
+    static final KeyCache<String> CACHE = new KeyCache<String>(1)
+    {
+        @Override
+        protected String encode(Schema<?> schema, int number, int variant)
+        {
+            return schema == null ? Integer.toString(number) : schema.getFieldName(number);
+        }
+    };
+
+    /**
+     * Returns true if the referent is collected (after a few gc cycles).
+     */
+    static boolean collected(WeakReference<?> ref) throws InterruptedException
+    {
+        for (int i = 0; i < 50 && ref.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return ref.get() == null;
+    }
+
+    @Test
+    public void testCachedPerSchema()
+    {
+        final NumberedSchema schema = new NumberedSchema();
+        final KeyCache.Keys<String> keys = CACHE.getKeys(schema);
+        assertSame(keys, CACHE.getKeys(schema));
+        assertSame(schema, keys.schema());
+        assertEquals("f1", keys.get(1, 0));
+        assertNull(keys.get(99, 0));
+
+        final KeyCache.Keys<String> schemaless = CACHE.getKeys(null);
+        assertSame(schemaless, CACHE.getKeys(null));
+        assertNull(schemaless.schema());
+        assertEquals("1", schemaless.get(1, 0));
+    }
+
+    @Test
+    public void testSchemaNotRetained() throws Exception
+    {
+        NumberedSchema schema = new NumberedSchema();
+        final KeyCache.Keys<String> keys = CACHE.getKeys(schema);
+        assertEquals("f1", keys.get(1, 0));
+
+        final WeakReference<Schema<?>> ref = new WeakReference<Schema<?>>(schema);
+        schema = null;
+        // neither the cache nor its keys keep the schema alive
+        assertTrue(collected(ref));
+
+        assertNull(keys.schema());
+    }
+
+}
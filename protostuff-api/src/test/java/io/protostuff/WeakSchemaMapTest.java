@@ -0,0 +1,53 @@
+package io.protostuff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link WeakSchemaMap}.
+ */
+public class WeakSchemaMapTest
+{
+
+    @Test
+    public void testIdentity()
+    {
+        final WeakSchemaMap<String> map = new WeakSchemaMap<String>();
+        final Schema<?> a = new KeyCacheTest.NumberedSchema(), b = new KeyCacheTest.NumberedSchema();
+        assertNull(map.get(a));
+        assertNull(map.putIfAbsent(a, "a"));
+        assertEquals("a", map.putIfAbsent(a, "other"));
+        assertNull(map.get(b));
+        assertNull(map.putIfAbsent(b, "b"));
+
+        assertEquals("a", map.get(a));
+        assertEquals("b", map.get(b));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testExpunged() throws Exception
+    {
+        final WeakSchemaMap<String> map = new WeakSchemaMap<String>();
+        final Schema<?> kept = new KeyCacheTest.NumberedSchema();
+        map.putIfAbsent(kept, "kept");
+
+        Schema<?> schema = new KeyCacheTest.NumberedSchema();
+        map.putIfAbsent(schema, "collected");
+        final WeakReference<Schema<?>> ref = new WeakReference<Schema<?>>(schema);
+        schema = null;
+        assertTrue(KeyCacheTest.collected(ref));
+
+        // the entry is removed once its reference is enqueued
+        for (int i = 0; i < 50 && map.size() != 1; i++)
+            Thread.sleep(10);
+        assertEquals(1, map.size());
+        assertEquals("kept", map.get(kept));
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.protostuff.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerResult;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.Result;
+
+/**
+ * Reports the bytes allocated by the threads of the benchmark jvm during each iteration (which the gc profiler of
+ * this jmh version does not), from the thread mx bean of HotSpot. Enabled with {@code -prof alloc}.
+ * <p>
+ * The bytes per operation are the rate times the average time, which the {@link FormatMatrixBenchmark} writes in
+ * its results.
+ */
+public class AllocationProfiler implements InternalProfiler
+{
+
+    public static final String RATE = "@alloc.rate", BYTES = "@alloc.bytes", NORM = "@alloc.norm";
+
+    private long startBytes, startTime;
+
+    static com.sun.management.ThreadMXBean threadBean()
+    {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ?
+                (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    static long allocatedBytes()
+    {
+        final com.sun.management.ThreadMXBean bean = threadBean();
+        long bytes = 0;
+        for (long id : bean.getAllThreadIds())
+        {
+            final long allocated = bean.getThreadAllocatedBytes(id);
+            // -1 if the thread died
+            if (allocated > 0)
+                bytes += allocated;
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean checkSupport(List<String> msgs)
+    {
+        final com.sun.management.ThreadMXBean bean = threadBean();
+        if (bean == null || !bean.isThreadAllocatedMemorySupported())
+        {
+            msgs.add("The thread allocated memory is not supported by this jvm.");
+            return false;
+        }
+
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    @Override
+    public String label()
+    {
+        return "alloc";
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Bytes allocated by the benchmark threads";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams)
+    {
+        startTime = System.nanoTime();
+        startBytes = allocatedBytes();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+            IterationParams iterationParams)
+    {
+        final long bytes = allocatedBytes() - startBytes;
+        final long elapsed = System.nanoTime() - startTime;
+
+        return Arrays.asList(
+                new ProfilerResult(RATE, bytes / (1024d * 1024d) / (elapsed / 1e9), "MB/sec",
+                        AggregationPolicy.AVG),
+                new ProfilerResult(BYTES, bytes, "bytes", AggregationPolicy.AVG));
+    }
+
+}
@@ -0,0 +1,210 @@
+package io.protostuff.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two jmh results files in csv (from {@code -rf csv} or the {@link FormatMatrixBenchmark}), typically of
+ * two versions, and reports the regressions:
+ *
+ * <pre>
+ * java -cp protostuff-benchmarks.jar io.protostuff.benchmarks.BenchmarkComparison old.csv new.csv [threshold %]
+ * </pre>
+ *
+ * Only the scores per operation (time or bytes, lower is better) and the throughputs (higher is better) are
+ * compared. A score is a regression if it is worse by more than the threshold (10% by default) and outside of the
+ * error margins. The exit status is 1 if there are regressions.
+ */
+public final class BenchmarkComparison
+{
+
+    static final class Row
+    {
+        final String key;
+        final double score, error;
+        final String unit;
+
+        Row(String key, double score, double error, String unit)
+        {
+            this.key = key;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        boolean isComparable()
+        {
+            return unit.endsWith("/op") || unit.startsWith("ops/");
+        }
+
+        boolean isHigherBetter()
+        {
+            return unit.startsWith("ops/");
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: BenchmarkComparison baseline.csv current.csv [threshold %]");
+            System.exit(2);
+        }
+
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        final int regressions = compare(read(args[0]), read(args[1]), threshold);
+        if (regressions != 0)
+        {
+            System.out.println(regressions + " regression(s) over " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the changes over the threshold and returns the number of regressions.
+     */
+    static int compare(Map<String, Row> baseline, Map<String, Row> current, double threshold)
+    {
+        int regressions = 0;
+        for (Row row : current.values())
+        {
+            final Row base = baseline.get(row.key);
+            if (base == null)
+            {
+                System.out.println("NEW          " + format(row));
+                continue;
+            }
+
+            if (!row.isComparable() || !row.unit.equals(base.unit) || base.score == 0)
+                continue;
+
+            // positive is worse
+            final double change = (row.score - base.score) / base.score * 100 *
+                    (row.isHigherBetter() ? -1 : 1);
+            if (Math.abs(change) <= threshold || overlaps(base, row))
+                continue;
+
+            if (change > 0)
+            {
+                regressions++;
+                System.out.printf("REGRESSION %+7.1f%% %s (was %.3f)%n", change, format(row),
+                        base.score);
+            }
+            else
+            {
+                System.out.printf("IMPROVED   %+7.1f%% %s (was %.3f)%n", change, format(row),
+                        base.score);
+            }
+        }
+
+        for (Row base : baseline.values())
+        {
+            if (!current.containsKey(base.key))
+                System.out.println("MISSING      " + format(base));
+        }
+
+        return regressions;
+    }
+
+    static boolean overlaps(Row a, Row b)
+    {
+        if (Double.isNaN(a.error) || Double.isNaN(b.error))
+            return false;
+
+        return Math.abs(a.score - b.score) <= a.error + b.error;
+    }
+
+    static String format(Row row)
+    {
+        return String.format("%s %.3f %s", row.key, row.score, row.unit);
+    }
+
+    /**
+     * Reads the rows keyed by their benchmark, mode, threads and params.
+     */
+    static Map<String, Row> read(String file) throws IOException
+    {
+        final LinkedHashMap<String, Row> rows = new LinkedHashMap<String, Row>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), "UTF-8"));
+        try
+        {
+            final List<String> header = parseCsvLine(reader.readLine());
+            final int score = header.indexOf("Score"), unit = header.indexOf("Unit"),
+                    error = header.indexOf("Score Error (99.9%)");
+            if (score == -1 || unit == -1 || error == -1)
+                throw new IOException("Not a jmh csv: " + file);
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                if (line.length() == 0)
+                    continue;
+
+                final List<String> values = parseCsvLine(line);
+                final StringBuilder key = new StringBuilder(values.get(0));
+                key.append(" [").append(values.get(1)).append(", ").append(values.get(2))
+                        .append(" threads");
+                for (int i = unit + 1; i < values.size(); i++)
+                {
+                    if (i < header.size() && header.get(i).startsWith("Param: "))
+                    {
+                        key.append(", ").append(header.get(i).substring(7)).append('=')
+                                .append(values.get(i));
+                    }
+                }
+                key.append(']');
+
+                rows.put(key.toString(), new Row(key.toString(), parseDouble(values.get(score)),
+                        parseDouble(values.get(error)), values.get(unit)));
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return rows;
+    }
+
+    static double parseDouble(String value)
+    {
+        return "NaN".equals(value) ? Double.NaN : Double.parseDouble(value);
+    }
+
+    static List<String> parseCsvLine(String line)
+    {
+        final ArrayList<String> values = new ArrayList<String>();
+        final StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++)
+        {
+            final char c = line.charAt(i);
+            if (quoted)
+            {
+                if (c != '"')
+                    sb.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    sb.append(line.charAt(++i));
+                else
+                    quoted = false;
+            }
+            else if (c == '"')
+                quoted = true;
+            else if (c == ',')
+            {
+                values.add(sb.toString());
+                sb.setLength(0);
+            }
+            else
+                sb.append(c);
+        }
+        values.add(sb.toString());
+        return values;
+    }
+
+}
@@ -0,0 +1,145 @@
+package io.protostuff.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.BuiltinDelegates;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Compares the builtin delegates ({@link BuiltinDelegates}) against the previous output, where {@link UUID} and the
+ * {@code java.time} types are written as pojos and {@link BigDecimal} as a string.
+ * <p>
+ * The serialized sizes are printed by {@link #main(String[])} before the run.
+ */
+@Fork(1)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BuiltinDelegatesBenchmark
+{
+
+    private Schema<Payment> delegateSchema;
+    private Schema<Payment> pojoSchema;
+
+    private Payment payment;
+
+    private byte[] delegateData;
+    private byte[] pojoData;
+
+    private LinkedBuffer buffer;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        final BuiltinDelegatesBenchmark sizes = new BuiltinDelegatesBenchmark();
+        sizes.prepare();
+        System.out.println("serialized size: delegates=" + sizes.delegateData.length
+                + " bytes, pojo/string=" + sizes.pojoData.length + " bytes");
+
+        Options opt = new OptionsBuilder()
+                .include(BuiltinDelegatesBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void prepare()
+    {
+        DefaultIdStrategy withDelegates = new DefaultIdStrategy(IdStrategy.DEFAULT_FLAGS
+                | IdStrategy.BUILTIN_DELEGATES, null, 0);
+        withDelegates.registerDelegate(BuiltinDelegates.BIGDECIMAL_DELEGATE);
+        delegateSchema = RuntimeSchema.createFrom(Payment.class, withDelegates);
+
+        pojoSchema = RuntimeSchema.createFrom(Payment.class,
+                new DefaultIdStrategy(IdStrategy.DEFAULT_FLAGS
+                        & ~IdStrategy.BUILTIN_DELEGATES, null, 0));
+
+        payment = new Payment();
+        payment.id = UUID.randomUUID();
+        payment.createdAt = Instant.now();
+        payment.valueDate = LocalDate.now();
+        payment.amount = new BigDecimal("123456.78");
+
+        buffer = LinkedBuffer.allocate();
+
+        delegateData = ProtostuffIOUtil.toByteArray(payment, delegateSchema, buffer);
+        buffer.clear();
+        pojoData = ProtostuffIOUtil.toByteArray(payment, pojoSchema, buffer);
+        buffer.clear();
+    }
+
+    @Benchmark
+    public void delegates_serialize()
+    {
+        try
+        {
+            ProtostuffIOUtil.writeTo(buffer, payment, delegateSchema);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    @Benchmark
+    public Payment delegates_deserialize()
+    {
+        Payment p = new Payment();
+        ProtostuffIOUtil.mergeFrom(delegateData, p, delegateSchema);
+        return p;
+    }
+
+    @Benchmark
+    public void pojo_serialize()
+    {
+        try
+        {
+            ProtostuffIOUtil.writeTo(buffer, payment, pojoSchema);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    @Benchmark
+    public Payment pojo_deserialize()
+    {
+        Payment p = new Payment();
+        ProtostuffIOUtil.mergeFrom(pojoData, p, pojoSchema);
+        return p;
+    }
+
+    static final class Payment
+    {
+        UUID id;
+        Instant createdAt;
+        LocalDate valueDate;
+        BigDecimal amount;
+    }
+}
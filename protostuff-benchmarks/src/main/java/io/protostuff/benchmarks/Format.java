@@ -0,0 +1,209 @@
+package io.protostuff.benchmarks;
+
+import java.io.IOException;
+
+import io.protostuff.GraphIOUtil;
+import io.protostuff.JsonIOUtil;
+import io.protostuff.JsonXIOUtil;
+import io.protostuff.KvpByteArrayInput;
+import io.protostuff.KvpOutput;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.MsgpackIOUtil;
+import io.protostuff.MsgpackXIOUtil;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.SmileIOUtil;
+import io.protostuff.XmlIOUtil;
+import io.protostuff.XmlXIOUtil;
+import io.protostuff.YamlIOUtil;
+
+/**
+ * The serialization formats compared by the benchmarks, each through its fastest io util (the buffer is cleared by
+ * the caller).
+ */
+public enum Format
+{
+
+    PROTOSTUFF
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return ProtostuffIOUtil.toByteArray(message, schema, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            ProtostuffIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    PROTOBUF
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return ProtobufIOUtil.toByteArray(message, schema, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            ProtobufIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    GRAPH
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return GraphIOUtil.toByteArray(message, schema, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            GraphIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    JSON
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return JsonIOUtil.toByteArray(message, schema, false, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            JsonIOUtil.mergeFrom(data, message, schema, false);
+        }
+    },
+    JSONX
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return JsonXIOUtil.toByteArray(message, schema, false, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            JsonXIOUtil.mergeFrom(data, message, schema, false);
+        }
+    },
+    SMILE
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return SmileIOUtil.toByteArray(message, schema, false, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            SmileIOUtil.mergeFrom(data, message, schema, false);
+        }
+    },
+    MSGPACK
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return MsgpackIOUtil.toByteArray(message, schema, false);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            MsgpackIOUtil.mergeFrom(data, message, schema, false);
+        }
+    },
+    MSGPACKX
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return MsgpackXIOUtil.toByteArray(message, schema, false, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            MsgpackXIOUtil.mergeFrom(data, message, schema, false);
+        }
+    },
+    XML
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return XmlIOUtil.toByteArray(message, schema);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            XmlIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    XMLX
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return XmlXIOUtil.toByteArray(message, schema, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            XmlXIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    YAML
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+        {
+            return YamlIOUtil.toByteArray(message, schema, buffer);
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            YamlIOUtil.mergeFrom(data, message, schema);
+        }
+    },
+    /**
+     * Key-value pairs, without nested messages.
+     */
+    KVP
+    {
+        @Override
+        public <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+                throws IOException
+        {
+            final KvpOutput output = new KvpOutput(buffer, schema, false);
+            schema.writeTo(output, message);
+            return output.toByteArray();
+        }
+
+        @Override
+        public <T> void deserialize(byte[] data, T message, Schema<T> schema) throws IOException
+        {
+            schema.mergeFrom(new KvpByteArrayInput(data, 0, data.length, false), message);
+        }
+    };
+
+    public abstract <T> byte[] serialize(T message, Schema<T> schema, LinkedBuffer buffer)
+            throws IOException;
+
+    public abstract <T> void deserialize(byte[] data, T message, Schema<T> schema)
+            throws IOException;
+
+}
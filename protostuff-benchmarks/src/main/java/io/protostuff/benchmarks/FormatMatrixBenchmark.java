@@ -0,0 +1,326 @@
+package io.protostuff.benchmarks;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Message;
+import io.protostuff.Schema;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.ExplicitIdStrategy;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.IncrementalIdStrategy;
+import io.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Serializes and deserializes each {@link Payload} in each {@link Format}, with each {@link SchemaKind}.
+ * <p>
+ * Some combinations are not supported (see {@link #unsupported(Format, SchemaKind, Payload)}), and fail at setup.
+ * The {@link #main(String[])} runs only the supported ones, with the gc and the {@link AllocationProfiler}
+ * profilers, and writes the results in csv (which {@link BenchmarkComparison} compares with older results).
+ */
+@Fork(1)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormatMatrixBenchmark
+{
+
+    public enum SchemaKind
+    {
+        /**
+         * The schema generated from payloads.proto.
+         */
+        GENERATED,
+        /**
+         * The {@link RuntimeSchema} of the pojo.
+         */
+        RUNTIME,
+        /**
+         * The pojo in an {@code Object} field, its type written by the {@link DefaultIdStrategy}.
+         */
+        DEFAULT,
+        /**
+         * The pojo in an {@code Object} field, its type written by the {@link IncrementalIdStrategy}.
+         */
+        INCREMENTAL,
+        /**
+         * The pojo in an {@code Object} field, its type written by the {@link ExplicitIdStrategy}.
+         */
+        EXPLICIT;
+
+        public boolean isPolymorphic()
+        {
+            return ordinal() > RUNTIME.ordinal();
+        }
+
+        IdStrategy newStrategy()
+        {
+            switch (this)
+            {
+                case DEFAULT:
+                    return new DefaultIdStrategy();
+                case INCREMENTAL:
+                    return new IncrementalIdStrategy.Factory().create();
+                case EXPLICIT:
+                    return new ExplicitIdStrategy.Registry()
+                            .registerPojo(Wrapper.class, 1)
+                            .registerPojo(Payload.Node.class, 2)
+                            .registerPojo(Payload.Text.class, 3)
+                            .registerPojo(Payload.Numbers.class, 4)
+                            .registerPojo(Payload.Item.class, 5)
+                            .registerPojo(Payload.Catalog.class, 6)
+                            .strategy;
+                default:
+                    throw new IllegalStateException("Not polymorphic: " + this);
+            }
+        }
+    }
+
+    /**
+     * The holder of a polymorphic payload.
+     */
+    static final class Wrapper
+    {
+        Object value;
+    }
+
+    @Param({ "protostuff", "protobuf", "graph", "json", "jsonx", "smile", "msgpack", "msgpackx",
+            "xml", "xmlx", "yaml", "kvp" })
+    public String format;
+
+    @Param({ "generated", "runtime", "default", "incremental", "explicit" })
+    public String schema;
+
+    @Param({ "deep", "strings", "arrays", "maps", "cyclic" })
+    public String payload;
+
+    static final int BUFFER_SIZE = 4096;
+
+    private Format messageFormat;
+    private Schema<Object> messageSchema;
+    private Object message;
+    private byte[] data;
+    private LinkedBuffer buffer;
+
+    /**
+     * Returns why the combination is not supported, or null if it is.
+     */
+    public static String unsupported(Format format, SchemaKind schema, Payload payload)
+    {
+        if (payload.cyclic && format != Format.GRAPH)
+            return "only the graph format handles cyclic references";
+
+        if (format == Format.KVP && (payload.nested || schema.isPolymorphic()))
+            return "kvp has no nested messages";
+
+        if (format == Format.KVP && payload == Payload.ARRAYS && schema == SchemaKind.RUNTIME)
+            return "kvp has no nested messages (for the arrays of the runtime schema)";
+
+        if (format == Format.KVP && payload == Payload.STRINGS)
+            return "kvp values are limited to 64k bytes (uint16 length)";
+
+        return null;
+    }
+
+    /**
+     * Runs the supported combinations. The args filter them, like {@code format=json,protobuf payload=maps}, and
+     * {@code out=file.csv} sets the results file (format-matrix.csv by default).
+     */
+    public static void main(String[] args) throws RunnerException, IOException
+    {
+        List<Format> formats = Arrays.asList(Format.values());
+        List<SchemaKind> schemas = Arrays.asList(SchemaKind.values());
+        List<Payload> payloads = Arrays.asList(Payload.values());
+        String out = "format-matrix.csv";
+        for (String arg : args)
+        {
+            final int eq = arg.indexOf('=');
+            final String name = arg.substring(0, eq), value = arg.substring(eq + 1);
+            if ("format".equals(name))
+                formats = valuesOf(Format.class, value);
+            else if ("schema".equals(name))
+                schemas = valuesOf(SchemaKind.class, value);
+            else if ("payload".equals(name))
+                payloads = valuesOf(Payload.class, value);
+            else if ("out".equals(name))
+                out = value;
+            else
+                throw new IllegalArgumentException("Unknown arg: " + arg);
+        }
+
+        final ArrayList<RunResult> results = new ArrayList<RunResult>();
+        for (Format f : formats)
+        {
+            for (SchemaKind s : schemas)
+            {
+                for (Payload p : payloads)
+                {
+                    final String reason = unsupported(f, s, p);
+                    if (reason != null)
+                    {
+                        System.out.println("# Skipping " + f + "/" + s + "/" + p + ": " + reason);
+                        continue;
+                    }
+
+                    Options opt = new OptionsBuilder()
+                            .include(FormatMatrixBenchmark.class.getName() + "\\.")
+                            .param("format", f.name().toLowerCase())
+                            .param("schema", s.name().toLowerCase())
+                            .param("payload", p.name().toLowerCase())
+                            .addProfiler(GCProfiler.class)
+                            .addProfiler(AllocationProfiler.class)
+                            .build();
+                    results.addAll(new Runner(opt).run());
+                }
+            }
+        }
+
+        final PrintStream ps = new PrintStream(new FileOutputStream(out), false, "UTF-8");
+        try
+        {
+            writeCsv(results, ps);
+        }
+        finally
+        {
+            ps.close();
+        }
+        System.out.println("# Results written to " + out);
+    }
+
+    static <E extends Enum<E>> List<E> valuesOf(Class<E> enumClass, String csv)
+    {
+        final ArrayList<E> values = new ArrayList<E>();
+        for (String name : csv.split(","))
+            values.add(Enum.valueOf(enumClass, name.trim().toUpperCase()));
+        return values;
+    }
+
+    /**
+     * Writes the results like the csv of jmh (-rf csv), with an additional {@code @alloc.norm} row (in bytes per
+     * operation) derived from the allocation rate and the average time.
+     */
+    static void writeCsv(List<RunResult> results, PrintStream ps)
+    {
+        ps.println("\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\"," +
+                "\"Unit\",\"Param: format\",\"Param: payload\",\"Param: schema\"");
+        for (RunResult rr : results)
+        {
+            final BenchmarkParams params = rr.getParams();
+            final Result primary = rr.getPrimaryResult();
+            writeCsvRow(ps, params, params.getBenchmark(), primary.getSampleCount(),
+                    primary.getScore(), primary.getScoreError(), primary.getScoreUnit());
+
+            for (Map.Entry<String, Result> entry : rr.getSecondaryResults().entrySet())
+            {
+                final Result r = entry.getValue();
+                writeCsvRow(ps, params, params.getBenchmark() + ":" + entry.getKey(),
+                        r.getSampleCount(), r.getScore(), r.getScoreError(), r.getScoreUnit());
+            }
+
+            final Result rate = rr.getSecondaryResults().get(AllocationProfiler.RATE);
+            if (rate != null && "ns/op".equals(primary.getScoreUnit()))
+            {
+                // MB/sec * ns/op
+                writeCsvRow(ps, params, params.getBenchmark() + ":" + AllocationProfiler.NORM,
+                        rate.getSampleCount(), rate.getScore() * 1024 * 1024 * primary.getScore() / 1e9,
+                        Double.NaN, "B/op");
+            }
+        }
+    }
+
+    static void writeCsvRow(PrintStream ps, BenchmarkParams params, String label, long samples,
+            double score, double error, String unit)
+    {
+        ps.printf(Locale.ROOT, "\"%s\",\"%s\",%d,%d,%f,%f,\"%s\",%s,%s,%s%n", label,
+                params.getMode().shortLabel(), params.getThreads(), samples, score, error, unit,
+                params.getParam("format"), params.getParam("payload"), params.getParam("schema"));
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void prepare() throws IOException
+    {
+        messageFormat = Format.valueOf(format.toUpperCase());
+        final SchemaKind schemaKind = SchemaKind.valueOf(schema.toUpperCase());
+        final Payload messagePayload = Payload.valueOf(payload.toUpperCase());
+
+        final String reason = unsupported(messageFormat, schemaKind, messagePayload);
+        if (reason != null)
+            throw new IllegalStateException(format + "/" + schema + "/" + payload + ": " + reason);
+
+        if (schemaKind == SchemaKind.GENERATED)
+        {
+            message = messagePayload.newGenerated();
+            messageSchema = ((Message<Object>) message).cachedSchema();
+        }
+        else if (schemaKind == SchemaKind.RUNTIME)
+        {
+            message = messagePayload.newPojo();
+            messageSchema = (Schema<Object>) RuntimeSchema.getSchema(message.getClass());
+        }
+        else
+        {
+            final Wrapper wrapper = new Wrapper();
+            wrapper.value = messagePayload.newPojo();
+            message = wrapper;
+            messageSchema = (Schema<Object>) (Schema<?>) RuntimeSchema.createFrom(Wrapper.class,
+                    schemaKind.newStrategy());
+        }
+
+        // smile needs at least 770 bytes
+        buffer = LinkedBuffer.allocate(BUFFER_SIZE);
+        data = serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException
+    {
+        try
+        {
+            return messageFormat.serialize(message, messageSchema, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException
+    {
+        final Object m = messageSchema.newMessage();
+        messageFormat.deserialize(data, m, messageSchema);
+        return m;
+    }
+
+}
@@ -0,0 +1,283 @@
+package io.protostuff.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The payload shapes of the benchmarks, as pojos (for the runtime schemas) and as messages generated from
+ * payloads.proto. Both are filled with the same data, from a fixed seed.
+ */
+public enum Payload
+{
+
+    /**
+     * A chain of 64 nested messages.
+     */
+    DEEP(true, false)
+    {
+        @Override
+        public Object newPojo()
+        {
+            final Random random = new Random(SEED);
+            Node node = null;
+            for (int i = 0; i < 64; i++)
+            {
+                final Node parent = new Node(i, text(random, 16));
+                parent.child = node;
+                node = parent;
+            }
+            return node;
+        }
+
+        @Override
+        public Object newGenerated()
+        {
+            final Random random = new Random(SEED);
+            GeneratedNode node = null;
+            for (int i = 0; i < 64; i++)
+                node = new GeneratedNode().setId(i).setName(text(random, 16)).setChild(node);
+            return node;
+        }
+    },
+    /**
+     * A 64k chars string and 64 strings of 256 chars, with some non-ascii chars.
+     */
+    STRINGS(false, false)
+    {
+        @Override
+        public Object newPojo()
+        {
+            final Random random = new Random(SEED);
+            final Text text = new Text();
+            text.title = text(random, 64);
+            text.body = text(random, 64 * 1024);
+            text.lines = new ArrayList<String>();
+            for (int i = 0; i < 64; i++)
+                text.lines.add(text(random, 256));
+            return text;
+        }
+
+        @Override
+        public Object newGenerated()
+        {
+            final Random random = new Random(SEED);
+            final GeneratedText text = new GeneratedText()
+                    .setTitle(text(random, 64))
+                    .setBody(text(random, 64 * 1024));
+            for (int i = 0; i < 64; i++)
+                text.addLines(text(random, 256));
+            return text;
+        }
+    },
+    /**
+     * 1024 ints, longs and doubles (primitive arrays in the pojo, boxed lists in the generated message).
+     */
+    ARRAYS(false, false)
+    {
+        @Override
+        public Object newPojo()
+        {
+            final Random random = new Random(SEED);
+            final Numbers numbers = new Numbers();
+            numbers.ints = new int[1024];
+            numbers.longs = new long[1024];
+            numbers.doubles = new double[1024];
+            for (int i = 0; i < 1024; i++)
+            {
+                numbers.ints[i] = randomInt(random);
+                numbers.longs[i] = randomLong(random);
+                numbers.doubles[i] = random.nextDouble() * 1000;
+            }
+            return numbers;
+        }
+
+        @Override
+        public Object newGenerated()
+        {
+            final Random random = new Random(SEED);
+            final GeneratedNumbers numbers = new GeneratedNumbers();
+            final List<Integer> ints = new ArrayList<Integer>(1024);
+            final List<Long> longs = new ArrayList<Long>(1024);
+            final List<Double> doubles = new ArrayList<Double>(1024);
+            for (int i = 0; i < 1024; i++)
+            {
+                ints.add(randomInt(random));
+                longs.add(randomLong(random));
+                doubles.add(random.nextDouble() * 1000);
+            }
+            return numbers.setIntsList(ints).setLongsList(longs).setDoublesList(doubles);
+        }
+    },
+    /**
+     * A map of 256 items (a repeated entry message in the generated message).
+     */
+    MAPS(true, false)
+    {
+        @Override
+        public Object newPojo()
+        {
+            final Random random = new Random(SEED);
+            final Catalog catalog = new Catalog();
+            catalog.items = new HashMap<String, Item>();
+            for (int i = 0; i < 256; i++)
+            {
+                final Item item = new Item();
+                item.id = i;
+                item.name = text(random, 24);
+                item.price = random.nextInt(100000) / 100d;
+                catalog.items.put("item-" + i, item);
+            }
+            return catalog;
+        }
+
+        @Override
+        public Object newGenerated()
+        {
+            final Random random = new Random(SEED);
+            final GeneratedCatalog catalog = new GeneratedCatalog();
+            for (int i = 0; i < 256; i++)
+            {
+                final GeneratedItem item = new GeneratedItem()
+                        .setId(i)
+                        .setName(text(random, 24))
+                        .setPrice(random.nextInt(100000) / 100d);
+                catalog.addItems(new GeneratedCatalog.Entry().setKey("item-" + i).setValue(item));
+            }
+            return catalog;
+        }
+    },
+    /**
+     * A ring of 64 nodes linked both ways (only the graph format handles the references).
+     */
+    CYCLIC(true, true)
+    {
+        @Override
+        public Object newPojo()
+        {
+            final Random random = new Random(SEED);
+            final Node first = new Node(0, text(random, 16));
+            Node node = first;
+            for (int i = 1; i < 64; i++)
+            {
+                final Node next = new Node(i, text(random, 16));
+                next.parent = node;
+                node.child = next;
+                node = next;
+            }
+            node.child = first;
+            first.parent = node;
+            return first;
+        }
+
+        @Override
+        public Object newGenerated()
+        {
+            final Random random = new Random(SEED);
+            final GeneratedNode first = new GeneratedNode().setId(0).setName(text(random, 16));
+            GeneratedNode node = first;
+            for (int i = 1; i < 64; i++)
+            {
+                final GeneratedNode next = new GeneratedNode().setId(i).setName(text(random, 16))
+                        .setParent(node);
+                node.setChild(next);
+                node = next;
+            }
+            node.setChild(first);
+            first.setParent(node);
+            return first;
+        }
+    };
+
+    static final long SEED = 1;
+
+    static final String NON_ASCII = "éüñßçøЖ中文日";
+
+    public final boolean nested, cyclic;
+
+    private Payload(boolean nested, boolean cyclic)
+    {
+        this.nested = nested;
+        this.cyclic = cyclic;
+    }
+
+    public abstract Object newPojo();
+
+    public abstract Object newGenerated();
+
+    static String text(Random random, int length)
+    {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+        {
+            final int c = random.nextInt(48);
+            if (c < 26)
+                sb.append((char) ('a' + c));
+            else if (c < 36)
+                sb.append((char) ('0' + c - 26));
+            else if (c < 46)
+                sb.append(' ');
+            else
+                sb.append(NON_ASCII.charAt(random.nextInt(NON_ASCII.length())));
+        }
+        return sb.toString();
+    }
+
+    static int randomInt(Random random)
+    {
+        return random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(1000);
+    }
+
+    static long randomLong(Random random)
+    {
+        return random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(1000000);
+    }
+
+    public static final class Node
+    {
+        int id;
+        String name;
+        Node child;
+        Node parent;
+
+        Node()
+        {
+
+        }
+
+        Node(int id, String name)
+        {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static final class Text
+    {
+        String title;
+        String body;
+        List<String> lines;
+    }
+
+    public static final class Numbers
+    {
+        int[] ints;
+        long[] longs;
+        double[] doubles;
+    }
+
+    public static final class Item
+    {
+        int id;
+        String name;
+        double price;
+    }
+
+    public static final class Catalog
+    {
+        Map<String, Item> items;
+    }
+
+}
@@ -0,0 +1,157 @@
+package io.protostuff.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.protostuff.CollectionSchema;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.MapSchema;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.ExplicitIdStrategy;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.IncrementalIdStrategy;
+import io.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Decodes a batch of polymorphic values (pojos, collections and maps in {@code Object} slots) from 64 threads
+ * sharing the same id strategy, where each value resolves its type (by id or by name) while the other threads do
+ * the same. The number of threads can be changed with {@code -t}.
+ */
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PolymorphicDecodeBenchmark
+{
+
+    static final int BATCH_SIZE = 64;
+
+    @Param({ "default", "incremental", "explicit" })
+    public String strategy;
+
+    private Schema<Batch> schema;
+    private byte[] data;
+
+    /**
+     * The values, each with its type written.
+     */
+    static final class Batch
+    {
+        Object[] values;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(PolymorphicDecodeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    static IdStrategy newStrategy(String strategy)
+    {
+        if ("default".equals(strategy))
+            return new DefaultIdStrategy();
+        if ("incremental".equals(strategy))
+            return new IncrementalIdStrategy.Factory().create();
+        if ("explicit".equals(strategy))
+        {
+            return new ExplicitIdStrategy.Registry()
+                    .registerCollection(CollectionSchema.MessageFactories.ArrayList, 1)
+                    .registerMap(MapSchema.MessageFactories.HashMap, 1)
+                    .registerPojo(Batch.class, 1)
+                    .registerPojo(Payload.Node.class, 2)
+                    .registerPojo(Payload.Text.class, 3)
+                    .registerPojo(Payload.Numbers.class, 4)
+                    .registerPojo(Payload.Item.class, 5)
+                    .strategy;
+        }
+
+        throw new IllegalStateException("Unknown strategy: " + strategy);
+    }
+
+    static Batch newBatch()
+    {
+        final Batch batch = new Batch();
+        batch.values = new Object[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            switch (i % 5)
+            {
+                case 0:
+                    batch.values[i] = new Payload.Node(i, "node" + i);
+                    break;
+                case 1:
+                    final Payload.Text text = new Payload.Text();
+                    text.title = "text" + i;
+                    batch.values[i] = text;
+                    break;
+                case 2:
+                    final Payload.Numbers numbers = new Payload.Numbers();
+                    numbers.ints = new int[] { i, i + 1 };
+                    batch.values[i] = numbers;
+                    break;
+                case 3:
+                    final ArrayList<Object> list = new ArrayList<Object>();
+                    list.add(newItem(i));
+                    list.add(newItem(i + 1));
+                    batch.values[i] = list;
+                    break;
+                default:
+                    final HashMap<String, Object> map = new HashMap<String, Object>();
+                    map.put("item" + i, newItem(i));
+                    batch.values[i] = map;
+            }
+        }
+        return batch;
+    }
+
+    static Payload.Item newItem(int id)
+    {
+        final Payload.Item item = new Payload.Item();
+        item.id = id;
+        item.name = "item" + id;
+        item.price = id / 10d;
+        return item;
+    }
+
+    @Setup
+    public void prepare()
+    {
+        schema = RuntimeSchema.getSchema(Batch.class, newStrategy(strategy));
+        // registers the types of the incremental strategy
+        data = ProtostuffIOUtil.toByteArray(newBatch(), schema, LinkedBuffer.allocate());
+    }
+
+    @Benchmark
+    public Batch decode()
+    {
+        final Batch batch = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, batch, schema);
+        return batch;
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.protostuff.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.protostuff.Schema;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.IncrementalIdStrategy;
+import io.protostuff.runtime.RuntimeSchema;
+import io.protostuff.runtime.SchemaWarmup;
+
+/**
+ * The cost of the first schema of a type, what the first request of each type pays without a warm-up.
+ * <p>
+ * Each fork measures a single creation on a fresh jvm (the schema classes of protostuff are already initialized by a
+ * schema of an unrelated type, so only the cost of the type is measured). The {@code warmup} benchmarks create the
+ * schemas of all the {@link Payload} types (and the types they reach) with the {@link SchemaWarmup}.
+ */
+@Fork(20)
+@State(Scope.Benchmark)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchemaCreationBenchmark
+{
+
+    static final List<Class<?>> PAYLOAD_TYPES = Arrays.<Class<?>> asList(Payload.Node.class,
+            Payload.Text.class, Payload.Numbers.class, Payload.Catalog.class);
+
+    @Param({ "default", "incremental" })
+    public String strategy;
+
+    private IdStrategy idStrategy;
+
+    /**
+     * The type of {@link #createSchema(TypeState)}.
+     */
+    @State(Scope.Benchmark)
+    public static class TypeState
+    {
+        @Param({ "Payload$Node", "Payload$Text", "Payload$Numbers", "Payload$Catalog",
+                "GeneratedCatalog" })
+        public String type;
+
+        private Class<?> typeClass;
+
+        @Setup
+        public void prepare() throws ClassNotFoundException
+        {
+            typeClass = Class.forName(SchemaCreationBenchmark.class.getPackage().getName() + "."
+                    + type);
+        }
+    }
+
+    /**
+     * Initializes protostuff itself.
+     */
+    static final class Unrelated
+    {
+        int id;
+        String name;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(SchemaCreationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void prepare()
+    {
+        if ("default".equals(strategy))
+            idStrategy = new DefaultIdStrategy();
+        else if ("incremental".equals(strategy))
+            idStrategy = new IncrementalIdStrategy.Factory().create();
+        else
+            throw new IllegalStateException("Unknown strategy: " + strategy);
+
+        RuntimeSchema.getSchema(Unrelated.class, idStrategy);
+    }
+
+    @Benchmark
+    public Schema<?> createSchema(TypeState state)
+    {
+        return RuntimeSchema.getSchema(state.typeClass, idStrategy);
+    }
+
+    @Benchmark
+    public SchemaWarmup.Result warmup() throws InterruptedException
+    {
+        return new SchemaWarmup(idStrategy)
+                .addClasses(PAYLOAD_TYPES)
+                .run();
+    }
+
+    @Benchmark
+    public SchemaWarmup.Result warmupSingleThread() throws InterruptedException
+    {
+        return new SchemaWarmup(idStrategy)
+                .threads(1)
+                .addClasses(PAYLOAD_TYPES)
+                .run();
+    }
+
+}
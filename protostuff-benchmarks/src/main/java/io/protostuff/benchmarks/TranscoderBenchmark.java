@@ -0,0 +1,165 @@
+package io.protostuff.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.protostuff.JsonXIOUtil;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.MsgpackXIOUtil;
+import io.protostuff.Pipe;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Transcoder;
+import io.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Compares the {@link Transcoder} (streamed through a pipe) with deserializing then serializing the message.
+ */
+@Fork(1)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TranscoderBenchmark
+{
+
+    static final class Item
+    {
+        String sku;
+        int quantity;
+        double price;
+    }
+
+    static final class Order
+    {
+        long id;
+        String customer;
+        String address;
+        List<String> tags;
+        List<Item> items;
+    }
+
+    private static final Transcoder PROTOSTUFF_TO_JSON = new Transcoder(
+            ProtostuffIOUtil.transcoderSource(), JsonXIOUtil.transcoderTarget(false));
+
+    private static final Transcoder PROTOBUF_TO_MSGPACK = new Transcoder(
+            ProtobufIOUtil.transcoderSource(), MsgpackXIOUtil.transcoderTarget(false));
+
+    private RuntimeSchema<Order> schema;
+    private Pipe.Schema<Order> pipeSchema;
+
+    private byte[] protostuffData;
+    private byte[] protobufData;
+
+    private LinkedBuffer buffer;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TranscoderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void prepare() throws IOException
+    {
+        schema = (RuntimeSchema<Order>) RuntimeSchema.getSchema(Order.class);
+        pipeSchema = schema.getPipeSchema();
+        buffer = LinkedBuffer.allocate();
+
+        final Order order = new Order();
+        order.id = 1234567890123L;
+        order.customer = "Jane Doe";
+        order.address = "1600 Amphitheatre Parkway, Mountain View, CA 94043";
+        order.tags = Arrays.asList("priority", "gift", "international");
+        order.items = new ArrayList<Item>();
+        for (int i = 0; i < 10; i++)
+        {
+            final Item item = new Item();
+            item.sku = "SKU-" + (100000 + i);
+            item.quantity = i + 1;
+            item.price = 9.99 * (i + 1);
+            order.items.add(item);
+        }
+
+        try
+        {
+            protostuffData = ProtostuffIOUtil.toByteArray(order, schema, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+        try
+        {
+            protobufData = ProtobufIOUtil.toByteArray(order, schema, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    @Benchmark
+    public byte[] protostuffToJsonTranscoder() throws IOException
+    {
+        return PROTOSTUFF_TO_JSON.transcode(protostuffData, pipeSchema);
+    }
+
+    @Benchmark
+    public byte[] protostuffToJsonMaterialized() throws IOException
+    {
+        final Order order = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(protostuffData, order, schema);
+        try
+        {
+            return JsonXIOUtil.toByteArray(order, schema, false, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    @Benchmark
+    public byte[] protobufToMsgpackTranscoder() throws IOException
+    {
+        return PROTOBUF_TO_MSGPACK.transcode(protobufData, pipeSchema);
+    }
+
+    @Benchmark
+    public byte[] protobufToMsgpackMaterialized() throws IOException
+    {
+        final Order order = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(protobufData, order, schema);
+        try
+        {
+            return MsgpackXIOUtil.toByteArray(order, schema, false, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+}
@@ -31,14 +31,26 @@ package io.protostuff.compiler;
 import java.io.File;
 import java.net.URL;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import io.protostuff.parser.DefaultProtoLoader;
 import io.protostuff.parser.Proto;
+import io.protostuff.parser.ProtoCache;
 
 /**
  * A proto loader that caches the protos for re-use.
+ * <p>
+ * The loader can be shared by modules compiled in parallel: a proto requested by several threads at once is parsed
+ * only once, and the other threads wait for it. When a custom map is given, it must be thread-safe in that case.
+ * <p>
+ * Each loader parses its own protos by default. The loaders can also load the files through a {@link ProtoCache}
+ * (e.g {@link ProtoCache#getInstance(File)}), which parses the files that did not change only once across loaders
+ * and builds. Since the compilers modify the protos they compile (e.g the package overrides of a module, or the
+ * {@code ByteBuffer} option of java_bean_primitives), each loader gets its own copies of the cached protos.
  * 
  * @author David Yu
  * @created Dec 4, 2011
@@ -47,14 +59,36 @@ public class CachingProtoLoader extends DefaultProtoLoader
 {
     public final Map<String, Proto> loadedProtos;
 
+    /**
+     * The cache where the proto files are loaded from, or null if this loader parses them itself.
+     */
+    public final ProtoCache protoCache;
+
+    private final ConcurrentHashMap<String, FutureTask<Proto>> pending =
+            new ConcurrentHashMap<String, FutureTask<Proto>>();
+
     public CachingProtoLoader()
     {
-        this(new HashMap<String, Proto>());
+        this(new ConcurrentHashMap<String, Proto>());
+    }
+
+    /**
+     * Creates a loader that loads the proto files through the given {@code protoCache}.
+     */
+    public CachingProtoLoader(ProtoCache protoCache)
+    {
+        this(new ConcurrentHashMap<String, Proto>(), protoCache);
     }
 
     public CachingProtoLoader(Map<String, Proto> loadedProtos)
+    {
+        this(loadedProtos, null);
+    }
+
+    public CachingProtoLoader(Map<String, Proto> loadedProtos, ProtoCache protoCache)
     {
         this.loadedProtos = loadedProtos;
+        this.protoCache = protoCache;
     }
 
     public Collection<Proto> getCachedProtos()
@@ -63,24 +97,83 @@ public class CachingProtoLoader extends DefaultProtoLoader
     }
 
     @Override
-    public Proto loadFrom(File file, Proto importer) throws Exception
+    public Proto loadFrom(final File file, Proto importer) throws Exception
     {
         String key = file.getCanonicalPath();
         Proto proto = loadedProtos.get(key);
-        if (proto == null)
-            loadedProtos.put(key, proto = super.loadFrom(file, null));
+        if (proto != null)
+            return proto;
 
-        return proto;
+        return load(key, new Callable<Proto>()
+        {
+            @Override
+            public Proto call() throws Exception
+            {
+                return protoCache == null ? CachingProtoLoader.super.loadFrom(file, null) :
+                        protoCache.loadCopy(file);
+            }
+        });
     }
 
     @Override
-    public Proto loadFrom(URL resource, Proto importer) throws Exception
+    public Proto loadFrom(final URL resource, Proto importer) throws Exception
     {
         String key = resource.toExternalForm();
         Proto proto = loadedProtos.get(key);
-        if (proto == null)
-            loadedProtos.put(key, proto = super.loadFrom(resource, null));
+        if (proto != null)
+            return proto;
+
+        return load(key, new Callable<Proto>()
+        {
+            @Override
+            public Proto call() throws Exception
+            {
+                return CachingProtoLoader.super.loadFrom(resource, null);
+            }
+        });
+    }
+
+    /**
+     * Parses the proto on the current thread, unless another thread is already parsing it.
+     */
+    private Proto load(String key, Callable<Proto> parser) throws Exception
+    {
+        final FutureTask<Proto> task = new FutureTask<Proto>(parser);
+        FutureTask<Proto> existing = pending.putIfAbsent(key, task);
+        if (existing == null)
+        {
+            // the proto may have been cached just before
+            final Proto cached = loadedProtos.get(key);
+            if (cached != null)
+            {
+                pending.remove(key, task);
+                return cached;
+            }
+
+            task.run();
+            existing = task;
+        }
+
+        try
+        {
+            final Proto proto = existing.get();
+            if (existing == task)
+            {
+                loadedProtos.put(key, proto);
+                pending.remove(key);
+            }
+            return proto;
+        }
+        catch (ExecutionException e)
+        {
+            // let the next call try again
+            pending.remove(key, existing);
+
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
 
-        return proto;
+            throw (Error) cause;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package io.protostuff.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.protostuff.parser.DefaultProtoLoader;
+
+/**
+ * Remembers a content hash of the inputs of each compiled output of a module, so that the outputs whose inputs did
+ * not change since the last build can be skipped.
+ * <p>
+ * The hash covers the output, encoding and options of the module, the template of the output (including its super
+ * groups), and the content of every proto file of the module along with the imports resolved when it was last
+ * compiled. An output is also recompiled when one of the files it generated is missing. Templates loaded from a url
+ * are not hashed.
+ * <p>
+ * The entries are kept in a properties file, written on {@link #save()}. A cache can be shared by outputs compiled in
+ * parallel.
+ */
+public final class CompileCache
+{
+
+    static final Pattern SUPER_GROUP = Pattern.compile("group\\s+[\\w.]+\\s*:\\s*([\\w.]+)\\s*;");
+
+    static final Pattern NEWLINE = Pattern.compile("\n");
+
+    /**
+     * The prefix of the generated files in an entry.
+     */
+    static final char GENERATED = '>';
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public final File file;
+
+    private final ConcurrentHashMap<String, String> entries =
+            new ConcurrentHashMap<String, String>();
+
+    public CompileCache(File file) throws IOException
+    {
+        this.file = file;
+
+        if (file.exists())
+        {
+            Properties props = new Properties();
+            FileInputStream in = new FileInputStream(file);
+            try
+            {
+                props.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+
+            for (String key : props.stringPropertyNames())
+                entries.put(key, props.getProperty(key));
+        }
+    }
+
+    /**
+     * Returns true if the module (with a single output) was last compiled with the same inputs.
+     */
+    public boolean isUpToDate(ProtoModule module) throws IOException
+    {
+        final String entry = entries.get(keyOf(module));
+        if (entry == null)
+            return false;
+
+        final String[] lines = NEWLINE.split(entry);
+        final TreeSet<File> files = sourceFilesOf(module);
+        for (int i = 1; i < lines.length; i++)
+        {
+            if (lines[i].charAt(0) != GENERATED)
+                files.add(new File(lines[i]));
+            else if (!new File(lines[i].substring(1)).exists())
+                return false;
+        }
+
+        return lines[0].equals(hash(module, files));
+    }
+
+    /**
+     * Records the inputs of the module (with a single output) after it is compiled.
+     */
+    public void update(ProtoModule module) throws IOException
+    {
+        final TreeSet<File> files = sourceFilesOf(module);
+        if (module.parsedProtoFiles != null)
+        {
+            for (File f : module.parsedProtoFiles)
+                files.add(f.getCanonicalFile());
+        }
+
+        final StringBuilder entry = new StringBuilder(hash(module, files));
+        for (File f : files)
+            entry.append('\n').append(f.getPath());
+
+        if (module.generatedFiles != null)
+        {
+            for (File f : module.generatedFiles)
+                entry.append('\n').append(GENERATED).append(f.getAbsolutePath());
+        }
+
+        entries.put(keyOf(module), entry.toString());
+    }
+
+    /**
+     * Writes the entries to the {@link #file}.
+     */
+    public void save() throws IOException
+    {
+        Properties props = new Properties();
+        props.putAll(entries);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists())
+            parent.mkdirs();
+
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            props.store(out, "protostuff-compiler");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    static String keyOf(ProtoModule module) throws IOException
+    {
+        return module.getOutput() + '|' + module.getSource().getCanonicalPath() + '|' +
+                module.getOutputDir().getCanonicalPath();
+    }
+
+    static TreeSet<File> sourceFilesOf(ProtoModule module) throws IOException
+    {
+        final TreeSet<File> files = new TreeSet<File>();
+        final File source = module.getSource();
+        if (source.isDirectory())
+        {
+            for (File f : CompilerUtil.getProtoFiles(source))
+                files.add(f.getCanonicalFile());
+        }
+        else
+            files.add(source.getCanonicalFile());
+
+        return files;
+    }
+
+    static String hash(ProtoModule module, TreeSet<File> files) throws IOException
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        update(digest, module.getOutput());
+        update(digest, module.getEncoding());
+        update(digest, CompilerMain.class.getPackage().getImplementationVersion());
+
+        // sorted, for a stable hash
+        final TreeMap<String, String> options = new TreeMap<String, String>();
+        for (Map.Entry<Object, Object> entry : module.getOptions().entrySet())
+            options.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+
+        for (Map.Entry<String, String> entry : options.entrySet())
+        {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue());
+        }
+
+        updateTemplate(digest, module.getOutput());
+
+        for (File f : files)
+        {
+            update(digest, f.getPath());
+            if (f.exists())
+                digest.update(readFrom(new FileInputStream(f)));
+        }
+
+        final byte[] bytes = digest.digest();
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    static void update(MessageDigest digest, String str) throws IOException
+    {
+        if (str != null)
+            digest.update(str.getBytes("UTF-8"));
+
+        // delimiter
+        digest.update((byte) 0);
+    }
+
+    static void updateTemplate(MessageDigest digest, String output) throws IOException
+    {
+        byte[] content;
+        if (output.endsWith(".stg"))
+        {
+            File f = new File(output);
+            content = f.exists() ? readFrom(new FileInputStream(f)) : readResource(output);
+        }
+        else
+            content = readResource(STCodeGenerator.TEMPLATE_BASE + "/" + output + ".stg");
+
+        // follow the super groups (e.g "group java_bean_packed : java_bean;")
+        for (int depth = 0; content != null && depth < 16; depth++)
+        {
+            digest.update(content);
+
+            Matcher matcher = SUPER_GROUP.matcher(new String(content, "UTF-8"));
+            content = matcher.find() ? readResource(STCodeGenerator.TEMPLATE_BASE + "/" +
+                    matcher.group(1) + ".stg") : null;
+        }
+    }
+
+    static byte[] readResource(String path) throws IOException
+    {
+        URL url = DefaultProtoLoader.getResource(path, CompileCache.class);
+        return url == null ? null : readFrom(url.openStream());
+    }
+
+    static byte[] readFrom(InputStream in) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int read; (read = in.read(buf)) != -1;)
+                out.write(buf, 0, read);
+
+            return out.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+}
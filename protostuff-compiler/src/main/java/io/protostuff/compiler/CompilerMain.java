@@ -19,11 +19,20 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
+import io.protostuff.parser.ProtoCache;
+
 /**
  * The main execution point of compiling protos.
  *
@@ -38,6 +47,12 @@ public final class CompilerMain
 
     public static final Pattern COMMA = Pattern.compile(",");
 
+    /**
+     * The number of threads used by {@link #compile(List)}, which compiles the modules one after another by default.
+     * Can be overridden per properties file with the "compile_threads" property.
+     */
+    public static final int THREADS = Integer.getInteger("protostuff.compiler.threads", 1);
+
     static final HashMap<String, ProtoCompiler> __compilers =
             new HashMap<String, ProtoCompiler>();
     private static CompilerResolver __compilerResolver = null;
@@ -45,6 +60,9 @@ public final class CompilerMain
     {
         addCompiler(new ProtoToJavaBeanCompiler());
         addCompiler(new ProtoToJavaBeanPrimitiveCompiler());
+        addCompiler(new ProtoToJavaBeanPackedCompiler());
+        addCompiler(new ProtoToJavaViewCompiler());
+        addCompiler(new ProtoToJavaBenchmarkCompiler());
         addCompiler(new ProtoToJavaBeanMeCompiler());
         addCompiler(new ProtoToGwtOverlayCompiler());
         addCompiler(new ProtoToJavaV2ProtocSchemaCompiler());
@@ -133,8 +151,7 @@ public final class CompilerMain
             propsErr();
             return null;
         }
-        CachingProtoLoader loader = "true".equals(props.getProperty("cache_protos")) ?
-                new CachingProtoLoader() : null;
+        CachingProtoLoader loader = loaderFrom(props);
 
         Properties globalOptions = newGlobalOptions(props);
 
@@ -291,6 +308,13 @@ public final class CompilerMain
         System.err.println("bar.encoding = UTF-8");
         System.err.println("bar.options = separate_schema,generate_field_map");
 
+        System.err.println("\nOptionally, to compile in parallel and skip the unchanged modules:");
+        System.err.println("cache_protos = true");
+        System.err.println("compile_threads = 4");
+        System.err.println("compile_cache = target/protostuff-compiler.cache");
+        System.err.println("\nTo also skip the parsing of the unchanged protos on the next builds:");
+        System.err.println("proto_cache_dir = target/protostuff-parser-cache");
+
         System.err.println("\n===================================================\n");
 
         System.err.println("\nTo generate code for a single module, execute the jar without args and specify:");
@@ -396,14 +420,150 @@ public final class CompilerMain
 
     public static void compile(List<ProtoModule> modules) throws Exception
     {
+        compile(modules, THREADS, null);
+    }
+
+    /**
+     * Compiles the modules, where each output of a module is a separate task when {@code threads} is greater than 1.
+     * <p>
+     * If a {@link CompileCache} is provided, the outputs whose inputs did not change since they were last compiled
+     * are skipped, and the cache is saved once done.
+     */
+    public static void compile(List<ProtoModule> modules, int threads,
+            final CompileCache cache) throws Exception
+    {
+        if (threads < 2 && cache == null)
+        {
+            for (ProtoModule m : modules)
+                compile(m);
+
+            return;
+        }
+
+        final ArrayList<ProtoModule> tasks = new ArrayList<ProtoModule>();
         for (ProtoModule m : modules)
-            compile(m);
+        {
+            for (String output : COMMA.split(m.getOutput()))
+                tasks.add(m.newModuleFor(output.trim()));
+        }
+
+        try
+        {
+            if (threads < 2 || tasks.size() < 2)
+            {
+                for (ProtoModule m : tasks)
+                    compile(m, cache);
+
+                return;
+            }
+
+            final ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(threads, tasks.size()));
+            try
+            {
+                final ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for (final ProtoModule m : tasks)
+                {
+                    futures.add(executor.submit(new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            compile(m, cache);
+                            return null;
+                        }
+                    }));
+                }
+
+                for (Future<Void> f : futures)
+                {
+                    try
+                    {
+                        f.get();
+                    }
+                    catch (ExecutionException e)
+                    {
+                        final Throwable cause = e.getCause();
+                        if (cause instanceof Exception)
+                            throw (Exception) cause;
+
+                        throw (Error) cause;
+                    }
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+        finally
+        {
+            if (cache != null)
+                cache.save();
+        }
+    }
+
+    static void compile(ProtoModule module, CompileCache cache) throws Exception
+    {
+        if (cache == null)
+        {
+            compile(module);
+            return;
+        }
+
+        if (cache.isUpToDate(module))
+        {
+            if (!SILENT_MODE)
+            {
+                System.out.println("Skipped unchanged proto from " + module.getSource() +
+                        " to output: " + module.getOutput());
+            }
+            return;
+        }
+
+        module.parsedProtoFiles = new HashSet<File>();
+        module.generatedFiles = new HashSet<File>();
+        compile(module);
+        cache.update(module);
+    }
+
+    static int threadsFrom(Properties props)
+    {
+        String threads = props.getProperty("compile_threads");
+        return threads == null ? THREADS : Integer.parseInt(threads.trim());
+    }
+
+    /**
+     * Returns the loader shared by the modules, or null if the protos are not cached. With the "proto_cache_dir"
+     * property (or the {@value ProtoCache#CACHE_DIR_PROPERTY} system property), the protos are loaded through the
+     * {@link ProtoCache} that keeps them in that directory for the next builds. Otherwise, the "cache_protos"
+     * property caches them for this run only.
+     */
+    static CachingProtoLoader loaderFrom(Properties props)
+    {
+        String dir = props.getProperty("proto_cache_dir",
+                System.getProperty(ProtoCache.CACHE_DIR_PROPERTY));
+        if (dir != null && dir.length() != 0)
+            return new CachingProtoLoader(ProtoCache.getInstance(new File(dir)));
+
+        return "true".equals(props.getProperty("cache_protos")) ||
+                "true".equals(System.getProperty("cache_protos")) ?
+                new CachingProtoLoader() : null;
+    }
+
+    /**
+     * Returns the cache from the "compile_cache" property (the path of the file), or null if not set.
+     */
+    static CompileCache cacheFrom(Properties props) throws IOException
+    {
+        String file = props.getProperty("compile_cache", System.getProperty("compile_cache"));
+        return file == null ? null : new CompileCache(new File(file));
     }
 
     static void compileProfile(Properties props, String profile,
             CachingProtoLoader loader,
             Properties globalOptions, String[] rootProfileOptions,
-            final int nestCount) throws Exception
+            final int nestCount, int threads, CompileCache cache) throws Exception
     {
         String moduleString = props.getProperty(profile);
         if (moduleString == null || moduleString.length() == 0)
@@ -423,24 +583,31 @@ public final class CompilerMain
         String[] profileOptions = profileOptionsParam == null ? null :
                 COMMA.split(profileOptionsParam);
 
+        ArrayList<ProtoModule> modules = new ArrayList<ProtoModule>();
         for (String m : COMMA.split(moduleString))
         {
             m = m.trim();
 
             if (m.charAt(0) == '@')
             {
+                // compile the modules declared before it first
+                compile(modules, threads, cache);
+                modules.clear();
+
                 // referencing another profile
                 compileProfile(props, m, loader, globalOptions,
                         nestCount == 0 ? profileOptions : rootProfileOptions,
-                        nestCount + 1);
+                        nestCount + 1, threads, cache);
                 continue;
             }
 
-            compile(loadModule(props, m, loader, null, null,
+            modules.add(loadModule(props, m, loader, null, null,
                     globalOptions, profileOptions,
                     nestCount == 0 ? profileOptions : rootProfileOptions));
         }
 
+        compile(modules, threads, cache);
+
         final long end = System.nanoTime();
 
         for (int i = 0; i < nestCount; i++)
@@ -498,11 +665,10 @@ public final class CompilerMain
         }
 
         Properties globalOptions = newGlobalOptions(props);
+        int threads = threadsFrom(props);
+        CompileCache cache = cacheFrom(props);
 
-        final CachingProtoLoader loader =
-                ("true".equals(props.getProperty("cache_protos")) ||
-                "true".equals(System.getProperty("cache_protos"))) ?
-                        new CachingProtoLoader() : null;
+        final CachingProtoLoader loader = loaderFrom(props);
 
         boolean selectedProfileOrModule = false;
         for (String arg = propsResource;;)
@@ -512,7 +678,8 @@ public final class CompilerMain
                 if ((arg = args[offset]).charAt(0) == '@')
                 {
                     // activating a profile
-                    compileProfile(props, arg, loader, globalOptions, null, 0);
+                    compileProfile(props, arg, loader, globalOptions, null, 0,
+                            threads, cache);
 
                     selectedProfileOrModule = true;
                     offset++;
@@ -522,8 +689,8 @@ public final class CompilerMain
                 if (!new File(arg).exists())
                 {
                     // specific module
-                    compile(loadModule(props, arg, loader, null, null,
-                            globalOptions, null, null));
+                    compile(Collections.singletonList(loadModule(props, arg, loader,
+                            null, null, globalOptions, null, null)), threads, cache);
 
                     selectedProfileOrModule = true;
                     offset++;
@@ -546,6 +713,8 @@ public final class CompilerMain
                 }
 
                 globalOptions = newGlobalOptions(props);
+                threads = threadsFrom(props);
+                cache = cacheFrom(props);
 
                 continue;
             }
@@ -559,21 +728,29 @@ public final class CompilerMain
                 return;
             }
 
+            ArrayList<ProtoModule> modules = new ArrayList<ProtoModule>();
             for (String m : COMMA.split(moduleString))
             {
                 m = m.trim();
 
                 if (m.charAt(0) == '@')
                 {
+                    // compile the modules declared before it first
+                    compile(modules, threads, cache);
+                    modules.clear();
+
                     // referencing another profile
-                    compileProfile(props, m, loader, globalOptions, null, 0);
+                    compileProfile(props, m, loader, globalOptions, null, 0,
+                            threads, cache);
                     continue;
                 }
 
-                compile(loadModule(props, m, loader, null, null,
+                modules.add(loadModule(props, m, loader, null, null,
                         globalOptions, null, null));
             }
 
+            compile(modules, threads, cache);
+
             if (offset == limit)
                 return;
 
@@ -585,6 +762,8 @@ public final class CompilerMain
             }
 
             globalOptions = newGlobalOptions(props);
+            threads = threadsFrom(props);
+            cache = cacheFrom(props);
         }
     }
 
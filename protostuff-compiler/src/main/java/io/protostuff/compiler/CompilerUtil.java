@@ -45,6 +45,9 @@ public final class CompilerUtil
             packageDir.mkdirs();
 
         File outputFile = new File(packageDir, fileName);
+        if (module.generatedFiles != null)
+            module.generatedFiles.add(outputFile);
+
         FileOutputStream out = new FileOutputStream(outputFile);
         return new BufferedWriter(new OutputStreamWriter(out, encoding));
     }
@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Configuration for the proto w/c ontains the compile options and arguments.
@@ -45,6 +46,17 @@ public class ProtoModule implements Serializable
 
     private HashMap<String, Object> attributes = new HashMap<String, Object>();
 
+    /**
+     * The files of the protos parsed for this module (including their imports), recorded only when compiling with a
+     * {@link CompileCache}.
+     */
+    transient Set<File> parsedProtoFiles;
+
+    /**
+     * The files generated for this module, recorded only when compiling with a {@link CompileCache}.
+     */
+    transient Set<File> generatedFiles;
+
     public ProtoModule()
     {
 
@@ -205,4 +217,18 @@ public class ProtoModule implements Serializable
     {
         return attributes;
     }
+
+    /**
+     * Returns a copy of this module which only compiles the given {@code output}, so that the outputs of a module
+     * can be compiled in parallel.
+     */
+    ProtoModule newModuleFor(String output)
+    {
+        ProtoModule module = new ProtoModule(source, output, encoding, outputDir);
+        module.options.putAll(options);
+        module.config = config;
+        module.protoLoader = protoLoader;
+        module.attributes.putAll(attributes);
+        return module;
+    }
 }
@@ -0,0 +1,33 @@
+package io.protostuff.compiler;
+
+import java.io.IOException;
+
+import org.antlr.stringtemplate.StringTemplateGroup;
+
+import io.protostuff.parser.Proto;
+
+/**
+ * Compiles proto files to java beans whose repeated scalar fields (numbers and bools) are growable primitive arrays
+ * instead of lists of boxed values. They are written packed to protostuff/protobuf outputs (see
+ * {@code io.protostuff.PackedFields}), and read in either encoding.
+ * <p>
+ * The other fields, the getters/setters and the schema are the same as the {@code java_bean} output.
+ */
+public class ProtoToJavaBeanPackedCompiler extends ProtoToJavaBeanCompiler
+{
+
+    public ProtoToJavaBeanPackedCompiler()
+    {
+        super("java_bean_packed");
+    }
+
+    @Override
+    public void compile(ProtoModule module, Proto proto) throws IOException
+    {
+        String javaPackageName = proto.getJavaPackageName();
+        StringTemplateGroup group = getSTG("java_bean_packed");
+
+        writeEnums(module, proto, javaPackageName, group);
+        writeMessages(module, proto, javaPackageName, group);
+    }
+}
@@ -0,0 +1,52 @@
+package io.protostuff.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.antlr.stringtemplate.AutoIndentWriter;
+import org.antlr.stringtemplate.StringTemplate;
+import org.antlr.stringtemplate.StringTemplateGroup;
+
+import io.protostuff.parser.Message;
+import io.protostuff.parser.Proto;
+
+/**
+ * Compiles proto files to JMH benchmarks ({@code FooBenchmark} for the top-level message {@code Foo}), over the
+ * messages generated by the {@code java_bean} (or {@code java_bean_primitives}) output of another module.
+ * <p>
+ * A benchmark fills a message with random data (from a fixed seed) and serializes/deserializes it, with the
+ * {@code format} param being protostuff, protobuf, graph, json or msgpack, and the {@code schema} param being
+ * generated or runtime. The data is tuned with the options {@code benchmark_seed}, {@code benchmark_depth} (of the
+ * nested messages), {@code benchmark_repeated_size} and {@code benchmark_string_length} (the averages are half of
+ * these).
+ */
+public class ProtoToJavaBenchmarkCompiler extends STCodeGenerator
+{
+
+    public ProtoToJavaBenchmarkCompiler()
+    {
+        super("java_benchmark");
+    }
+
+    @Override
+    public void compile(ProtoModule module, Proto proto) throws IOException
+    {
+        String javaPackageName = proto.getJavaPackageName();
+        StringTemplateGroup group = getSTG("java_benchmark");
+
+        for (Message m : proto.getMessages())
+        {
+            Writer writer = CompilerUtil.newWriter(module,
+                    javaPackageName, m.getName() + "Benchmark.java");
+            AutoIndentWriter out = new AutoIndentWriter(writer);
+
+            StringTemplate benchmarkBlock = group.getInstanceOf("benchmark_block");
+            benchmarkBlock.setAttribute("message", m);
+            benchmarkBlock.setAttribute("module", module);
+            benchmarkBlock.setAttribute("options", module.getOptions());
+
+            benchmarkBlock.write(out);
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.protostuff.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.antlr.stringtemplate.AutoIndentWriter;
+import org.antlr.stringtemplate.StringTemplate;
+import org.antlr.stringtemplate.StringTemplateGroup;
+
+import io.protostuff.parser.Message;
+import io.protostuff.parser.Proto;
+
+/**
+ * Compiles proto files to read-only views over serialized messages ({@code FooView} for the message {@code Foo}).
+ * <p>
+ * A view wraps the bytes of a message in protobuf or protostuff format, and decodes each field on access (see
+ * {@code io.protostuff.MessageView}). Nested messages are views over the same bytes, and repeated fields are read
+ * with a cursor. Enums are returned as their number.
+ */
+public class ProtoToJavaViewCompiler extends STCodeGenerator
+{
+
+    public ProtoToJavaViewCompiler()
+    {
+        super("java_view");
+    }
+
+    @Override
+    public void compile(ProtoModule module, Proto proto) throws IOException
+    {
+        String javaPackageName = proto.getJavaPackageName();
+        StringTemplateGroup group = getSTG("java_view");
+
+        for (Message m : proto.getMessages())
+        {
+            Writer writer = CompilerUtil.newWriter(module,
+                    javaPackageName, m.getName() + "View.java");
+            AutoIndentWriter out = new AutoIndentWriter(writer);
+
+            StringTemplate messageBlock = group.getInstanceOf("message_view_block");
+            messageBlock.setAttribute("message", m);
+            messageBlock.setAttribute("module", module);
+            messageBlock.setAttribute("options", module.getOptions());
+
+            messageBlock.write(out);
+            writer.close();
+        }
+    }
+}
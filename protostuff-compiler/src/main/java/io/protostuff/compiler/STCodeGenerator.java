@@ -16,9 +16,15 @@ package io.protostuff.compiler;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 import org.antlr.stringtemplate.AttributeRenderer;
@@ -52,6 +58,12 @@ public abstract class STCodeGenerator implements ProtoCompiler
 
     public static int errorCount = 0;
 
+    /**
+     * Guards the protos shared by a {@link CachingProtoLoader} when modules are compiled in parallel: a module which
+     * overrides the package of a proto (until it is compiled) holds the write lock, and the others the read lock.
+     */
+    static final ReentrantReadWriteLock OVERRIDE_LOCK = new ReentrantReadWriteLock();
+
     public static final StringTemplateErrorListener ERROR_LISTENER =
             new StringTemplateErrorListener()
             {
@@ -97,6 +109,8 @@ public abstract class STCodeGenerator implements ProtoCompiler
 
     static
     {
+        PerThreadGroups.install();
+
         StringTemplateGroup.registerGroupLoader(GROUP_LOADER);
 
         // attribute renderers
@@ -228,22 +242,62 @@ public abstract class STCodeGenerator implements ProtoCompiler
 
     protected static Proto parseProto(File file, ProtoModule module)
     {
+        final Proto proto;
         CachingProtoLoader loader = module.getCachingProtoLoader();
         if (loader == null)
-            return ProtoUtil.parseProto(file);
+            proto = ProtoUtil.parseProto(file);
+        else
+        {
+            try
+            {
+                proto = loader.loadFrom(file, null);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (module.parsedProtoFiles != null)
+            addProtoFiles(module.parsedProtoFiles, proto);
+
+        return proto;
+    }
 
+    static void addProtoFiles(Set<File> files, Proto proto)
+    {
+        // protos loaded from a url are not tracked
+        if (proto.getFile() != null && !files.add(proto.getFile()))
+            return;
+
+        for (Proto p : proto.getImportedProtos())
+            addProtoFiles(files, p);
+    }
+
+    protected void compile(ProtoModule module, Proto proto, boolean compileImports,
+            boolean recursive) throws IOException
+    {
+        if (module.getCachingProtoLoader() == null)
+        {
+            compileWithOverrides(module, proto, compileImports, recursive);
+            return;
+        }
+
+        final Lock lock = isOverridden(module, proto) ? OVERRIDE_LOCK.writeLock() :
+                OVERRIDE_LOCK.readLock();
+        lock.lock();
         try
         {
-            return loader.loadFrom(file, null);
+            compileWithOverrides(module, proto, compileImports, recursive);
         }
-        catch (Exception e)
+        finally
         {
-            throw new RuntimeException(e);
+            lock.unlock();
         }
     }
 
-    protected void compile(ProtoModule module, Proto proto, boolean compileImports,
-            boolean recursive) throws IOException
+    private void compileWithOverrides(ProtoModule module, Proto proto,
+            boolean compileImports, boolean recursive) throws IOException
     {
         final List<Proto> overridden = new ArrayList<Proto>();
         try
@@ -280,6 +334,28 @@ public abstract class STCodeGenerator implements ProtoCompiler
             compile(module, proto);
     }
 
+    static boolean isOverridden(ProtoModule module, Proto proto)
+    {
+        if (isNotEmpty(module.getOption(proto.getPackageName())) ||
+                isNotEmpty(module.getOption(proto.getJavaPackageName())))
+        {
+            return true;
+        }
+
+        for (Proto p : proto.getImportedProtos())
+        {
+            if (isOverridden(module, p))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static boolean isNotEmpty(String str)
+    {
+        return str != null && str.length() != 0;
+    }
+
     protected static boolean override(ProtoModule module, Proto proto)
     {
         String pkg = proto.getPackageName();
@@ -308,4 +384,71 @@ public abstract class STCodeGenerator implements ProtoCompiler
 
     protected abstract void compile(ProtoModule module, Proto proto) throws IOException;
 
+    /**
+     * StringTemplate registers every loaded group in a static (unsynchronized) map, from which the super groups are
+     * resolved. The templates of a group are not thread-safe either, since an expression keeps the options of its
+     * current rendering. So the map is made per thread, where each thread loads (and renders with) its own groups.
+     */
+    static final class PerThreadGroups extends StringTemplateGroup
+    {
+
+        private PerThreadGroups()
+        {
+            super("per_thread_groups");
+        }
+
+        @SuppressWarnings("unchecked")
+        static void install()
+        {
+            if (nameToGroupMap instanceof GroupMap)
+                return;
+
+            GroupMap groups = new GroupMap();
+            groups.putAll(nameToGroupMap);
+            nameToGroupMap = groups;
+        }
+    }
+
+    static final class GroupMap extends AbstractMap<Object, Object>
+    {
+
+        private final ThreadLocal<HashMap<Object, Object>> local =
+                new ThreadLocal<HashMap<Object, Object>>()
+                {
+                    @Override
+                    protected HashMap<Object, Object> initialValue()
+                    {
+                        return new HashMap<Object, Object>();
+                    }
+                };
+
+        @Override
+        public Object get(Object key)
+        {
+            return local.get().get(key);
+        }
+
+        @Override
+        public Object put(Object key, Object value)
+        {
+            // the renderers are configured on the base group of each thread
+            if ("base".equals(key) && value instanceof StringTemplateGroup)
+                ((StringTemplateGroup) value).setAttributeRenderers(DEFAULT_RENDERERS);
+
+            return local.get().put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key)
+        {
+            return local.get().remove(key);
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet()
+        {
+            return local.get().entrySet();
+        }
+    }
+
 }
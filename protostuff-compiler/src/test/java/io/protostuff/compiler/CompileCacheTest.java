@@ -0,0 +1,187 @@
+package io.protostuff.compiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import io.protostuff.parser.Proto;
+import io.protostuff.parser.ProtoCache;
+
+/**
+ * Tests for {@link CompileCache} and the parallel compilation of modules.
+ */
+public class CompileCacheTest extends TestCase
+{
+
+    File dir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("compile_cache", "");
+        dir.delete();
+        dir.mkdirs();
+
+        write(new File(dir, "proto/common.proto"), "package common;\n" +
+                "option java_package = \"com.example.common\";\n" +
+                "message Money { optional int64 units = 1; optional string currency = 2; }\n");
+
+        for (int i = 0; i < 8; i++)
+        {
+            write(new File(dir, "proto/m" + i + ".proto"), "package m" + i + ";\n" +
+                    "option java_package = \"com.example.m" + i + "\";\n" +
+                    "import \"common.proto\";\n" +
+                    "message Foo { optional common.Money price = 1; repeated string tags = 2; }\n");
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        delete(dir);
+    }
+
+    List<ProtoModule> newModules(String outputDir, CachingProtoLoader loader)
+    {
+        ArrayList<ProtoModule> modules = new ArrayList<ProtoModule>();
+        for (int i = 0; i < 8; i++)
+        {
+            ProtoModule module = new ProtoModule(new File(dir, "proto/m" + i + ".proto"),
+                    "java_bean,java_view", null, new File(dir, outputDir));
+            module.setCachingProtoLoader(loader);
+            module.setOption("generate_helper_methods", "");
+            modules.add(module);
+        }
+
+        return modules;
+    }
+
+    public void testParallel() throws Exception
+    {
+        CompilerMain.compile(newModules("sequential", null), 1, null);
+        CompilerMain.compile(newModules("parallel", new CachingProtoLoader()), 4, null);
+
+        assertSameFiles(new File(dir, "sequential"), new File(dir, "parallel"));
+    }
+
+    public void testProtoCache() throws Exception
+    {
+        final File cacheDir = new File(dir, "parser-cache");
+        CompilerMain.compile(newModules("sequential", null), 1, null);
+        CompilerMain.compile(newModules("cached", new CachingProtoLoader(new ProtoCache(cacheDir))),
+                4, null);
+        assertSameFiles(new File(dir, "sequential"), new File(dir, "cached"));
+
+        // the next build restores the protos from the directory
+        assertEquals(9, cacheDir.listFiles().length);
+        CompilerMain.compile(newModules("restored", new CachingProtoLoader(new ProtoCache(cacheDir))),
+                4, null);
+        assertSameFiles(new File(dir, "sequential"), new File(dir, "restored"));
+    }
+
+    public void testProtoCacheCopies() throws Exception
+    {
+        final ProtoCache protoCache = new ProtoCache();
+        final File m0 = new File(dir, "proto/m0.proto");
+        final CachingProtoLoader loader = new CachingProtoLoader(protoCache);
+        final Proto proto = loader.loadFrom(m0, null);
+        assertSame(proto, loader.loadFrom(m0, null));
+        assertNotSame(protoCache.load(m0), proto);
+
+        // the compiler modifies the protos of its loader only
+        ProtoModule module = new ProtoModule(m0, "java_bean_primitives", null,
+                new File(dir, "primitives"));
+        module.setCachingProtoLoader(loader);
+        module.setOption("ByteBuffer", "true");
+        CompilerMain.compile(module);
+        assertTrue(proto.getMessage("Foo").isByteBufferFieldPresent());
+
+        final Proto other = new CachingProtoLoader(protoCache).loadFrom(m0, null);
+        assertNotSame(proto, other);
+        assertFalse(other.getMessage("Foo").isByteBufferFieldPresent());
+        assertFalse(protoCache.load(m0).getMessage("Foo").isByteBufferFieldPresent());
+    }
+
+    public void testSkipUnchanged() throws Exception
+    {
+        final File cacheFile = new File(dir, "cache/compile.cache");
+        final File generated = new File(dir, "out/com/example/m3/Foo.java");
+
+        CompilerMain.compile(newModules("out", null), 2, new CompileCache(cacheFile));
+        assertTrue(cacheFile.exists());
+        assertTrue(generated.exists());
+
+        CompileCache cache = new CompileCache(cacheFile);
+        for (ProtoModule m : newModules("out", null))
+            assertTrue(cache.isUpToDate(m.newModuleFor("java_bean")));
+
+        // an import changed
+        write(new File(dir, "proto/common.proto"), "package common;\n" +
+                "option java_package = \"com.example.common\";\n" +
+                "message Money { optional int64 units = 1; }\n");
+        for (ProtoModule m : newModules("out", null))
+            assertFalse(cache.isUpToDate(m.newModuleFor("java_bean")));
+
+        CompilerMain.compile(newModules("out", null), 2, cache);
+
+        // a generated file is missing
+        assertTrue(generated.delete());
+        cache = new CompileCache(cacheFile);
+        List<ProtoModule> modules = newModules("out", null);
+        assertFalse(cache.isUpToDate(modules.get(3).newModuleFor("java_bean")));
+        assertTrue(cache.isUpToDate(modules.get(3).newModuleFor("java_view")));
+
+        // the options changed
+        ProtoModule module = modules.get(0).newModuleFor("java_bean");
+        module.setOption("builder_pattern", "");
+        assertFalse(cache.isUpToDate(module));
+    }
+
+    static void assertSameFiles(File expected, File actual) throws IOException
+    {
+        File[] files = expected.listFiles();
+        assertEquals(files.length, actual.listFiles().length);
+        for (File f : files)
+        {
+            File other = new File(actual, f.getName());
+            if (f.isDirectory())
+                assertSameFiles(f, other);
+            else
+                assertEquals(f.getPath(), read(f), read(other));
+        }
+    }
+
+    static String read(File file) throws IOException
+    {
+        return new String(CompileCache.readFrom(new FileInputStream(file)), "UTF-8");
+    }
+
+    static void write(File file, String content) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+                delete(f);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,120 @@
+package io.protostuff.compiler;
+
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+/**
+ * Compiles a proto with the java_bean_packed, java_view and java_benchmark outputs, and checks the generated code.
+ */
+public class CompilerOutputsTest extends TestCase
+{
+
+    File dir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("compiler_outputs", "");
+        dir.delete();
+        dir.mkdirs();
+
+        // the fields are not declared in order
+        CompileCacheTest.write(new File(dir, "proto/foo.proto"), "package foo;\n" +
+                "option java_package = \"com.example.foo\";\n" +
+                "message Foo {\n" +
+                "  enum Kind { A = 1; B = 2; }\n" +
+                "  message Bar { optional int32 value = 1; }\n" +
+                "  repeated int32 ints = 3;\n" +
+                "  repeated bool flags = 4;\n" +
+                "  optional string name = 1 [default = \"none\"];\n" +
+                "  repeated string tags = 2;\n" +
+                "  optional Kind kind = 5 [default = B];\n" +
+                "  repeated Bar bars = 6;\n" +
+                "}\n");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        CompileCacheTest.delete(dir);
+    }
+
+    String compile(String output, String fileName) throws Exception
+    {
+        ProtoModule module = new ProtoModule(new File(dir, "proto/foo.proto"),
+                output, null, new File(dir, output));
+        CompilerMain.compile(Collections.singletonList(module), 1, null);
+        assertEquals(0, STCodeGenerator.errorCount);
+
+        return CompileCacheTest.read(new File(dir, output + "/com/example/foo/" + fileName));
+    }
+
+    static void assertContains(String code, String expected)
+    {
+        assertTrue("Missing: " + expected, code.contains(expected));
+    }
+
+    public void testRegistered()
+    {
+        for (String output : new String[] { "java_bean_packed", "java_view", "java_benchmark" })
+            assertTrue(output, CompilerMain.isAvailableOutput(output));
+    }
+
+    public void testJavaBeanPacked() throws Exception
+    {
+        String code = compile("java_bean_packed", "Foo.java");
+
+        // repeated scalars as arrays
+        assertContains(code, "int[] ints;");
+        assertContains(code, "int intsCount;");
+        assertContains(code, "boolean[] flags;");
+        assertContains(code, "public int[] getIntsArray()");
+        assertContains(code, "io.protostuff.PackedFields.writeInt32(output, 3, message.ints, message.intsCount);");
+        assertContains(code, "io.protostuff.PackedFields.writeBool(output, 4, message.flags, message.flagsCount);");
+        assertContains(code, "io.protostuff.PackedFields.toString(ints, intsCount)");
+
+        // the others like java_bean
+        assertContains(code, "List<String> tags;");
+        assertContains(code, "List<Bar> bars;");
+        assertFalse(code.contains("List<Integer>"));
+    }
+
+    public void testJavaView() throws Exception
+    {
+        String code = compile("java_view", "FooView.java");
+
+        assertContains(code, "public final class FooView extends MessageView");
+        assertContains(code, "public static final class BarView extends MessageView");
+        // sorted, for the binary search of MessageView
+        assertContains(code, "FIELD_NUMBERS = { 1, 2, 3, 4, 5, 6 };");
+        assertContains(code, "return readString(1, io.protostuff.ByteString.stringDefaultValue(\"none\"));");
+        assertContains(code, "return readEnum(5, 2);");
+        assertContains(code, "return cursor(3, WireFormat.WIRETYPE_VARINT);");
+        assertContains(code, "return cursor(2, WireFormat.WIRETYPE_LENGTH_DELIMITED);");
+        assertContains(code, "return cursor(6, WireFormat.WIRETYPE_LENGTH_DELIMITED);");
+        // no enum classes
+        assertFalse(code.contains("enum Kind"));
+    }
+
+    public void testJavaBenchmark() throws Exception
+    {
+        String code = compile("java_benchmark", "FooBenchmark.java");
+
+        assertContains(code, "public class FooBenchmark");
+        assertContains(code, "@Benchmark");
+        assertContains(code, "message = newFoo(new Random(SEED), DEPTH);");
+        assertContains(code, "public static com.example.foo.Foo newFoo(Random random, int depth)");
+        // nested messages get their generator too
+        assertContains(code, "list.add(com.example.foo.FooBenchmark.newFooBar(random, depth - 1));");
+        assertContains(code, "public static com.example.foo.Foo.Bar newFooBar(Random random, int depth)");
+        assertContains(code, "Foo.getSchema()");
+        // each format is read back by the implementation that wrote it
+        assertContains(code, "case JSONX:\n                    return JsonXIOUtil.toByteArray(");
+        assertContains(code, "case JSONX:\n                JsonXIOUtil.mergeFrom(");
+        assertContains(code, "case MSGPACK:\n                    return MsgpackIOUtil.toByteArray(");
+        assertContains(code, "default:\n                MsgpackXIOUtil.mergeFrom(");
+    }
+
+}
@@ -45,6 +45,7 @@ public final class ByteArrayInput implements Input {
     private final byte[] buffer;
     private int offset, limit, lastTag = 0;
     private int packedLimit = 0;
+    private StringCache stringCache;
 
     /**
      * If true, the nested messages are group-encoded
@@ -85,6 +86,14 @@ public final class ByteArrayInput implements Input {
         return this;
     }
 
+    /**
+     * Sets the cache used to return canonical instances from {@link #readString()}. A null disables it.
+     */
+    public ByteArrayInput setStringCache(StringCache stringCache) {
+        this.stringCache = stringCache;
+        return this;
+    }
+
     /**
      * Returns the current offset (the position).
      */
@@ -397,7 +406,9 @@ public final class ByteArrayInput implements Input {
 
         this.offset += length;
 
-        return STRING.deser(buffer, offset, length);
+        final StringCache stringCache = this.stringCache;
+        return stringCache == null ? STRING.deser(buffer, offset, length) :
+                stringCache.deser(buffer, offset, length);
     }
 
     @Override
@@ -48,6 +48,7 @@ public final class ByteBufferInput implements Input
     private int lastTag = 0;
     // private int offset, limit, lastTag = 0;
     private int packedLimit = 0;
+    private StringCache stringCache;
 
     /**
      * If true, the nested messages are group-encoded
@@ -78,6 +79,15 @@ public final class ByteBufferInput implements Input
         return this;
     }
 
+    /**
+     * Sets the cache used to return canonical instances from {@link #readString()}. A null disables it.
+     */
+    public ByteBufferInput setStringCache(StringCache stringCache)
+    {
+        this.stringCache = stringCache;
+        return this;
+    }
+
     /**
      * Returns the current offset (the position).
      */
@@ -432,6 +442,10 @@ public final class ByteBufferInput implements Input
         {
             final int currPosition = buffer.position();
             buffer.position(buffer.position() + length);
+            if (stringCache != null)
+                return stringCache.deser(buffer.array(),
+                        buffer.arrayOffset() + currPosition, length);
+
             return STRING.deser(buffer.array(),
                     buffer.arrayOffset() + currPosition,
                     length);
@@ -440,7 +454,8 @@ public final class ByteBufferInput implements Input
         {
             byte[] tmp = new byte[length];
             buffer.get(tmp);
-            return STRING.deser(tmp);
+            return stringCache == null ? STRING.deser(tmp) :
+                    stringCache.deser(tmp, 0, length);
         }
 
         // final int offset = this.offset;
@@ -510,6 +525,7 @@ public final class ByteBufferInput implements Input
         if (value == null)
             value = schema.newMessage();
         ByteBufferInput nestedInput = new ByteBufferInput(dup, decodeNestedMessageAsGroup);
+        nestedInput.stringCache = stringCache;
         schema.mergeFrom(nestedInput, value);
         if (!schema.isInitialized(value))
             throw new UninitializedMessageException(value, schema);
@@ -276,18 +276,22 @@ public final class CodedInput implements Input
     public String readString() throws IOException
     {
         final int size = readRawVarint32();
+        final StringCache stringCache = this.stringCache;
         if (size <= (bufferSize - bufferPos) && size > 0)
         {
             // Fast path: We already have the bytes in a contiguous buffer, so
             // just copy directly from it.
-            final String result = STRING.deser(buffer, bufferPos, size);
+            final String result = stringCache == null ? STRING.deser(buffer, bufferPos, size) :
+                    stringCache.deser(buffer, bufferPos, size);
             bufferPos += size;
             return result;
         }
         else
         {
             // Slow path: Build a byte array first then copy it.
-            return STRING.deser(readRawBytes(size));
+            final byte[] bytes = readRawBytes(size);
+            return stringCache == null ? STRING.deser(bytes) :
+                    stringCache.deser(bytes, 0, size);
         }
     }
 
@@ -730,6 +734,8 @@ public final class CodedInput implements Input
      */
     private int sizeLimit = DEFAULT_SIZE_LIMIT;
 
+    private StringCache stringCache;
+
     // static final int DEFAULT_RECURSION_LIMIT = 64;
     static final int DEFAULT_SIZE_LIMIT = 64 << 20; // 64MB
     static final int DEFAULT_BUFFER_SIZE = 4096;
@@ -801,6 +807,15 @@ public final class CodedInput implements Input
         return oldLimit;
     }
 
+    /**
+     * Sets the cache used to return canonical instances from {@link #readString()}. A null disables it.
+     */
+    public CodedInput setStringCache(final StringCache stringCache)
+    {
+        this.stringCache = stringCache;
+        return this;
+    }
+
     /**
      * Resets the current size counter to zero (see {@link #setSizeLimit(int)}). The field {@code totalBytesRetired}
      * will be negative if the initial position was not zero.
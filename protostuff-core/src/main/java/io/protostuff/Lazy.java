@@ -0,0 +1,134 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * A nested message that is decoded on first access.
+ * <p>
+ * On the wire, the message is a length-delimited field containing its protobuf encoding (which is wire-compatible
+ * with a regular nested message in the protobuf format). When read, only the raw bytes are captured; the message is
+ * decoded on the first {@link #get()}. If it is never accessed, {@link #writeTo(Output, int, Schema, boolean) writing}
+ * re-emits the raw bytes verbatim, so forwarding a message costs about a copy.
+ * <p>
+ * Once accessed, the raw bytes are discarded and the (possibly modified) message is re-encoded on write.
+ * <p>
+ * The message is always protobuf-encoded, whatever the format of the enclosing message: with json, xml, yaml (or
+ * any other {@link Output} that is not a protobuf/protostuff one), the field is written as an opaque bytes field (e.g
+ * a base64 string) rather than as a readable nested message. Use a regular message field for those formats.
+ * <p>
+ * Not thread-safe.
+ */
+public final class Lazy<T>
+{
+
+    private Schema<T> schema;
+
+    private byte[] data;
+    private int offset, length;
+
+    private T value;
+
+    /**
+     * Creates an instance holding the already decoded {@code value}.
+     */
+    public Lazy(T value)
+    {
+        this.value = value;
+    }
+
+    private Lazy(byte[] data, int offset, int length, Schema<T> schema)
+    {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.schema = schema;
+    }
+
+    /**
+     * Creates an instance holding the already decoded {@code value}.
+     */
+    public static <T> Lazy<T> of(T value)
+    {
+        return new Lazy<T>(value);
+    }
+
+    /**
+     * Creates an instance that decodes the protobuf-encoded message from the byte range on first access. The array is
+     * not copied and must not be modified afterwards.
+     */
+    public static <T> Lazy<T> wrap(byte[] data, int offset, int length, Schema<T> schema)
+    {
+        if (data == null || schema == null)
+            throw new IllegalArgumentException("data and schema are required.");
+
+        return new Lazy<T>(data, offset, length, schema);
+    }
+
+    /**
+     * Returns the message, decoding it from the raw bytes if not yet accessed.
+     */
+    public T get()
+    {
+        if (data != null)
+        {
+            final T message = schema.newMessage();
+            ProtobufIOUtil.mergeFrom(data, offset, length, message, schema);
+            value = message;
+            data = null;
+        }
+
+        return value;
+    }
+
+    /**
+     * Replaces the message (discarding the raw bytes if any).
+     */
+    public void set(T value)
+    {
+        this.value = value;
+        data = null;
+    }
+
+    /**
+     * Returns true if the message has not been accessed since it was read (the raw bytes are still held).
+     */
+    public boolean isRaw()
+    {
+        return data != null;
+    }
+
+    /**
+     * Returns the protobuf encoding of the message, which is the raw bytes (copied) if not yet accessed.
+     */
+    public byte[] toByteArray(Schema<T> schema)
+    {
+        if (data != null)
+        {
+            final byte[] copy = new byte[length];
+            System.arraycopy(data, offset, copy, 0, length);
+            return copy;
+        }
+
+        return value == null ? new byte[0] :
+                ProtobufIOUtil.toByteArray(value, schema, LinkedBuffer.allocate());
+    }
+
+    /**
+     * Writes the message as a length-delimited field, re-emitting the raw bytes verbatim if not yet accessed.
+     */
+    public void writeTo(Output output, int number, Schema<T> schema, boolean repeated)
+            throws IOException
+    {
+        if (data != null)
+            output.writeByteRange(false, number, data, offset, length, repeated);
+        else if (value != null)
+            output.writeByteArray(number, toByteArray(schema), repeated);
+    }
+
+    @Override
+    public String toString()
+    {
+        return data != null ? "Lazy[" + length + " bytes]" : "Lazy[" + value + "]";
+    }
+
+}
@@ -0,0 +1,359 @@
+package io.protostuff;
+
+import static io.protostuff.WireFormat.WIRETYPE_END_GROUP;
+import static io.protostuff.WireFormat.WIRETYPE_LENGTH_DELIMITED;
+import static io.protostuff.WireFormat.WIRETYPE_START_GROUP;
+import static io.protostuff.WireFormat.getTagFieldNumber;
+import static io.protostuff.WireFormat.getTagWireType;
+import static io.protostuff.WireFormat.makeTag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Updates fields of a serialized message without deserializing it.
+ * <p>
+ * The patched message is produced by copying the untouched byte ranges and rewriting only the affected fields, which
+ * are located with {@link ByteArrayInput#readTag()} and {@link ByteArrayInput#skipField(int)}. All the occurrences of
+ * an updated field are dropped and the new value is written in place of the first one (or appended if the field was
+ * absent). {@link #nested(String, MessagePatch) Nested} patches are applied to every occurrence of the nested message,
+ * adjusting the length delimiters in the protobuf format.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * byte[] patched = new MessagePatch&lt;Order&gt;(schema)
+ *         .setInt64(&quot;version&quot;, 5)
+ *         .nested(&quot;audit&quot;, new MessagePatch&lt;Audit&gt;(auditSchema).setFixed64(&quot;updatedAt&quot;, now))
+ *         .applyProtobuf(data);
+ * </pre>
+ */
+public final class MessagePatch<T>
+{
+
+    /**
+     * Writes the new value(s) of a field.
+     */
+    public interface FieldWriter
+    {
+        void writeTo(Output output, int number) throws IOException;
+    }
+
+    /**
+     * Removes the field.
+     */
+    private static final FieldWriter REMOVE = new FieldWriter()
+    {
+        @Override
+        public void writeTo(Output output, int number)
+        {
+        }
+    };
+
+    public final Schema<T> schema;
+
+    private final HashMap<Integer, FieldWriter> writers = new HashMap<Integer, FieldWriter>();
+    private final HashMap<Integer, MessagePatch<?>> nested = new HashMap<Integer, MessagePatch<?>>();
+
+    public MessagePatch(Schema<T> schema)
+    {
+        this.schema = schema;
+    }
+
+    private int numberOf(String name)
+    {
+        final int number = schema.getFieldNumber(name);
+        if (number == 0)
+        {
+            throw new IllegalArgumentException("Unknown field: " + name + " on "
+                    + schema.messageFullName());
+        }
+
+        if (writers.containsKey(number) || nested.containsKey(number))
+            throw new IllegalArgumentException("Field already patched: " + name);
+
+        return number;
+    }
+
+    /**
+     * Replaces the field with what the {@code writer} writes.
+     */
+    public MessagePatch<T> set(String name, FieldWriter writer)
+    {
+        writers.put(numberOf(name), writer);
+        return this;
+    }
+
+    /**
+     * Removes the field.
+     */
+    public MessagePatch<T> remove(String name)
+    {
+        return set(name, REMOVE);
+    }
+
+    /**
+     * Applies the {@code patch} to the nested message field.
+     */
+    public MessagePatch<T> nested(String name, MessagePatch<?> patch)
+    {
+        nested.put(numberOf(name), patch);
+        return this;
+    }
+
+    public MessagePatch<T> setInt32(String name, final int value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeInt32(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setSInt32(String name, final int value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeSInt32(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setInt64(String name, final long value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeInt64(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setSInt64(String name, final long value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeSInt64(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setFixed64(String name, final long value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeFixed64(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setDouble(String name, final double value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeDouble(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setBool(String name, final boolean value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeBool(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setString(String name, final String value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeString(number, value, false);
+            }
+        });
+    }
+
+    public MessagePatch<T> setByteArray(String name, final byte[] value)
+    {
+        return set(name, new FieldWriter()
+        {
+            @Override
+            public void writeTo(Output output, int number) throws IOException
+            {
+                output.writeByteArray(number, value, false);
+            }
+        });
+    }
+
+    /**
+     * Patches a message serialized in the protobuf format.
+     */
+    public byte[] applyProtobuf(byte[] data)
+    {
+        return apply(data, 0, data.length, false);
+    }
+
+    /**
+     * Patches a message serialized in the protostuff format (nested messages are groups).
+     */
+    public byte[] applyProtostuff(byte[] data)
+    {
+        return apply(data, 0, data.length, true);
+    }
+
+    /**
+     * Patches the serialized message in the given range.
+     */
+    public byte[] apply(byte[] data, int offset, int length, boolean protostuff)
+    {
+        final ByteArrayInput input = new ByteArrayInput(data, offset, length, protostuff);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(length + 16);
+        try
+        {
+            patch(input, data, out, protostuff);
+            input.checkLastTagWas(0);
+        }
+        catch (ArrayIndexOutOfBoundsException e)
+        {
+            throw new RuntimeException("Truncated.", ProtobufException.truncatedMessage(e));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Copies the message from the input until its end (or the end group tag, which is not consumed by the copy),
+     * rewriting the patched fields.
+     */
+    void patch(ByteArrayInput input, byte[] data, ByteArrayOutputStream out,
+            boolean protostuff) throws IOException
+    {
+        final Map<Integer, FieldWriter> writers = this.writers;
+        final Map<Integer, MessagePatch<?>> nested = this.nested;
+        final HashMap<Integer, Boolean> written = new HashMap<Integer, Boolean>();
+
+        int copyStart = input.currentOffset();
+        int fieldStart = copyStart;
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag())
+        {
+            if (WIRETYPE_END_GROUP == getTagWireType(tag))
+                break;
+
+            final int number = getTagFieldNumber(tag);
+            final FieldWriter writer = writers.get(number);
+            final MessagePatch<?> nestedPatch = writer == null ? nested.get(number) : null;
+            if (writer == null && nestedPatch == null)
+            {
+                input.skipField(tag);
+                fieldStart = input.currentOffset();
+                continue;
+            }
+
+            // flush the untouched range
+            out.write(data, copyStart, fieldStart - copyStart);
+
+            if (writer != null)
+            {
+                input.skipField(tag);
+                if (written.put(number, Boolean.TRUE) == null)
+                    writeValue(writer, number, out, protostuff);
+            }
+            else
+            {
+                switch (getTagWireType(tag))
+                {
+                    case WIRETYPE_LENGTH_DELIMITED:
+                    {
+                        final int size = input.readRawVarint32();
+                        if (size < 0)
+                            throw ProtobufException.negativeSize();
+
+                        final int start = input.currentOffset();
+                        if (size > input.currentLimit() - start)
+                            throw ProtobufException.misreportedSize();
+
+                        final ByteArrayInput nestedInput = new ByteArrayInput(data, start, size,
+                                protostuff);
+                        final ByteArrayOutputStream nestedOut = new ByteArrayOutputStream(size + 16);
+                        nestedPatch.patch(nestedInput, data, nestedOut, protostuff);
+                        // the whole range must be read (no stray end group tag)
+                        nestedInput.checkLastTagWas(0);
+                        input.setBounds(start + size, input.currentLimit());
+
+                        ProtobufOutput.writeRawVarInt32Bytes(out, tag);
+                        ProtobufOutput.writeRawVarInt32Bytes(out, nestedOut.size());
+                        nestedOut.writeTo(out);
+                        break;
+                    }
+                    case WIRETYPE_START_GROUP:
+                    {
+                        ProtobufOutput.writeRawVarInt32Bytes(out, tag);
+                        nestedPatch.patch(input, data, out, protostuff);
+                        input.checkLastTagWas(makeTag(number, WIRETYPE_END_GROUP));
+                        ProtobufOutput.writeRawVarInt32Bytes(out,
+                                makeTag(number, WIRETYPE_END_GROUP));
+                        break;
+                    }
+                    default:
+                        throw new ProtobufException("Field " + number
+                                + " is not a nested message.");
+                }
+            }
+
+            copyStart = fieldStart = input.currentOffset();
+        }
+
+        out.write(data, copyStart, fieldStart - copyStart);
+
+        // append the fields that were absent
+        for (Map.Entry<Integer, FieldWriter> entry : writers.entrySet())
+        {
+            if (!written.containsKey(entry.getKey()))
+                writeValue(entry.getValue(), entry.getKey(), out, protostuff);
+        }
+    }
+
+    private static void writeValue(FieldWriter writer, int number,
+            ByteArrayOutputStream out, boolean protostuff) throws IOException
+    {
+        if (writer == REMOVE)
+            return;
+
+        final LinkedBuffer buffer = LinkedBuffer.allocate(256);
+        final WriteSession session = protostuff ? new ProtostuffOutput(buffer)
+                : new ProtobufOutput(buffer);
+        writer.writeTo((Output) session, number);
+        out.write(session.toByteArray());
+    }
+
+}
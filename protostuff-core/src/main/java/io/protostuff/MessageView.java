@@ -0,0 +1,582 @@
+package io.protostuff;
+
+import static io.protostuff.WireFormat.WIRETYPE_END_GROUP;
+import static io.protostuff.WireFormat.WIRETYPE_FIXED32;
+import static io.protostuff.WireFormat.WIRETYPE_FIXED64;
+import static io.protostuff.WireFormat.WIRETYPE_LENGTH_DELIMITED;
+import static io.protostuff.WireFormat.WIRETYPE_START_GROUP;
+import static io.protostuff.WireFormat.WIRETYPE_VARINT;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A read-only view over a serialized message, the base class of the views generated by the {@code java_view}
+ * compiler output. Both encodings are read: a nested message may be length-delimited (protobuf) or a group
+ * (protostuff).
+ * <p>
+ * Nothing is decoded upfront. On the first access, a single pass over the bytes records where each known field
+ * starts, and the getters then decode their value in place. Nested views share the same buffer, and repeated fields
+ * are read with a {@link Cursor} (packed or not).
+ * <p>
+ * When a singular field occurs more than once, the last value wins (nested messages are not merged). Malformed bytes
+ * throw a {@link RuntimeException} caused by a {@link ProtobufException}.
+ */
+public abstract class MessageView {
+
+    protected final byte[] buffer;
+    protected final int offset;
+
+    /**
+     * The end of the message; for a group, the end of the parent until the index is built.
+     */
+    private int limit;
+
+    /**
+     * The number of the group which contains the message, or 0 if delimited.
+     */
+    private final int groupNumber;
+
+    /**
+     * The sorted field numbers known by the view.
+     */
+    private final int[] fieldNumbers;
+
+    /**
+     * For each known field: the position of its first tag, the position of its last value, and the wire type of
+     * its last value.
+     */
+    private int[] index;
+
+    protected MessageView(byte[] buffer, int offset, int length, int[] fieldNumbers) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.groupNumber = 0;
+        this.fieldNumbers = fieldNumbers;
+    }
+
+    /**
+     * Views the remaining bytes of the buffer. A direct buffer is copied.
+     */
+    protected MessageView(ByteBuffer bb, int[] fieldNumbers) {
+        if (bb.hasArray()) {
+            this.buffer = bb.array();
+            this.offset = bb.arrayOffset() + bb.position();
+        } else {
+            this.buffer = new byte[bb.remaining()];
+            bb.duplicate().get(buffer);
+            this.offset = 0;
+        }
+        this.limit = offset + bb.remaining();
+        this.groupNumber = 0;
+        this.fieldNumbers = fieldNumbers;
+    }
+
+    /**
+     * Views the (last) value of the message field of the parent, which must be present.
+     */
+    protected MessageView(MessageView parent, int fieldNumber, int[] fieldNumbers) {
+        this(parent.buffer, parent.lastValue(fieldNumber), parent.lastWireType(fieldNumber),
+                fieldNumber, parent.limit, fieldNumbers);
+    }
+
+    /**
+     * Views the current element of the cursor over a repeated message field.
+     */
+    protected MessageView(Cursor cursor, int[] fieldNumbers) {
+        this(cursor.view().buffer, cursor.value, cursor.wireType, cursor.number,
+                cursor.view().limit, fieldNumbers);
+    }
+
+    private MessageView(byte[] buffer, int value, int wireType, int fieldNumber, int parentLimit,
+                        int[] fieldNumbers) {
+        this.buffer = buffer;
+        this.fieldNumbers = fieldNumbers;
+        try {
+            if (wireType == WIRETYPE_START_GROUP) {
+                offset = value;
+                limit = parentLimit;
+                groupNumber = fieldNumber;
+            } else if (wireType == WIRETYPE_LENGTH_DELIMITED) {
+                final int size = readRawVarint32(buffer, value);
+                offset = skipRawVarint(buffer, value, parentLimit);
+                if (size < 0 || offset + size > parentLimit)
+                    throw ProtobufException.misreportedSize();
+
+                limit = offset + size;
+                groupNumber = 0;
+            } else {
+                throw ProtobufException.invalidWireType();
+            }
+        } catch (ProtobufException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the index, which is built on the first call.
+     */
+    private int[] index() {
+        final int[] existing = index;
+        if (existing != null)
+            return existing;
+
+        final int[] fieldNumbers = this.fieldNumbers;
+        final int[] index = new int[fieldNumbers.length * 3];
+        Arrays.fill(index, -1);
+
+        final byte[] buffer = this.buffer;
+        final int limit = this.limit;
+        int pos = offset;
+        boolean ended = groupNumber == 0;
+        try {
+            while (pos != limit) {
+                final int tagPos = pos;
+                pos = skipRawVarint(buffer, pos, limit);
+                final int tag = readRawVarint32(buffer, tagPos);
+
+                final int number = tag >>> 3, wireType = tag & 7;
+                if (number == 0)
+                    throw ProtobufException.invalidTag();
+
+                if (wireType == WIRETYPE_END_GROUP) {
+                    if (number != groupNumber)
+                        throw ProtobufException.invalidEndTag();
+
+                    // the end of the group
+                    this.limit = tagPos;
+                    ended = true;
+                    break;
+                }
+
+                final int slot = Arrays.binarySearch(fieldNumbers, number);
+                if (slot >= 0) {
+                    final int i = slot * 3;
+                    if (index[i] == -1)
+                        index[i] = tagPos;
+                    index[i + 1] = pos;
+                    index[i + 2] = wireType;
+                }
+
+                pos = skipValue(buffer, pos, limit, tag);
+            }
+
+            if (!ended)
+                throw ProtobufException.truncatedMessage();
+        } catch (ProtobufException e) {
+            throw new RuntimeException(e);
+        }
+
+        return this.index = index;
+    }
+
+    private int slot(int fieldNumber) {
+        final int slot = Arrays.binarySearch(fieldNumbers, fieldNumber);
+        if (slot < 0)
+            throw new IllegalArgumentException("Unknown field: " + fieldNumber);
+
+        return slot * 3;
+    }
+
+    private int lastValue(int fieldNumber) {
+        return index()[slot(fieldNumber) + 1];
+    }
+
+    private int lastWireType(int fieldNumber) {
+        return index()[slot(fieldNumber) + 2];
+    }
+
+    /**
+     * Returns the offset after the last byte of the message (the end group tag is excluded).
+     */
+    public int currentLimit() {
+        index();
+        return limit;
+    }
+
+    /**
+     * Returns true if the field is present.
+     */
+    protected final boolean has(int fieldNumber) {
+        return lastValue(fieldNumber) != -1;
+    }
+
+    /**
+     * Returns a cursor over the values of a repeated field, whose elements have the wire type given.
+     */
+    protected final Cursor cursor(int fieldNumber, int elementWireType) {
+        return new Cursor(fieldNumber, elementWireType, index()[slot(fieldNumber)]);
+    }
+
+    protected final int readInt32(int fieldNumber, int defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readRawVarint32(buffer, pos);
+    }
+
+    protected final int readUInt32(int fieldNumber, int defaultValue) {
+        return readInt32(fieldNumber, defaultValue);
+    }
+
+    protected final int readEnum(int fieldNumber, int defaultValue) {
+        return readInt32(fieldNumber, defaultValue);
+    }
+
+    protected final int readSInt32(int fieldNumber, int defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : decodeZigZag32(readRawVarint32(buffer, pos));
+    }
+
+    protected final int readFixed32(int fieldNumber, int defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readRawLittleEndian32(buffer, pos);
+    }
+
+    protected final int readSFixed32(int fieldNumber, int defaultValue) {
+        return readFixed32(fieldNumber, defaultValue);
+    }
+
+    protected final long readInt64(int fieldNumber, long defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readRawVarint64(buffer, pos);
+    }
+
+    protected final long readUInt64(int fieldNumber, long defaultValue) {
+        return readInt64(fieldNumber, defaultValue);
+    }
+
+    protected final long readSInt64(int fieldNumber, long defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : decodeZigZag64(readRawVarint64(buffer, pos));
+    }
+
+    protected final long readFixed64(int fieldNumber, long defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readRawLittleEndian64(buffer, pos);
+    }
+
+    protected final long readSFixed64(int fieldNumber, long defaultValue) {
+        return readFixed64(fieldNumber, defaultValue);
+    }
+
+    protected final float readFloat(int fieldNumber, float defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : Float.intBitsToFloat(readRawLittleEndian32(buffer, pos));
+    }
+
+    protected final double readDouble(int fieldNumber, double defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : Double.longBitsToDouble(readRawLittleEndian64(buffer, pos));
+    }
+
+    protected final boolean readBool(int fieldNumber, boolean defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : buffer[pos] != 0;
+    }
+
+    protected final String readString(int fieldNumber, String defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readString(buffer, pos);
+    }
+
+    protected final ByteString readBytes(int fieldNumber, ByteString defaultValue) {
+        final int pos = lastValue(fieldNumber);
+        return pos == -1 ? defaultValue : readBytes(buffer, pos);
+    }
+
+    /**
+     * Iterates the values of a repeated field, in order. Packed values are read one by one.
+     * <p>
+     * <pre>
+     * for (MessageView.Cursor c = view.getPrices(); c.next();)
+     *     sum += c.readDouble();
+     * </pre>
+     */
+    public final class Cursor {
+
+        final int number, elementWireType;
+
+        /**
+         * The position of the next tag to scan.
+         */
+        private int pos;
+
+        /**
+         * The position and the wire type of the current value.
+         */
+        int value = -1, wireType;
+
+        /**
+         * The end of the packed values being read (or 0), and the position of the next one.
+         */
+        private int packedLimit, packedNext;
+
+        Cursor(int number, int elementWireType, int start) {
+            this.number = number;
+            this.elementWireType = elementWireType;
+            this.pos = start == -1 ? limit : start;
+        }
+
+        MessageView view() {
+            return MessageView.this;
+        }
+
+        /**
+         * Moves to the next value, and returns false if there are no more.
+         */
+        public boolean next() {
+            final byte[] buffer = MessageView.this.buffer;
+            try {
+                if (packedLimit != 0) {
+                    if (packedNext != packedLimit) {
+                        value = packedNext;
+                        packedNext = skipValue(buffer, value, packedLimit, elementWireType);
+                        return true;
+                    }
+                    packedLimit = 0;
+                }
+
+                while (pos < limit) {
+                    final int tagPos = pos;
+                    pos = skipRawVarint(buffer, pos, limit);
+                    final int tag = readRawVarint32(buffer, tagPos);
+
+                    if ((tag & 7) == WIRETYPE_END_GROUP)
+                        break;
+
+                    if (tag >>> 3 != number) {
+                        pos = skipValue(buffer, pos, limit, tag);
+                        continue;
+                    }
+
+                    wireType = tag & 7;
+                    if (wireType == WIRETYPE_LENGTH_DELIMITED
+                            && elementWireType != WIRETYPE_LENGTH_DELIMITED) {
+                        // packed
+                        final int start = skipRawVarint(buffer, pos, limit);
+                        pos = skipValue(buffer, pos, limit, tag);
+                        if (start == pos)
+                            continue;
+
+                        wireType = elementWireType;
+                        packedLimit = pos;
+                        value = start;
+                        packedNext = skipValue(buffer, start, pos, elementWireType);
+                        return true;
+                    }
+
+                    value = pos;
+                    pos = skipValue(buffer, pos, limit, tag);
+                    return true;
+                }
+            } catch (ProtobufException e) {
+                throw new RuntimeException(e);
+            }
+
+            value = -1;
+            pos = limit;
+            return false;
+        }
+
+        public int readInt32() {
+            return readRawVarint32(buffer, value);
+        }
+
+        public int readUInt32() {
+            return readRawVarint32(buffer, value);
+        }
+
+        public int readEnum() {
+            return readRawVarint32(buffer, value);
+        }
+
+        public int readSInt32() {
+            return decodeZigZag32(readRawVarint32(buffer, value));
+        }
+
+        public int readFixed32() {
+            return readRawLittleEndian32(buffer, value);
+        }
+
+        public int readSFixed32() {
+            return readRawLittleEndian32(buffer, value);
+        }
+
+        public long readInt64() {
+            return readRawVarint64(buffer, value);
+        }
+
+        public long readUInt64() {
+            return readRawVarint64(buffer, value);
+        }
+
+        public long readSInt64() {
+            return decodeZigZag64(readRawVarint64(buffer, value));
+        }
+
+        public long readFixed64() {
+            return readRawLittleEndian64(buffer, value);
+        }
+
+        public long readSFixed64() {
+            return readRawLittleEndian64(buffer, value);
+        }
+
+        public float readFloat() {
+            return Float.intBitsToFloat(readRawLittleEndian32(buffer, value));
+        }
+
+        public double readDouble() {
+            return Double.longBitsToDouble(readRawLittleEndian64(buffer, value));
+        }
+
+        public boolean readBool() {
+            return buffer[value] != 0;
+        }
+
+        public String readString() {
+            return MessageView.readString(buffer, value);
+        }
+
+        public ByteString readBytes() {
+            return MessageView.readBytes(buffer, value);
+        }
+    }
+
+    // decode
+
+    static String readString(byte[] buffer, int pos) {
+        final int size = readRawVarint32(buffer, pos);
+        return STRING.deser(buffer, pos + computeRawVarintSize(buffer, pos), size);
+    }
+
+    static ByteString readBytes(byte[] buffer, int pos) {
+        final int size = readRawVarint32(buffer, pos);
+        return size == 0 ? ByteString.EMPTY :
+                ByteString.copyFrom(buffer, pos + computeRawVarintSize(buffer, pos), size);
+    }
+
+    private static int computeRawVarintSize(byte[] buffer, int pos) {
+        int i = pos;
+        while (buffer[i] < 0)
+            i++;
+
+        return i - pos + 1;
+    }
+
+    static int readRawVarint32(byte[] buffer, int pos) {
+        byte tmp = buffer[pos++];
+        if (tmp >= 0)
+            return tmp;
+
+        int result = tmp & 0x7f;
+        if ((tmp = buffer[pos++]) >= 0)
+            return result | tmp << 7;
+
+        result |= (tmp & 0x7f) << 7;
+        if ((tmp = buffer[pos++]) >= 0)
+            return result | tmp << 14;
+
+        result |= (tmp & 0x7f) << 14;
+        if ((tmp = buffer[pos++]) >= 0)
+            return result | tmp << 21;
+
+        result |= (tmp & 0x7f) << 21;
+        // the upper bits of a negative int32 (sign-extended to 10 bytes) are discarded.
+        return result | buffer[pos] << 28;
+    }
+
+    static long readRawVarint64(byte[] buffer, int pos) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                break;
+        }
+        return result;
+    }
+
+    static int readRawLittleEndian32(byte[] buffer, int pos) {
+        return (buffer[pos] & 0xff) | (buffer[pos + 1] & 0xff) << 8
+                | (buffer[pos + 2] & 0xff) << 16 | (buffer[pos + 3] & 0xff) << 24;
+    }
+
+    static long readRawLittleEndian64(byte[] buffer, int pos) {
+        return (readRawLittleEndian32(buffer, pos) & 0xffffffffL)
+                | (long) readRawLittleEndian32(buffer, pos + 4) << 32;
+    }
+
+    static int decodeZigZag32(final int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    static long decodeZigZag64(final long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    // skip (these check the bounds, so that the values found can be decoded without checks)
+
+    static int skipRawVarint(byte[] buffer, int pos, int limit) throws ProtobufException {
+        for (int i = 0; i < 10; i++) {
+            if (pos == limit)
+                throw ProtobufException.truncatedMessage();
+
+            if (buffer[pos++] >= 0)
+                return pos;
+        }
+        throw ProtobufException.malformedVarint();
+    }
+
+    /**
+     * Skips the value of the tag (or of the wire type), and returns the position after it.
+     */
+    static int skipValue(byte[] buffer, int pos, int limit, int tag) throws ProtobufException {
+        final int end;
+        switch (tag & 7) {
+            case WIRETYPE_VARINT:
+                return skipRawVarint(buffer, pos, limit);
+            case WIRETYPE_FIXED64:
+                end = pos + 8;
+                break;
+            case WIRETYPE_FIXED32:
+                end = pos + 4;
+                break;
+            case WIRETYPE_LENGTH_DELIMITED:
+                final int start = skipRawVarint(buffer, pos, limit);
+                final int size = readRawVarint32(buffer, pos);
+                if (size < 0)
+                    throw ProtobufException.negativeSize();
+
+                end = start + size;
+                break;
+            case WIRETYPE_START_GROUP:
+                final int number = tag >>> 3;
+                while (true) {
+                    if (pos == limit)
+                        throw ProtobufException.truncatedMessage();
+
+                    final int tagPos = pos;
+                    pos = skipRawVarint(buffer, pos, limit);
+                    final int nestedTag = readRawVarint32(buffer, tagPos);
+                    if ((nestedTag & 7) == WIRETYPE_END_GROUP) {
+                        if (nestedTag >>> 3 != number)
+                            throw ProtobufException.invalidEndTag();
+
+                        return pos;
+                    }
+                    pos = skipValue(buffer, pos, limit, nestedTag);
+                }
+            default:
+                throw ProtobufException.invalidWireType();
+        }
+
+        if (end > limit || end < 0)
+            throw ProtobufException.truncatedMessage();
+
+        return end;
+    }
+
+}
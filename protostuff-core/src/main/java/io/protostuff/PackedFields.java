@@ -0,0 +1,623 @@
+package io.protostuff;
+
+import static io.protostuff.ProtobufOutput.computeRawVarint32Size;
+import static io.protostuff.ProtobufOutput.computeRawVarint64Size;
+import static io.protostuff.ProtobufOutput.encodeZigZag32;
+import static io.protostuff.ProtobufOutput.encodeZigZag64;
+import static io.protostuff.WireFormat.WIRETYPE_LENGTH_DELIMITED;
+import static io.protostuff.WireFormat.makeTag;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Runtime support for repeated scalar fields stored as growable primitive arrays (the {@code java_bean_packed}
+ * compiler output).
+ * <p>
+ * The {@code write*} methods write the first {@code count} elements of an array. On a {@link ProtostuffOutput} or
+ * {@link ProtobufOutput}, they are written packed (one length-delimited field) straight into the output's buffer.
+ * Other outputs get one repeated field per element, as with a {@link java.util.List}. The inputs of protostuff-core
+ * read both encodings. The {@code compute*Size} methods give the size of the packed encoding, for a
+ * {@link SizedSchema}.
+ * <p>
+ * {@code equals}, {@code hashCode} and {@code toString} on a range give the same results as on a list of the boxed
+ * elements, and a null array (an absent field) is treated like a null list: it prints {@code null}, hashes to 0,
+ * and is not equal to an empty array.
+ */
+public final class PackedFields {
+
+    /**
+     * The capacity of an array on its first element.
+     */
+    public static final int INITIAL_CAPACITY = 8;
+
+    private PackedFields() {
+    }
+
+    /**
+     * Returns true if repeated scalars are written packed to the output.
+     */
+    public static boolean isPacked(Output output) {
+        return output instanceof ProtostuffOutput || output instanceof ProtobufOutput;
+    }
+
+    private static LinkedBuffer writeHeader(WriteSession session, int fieldNumber, int size)
+            throws IOException {
+        return session.sink.writeVarInt32(
+                size,
+                session,
+                session.sink.writeVarInt32(
+                        makeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED),
+                        session,
+                        session.tail));
+    }
+
+    // grow
+
+    /**
+     * Returns the array, or a copy with more capacity if it cannot hold one more element.
+     */
+    public static int[] grow(int[] values, int count) {
+        if (values == null)
+            return new int[INITIAL_CAPACITY];
+
+        return count < values.length ? values : Arrays.copyOf(values, count << 1);
+    }
+
+    /**
+     * Returns the array, or a copy with more capacity if it cannot hold one more element.
+     */
+    public static long[] grow(long[] values, int count) {
+        if (values == null)
+            return new long[INITIAL_CAPACITY];
+
+        return count < values.length ? values : Arrays.copyOf(values, count << 1);
+    }
+
+    /**
+     * Returns the array, or a copy with more capacity if it cannot hold one more element.
+     */
+    public static float[] grow(float[] values, int count) {
+        if (values == null)
+            return new float[INITIAL_CAPACITY];
+
+        return count < values.length ? values : Arrays.copyOf(values, count << 1);
+    }
+
+    /**
+     * Returns the array, or a copy with more capacity if it cannot hold one more element.
+     */
+    public static double[] grow(double[] values, int count) {
+        if (values == null)
+            return new double[INITIAL_CAPACITY];
+
+        return count < values.length ? values : Arrays.copyOf(values, count << 1);
+    }
+
+    /**
+     * Returns the array, or a copy with more capacity if it cannot hold one more element.
+     */
+    public static boolean[] grow(boolean[] values, int count) {
+        if (values == null)
+            return new boolean[INITIAL_CAPACITY];
+
+        return count < values.length ? values : Arrays.copyOf(values, count << 1);
+    }
+
+    // write varint
+
+    public static void writeInt32(Output output, int fieldNumber, int[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeInt32(fieldNumber, values[i], true);
+            return;
+        }
+
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final int value = values[i];
+            size += value < 0 ? 10 : computeRawVarint32Size(value);
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, size);
+        for (int i = 0; i < count; i++) {
+            final int value = values[i];
+            tail = value < 0 ? sink.writeVarInt64(value, session, tail) :
+                    sink.writeVarInt32(value, session, tail);
+        }
+        session.tail = tail;
+    }
+
+    public static void writeUInt32(Output output, int fieldNumber, int[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeUInt32(fieldNumber, values[i], true);
+            return;
+        }
+
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint32Size(values[i]);
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, size);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeVarInt32(values[i], session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeSInt32(Output output, int fieldNumber, int[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeSInt32(fieldNumber, values[i], true);
+            return;
+        }
+
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint32Size(encodeZigZag32(values[i]));
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, size);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeVarInt32(encodeZigZag32(values[i]), session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeInt64(Output output, int fieldNumber, long[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeInt64(fieldNumber, values[i], true);
+            return;
+        }
+
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint64Size(values[i]);
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, size);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeVarInt64(values[i], session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeUInt64(Output output, int fieldNumber, long[] values, int count)
+            throws IOException {
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeUInt64(fieldNumber, values[i], true);
+            return;
+        }
+
+        // same encoding
+        writeInt64(output, fieldNumber, values, count);
+    }
+
+    public static void writeSInt64(Output output, int fieldNumber, long[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeSInt64(fieldNumber, values[i], true);
+            return;
+        }
+
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint64Size(encodeZigZag64(values[i]));
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, size);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeVarInt64(encodeZigZag64(values[i]), session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeBool(Output output, int fieldNumber, boolean[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeBool(fieldNumber, values[i], true);
+            return;
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, count);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeByte(values[i] ? (byte) 0x01 : 0x00, session, tail);
+        session.tail = tail;
+    }
+
+    // write fixed
+
+    public static void writeFixed32(Output output, int fieldNumber, int[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeFixed32(fieldNumber, values[i], true);
+            return;
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, count << 2);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeInt32LE(values[i], session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeSFixed32(Output output, int fieldNumber, int[] values, int count)
+            throws IOException {
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeSFixed32(fieldNumber, values[i], true);
+            return;
+        }
+
+        // same encoding
+        writeFixed32(output, fieldNumber, values, count);
+    }
+
+    public static void writeFixed64(Output output, int fieldNumber, long[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeFixed64(fieldNumber, values[i], true);
+            return;
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, count << 3);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeInt64LE(values[i], session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeSFixed64(Output output, int fieldNumber, long[] values, int count)
+            throws IOException {
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeSFixed64(fieldNumber, values[i], true);
+            return;
+        }
+
+        // same encoding
+        writeFixed64(output, fieldNumber, values, count);
+    }
+
+    public static void writeFloat(Output output, int fieldNumber, float[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeFloat(fieldNumber, values[i], true);
+            return;
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, count << 2);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeInt32LE(Float.floatToRawIntBits(values[i]), session, tail);
+        session.tail = tail;
+    }
+
+    public static void writeDouble(Output output, int fieldNumber, double[] values, int count)
+            throws IOException {
+        if (count == 0)
+            return;
+
+        if (!isPacked(output)) {
+            for (int i = 0; i < count; i++)
+                output.writeDouble(fieldNumber, values[i], true);
+            return;
+        }
+
+        final WriteSession session = (WriteSession) output;
+        final WriteSink sink = session.sink;
+        LinkedBuffer tail = writeHeader(session, fieldNumber, count << 3);
+        for (int i = 0; i < count; i++)
+            tail = sink.writeInt64LE(Double.doubleToRawLongBits(values[i]), session, tail);
+        session.tail = tail;
+    }
+
+    // protobuf size (of the packed encoding, zero if there are no elements)
+
+    private static int computeDelimitedSize(int fieldNumber, int count, int size) {
+        return count == 0 ? 0 : ProtobufSizes.computeDelimitedSize(fieldNumber, size);
+    }
+
+    public static int computeInt32Size(int fieldNumber, int[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final int value = values[i];
+            size += value < 0 ? 10 : computeRawVarint32Size(value);
+        }
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeUInt32Size(int fieldNumber, int[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint32Size(values[i]);
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeSInt32Size(int fieldNumber, int[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint32Size(encodeZigZag32(values[i]));
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeInt64Size(int fieldNumber, long[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint64Size(values[i]);
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeUInt64Size(int fieldNumber, long[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint64Size(values[i]);
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeSInt64Size(int fieldNumber, long[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++)
+            size += computeRawVarint64Size(encodeZigZag64(values[i]));
+        return computeDelimitedSize(fieldNumber, count, size);
+    }
+
+    public static int computeBoolSize(int fieldNumber, boolean[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count);
+    }
+
+    public static int computeFixed32Size(int fieldNumber, int[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 2);
+    }
+
+    public static int computeSFixed32Size(int fieldNumber, int[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 2);
+    }
+
+    public static int computeFixed64Size(int fieldNumber, long[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 3);
+    }
+
+    public static int computeSFixed64Size(int fieldNumber, long[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 3);
+    }
+
+    public static int computeFloatSize(int fieldNumber, float[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 2);
+    }
+
+    public static int computeDoubleSize(int fieldNumber, double[] values, int count) {
+        return computeDelimitedSize(fieldNumber, count, count << 3);
+    }
+
+    // equals
+
+    public static boolean equals(int[] a, int aCount, int[] b, int bCount) {
+        if (aCount != bCount || (a == null) != (b == null))
+            return false;
+
+        for (int i = 0; i < aCount; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean equals(long[] a, int aCount, long[] b, int bCount) {
+        if (aCount != bCount || (a == null) != (b == null))
+            return false;
+
+        for (int i = 0; i < aCount; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean equals(float[] a, int aCount, float[] b, int bCount) {
+        if (aCount != bCount || (a == null) != (b == null))
+            return false;
+
+        for (int i = 0; i < aCount; i++) {
+            if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i]))
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean equals(double[] a, int aCount, double[] b, int bCount) {
+        if (aCount != bCount || (a == null) != (b == null))
+            return false;
+
+        for (int i = 0; i < aCount; i++) {
+            if (Double.doubleToLongBits(a[i]) != Double.doubleToLongBits(b[i]))
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean equals(boolean[] a, int aCount, boolean[] b, int bCount) {
+        if (aCount != bCount || (a == null) != (b == null))
+            return false;
+
+        for (int i = 0; i < aCount; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+        return true;
+    }
+
+    // hashCode
+
+    public static int hashCode(int[] values, int count) {
+        if (values == null)
+            return 0;
+
+        int hash = 1;
+        for (int i = 0; i < count; i++)
+            hash = 31 * hash + values[i];
+
+        return hash;
+    }
+
+    public static int hashCode(long[] values, int count) {
+        if (values == null)
+            return 0;
+
+        int hash = 1;
+        for (int i = 0; i < count; i++) {
+            final long value = values[i];
+            hash = 31 * hash + (int) (value ^ (value >>> 32));
+        }
+        return hash;
+    }
+
+    public static int hashCode(float[] values, int count) {
+        if (values == null)
+            return 0;
+
+        int hash = 1;
+        for (int i = 0; i < count; i++)
+            hash = 31 * hash + Float.floatToIntBits(values[i]);
+
+        return hash;
+    }
+
+    public static int hashCode(double[] values, int count) {
+        if (values == null)
+            return 0;
+
+        int hash = 1;
+        for (int i = 0; i < count; i++) {
+            final long bits = Double.doubleToLongBits(values[i]);
+            hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+        }
+        return hash;
+    }
+
+    public static int hashCode(boolean[] values, int count) {
+        if (values == null)
+            return 0;
+
+        int hash = 1;
+        for (int i = 0; i < count; i++)
+            hash = 31 * hash + (values[i] ? 1231 : 1237);
+
+        return hash;
+    }
+
+    // toString
+
+    public static String toString(int[] values, int count) {
+        if (values == null)
+            return "null";
+
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i != 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String toString(long[] values, int count) {
+        if (values == null)
+            return "null";
+
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i != 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String toString(float[] values, int count) {
+        if (values == null)
+            return "null";
+
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i != 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String toString(double[] values, int count) {
+        if (values == null)
+            return "null";
+
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i != 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String toString(boolean[] values, int count) {
+        if (values == null)
+            return "null";
+
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i != 0)
+                sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -179,6 +179,9 @@ public final class ProtobufIOUtil
         if (buffer.start != buffer.offset)
             throw new IllegalArgumentException("Buffer previously used and had not been reset.");
 
+        if (schema instanceof SizedSchema)
+            return toByteArray(message, (SizedSchema<T>) schema);
+
         final ProtobufOutput output = new ProtobufOutput(buffer);
         try
         {
@@ -193,6 +196,34 @@ public final class ProtobufIOUtil
         return output.toByteArray();
     }
 
+    /**
+     * Serializes the {@code message} into a byte array of the exact size computed by the schema (no buffer copies).
+     */
+    public static <T> byte[] toByteArray(T message, SizedSchema<T> schema)
+    {
+        final byte[] data = new byte[schema.getSerializedSize(message)];
+        final ProtobufOutput output = new ProtobufOutput(new LinkedBuffer(data, 0, 0));
+        output.sizesCached = true;
+        try
+        {
+            schema.writeTo(output, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Serializing to a byte array threw an IOException " +
+                    "(should never happen).", e);
+        }
+
+        if (output.size != data.length)
+        {
+            throw new IllegalStateException("The message " + schema.messageFullName() +
+                    " was modified while it was being serialized.");
+        }
+
+        // only grows on nested messages which are not sized
+        return output.tail == output.head ? data : output.toByteArray();
+    }
+
     /**
      * Writes the {@code message} into the {@link LinkedBuffer} using the given schema.
      * 
@@ -457,4 +488,35 @@ public final class ProtobufIOUtil
 
         return size;
     }
+
+    /**
+     * Returns the {@link Transcoder.Source} of protobuf-encoded messages.
+     */
+    public static Transcoder.Source transcoderSource()
+    {
+        return new Transcoder.Source()
+        {
+            @Override
+            public Pipe newPipe(byte[] data, int offset, int length) throws IOException
+            {
+                return ProtobufIOUtil.newPipe(data, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes protobuf-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget()
+    {
+        return new Transcoder.Target()
+        {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema)
+                    throws IOException
+            {
+                ProtobufIOUtil.writeTo(buffer, pipe, pipeSchema);
+            }
+        };
+    }
 }
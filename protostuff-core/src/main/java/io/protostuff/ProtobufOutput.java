@@ -37,6 +37,12 @@ public final class ProtobufOutput extends WriteSession implements Output {
 
     public static final int LITTLE_ENDIAN_32_SIZE = 4, LITTLE_ENDIAN_64_SIZE = 8;
 
+    /**
+     * Whether the {@link SizedSchema#getCachedSize(Object) cached sizes} of the nested messages being written are
+     * valid.
+     */
+    boolean sizesCached;
+
     public ProtobufOutput(LinkedBuffer buffer) {
         super(buffer);
     }
@@ -51,6 +57,7 @@ public final class ProtobufOutput extends WriteSession implements Output {
     @Override
     public ProtobufOutput clear() {
         super.clear();
+        sizesCached = false;
         return this;
     }
 
@@ -219,6 +226,32 @@ public final class ProtobufOutput extends WriteSession implements Output {
     @Override
     public <T> void writeObject(final int fieldNumber, final T value, final Schema<T> schema,
                                 final boolean repeated) throws IOException {
+        final boolean cached = sizesCached;
+        if (schema instanceof SizedSchema) {
+            // the size is known upfront, so the content is written after its length
+            final SizedSchema<T> sized = (SizedSchema<T>) schema;
+            final int msgSize = cached ? sized.getCachedSize(value) : sized.getSerializedSize(value);
+
+            tail = writeRawVarInt32(msgSize, this, writeRawVarInt32(
+                    makeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED), this, tail));
+
+            // the sizes of its nested messages were cached along with it
+            sizesCached = true;
+            schema.writeTo(this, value);
+            sizesCached = cached;
+            return;
+        }
+
+        sizesCached = false;
+        writeObjectBuffered(fieldNumber, value, schema);
+        sizesCached = cached;
+    }
+
+    /**
+     * Writes the content first, and then inserts its length before it.
+     */
+    private <T> void writeObjectBuffered(final int fieldNumber, final T value,
+                                         final Schema<T> schema) throws IOException {
         final LinkedBuffer lastBuffer;
 
         // write the tag
@@ -0,0 +1,142 @@
+package io.protostuff;
+
+import static io.protostuff.ProtobufOutput.LITTLE_ENDIAN_32_SIZE;
+import static io.protostuff.ProtobufOutput.LITTLE_ENDIAN_64_SIZE;
+import static io.protostuff.ProtobufOutput.computeRawVarint32Size;
+import static io.protostuff.ProtobufOutput.computeRawVarint64Size;
+import static io.protostuff.ProtobufOutput.encodeZigZag32;
+import static io.protostuff.ProtobufOutput.encodeZigZag64;
+import static io.protostuff.WireFormat.WIRETYPE_VARINT;
+import static io.protostuff.WireFormat.makeTag;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes the size of the fields as written by {@link ProtobufOutput}. Used by the generated
+ * {@link SizedSchema#getSerializedSize(Object)}.
+ */
+public final class ProtobufSizes {
+
+    private ProtobufSizes() {
+    }
+
+    public static int computeTagSize(int fieldNumber) {
+        return computeRawVarint32Size(makeTag(fieldNumber, WIRETYPE_VARINT));
+    }
+
+    public static int computeInt32Size(int fieldNumber, int value) {
+        return computeTagSize(fieldNumber) + (value < 0 ? 10 : computeRawVarint32Size(value));
+    }
+
+    public static int computeUInt32Size(int fieldNumber, int value) {
+        return computeTagSize(fieldNumber) + computeRawVarint32Size(value);
+    }
+
+    public static int computeSInt32Size(int fieldNumber, int value) {
+        return computeTagSize(fieldNumber) + computeRawVarint32Size(encodeZigZag32(value));
+    }
+
+    public static int computeFixed32Size(int fieldNumber, int value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_32_SIZE;
+    }
+
+    public static int computeSFixed32Size(int fieldNumber, int value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_32_SIZE;
+    }
+
+    public static int computeInt64Size(int fieldNumber, long value) {
+        return computeTagSize(fieldNumber) + computeRawVarint64Size(value);
+    }
+
+    public static int computeUInt64Size(int fieldNumber, long value) {
+        return computeTagSize(fieldNumber) + computeRawVarint64Size(value);
+    }
+
+    public static int computeSInt64Size(int fieldNumber, long value) {
+        return computeTagSize(fieldNumber) + computeRawVarint64Size(encodeZigZag64(value));
+    }
+
+    public static int computeFixed64Size(int fieldNumber, long value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_64_SIZE;
+    }
+
+    public static int computeSFixed64Size(int fieldNumber, long value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_64_SIZE;
+    }
+
+    public static int computeFloatSize(int fieldNumber, float value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_32_SIZE;
+    }
+
+    public static int computeDoubleSize(int fieldNumber, double value) {
+        return computeTagSize(fieldNumber) + LITTLE_ENDIAN_64_SIZE;
+    }
+
+    public static int computeBoolSize(int fieldNumber, boolean value) {
+        return computeTagSize(fieldNumber) + 1;
+    }
+
+    public static int computeEnumSize(int fieldNumber, int number) {
+        return computeInt32Size(fieldNumber, number);
+    }
+
+    public static int computeStringSize(int fieldNumber, CharSequence value) {
+        return computeDelimitedSize(fieldNumber, computeUTF8Size(value));
+    }
+
+    public static int computeBytesSize(int fieldNumber, ByteString value) {
+        return computeDelimitedSize(fieldNumber, value.size());
+    }
+
+    public static int computeBytesSize(int fieldNumber, ByteBuffer value) {
+        return computeDelimitedSize(fieldNumber, value.remaining());
+    }
+
+    public static int computeByteArraySize(int fieldNumber, byte[] value) {
+        return computeDelimitedSize(fieldNumber, value.length);
+    }
+
+    /**
+     * Computes the size of a nested message. If the schema is not a {@link SizedSchema}, the message is serialized
+     * to find out.
+     */
+    public static <T> int computeMessageSize(int fieldNumber, T value, Schema<T> schema) {
+        final int size = schema instanceof SizedSchema ?
+                ((SizedSchema<T>) schema).getSerializedSize(value) :
+                ProtobufIOUtil.toByteArray(value, schema, LinkedBuffer.allocate()).length;
+
+        return computeDelimitedSize(fieldNumber, size);
+    }
+
+    /**
+     * Computes the size of a length-delimited field with a content of {@code size} bytes.
+     */
+    public static int computeDelimitedSize(int fieldNumber, int size) {
+        return computeTagSize(fieldNumber) + computeRawVarint32Size(size) + size;
+    }
+
+    /**
+     * Computes the size of the string encoded by {@link StringSerializer}, where a surrogate pair takes 4 bytes.
+     */
+    public static int computeUTF8Size(CharSequence value) {
+        final int len = value.length();
+        int size = len;
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x0080)
+                continue;
+
+            if (c < 0x0800)
+                size++;
+            else if (Character.isHighSurrogate(c) && i + 1 < len &&
+                    Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 4 bytes for 2 chars
+                size += 2;
+                i++;
+            } else
+                size += 2;
+        }
+        return size;
+    }
+
+}
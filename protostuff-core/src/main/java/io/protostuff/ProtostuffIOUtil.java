@@ -386,4 +386,28 @@ public final class ProtostuffIOUtil {
 
         return size;
     }
+
+    /**
+     * Returns the {@link Transcoder.Source} of protostuff-encoded messages.
+     */
+    public static Transcoder.Source transcoderSource() {
+        return new Transcoder.Source() {
+            @Override
+            public Pipe newPipe(byte[] data, int offset, int length) {
+                return ProtostuffIOUtil.newPipe(data, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes protostuff-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget() {
+        return new Transcoder.Target() {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema) {
+                ProtostuffIOUtil.writeTo(buffer, pipe, pipeSchema);
+            }
+        };
+    }
 }
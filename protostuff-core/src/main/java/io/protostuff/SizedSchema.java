@@ -0,0 +1,25 @@
+package io.protostuff;
+
+/**
+ * A schema that can compute the protobuf-encoded size of its messages (generated with the
+ * {@code generate_serialized_size} compiler option).
+ * <p>
+ * {@link ProtobufIOUtil#toByteArray(Object, SizedSchema)} uses it to write a message into a single array of the
+ * exact size, and {@link ProtobufOutput} to write the length of a nested message before its content (instead of
+ * buffering the content first).
+ */
+public interface SizedSchema<T> extends Schema<T> {
+
+    /**
+     * Computes the protobuf-encoded size of the message, and caches it (along with the size of the nested messages)
+     * on the message instance.
+     */
+    public int getSerializedSize(T message);
+
+    /**
+     * Returns the size cached by the last {@link #getSerializedSize(Object)} on the message, which is only valid if
+     * the message was not modified since.
+     */
+    public int getCachedSize(T message);
+
+}
@@ -0,0 +1,162 @@
+package io.protostuff;
+
+import java.util.Arrays;
+
+import io.protostuff.Bar.Status;
+
+/**
+ * Tests for {@link MessagePatch}.
+ */
+public class MessagePatchTest extends AbstractTest
+{
+
+    static Bar newBar()
+    {
+        return new Bar(10, "bar", new Baz(1, "baz", 100L), Status.STARTED,
+                ByteString.copyFromUtf8("b"), true, 1.5f, 2.5d, 1000L);
+    }
+
+    static Bar expected()
+    {
+        return new Bar(10, "patched", new Baz(1, "baz", 200L), Status.STARTED,
+                ByteString.copyFromUtf8("b"), true, 1.5f, 2.5d, 1001L);
+    }
+
+    static MessagePatch<Bar> newPatch()
+    {
+        return new MessagePatch<Bar>(Bar.getSchema())
+                .setString("someString", "patched")
+                .setInt64("someLong", 1001L)
+                .nested("someBaz", new MessagePatch<Baz>(Baz.getSchema())
+                        .setInt64("timestamp", 200L));
+    }
+
+    public void testProtobuf() throws Exception
+    {
+        byte[] data = ProtobufIOUtil.toByteArray(newBar(), Bar.getSchema(), buf());
+        byte[] patched = newPatch().applyProtobuf(data);
+
+        Bar bar = new Bar();
+        ProtobufIOUtil.mergeFrom(patched, bar, Bar.getSchema());
+        assertEquals(expected(), bar);
+
+        // field order preserved, hence identical to a full re-encode
+        assertTrue(Arrays.equals(
+                ProtobufIOUtil.toByteArray(expected(), Bar.getSchema(), buf()),
+                patched));
+    }
+
+    public void testProtostuff() throws Exception
+    {
+        byte[] data = ProtostuffIOUtil.toByteArray(newBar(), Bar.getSchema(), buf());
+        byte[] patched = newPatch().applyProtostuff(data);
+
+        Bar bar = new Bar();
+        ProtostuffIOUtil.mergeFrom(patched, bar, Bar.getSchema());
+        assertEquals(expected(), bar);
+
+        assertTrue(Arrays.equals(
+                ProtostuffIOUtil.toByteArray(expected(), Bar.getSchema(), buf()),
+                patched));
+    }
+
+    public void testRepeatedNested() throws Exception
+    {
+        Foo foo = new Foo();
+        foo.setSomeBar(Arrays.asList(newBar(), newBar()));
+        byte[] data = ProtobufIOUtil.toByteArray(foo, Foo.getSchema(), buf());
+
+        byte[] patched = new MessagePatch<Foo>(Foo.getSchema())
+                .nested("someBar", newPatch())
+                .applyProtobuf(data);
+
+        Foo result = new Foo();
+        ProtobufIOUtil.mergeFrom(patched, result, Foo.getSchema());
+        assertEquals(Arrays.asList(expected(), expected()), result.getSomeBar());
+    }
+
+    public void testAppendAndRemove() throws Exception
+    {
+        Bar bar = newBar();
+        bar.setSomeInt(0);
+        byte[] data = ProtobufIOUtil.toByteArray(bar, Bar.getSchema(), buf());
+
+        byte[] patched = new MessagePatch<Bar>(Bar.getSchema())
+                .setInt32("someInt", 7)
+                .remove("someBaz")
+                .applyProtobuf(data);
+
+        Bar result = new Bar();
+        ProtobufIOUtil.mergeFrom(patched, result, Bar.getSchema());
+        assertEquals(7, result.getSomeInt());
+        assertNull(result.getSomeBaz());
+        assertEquals("bar", result.getSomeString());
+        assertEquals(1000L, result.getSomeLong());
+    }
+
+    static void assertMalformed(MessagePatch<?> patch, byte[] data, String message)
+    {
+        try
+        {
+            patch.applyProtobuf(data);
+            fail("Expected ProtobufException");
+        }
+        catch (RuntimeException e)
+        {
+            assertTrue(e.getCause() instanceof ProtobufException);
+            assertEquals(message, e.getCause().getMessage());
+        }
+    }
+
+    public void testNestedSizeOverrunsParent() throws Exception
+    {
+        Foo foo = new Foo();
+        foo.setSomeBar(Arrays.asList(newBar(), newBar()));
+        byte[] data = ProtobufIOUtil.toByteArray(foo, Foo.getSchema(), buf());
+
+        // the first bar: tag, size (1 byte), then its someBaz (tag 3), whose size is bumped into the second bar
+        assertEquals(WireFormat.WIRETYPE_LENGTH_DELIMITED, WireFormat.getTagWireType(data[0]));
+        final int barSize = data[1];
+        int i = 2;
+        while (data[i] != WireFormat.makeTag(3, WireFormat.WIRETYPE_LENGTH_DELIMITED))
+            i++;
+
+        data[i + 1] = (byte) (barSize - (i - 2));
+        assertTrue(i + 2 + data[i + 1] < data.length);
+        assertMalformed(new MessagePatch<Foo>(Foo.getSchema()).nested("someBar", newPatch()), data,
+                ProtobufException.misreportedSize().getMessage());
+    }
+
+    public void testStrayEndGroupInNested() throws Exception
+    {
+        Bar bar = newBar();
+        bar.setSomeBaz(null);
+        byte[] barData = ProtobufIOUtil.toByteArray(bar, Bar.getSchema(), buf());
+        byte[] bazData = ProtobufIOUtil.toByteArray(new Baz(1, "baz", 100L), Baz.getSchema(),
+                buf());
+
+        // someBaz with an end group tag in the middle of its range
+        final byte endGroup = (byte) WireFormat.makeTag(2, WireFormat.WIRETYPE_END_GROUP);
+        byte[] data = new byte[barData.length + bazData.length + 3];
+        System.arraycopy(barData, 0, data, 0, barData.length);
+        data[barData.length] = (byte) WireFormat.makeTag(3, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        data[barData.length + 1] = (byte) (bazData.length + 1);
+        data[barData.length + 2] = endGroup;
+        System.arraycopy(bazData, 0, data, barData.length + 3, bazData.length);
+        assertMalformed(newPatch(), data, ProtobufException.invalidEndTag().getMessage());
+    }
+
+    public void testUnknownField() throws Exception
+    {
+        try
+        {
+            new MessagePatch<Bar>(Bar.getSchema()).setInt32("unknown", 1);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+}
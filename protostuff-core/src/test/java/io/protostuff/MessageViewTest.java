@@ -0,0 +1,187 @@
+package io.protostuff;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link MessageView}, with views written like the ones generated by the java_view output.
+ */
+public class MessageViewTest extends AbstractTest
+{
+
+    static final class BazView extends MessageView
+    {
+        static final int[] FIELD_NUMBERS = { 1, 2, 3 };
+
+        BazView(MessageView parent, int fieldNumber)
+        {
+            super(parent, fieldNumber, FIELD_NUMBERS);
+        }
+
+        int getId()
+        {
+            return readInt32(1, 0);
+        }
+
+        String getName()
+        {
+            return readString(2, null);
+        }
+
+        long getTimestamp()
+        {
+            return readInt64(3, 0);
+        }
+    }
+
+    static final class BarView extends MessageView
+    {
+        static final int[] FIELD_NUMBERS = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+        BarView(byte[] buffer)
+        {
+            super(buffer, 0, buffer.length, FIELD_NUMBERS);
+        }
+
+        BarView(ByteBuffer buffer)
+        {
+            super(buffer, FIELD_NUMBERS);
+        }
+
+        BazView getSomeBaz()
+        {
+            return has(3) ? new BazView(this, 3) : null;
+        }
+    }
+
+    static final class RepeatedView extends MessageView
+    {
+        static final int[] FIELD_NUMBERS = { 1, 2 };
+
+        RepeatedView(byte[] buffer)
+        {
+            super(buffer, 0, buffer.length, FIELD_NUMBERS);
+        }
+    }
+
+    static Bar newBar()
+    {
+        return new Bar(-12, "bar", new Baz(7, "baz", 1234567890123L), Bar.Status.COMPLETED,
+                ByteString.copyFromUtf8("b"), true, 1.5f, -2.25, Long.MIN_VALUE);
+    }
+
+    static void verify(BarView view)
+    {
+        assertEquals(-12, view.readInt32(1, 0));
+        assertEquals("bar", view.readString(2, null));
+        assertEquals(2, view.readEnum(4, 0));
+        assertEquals(ByteString.copyFromUtf8("b"), view.readBytes(5, null));
+        assertTrue(view.readBool(6, false));
+        assertEquals(1.5f, view.readFloat(7, 0));
+        assertEquals(-2.25, view.readDouble(8, 0));
+        assertEquals(Long.MIN_VALUE, view.readInt64(9, 0));
+
+        BazView baz = view.getSomeBaz();
+        assertNotNull(baz);
+        assertEquals(7, baz.getId());
+        assertEquals("baz", baz.getName());
+        assertEquals(1234567890123L, baz.getTimestamp());
+    }
+
+    public void testProtostuff()
+    {
+        final byte[] data = ProtostuffIOUtil.toByteArray(newBar(), Bar.getSchema(),
+                buf());
+
+        verify(new BarView(data));
+        verify(new BarView(ByteBuffer.wrap(data)));
+    }
+
+    public void testProtobuf()
+    {
+        final byte[] data = ProtobufIOUtil.toByteArray(newBar(), Bar.getSchema(),
+                buf());
+
+        verify(new BarView(data));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        verify(new BarView(direct));
+    }
+
+    public void testDefaults()
+    {
+        final Bar bar = new Bar();
+        final byte[] data = ProtostuffIOUtil.toByteArray(bar, bar.cachedSchema(), buf());
+        final BarView view = new BarView(data);
+
+        assertFalse(view.has(1));
+        assertEquals(5, view.readInt32(1, 5));
+        assertEquals("none", view.readString(2, "none"));
+        assertNull(view.getSomeBaz());
+    }
+
+    public void testLastValueWins()
+    {
+        final Bar bar = new Bar();
+        bar.setSomeInt(1);
+        final byte[] first = ProtostuffIOUtil.toByteArray(bar, bar.cachedSchema(), buf());
+        bar.setSomeInt(2);
+        final byte[] second = ProtostuffIOUtil.toByteArray(bar, bar.cachedSchema(), buf());
+
+        final byte[] data = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, data, first.length, second.length);
+
+        assertEquals(2, new BarView(data).readInt32(1, 0));
+    }
+
+    public void testRepeated() throws Exception
+    {
+        final PojoWithRepeated pojo = new PojoWithRepeated();
+        pojo.setSomeInt32List(new ArrayList<Integer>(Arrays.asList(3, -1, 270)));
+        pojo.setSomeFixed64List(new ArrayList<Long>(Arrays.asList(9L, Long.MAX_VALUE)));
+
+        // unpacked
+        verifyRepeated(new RepeatedView(ProtostuffIOUtil.toByteArray(pojo, pojo, buf())));
+
+        // packed
+        final ProtobufOutput output = new ProtobufOutput(buf());
+        PackedFields.writeInt32(output, 1, new int[] { 3, -1 }, 2);
+        PackedFields.writeFixed64(output, 2, new long[] { 9L, Long.MAX_VALUE }, 2);
+        // a packed run followed by a single value
+        output.writeInt32(1, 270, true);
+        verifyRepeated(new RepeatedView(output.toByteArray()));
+    }
+
+    static void verifyRepeated(RepeatedView view)
+    {
+        final List<Integer> ints = new ArrayList<Integer>();
+        for (MessageView.Cursor cursor = view.cursor(1, WireFormat.WIRETYPE_VARINT); cursor.next();)
+            ints.add(cursor.readInt32());
+        assertEquals(Arrays.asList(3, -1, 270), ints);
+
+        final List<Long> longs = new ArrayList<Long>();
+        for (MessageView.Cursor cursor = view.cursor(2, WireFormat.WIRETYPE_FIXED64); cursor.next();)
+            longs.add(cursor.readFixed64());
+        assertEquals(Arrays.asList(9L, Long.MAX_VALUE), longs);
+    }
+
+    public void testTruncated()
+    {
+        final byte[] data = ProtobufIOUtil.toByteArray(newBar(), Bar.getSchema(),
+                buf());
+
+        try
+        {
+            new BarView(Arrays.copyOf(data, data.length - 4)).has(1);
+            fail("Expected failure on truncated data.");
+        }
+        catch (RuntimeException e)
+        {
+            assertTrue(e.getCause() instanceof ProtobufException);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package io.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link PackedFields}.
+ */
+public class PackedFieldsTest extends AbstractTest
+{
+
+    static final int[] INTS = { 3, 270, -1, 0, Integer.MAX_VALUE, Integer.MIN_VALUE, 86942 };
+    static final long[] LONGS = { 8, 9, -1, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    public void testPackedByteArrayInput() throws IOException
+    {
+        final byte[] data = writePacked(new ProtobufOutput(new LinkedBuffer(256)));
+
+        PojoWithRepeated test = new PojoWithRepeated();
+        test.mergeFrom(new ByteArrayInput(data, 0, data.length, false), test);
+
+        verify(test);
+    }
+
+    public void testPackedByteBufferInput() throws IOException
+    {
+        final byte[] data = writePacked(new ProtostuffOutput(new LinkedBuffer(256)));
+
+        PojoWithRepeated test = new PojoWithRepeated();
+        test.mergeFrom(new ByteBufferInput(ByteBuffer.wrap(data), true), test);
+
+        verify(test);
+    }
+
+    public void testPackedCodedInput() throws IOException
+    {
+        final byte[] data = writePacked(new ProtostuffOutput(new LinkedBuffer(256)));
+
+        PojoWithRepeated test = new PojoWithRepeated();
+        test.mergeFrom(new CodedInput(new ByteArrayInputStream(data), true), test);
+
+        verify(test);
+    }
+
+    public void testPackedStreamed() throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ProtostuffOutput output = new ProtostuffOutput(new LinkedBuffer(256), out);
+
+        // more than the buffer
+        final long[] values = new long[100];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i * 31L;
+
+        PackedFields.writeFixed64(output, 2, values, values.length);
+        LinkedBuffer.writeTo(out, output.head);
+
+        final byte[] data = out.toByteArray();
+        assertEquals(1 + 2 + 800, data.length);
+
+        PojoWithRepeated test = new PojoWithRepeated();
+        test.mergeFrom(new ByteArrayInput(data, true), test);
+
+        assertEquals(100, test.getSomeFixed64Count());
+        for (int i = 0; i < values.length; i++)
+            assertEquals(values[i], test.getSomeFixed64(i).longValue());
+    }
+
+    public void testNotPacked() throws IOException
+    {
+        final ComputedSizeOutput packed = new ComputedSizeOutput(false);
+        assertFalse(PackedFields.isPacked(packed));
+
+        // same as writing the elements one by one
+        PackedFields.writeInt32(packed, 1, INTS, INTS.length);
+
+        final ComputedSizeOutput expected = new ComputedSizeOutput(false);
+        for (int value : INTS)
+            expected.writeInt32(1, value, true);
+
+        assertEquals(expected.getSize(), packed.getSize());
+    }
+
+    public void testEmpty() throws IOException
+    {
+        final ProtobufOutput output = new ProtobufOutput(new LinkedBuffer(256));
+        PackedFields.writeInt32(output, 1, null, 0);
+        PackedFields.writeDouble(output, 2, new double[8], 0);
+
+        assertEquals(0, output.getSize());
+    }
+
+    public void testGrow()
+    {
+        int[] values = PackedFields.grow((int[]) null, 0);
+        assertEquals(PackedFields.INITIAL_CAPACITY, values.length);
+
+        for (int i = 0; i < 100; i++)
+        {
+            values = PackedFields.grow(values, i);
+            values[i] = i;
+        }
+        assertTrue(values.length >= 100);
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, values[i]);
+    }
+
+    public void testSameAsList()
+    {
+        final double[] values = { 1.5, -0.0, Double.NaN, 3 };
+        final double[] copy = Arrays.copyOf(values, 10);
+        final java.util.List<Double> list = Arrays.asList(1.5, -0.0, Double.NaN, 3.0);
+
+        assertTrue(PackedFields.equals(values, values.length, copy, values.length));
+        assertFalse(PackedFields.equals(values, values.length, copy, copy.length));
+        assertFalse(PackedFields.equals(values, 2, new double[] { 1.5, 0.0 }, 2));
+
+        assertEquals(list.hashCode(), PackedFields.hashCode(copy, values.length));
+        assertEquals(list.toString(), PackedFields.toString(copy, values.length));
+
+        final boolean[] bools = { true, false };
+        assertEquals(Arrays.asList(true, false).hashCode(), PackedFields.hashCode(bools, 2));
+        assertEquals("[]", PackedFields.toString(bools, 0));
+
+        // an absent field, like a null list
+        assertEquals("null", PackedFields.toString((int[]) null, 0));
+        assertEquals(0, PackedFields.hashCode((long[]) null, 0));
+        assertTrue(PackedFields.equals((boolean[]) null, 0, null, 0));
+        assertFalse(PackedFields.equals(null, 0, new boolean[0], 0));
+    }
+
+    static byte[] writePacked(WriteSession output) throws IOException
+    {
+        assertTrue(PackedFields.isPacked((Output) output));
+
+        PackedFields.writeInt32((Output) output, 1, INTS, 2);
+        // interleave
+        PackedFields.writeFixed64((Output) output, 2, LONGS, 2);
+        PackedFields.writeInt32((Output) output, 1, Arrays.copyOfRange(INTS, 2, INTS.length),
+                INTS.length - 2);
+        PackedFields.writeFixed64((Output) output, 2, Arrays.copyOfRange(LONGS, 2, LONGS.length),
+                LONGS.length - 2);
+
+        return output.toByteArray();
+    }
+
+    static void verify(PojoWithRepeated test)
+    {
+        assertEquals(INTS.length, test.getSomeInt32Count());
+        for (int i = 0; i < INTS.length; i++)
+            assertEquals(INTS[i], test.getSomeInt32(i).intValue());
+
+        assertEquals(LONGS.length, test.getSomeFixed64Count());
+        for (int i = 0; i < LONGS.length; i++)
+            assertEquals(LONGS[i], test.getSomeFixed64(i).longValue());
+    }
+
+}
@@ -0,0 +1,282 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Tests for {@link SizedSchema} and {@link ProtobufSizes}, with schemas written like the ones generated with the
+ * {@code generate_serialized_size} option.
+ */
+public class SizedSchemaTest extends AbstractTest
+{
+
+    static abstract class Sized<T> implements SizedSchema<T>
+    {
+        final Schema<T> schema;
+        final IdentityHashMap<T, Integer> cachedSizes = new IdentityHashMap<T, Integer>();
+
+        Sized(Schema<T> schema)
+        {
+            this.schema = schema;
+        }
+
+        abstract int computeSize(T message);
+
+        @Override
+        public int getSerializedSize(T message)
+        {
+            int size = computeSize(message);
+            cachedSizes.put(message, size);
+            return size;
+        }
+
+        @Override
+        public int getCachedSize(T message)
+        {
+            return cachedSizes.get(message);
+        }
+
+        @Override
+        public String getFieldName(int number)
+        {
+            return schema.getFieldName(number);
+        }
+
+        @Override
+        public int getFieldNumber(String name)
+        {
+            return schema.getFieldNumber(name);
+        }
+
+        @Override
+        public boolean isInitialized(T message)
+        {
+            return schema.isInitialized(message);
+        }
+
+        @Override
+        public T newMessage()
+        {
+            return schema.newMessage();
+        }
+
+        @Override
+        public String messageName()
+        {
+            return schema.messageName();
+        }
+
+        @Override
+        public String messageFullName()
+        {
+            return schema.messageFullName();
+        }
+
+        @Override
+        public Class<? super T> typeClass()
+        {
+            return schema.typeClass();
+        }
+
+        @Override
+        public void mergeFrom(Input input, T message) throws IOException
+        {
+            schema.mergeFrom(input, message);
+        }
+    }
+
+    static final Sized<Baz> BAZ = new Sized<Baz>(Baz.getSchema())
+    {
+        @Override
+        int computeSize(Baz message)
+        {
+            int size = 0;
+            if (message.getId() != 0)
+                size += ProtobufSizes.computeInt32Size(1, message.getId());
+            if (message.getName() != null)
+                size += ProtobufSizes.computeStringSize(2, message.getName());
+            if (message.getTimestamp() != 0l)
+                size += ProtobufSizes.computeInt64Size(3, message.getTimestamp());
+            return size;
+        }
+
+        @Override
+        public void writeTo(Output output, Baz message) throws IOException
+        {
+            schema.writeTo(output, message);
+        }
+    };
+
+    static final Sized<Bar> BAR = new Sized<Bar>(Bar.getSchema())
+    {
+        @Override
+        int computeSize(Bar message)
+        {
+            int size = 0;
+            if (message.getSomeInt() != 0)
+                size += ProtobufSizes.computeInt32Size(1, message.getSomeInt());
+            if (message.getSomeString() != null)
+                size += ProtobufSizes.computeStringSize(2, message.getSomeString());
+            if (message.getSomeBaz() != null)
+                size += ProtobufSizes.computeMessageSize(3, message.getSomeBaz(), BAZ);
+            if (message.getSomeEnum() != null)
+                size += ProtobufSizes.computeEnumSize(4, message.getSomeEnum().number);
+            if (message.getSomeBytes() != null)
+                size += ProtobufSizes.computeBytesSize(5, message.getSomeBytes());
+            if (message.getSomeBoolean())
+                size += ProtobufSizes.computeBoolSize(6, true);
+            if (message.getSomeFloat() != 0f)
+                size += ProtobufSizes.computeFloatSize(7, message.getSomeFloat());
+            if (message.getSomeDouble() != 0d)
+                size += ProtobufSizes.computeDoubleSize(8, message.getSomeDouble());
+            if (message.getSomeLong() != 0l)
+                size += ProtobufSizes.computeInt64Size(9, message.getSomeLong());
+            return size;
+        }
+
+        @Override
+        public void writeTo(Output output, Bar message) throws IOException
+        {
+            // same as Bar, with a sized baz
+            if (message.getSomeInt() != 0)
+                output.writeInt32(1, message.getSomeInt(), false);
+            if (message.getSomeString() != null)
+                output.writeString(2, message.getSomeString(), false);
+            if (message.getSomeBaz() != null)
+                output.writeObject(3, message.getSomeBaz(), BAZ, false);
+            if (message.getSomeEnum() != null)
+                output.writeEnum(4, message.getSomeEnum().number, false);
+            if (message.getSomeBytes() != null)
+                output.writeBytes(5, message.getSomeBytes(), false);
+            if (message.getSomeBoolean())
+                output.writeBool(6, message.getSomeBoolean(), false);
+            if (message.getSomeFloat() != 0f)
+                output.writeFloat(7, message.getSomeFloat(), false);
+            if (message.getSomeDouble() != 0d)
+                output.writeDouble(8, message.getSomeDouble(), false);
+            if (message.getSomeLong() != 0l)
+                output.writeInt64(9, message.getSomeLong(), false);
+        }
+    };
+
+    static String repeat(String str, int times)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++)
+            sb.append(str);
+        return sb.toString();
+    }
+
+    static Bar[] newBars()
+    {
+        return new Bar[] {
+                new Bar(),
+                new Bar(-1, "", new Baz(), Bar.Status.COMPLETED, ByteString.EMPTY, true, 1f, 1d,
+                        Long.MIN_VALUE),
+                new Bar(127, "a", new Baz(-128, "\u00e9t\u00e9", 1l), Bar.Status.STARTED,
+                        ByteString.copyFromUtf8("b"), false, -0.5f, 0d, 128l),
+                // lengths needing 2 and 3 byte varints, chars of 2, 3 and 4 bytes
+                new Bar(Integer.MAX_VALUE, repeat("\u00e9\u20ac\ud83d\ude00x", 100),
+                        new Baz(Integer.MIN_VALUE, repeat("\ud83d\ude00", 5000), Long.MAX_VALUE),
+                        Bar.Status.PENDING, ByteString.copyFrom(new byte[300]), true, Float.NaN,
+                        -1d, -1l),
+                // a lone surrogate
+                new Bar(0, "\ud83dx", new Baz(0, "x\ude00", 0l), null, null, false, 0f, 0d, 0l)
+        };
+    }
+
+    public void testToByteArray() throws Exception
+    {
+        for (Bar bar : newBars())
+        {
+            final byte[] expected = ProtobufIOUtil.toByteArray(bar, Bar.getSchema(), buf());
+            assertEquals(expected.length, BAR.getSerializedSize(bar));
+            assertTrue(Arrays.equals(expected, ProtobufIOUtil.toByteArray(bar, BAR)));
+            // also through the existing method
+            assertTrue(Arrays.equals(expected, ProtobufIOUtil.toByteArray(bar, BAR, buf())));
+        }
+    }
+
+    public void testNestedInUnsized() throws Exception
+    {
+        for (Bar bar : newBars())
+        {
+            final ProtobufOutput expected = new ProtobufOutput(buf());
+            expected.writeObject(1, bar, Bar.getSchema(), false);
+            expected.writeObject(2, bar, Bar.getSchema(), true);
+
+            // stale cached sizes are not used by a parent which is not sized
+            BAR.cachedSizes.put(bar, 1000000);
+            if (bar.getSomeBaz() != null)
+                BAZ.cachedSizes.put(bar.getSomeBaz(), 1000000);
+
+            final ProtobufOutput actual = new ProtobufOutput(buf());
+            actual.writeObject(1, bar, BAR, false);
+            actual.writeObject(2, bar, BAR, true);
+
+            assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+        }
+    }
+
+    public void testUnsizedNested() throws Exception
+    {
+        final Sized<Bar> bar = new Sized<Bar>(Bar.getSchema())
+        {
+            @Override
+            int computeSize(Bar message)
+            {
+                // the baz is not sized
+                return ProtobufSizes.computeMessageSize(1, message.getSomeBaz(), Baz.getSchema()) +
+                        ProtobufSizes.computeStringSize(2, message.getSomeString());
+            }
+
+            @Override
+            public void writeTo(Output output, Bar message) throws IOException
+            {
+                output.writeObject(1, message.getSomeBaz(), Baz.getSchema(), false);
+                output.writeString(2, message.getSomeString(), false);
+            }
+        };
+
+        final Bar message = new Bar(0, repeat("x", 200), new Baz(1, repeat("y", 300), 2l), null,
+                null, false, 0f, 0d, 0l);
+
+        final ProtobufOutput expected = new ProtobufOutput(buf());
+        bar.writeTo(expected, message);
+        assertTrue(Arrays.equals(expected.toByteArray(), ProtobufIOUtil.toByteArray(message, bar)));
+    }
+
+    public void testUTF8Size() throws Exception
+    {
+        final String[] strings = { "", "abc", "\u00e9", "\u20ac", "\ud83d\ude00", "\ud83d",
+                "\ude00\ud83d", "a\ud83d\ude00\ud83db" };
+        for (String str : strings)
+        {
+            final ProtobufOutput output = new ProtobufOutput(buf());
+            output.writeString(1, str, false);
+            assertEquals(str, output.getSize(), ProtobufSizes.computeStringSize(1, str));
+        }
+    }
+
+    public void testPackedSize() throws Exception
+    {
+        final int[] ints = { 0, -1, 127, 128, Integer.MIN_VALUE };
+        final long[] longs = { 0, -1, 127, 128, Long.MIN_VALUE };
+
+        final ProtobufOutput output = new ProtobufOutput(buf());
+        PackedFields.writeInt32(output, 1, ints, ints.length);
+        assertEquals(output.getSize(), PackedFields.computeInt32Size(1, ints, ints.length));
+
+        output.clear();
+        PackedFields.writeSInt64(output, 200, longs, 3);
+        assertEquals(output.getSize(), PackedFields.computeSInt64Size(200, longs, 3));
+
+        output.clear();
+        PackedFields.writeDouble(output, 2, new double[] { 1d, 2d }, 2);
+        assertEquals(output.getSize(), PackedFields.computeDoubleSize(2, new double[2], 2));
+
+        assertEquals(0, PackedFields.computeBoolSize(1, new boolean[8], 0));
+    }
+
+}
@@ -0,0 +1,104 @@
+package io.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link StringCache} on the inputs.
+ */
+public class StringCacheTest extends AbstractTest
+{
+
+    static Foo newFoo()
+    {
+        Foo foo = new Foo();
+        foo.setSomeString(Arrays.asList("USD", "EUR", "USD", "a-string-that-is-longer-than-the-max-length",
+                "a-string-that-is-longer-than-the-max-length", "", "EUR"));
+        return foo;
+    }
+
+    static void verify(Foo foo)
+    {
+        List<String> list = foo.getSomeString();
+        assertEquals(newFoo().getSomeString(), list);
+        // cached
+        assertSame(list.get(0), list.get(2));
+        assertSame(list.get(1), list.get(6));
+        // not cached
+        assertNotSame(list.get(3), list.get(4));
+    }
+
+    public void testByteArrayInput() throws Exception
+    {
+        byte[] data = ProtostuffIOUtil.toByteArray(newFoo(), Foo.getSchema(), buf());
+        ByteArrayInput input = new ByteArrayInput(data, true)
+                .setStringCache(new StringCache(16, 8));
+
+        Foo foo = new Foo();
+        Foo.getSchema().mergeFrom(input, foo);
+        input.checkLastTagWas(0);
+        verify(foo);
+    }
+
+    public void testByteBufferInput() throws Exception
+    {
+        byte[] data = ProtobufIOUtil.toByteArray(newFoo(), Foo.getSchema(), buf());
+        ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+        bb.put(data).flip();
+        ByteBufferInput input = new ByteBufferInput(bb, false)
+                .setStringCache(new StringCache(16, 8));
+
+        Foo foo = new Foo();
+        Foo.getSchema().mergeFrom(input, foo);
+        input.checkLastTagWas(0);
+        verify(foo);
+    }
+
+    public void testCodedInput() throws Exception
+    {
+        byte[] data = ProtobufIOUtil.toByteArray(newFoo(), Foo.getSchema(), buf());
+        // small buffer to go through the slow path as well
+        CodedInput input = new CodedInput(new ByteArrayInputStream(data), new byte[16], false)
+                .setStringCache(new StringCache(16, 8));
+
+        Foo foo = new Foo();
+        Foo.getSchema().mergeFrom(input, foo);
+        input.checkLastTagWas(0);
+        verify(foo);
+    }
+
+    public void testSharedAcrossInputs() throws Exception
+    {
+        StringCache cache = new StringCache();
+        byte[] data = ProtostuffIOUtil.toByteArray(newFoo(), Foo.getSchema(), buf());
+
+        Foo first = new Foo(), second = new Foo();
+        Foo.getSchema().mergeFrom(new ByteArrayInput(data, true).setStringCache(cache), first);
+        Foo.getSchema().mergeFrom(new ByteArrayInput(data, true).setStringCache(cache), second);
+
+        assertSame(first.getSomeString().get(0), second.getSomeString().get(0));
+    }
+
+    public void testCollisionReplaces() throws Exception
+    {
+        StringCache cache = new StringCache(1, 8);
+        byte[] a = STRING_A, b = STRING_B;
+
+        String a1 = cache.deser(a, 0, a.length);
+        assertSame(a1, cache.deser(a, 0, a.length));
+
+        String b1 = cache.deser(b, 0, b.length);
+        assertEquals("bar", b1);
+        assertSame(b1, cache.deser(b, 0, b.length));
+
+        String a2 = cache.deser(a, 0, a.length);
+        assertEquals("foo", a2);
+        assertNotSame(a1, a2);
+    }
+
+    static final byte[] STRING_A = new byte[] { 'f', 'o', 'o' };
+    static final byte[] STRING_B = new byte[] { 'b', 'a', 'r' };
+
+}
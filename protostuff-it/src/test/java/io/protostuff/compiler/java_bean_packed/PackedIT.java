@@ -0,0 +1,168 @@
+package io.protostuff.compiler.java_bean_packed;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.protostuff.JsonIOUtil;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.compiler.it.java_bean_packed.PackedMessage;
+
+/**
+ * Integration tests for java_bean_packed, against the java_bean classes generated from the same proto (in the
+ * {@code lists} package).
+ */
+public class PackedIT
+{
+
+    static PackedMessage newPacked()
+    {
+        final PackedMessage message = new PackedMessage();
+        message.setIntsArray(new int[] { 1, -1, Integer.MAX_VALUE });
+        message.addLongs(-2L);
+        message.addLongs(Long.MIN_VALUE);
+        message.setDoublesArray(new double[] { 1.5, -0.0 });
+        message.addFloats(3.25f);
+        message.setFlagsArray(new boolean[] { true, false, true });
+        message.addFixed(0xFFFFFFFF);
+        message.setName("packed");
+        message.setTagsList(Arrays.asList("a", "b"));
+        message.setStatusesList(Arrays.asList(PackedMessage.Status.INACTIVE, PackedMessage.Status.ACTIVE));
+
+        final PackedMessage child = new PackedMessage();
+        child.addInts(42);
+        message.setChild(child);
+        return message;
+    }
+
+    static io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage newLists()
+    {
+        final io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage message =
+                new io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage();
+        message.setIntsList(Arrays.asList(1, -1, Integer.MAX_VALUE));
+        message.setLongsList(Arrays.asList(-2L, Long.MIN_VALUE));
+        message.setDoublesList(Arrays.asList(1.5, -0.0));
+        message.setFloatsList(Arrays.asList(3.25f));
+        message.setFlagsList(Arrays.asList(true, false, true));
+        message.setFixedList(Arrays.asList(0xFFFFFFFF));
+        message.setName("packed");
+        message.setTagsList(Arrays.asList("a", "b"));
+        message.setStatusesList(Arrays.asList(
+                io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage.Status.INACTIVE,
+                io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage.Status.ACTIVE));
+
+        final io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage child =
+                new io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage();
+        child.setIntsList(Arrays.asList(42));
+        message.setChild(child);
+        return message;
+    }
+
+    static <T> byte[] toProtostuff(T message, Schema<T> schema)
+    {
+        return ProtostuffIOUtil.toByteArray(message, schema, LinkedBuffer.allocate());
+    }
+
+    static <T> byte[] toProtobuf(T message, Schema<T> schema)
+    {
+        return ProtobufIOUtil.toByteArray(message, schema, LinkedBuffer.allocate());
+    }
+
+    static <T> T fromProtostuff(byte[] data, Schema<T> schema)
+    {
+        final T message = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, message, schema);
+        return message;
+    }
+
+    static <T> T fromProtobuf(byte[] data, Schema<T> schema)
+    {
+        final T message = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, message, schema);
+        return message;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final PackedMessage message = newPacked();
+        final Schema<PackedMessage> schema = PackedMessage.getSchema();
+
+        Assert.assertEquals(message, fromProtostuff(toProtostuff(message, schema), schema));
+        Assert.assertEquals(message, fromProtobuf(toProtobuf(message, schema), schema));
+
+        final PackedMessage parsed = fromProtobuf(toProtobuf(message, schema), schema);
+        Assert.assertArrayEquals(new int[] { 1, -1, Integer.MAX_VALUE }, parsed.getIntsArray());
+        Assert.assertEquals(Long.MIN_VALUE, parsed.getLongs(1));
+        Assert.assertEquals(3, parsed.getFlagsCount());
+        Assert.assertEquals(42, parsed.getChild().getInts(0));
+        Assert.assertEquals(message.hashCode(), parsed.hashCode());
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        final PackedMessage message = new PackedMessage();
+        final Schema<PackedMessage> schema = PackedMessage.getSchema();
+
+        Assert.assertEquals(0, toProtobuf(message, schema).length);
+        final PackedMessage parsed = fromProtobuf(new byte[0], schema);
+        Assert.assertEquals(message, parsed);
+        Assert.assertEquals(0, parsed.getIntsCount());
+        Assert.assertEquals(0, parsed.getIntsArray().length);
+    }
+
+    @Test
+    public void testListsReadPacked() throws Exception
+    {
+        final PackedMessage packed = newPacked();
+        final io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage lists = newLists();
+        final Schema<io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage> listsSchema =
+                io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage.getSchema();
+
+        Assert.assertEquals(lists, fromProtostuff(toProtostuff(packed, PackedMessage.getSchema()), listsSchema));
+        Assert.assertEquals(lists, fromProtobuf(toProtobuf(packed, PackedMessage.getSchema()), listsSchema));
+    }
+
+    @Test
+    public void testPackedReadsLists() throws Exception
+    {
+        final PackedMessage packed = newPacked();
+        final io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage lists = newLists();
+        final Schema<io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage> listsSchema =
+                io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage.getSchema();
+
+        // one field per element
+        Assert.assertEquals(packed, fromProtostuff(toProtostuff(lists, listsSchema), PackedMessage.getSchema()));
+        Assert.assertEquals(packed, fromProtobuf(toProtobuf(lists, listsSchema), PackedMessage.getSchema()));
+    }
+
+    @Test
+    public void testSameJson() throws Exception
+    {
+        final io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage lists = newLists();
+        final byte[] json = JsonIOUtil.toByteArray(lists, lists.cachedSchema(), false);
+
+        // not packed, one array element per value
+        Assert.assertArrayEquals(json, JsonIOUtil.toByteArray(newPacked(), PackedMessage.getSchema(), false));
+
+        final PackedMessage packed = new PackedMessage();
+        JsonIOUtil.mergeFrom(json, packed, PackedMessage.getSchema(), false);
+        Assert.assertEquals(newPacked(), packed);
+    }
+
+    @Test
+    public void testSameToString() throws Exception
+    {
+        Assert.assertEquals(newLists().toString(), newPacked().toString());
+        // absent repeated fields print null, like the null lists
+        Assert.assertEquals(new io.protostuff.compiler.it.java_bean_packed.lists.PackedMessage().toString(),
+                new PackedMessage().toString());
+        Assert.assertTrue(new PackedMessage().toString().contains("ints=null"));
+    }
+
+}
@@ -0,0 +1,197 @@
+package io.protostuff.compiler.java_view;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.protostuff.ByteString;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.MessageView;
+import io.protostuff.PackedFields;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtobufOutput;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.compiler.it.java_view.Address;
+import io.protostuff.compiler.it.java_view.AddressView;
+import io.protostuff.compiler.it.java_view.Order;
+import io.protostuff.compiler.it.java_view.OrderView;
+
+/**
+ * Integration tests for java_view, over the bytes of the java_bean classes generated from the same proto.
+ */
+public class ViewIT
+{
+
+    static Order.Line newLine(String sku, Integer quantity, Double... prices)
+    {
+        final Order.Line line = new Order.Line(sku);
+        line.setQuantity(quantity);
+        line.setPricesList(prices.length == 0 ? null : Arrays.asList(prices));
+        return line;
+    }
+
+    static Order newOrder()
+    {
+        final Order order = new Order();
+        order.setId(Long.MAX_VALUE);
+        order.setCustomer("customer é中");
+        order.setStatus(Order.Status.NEW);
+        order.setLinesList(Arrays.asList(
+                newLine("a", 2, 1.5, 2.5),
+                newLine("b", null)));
+        order.setCodesList(Arrays.asList(-1, 0, Integer.MIN_VALUE));
+        order.setNotesList(Arrays.asList("first", "", "third"));
+        order.setPrimary(newLine("p", 7, 9.75));
+        order.setPayload(ByteString.copyFrom(new byte[] { 1, 2, 3 }));
+        order.setRush(false);
+        order.setWeight(-3.5f);
+
+        final Address address = new Address();
+        address.setCity("city");
+        address.setZonesList(Arrays.asList(-1L, 42L));
+        order.setAddress(address);
+        return order;
+    }
+
+    static byte[] toProtobuf(Order order)
+    {
+        return ProtobufIOUtil.toByteArray(order, Order.getSchema(), LinkedBuffer.allocate());
+    }
+
+    static byte[] toProtostuff(Order order)
+    {
+        return ProtostuffIOUtil.toByteArray(order, Order.getSchema(), LinkedBuffer.allocate());
+    }
+
+    static List<String> skus(OrderView view)
+    {
+        final ArrayList<String> skus = new ArrayList<String>();
+        for (MessageView.Cursor c = view.getLines(); c.next();)
+            skus.add(new OrderView.LineView(c).getSku());
+
+        return skus;
+    }
+
+    static void assertOrder(OrderView view)
+    {
+        Assert.assertEquals(Long.MAX_VALUE, view.getId());
+        Assert.assertEquals("customer é中", view.getCustomer());
+        Assert.assertEquals(Order.Status.NEW.getNumber(), view.getStatus());
+        Assert.assertFalse(view.getRush());
+        Assert.assertEquals(-3.5f, view.getWeight(), 0f);
+        Assert.assertEquals(ByteString.copyFrom(new byte[] { 1, 2, 3 }), view.getPayload());
+
+        // nested messages, from a cursor and from a field
+        Assert.assertEquals(Arrays.asList("a", "b"), skus(view));
+        MessageView.Cursor lines = view.getLines();
+        Assert.assertTrue(lines.next());
+        final OrderView.LineView first = new OrderView.LineView(lines);
+        Assert.assertEquals(2, first.getQuantity());
+        final MessageView.Cursor prices = first.getPrices();
+        Assert.assertTrue(prices.next());
+        Assert.assertEquals(1.5, prices.readDouble(), 0);
+        Assert.assertTrue(prices.next());
+        Assert.assertEquals(2.5, prices.readDouble(), 0);
+        Assert.assertFalse(prices.next());
+
+        Assert.assertTrue(lines.next());
+        final OrderView.LineView second = new OrderView.LineView(lines);
+        // absent, the default of the proto
+        Assert.assertFalse(second.hasQuantity());
+        Assert.assertEquals(1, second.getQuantity());
+        Assert.assertFalse(second.getPrices().next());
+        Assert.assertFalse(lines.next());
+
+        Assert.assertEquals("p", view.getPrimary().getSku());
+        Assert.assertEquals(7, view.getPrimary().getQuantity());
+
+        final ArrayList<Integer> codes = new ArrayList<Integer>();
+        for (MessageView.Cursor c = view.getCodes(); c.next();)
+            codes.add(c.readSInt32());
+        Assert.assertEquals(Arrays.asList(-1, 0, Integer.MIN_VALUE), codes);
+
+        final ArrayList<String> notes = new ArrayList<String>();
+        for (MessageView.Cursor c = view.getNotes(); c.next();)
+            notes.add(c.readString());
+        Assert.assertEquals(Arrays.asList("first", "", "third"), notes);
+
+        final AddressView address = view.getAddress();
+        Assert.assertEquals("city", address.getCity());
+        final MessageView.Cursor zones = address.getZones();
+        Assert.assertTrue(zones.next());
+        Assert.assertEquals(-1L, zones.readFixed64());
+        Assert.assertTrue(zones.next());
+        Assert.assertEquals(42L, zones.readFixed64());
+        Assert.assertFalse(zones.next());
+    }
+
+    @Test
+    public void testProtobuf() throws Exception
+    {
+        final byte[] data = toProtobuf(newOrder());
+        assertOrder(new OrderView(data));
+
+        // at an offset, and from a byte buffer
+        final byte[] padded = new byte[data.length + 6];
+        System.arraycopy(data, 0, padded, 3, data.length);
+        assertOrder(new OrderView(padded, 3, data.length));
+        assertOrder(new OrderView(ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void testProtostuff() throws Exception
+    {
+        // nested messages are groups
+        assertOrder(new OrderView(toProtostuff(newOrder())));
+    }
+
+    @Test
+    public void testDefaults() throws Exception
+    {
+        final Order order = new Order();
+        order.setCustomer(null);
+        order.setStatus(null);
+        order.setRush(null);
+        order.setWeight(null);
+
+        for (byte[] data : new byte[][] { toProtobuf(order), toProtostuff(order) })
+        {
+            Assert.assertEquals(0, data.length);
+            final OrderView view = new OrderView(data);
+            Assert.assertFalse(view.hasId());
+            Assert.assertEquals(0, view.getId());
+            Assert.assertFalse(view.hasCustomer());
+            Assert.assertEquals("anonymous", view.getCustomer());
+            Assert.assertEquals(Order.Status.SHIPPED.getNumber(), view.getStatus());
+            Assert.assertTrue(view.getRush());
+            Assert.assertEquals(1.5f, view.getWeight(), 0f);
+            Assert.assertNull(view.getPayload());
+            Assert.assertNull(view.getPrimary());
+            Assert.assertNull(view.getAddress());
+            Assert.assertFalse(view.getLines().next());
+            Assert.assertFalse(view.getCodes().next());
+        }
+    }
+
+    @Test
+    public void testPackedCursor() throws Exception
+    {
+        final ProtobufOutput output = new ProtobufOutput(LinkedBuffer.allocate());
+        output.writeInt64(1, 5L, false);
+        // a packed run, then an unpacked value of the same field
+        PackedFields.writeSInt32(output, 5, new int[] { 3, -4 }, 2);
+        output.writeSInt32(5, 6, true);
+
+        final OrderView view = new OrderView(output.toByteArray());
+        Assert.assertEquals(5L, view.getId());
+        final ArrayList<Integer> codes = new ArrayList<Integer>();
+        for (MessageView.Cursor c = view.getCodes(); c.next();)
+            codes.add(c.readSInt32());
+        Assert.assertEquals(Arrays.asList(3, -4, 6), codes);
+    }
+
+}
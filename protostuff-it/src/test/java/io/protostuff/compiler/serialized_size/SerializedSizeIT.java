@@ -0,0 +1,192 @@
+package io.protostuff.compiler.serialized_size;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.protostuff.ByteString;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.SizedSchema;
+import io.protostuff.compiler.it.serialized_size.Leaf;
+import io.protostuff.compiler.it.serialized_size.Sample;
+
+/**
+ * Integration tests for generate_serialized_size: the sized schemas (in the {@code sized} packages) must write the
+ * same protobuf bytes as the schemas generated without the option.
+ */
+public class SerializedSizeIT
+{
+
+    static final String[] TEXTS = { "", "a", "ascii text", "é", "中文", "😀", "mixed é 中 😀" };
+
+    static final int[] INTS = { 0, 1, -1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+    static final long[] LONGS = { 0L, 1L, -1L, 1L << 35, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    static Sample newSample(Random random, int depth)
+    {
+        final Sample sample = new Sample();
+        if (random.nextBoolean())
+            sample.setInt32(INTS[random.nextInt(INTS.length)]);
+        if (random.nextBoolean())
+            sample.setInt64(LONGS[random.nextInt(LONGS.length)]);
+        if (random.nextBoolean())
+            sample.setUint32(INTS[random.nextInt(INTS.length)]);
+        if (random.nextBoolean())
+            sample.setSint32(INTS[random.nextInt(INTS.length)]);
+        if (random.nextBoolean())
+            sample.setSint64(LONGS[random.nextInt(LONGS.length)]);
+        if (random.nextBoolean())
+            sample.setFixed32(random.nextInt());
+        if (random.nextBoolean())
+            sample.setSfixed64(random.nextLong());
+        if (random.nextBoolean())
+            sample.setFloatValue(random.nextFloat());
+        if (random.nextBoolean())
+            sample.setDoubleValue(random.nextDouble());
+        if (random.nextBoolean())
+            sample.setBoolValue(random.nextBoolean());
+        // null, or the default
+        sample.setText(random.nextBoolean() ? TEXTS[random.nextInt(TEXTS.length)] : null);
+        if (random.nextBoolean())
+        {
+            final byte[] data = new byte[random.nextInt(300)];
+            random.nextBytes(data);
+            sample.setData(ByteString.copyFrom(data));
+        }
+        if (random.nextBoolean())
+            sample.setKind(random.nextBoolean() ? Sample.Kind.SMALL : Sample.Kind.LARGE);
+
+        if (random.nextBoolean())
+        {
+            final List<Integer> ints = new ArrayList<Integer>();
+            final List<Double> doubles = new ArrayList<Double>();
+            final List<String> texts = new ArrayList<String>();
+            final List<Sample.Kind> kinds = new ArrayList<Sample.Kind>();
+            for (int i = 0, size = random.nextInt(200); i < size; i++)
+            {
+                ints.add(INTS[random.nextInt(INTS.length)]);
+                doubles.add(random.nextDouble());
+                texts.add(TEXTS[random.nextInt(TEXTS.length)]);
+                kinds.add(Sample.Kind.LARGE);
+            }
+            sample.setIntsList(ints);
+            sample.setDoublesList(doubles);
+            sample.setTextsList(texts);
+            sample.setKindsList(kinds);
+        }
+
+        if (depth > 0)
+        {
+            if (random.nextBoolean())
+                sample.setChild(newSample(random, depth - 1));
+
+            if (random.nextBoolean())
+            {
+                final List<Sample> children = new ArrayList<Sample>();
+                for (int i = 0, size = random.nextInt(4); i < size; i++)
+                    children.add(newSample(random, depth - 1));
+                sample.setChildrenList(children);
+            }
+        }
+
+        if (random.nextBoolean())
+        {
+            final Leaf leaf = new Leaf(TEXTS[random.nextInt(TEXTS.length)]);
+            final List<Long> values = new ArrayList<Long>();
+            for (int i = 0, size = random.nextInt(50); i < size; i++)
+                values.add(LONGS[random.nextInt(LONGS.length)]);
+            leaf.setValuesList(values);
+            sample.setLeaf(leaf);
+        }
+        return sample;
+    }
+
+    static <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return ProtobufIOUtil.toByteArray(message, schema, LinkedBuffer.allocate(256));
+    }
+
+    static <T> T parse(byte[] data, Schema<T> schema)
+    {
+        final T message = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, message, schema);
+        return message;
+    }
+
+    /**
+     * Parses the bytes into the unsized and sized classes, and checks that both write the same bytes.
+     */
+    static <T, S> void assertSameBytes(byte[] data, Schema<T> schema, Schema<S> sizedSchema) throws Exception
+    {
+        Assert.assertTrue(sizedSchema instanceof SizedSchema);
+        Assert.assertFalse(schema instanceof SizedSchema);
+
+        final byte[] expected = toByteArray(parse(data, schema), schema);
+        final S sized = parse(data, sizedSchema);
+        Assert.assertEquals(expected.length, ((SizedSchema<S>) sizedSchema).getSerializedSize(sized));
+        Assert.assertArrayEquals(expected, toByteArray(sized, sizedSchema));
+        // again, with the sizes cached by the previous write
+        Assert.assertArrayEquals(expected, toByteArray(sized, sizedSchema));
+
+        // the streaming path does not use the sizes
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtobufIOUtil.writeTo(out, sized, sizedSchema, LinkedBuffer.allocate(256));
+        Assert.assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void testSameBytes() throws Exception
+    {
+        final Random random = new Random(0x5eed);
+        for (int i = 0; i < 200; i++)
+        {
+            final Sample sample = newSample(random, 3);
+            final byte[] data = toByteArray(sample, Sample.getSchema());
+
+            assertSameBytes(data, Sample.getSchema(),
+                    io.protostuff.compiler.it.serialized_size.sized.Sample.getSchema());
+            assertSameBytes(data, io.protostuff.compiler.it.serialized_size.packed.Sample.getSchema(),
+                    io.protostuff.compiler.it.serialized_size.packed.sized.Sample.getSchema());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        final io.protostuff.compiler.it.serialized_size.sized.Sample sample =
+                new io.protostuff.compiler.it.serialized_size.sized.Sample();
+        sample.setText(null);
+        Assert.assertEquals(0, toByteArray(sample, sample.cachedSchema()).length);
+
+        // the default value is written, like without the option
+        assertSameBytes(toByteArray(new Sample(), Sample.getSchema()), Sample.getSchema(),
+                io.protostuff.compiler.it.serialized_size.sized.Sample.getSchema());
+    }
+
+    @Test
+    public void testModifiedAfterWrite() throws Exception
+    {
+        final io.protostuff.compiler.it.serialized_size.sized.Sample sample =
+                new io.protostuff.compiler.it.serialized_size.sized.Sample();
+        final io.protostuff.compiler.it.serialized_size.sized.Sample child =
+                new io.protostuff.compiler.it.serialized_size.sized.Sample();
+        child.setText("short");
+        sample.setChild(child);
+        final Schema<io.protostuff.compiler.it.serialized_size.sized.Sample> schema = sample.cachedSchema();
+        toByteArray(sample, schema);
+
+        // the size cached by the previous write is stale
+        child.setText("a much longer text than before");
+        final byte[] data = toByteArray(sample, schema);
+        Assert.assertEquals("a much longer text than before", parse(data, schema).getChild().getText());
+        Assert.assertArrayEquals(data, toByteArray(parse(data, Sample.getSchema()), Sample.getSchema()));
+    }
+
+}
@@ -0,0 +1,134 @@
+package io.protostuff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lazily parses the messages of a top-level json array, one element per {@link #next()}, so that arbitrarily large
+ * exports can be processed without holding the whole list in memory.
+ * <p>
+ * The {@link IOException}s thrown while parsing are wrapped in a {@link RuntimeException} (the {@link Iterator}
+ * contract). The parser is closed when the end of the array is reached (or on {@link #close()}).
+ *
+ * @see JsonIOUtil#iterateFrom(java.io.InputStream, Schema, boolean)
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable
+{
+
+    public final Schema<T> schema;
+
+    private final JsonParser parser;
+    private final JsonInput input;
+    private boolean started, ready, done;
+
+    public JsonArrayIterator(JsonParser parser, Schema<T> schema, boolean numeric)
+    {
+        this.parser = parser;
+        this.schema = schema;
+        this.input = new JsonInput(parser, numeric);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (ready)
+            return true;
+
+        if (done)
+            return false;
+
+        try
+        {
+            if (!started)
+            {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY)
+                {
+                    throw new JsonInputException("Expected token: [ but was " +
+                            parser.getCurrentToken() + " on message: " +
+                            schema.messageFullName());
+                }
+            }
+
+            final JsonToken t = parser.nextToken();
+            if (t == JsonToken.END_ARRAY)
+            {
+                close();
+                return false;
+            }
+
+            if (t != JsonToken.START_OBJECT)
+            {
+                throw new JsonInputException("Expected token: { but was " +
+                        parser.getCurrentToken() + " on message " +
+                        schema.messageFullName());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return ready = true;
+    }
+
+    @Override
+    public T next()
+    {
+        return next(null);
+    }
+
+    /**
+     * Merges the next element into the given {@code message} (a new one is created if null), which allows the caller to
+     * reuse a single instance. Note that the fields absent from the element are left as is (repeated fields are
+     * appended to), so the instance would typically be cleared by the caller beforehand.
+     */
+    public T next(T message)
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        ready = false;
+        if (message == null)
+            message = schema.newMessage();
+
+        try
+        {
+            schema.mergeFrom(input, message);
+
+            if (parser.getCurrentToken() != JsonToken.END_OBJECT)
+            {
+                throw new JsonInputException("Expected token: } but was " +
+                        parser.getCurrentToken() + " on message " +
+                        schema.messageFullName());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        input.reset();
+        return message;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        done = true;
+        ready = false;
+        parser.close();
+    }
+
+}
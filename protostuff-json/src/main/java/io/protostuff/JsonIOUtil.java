@@ -617,6 +617,30 @@ public final class JsonIOUtil
         }
     }
 
+    /**
+     * Returns an iterator that lazily parses the {@code messages} of the json array from the stream. Only the current
+     * element is held in memory. The stream is closed along with the iterator.
+     */
+    public static <T> JsonArrayIterator<T> iterateFrom(InputStream in, Schema<T> schema,
+            boolean numeric) throws IOException
+    {
+        final IOContext context = new IOContext(DEFAULT_JSON_FACTORY._getBufferRecycler(),
+                in, false);
+        final JsonParser parser = newJsonParser(in, context.allocReadIOBuffer(), 0, 0,
+                true, context);
+        return new JsonArrayIterator<T>(parser, schema, numeric);
+    }
+
+    /**
+     * Returns an iterator that lazily parses the {@code messages} of the json array from the reader.
+     */
+    public static <T> JsonArrayIterator<T> iterateFrom(Reader reader, Schema<T> schema,
+            boolean numeric) throws IOException
+    {
+        return new JsonArrayIterator<T>(DEFAULT_JSON_FACTORY.createJsonParser(reader), schema,
+                numeric);
+    }
+
     /**
      * Parses the {@code messages} from the parser using the given {@code schema}.
      */
@@ -656,4 +680,19 @@ public final class JsonIOUtil
         }
         return list;
     }
+
+    /**
+     * Returns the {@link Transcoder.Source} of json-encoded messages.
+     */
+    public static Transcoder.Source transcoderSource(final boolean numeric)
+    {
+        return new Transcoder.Source()
+        {
+            @Override
+            public Pipe newPipe(byte[] data, int offset, int length) throws IOException
+            {
+                return JsonIOUtil.newPipe(data, offset, length, numeric);
+            }
+        };
+    }
 }
@@ -18,6 +18,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 
 /**
  * An output used for writing data with json format.
@@ -30,11 +32,36 @@ public final class JsonOutput implements Output, StatefulOutput
 
     public static final boolean FIX_UNSIGNED_INT = Boolean.getBoolean("io.protostuff.json.fix_unsigned_int");
 
+    /**
+     * The field names as {@link SerializedString}, which lazily caches its quoted/utf8 encoding.
+     */
+    static final class NameCache extends KeyCache<SerializableString>
+    {
+        final boolean numeric;
+
+        NameCache(boolean numeric)
+        {
+            super(1);
+            this.numeric = numeric;
+        }
+
+        @Override
+        protected SerializableString encode(Schema<?> schema, int number, int variant)
+        {
+            final String name = numeric ? Integer.toString(number) : schema.getFieldName(number);
+            return name == null ? null : new SerializedString(name);
+        }
+    }
+
+    static final NameCache NAMED_KEYS = new NameCache(false),
+            NUMERIC_KEYS = new NameCache(true);
+
     private final JsonGenerator generator;
     private Schema<?> schema;
     private final boolean numeric;
     private boolean lastRepeated;
     private int lastNumber;
+    private KeyCache.Keys<SerializableString> keys;
 
     public JsonOutput(JsonGenerator generator)
     {
@@ -97,6 +124,15 @@ public final class JsonOutput implements Output, StatefulOutput
         return lastRepeated;
     }
 
+    private SerializableString key(int fieldNumber)
+    {
+        KeyCache.Keys<SerializableString> keys = this.keys;
+        if (keys == null || keys.schema() != (numeric ? null : schema))
+            this.keys = keys = numeric ? NUMERIC_KEYS.getKeys(null) : NAMED_KEYS.getKeys(schema);
+
+        return keys.get(fieldNumber, 0);
+    }
+
     @Override
     public void updateLast(Schema<?> schema, Schema<?> lastSchema)
     {
@@ -121,16 +157,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeBoolean(value);
         }
         else
-            generator.writeBooleanField(name, value);
+        {
+            generator.writeFieldName(name);
+            generator.writeBoolean(value);
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -151,12 +190,12 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeBinary(value);
         }
         else
@@ -188,12 +227,12 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             if (utf8String)
                 generator.writeUTF8String(value, offset, length);
             else
@@ -233,16 +272,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(value);
         }
         else
-            generator.writeNumberField(name, value);
+        {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -281,16 +323,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(value);
         }
         else
-            generator.writeNumberField(name, value);
+        {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -311,16 +356,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(value);
         }
         else
-            generator.writeNumberField(name, value);
+        {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -341,16 +389,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(value);
         }
         else
-            generator.writeNumberField(name, value);
+        {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -395,16 +446,19 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeString(value.toString());
         }
         else
-            generator.writeStringField(name, value.toString());
+        {
+            generator.writeFieldName(name);
+            generator.writeString(value.toString());
+        }
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -426,12 +480,12 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(unsignedValue);
         }
         else
@@ -459,12 +513,12 @@ public final class JsonOutput implements Output, StatefulOutput
         if (lastRepeated)
             generator.writeEndArray();
 
-        final String name = numeric ? Integer.toString(fieldNumber) :
-                schema.getFieldName(fieldNumber);
+        final SerializableString name = key(fieldNumber);
 
         if (repeated)
         {
-            generator.writeArrayFieldStart(name);
+            generator.writeFieldName(name);
+            generator.writeStartArray();
             generator.writeNumber(unsignedValue);
         }
         else
@@ -488,11 +542,13 @@ public final class JsonOutput implements Output, StatefulOutput
             if (lastRepeated)
                 generator.writeEndArray();
 
-            final String name = numeric ? Integer.toString(fieldNumber) :
-                    lastSchema.getFieldName(fieldNumber);
+            final SerializableString name = key(fieldNumber);
 
             if (repeated)
-                generator.writeArrayFieldStart(name);
+            {
+                generator.writeFieldName(name);
+                generator.writeStartArray();
+            }
             else
                 generator.writeFieldName(name);
         }
@@ -0,0 +1,217 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily parses the messages of a json array held in a byte array (via {@link JsonXInput}), one element per
+ * {@link #next()}.
+ * <p>
+ * Since the input is seekable, the remaining elements can be split across threads with {@link #trySplit()} (modeled
+ * after {@code java.util.Spliterator}): the elements are only skipped (not decoded) to find the split point, and each
+ * part is then decoded independently.
+ *
+ * <pre>
+ * JsonXArrayIterator&lt;Foo&gt; it = JsonXIOUtil.iterateFrom(data, schema, false);
+ * JsonXArrayIterator&lt;Foo&gt; prefix = it.trySplit(); // null if too small to split
+ * // decode prefix on another thread, and it on this one
+ * </pre>
+ * <p>
+ * Parse errors are wrapped in a {@link RuntimeException} (the {@link Iterator} contract).
+ */
+public final class JsonXArrayIterator<T> implements Iterator<T>
+{
+
+    /**
+     * Ranges smaller than this (in bytes) are not split.
+     */
+    public static final int MIN_SPLIT_SIZE = 4096;
+
+    public final Schema<T> schema;
+    public final boolean numeric;
+
+    private final byte[] buffer;
+    private final int limit;
+    private JsonXInput input;
+    /**
+     * The offset of the separator that starts the elements of the iterator this was split from (or the limit).
+     */
+    private int end;
+    private boolean first, ready, done;
+
+    /**
+     * Iterates the array starting at {@code offset} (leading whitespace allowed).
+     */
+    JsonXArrayIterator(byte[] buffer, int offset, int length, Schema<T> schema,
+            boolean numeric) throws JsonInputException
+    {
+        this.buffer = buffer;
+        this.limit = offset + length;
+        this.schema = schema;
+        this.numeric = numeric;
+        this.input = new JsonXInput(buffer, offset, length, numeric);
+        this.end = limit;
+        this.first = true;
+
+        if (input.peek() != '[')
+        {
+            throw new JsonInputException("Expected token: [ but was '" +
+                    (char) input.peek() + "' on message: " +
+                    schema.messageFullName());
+        }
+        input.expect((byte) '[', "[");
+    }
+
+    private JsonXArrayIterator(JsonXArrayIterator<T> parent, int start, int end)
+    {
+        this.buffer = parent.buffer;
+        this.limit = parent.limit;
+        this.schema = parent.schema;
+        this.numeric = parent.numeric;
+        this.input = new JsonXInput(buffer, start, limit - start, numeric);
+        this.end = end;
+        this.first = parent.first;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (ready)
+            return true;
+
+        if (done)
+            return false;
+
+        try
+        {
+            final JsonXInput input = this.input;
+            final byte b = input.peek();
+            if (input.currentOffset() >= end)
+            {
+                // the rest belongs to the split suffix
+                done = true;
+                return false;
+            }
+
+            if (b == ']')
+            {
+                input.expect((byte) ']', "]");
+                done = true;
+                return false;
+            }
+
+            if (!first)
+                input.expect((byte) ',', "',' or ']'");
+
+            if (input.peek() != '{')
+            {
+                throw new JsonInputException("Expected token: { but was '" +
+                        (char) input.peek() + "' on message " +
+                        schema.messageFullName());
+            }
+        }
+        catch (JsonInputException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        first = false;
+        return ready = true;
+    }
+
+    @Override
+    public T next()
+    {
+        return next(null);
+    }
+
+    /**
+     * Merges the next element into the given {@code message} (a new one is created if null), which allows the caller to
+     * reuse a single instance. Note that the fields absent from the element are left as is (repeated fields are
+     * appended to), so the instance would typically be cleared by the caller beforehand.
+     */
+    public T next(T message)
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        ready = false;
+        if (message == null)
+            message = schema.newMessage();
+
+        try
+        {
+            input.beginMessage(schema);
+            schema.mergeFrom(input, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        input.reset();
+        return message;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Splits off the first half (approximately, in bytes) of the remaining elements, which are then iterated by the
+     * returned iterator while this one continues after them. Returns null if the remaining elements are too few to
+     * split, or if an element is being iterated ({@link #hasNext()} was called without a matching {@link #next()}).
+     */
+    public JsonXArrayIterator<T> trySplit()
+    {
+        if (ready || done)
+            return null;
+
+        final int start = input.currentOffset();
+        final int mid = start + (end - start) / 2;
+        if (end - start < MIN_SPLIT_SIZE)
+            return null;
+
+        final JsonXInput scanner = new JsonXInput(buffer, start, limit - start, numeric);
+        try
+        {
+            for (boolean firstElement = first;; firstElement = false)
+            {
+                byte b = scanner.peek();
+                if (b == ']' || scanner.currentOffset() >= end)
+                    return null;
+
+                if (!firstElement)
+                {
+                    if (b != ',')
+                        return null;
+
+                    if (scanner.currentOffset() >= mid)
+                        break;
+
+                    scanner.expect((byte) ',', "',' or ']'");
+                }
+
+                scanner.skipValue();
+            }
+        }
+        catch (JsonInputException e)
+        {
+            // let the iteration report it
+            return null;
+        }
+
+        // the prefix stops at the separator, where this continues
+        final int splitPoint = scanner.currentOffset();
+        final JsonXArrayIterator<T> prefix = new JsonXArrayIterator<T>(this, start, splitPoint);
+
+        input = new JsonXInput(buffer, splitPoint, limit - splitPoint, numeric);
+        first = false;
+
+        return prefix;
+    }
+
+}
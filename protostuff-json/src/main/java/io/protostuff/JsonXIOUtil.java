@@ -16,10 +16,12 @@ package io.protostuff;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Json serialization via {@link JsonXOutput}.
+ * Json serialization via {@link JsonXOutput} and deserialization via {@link JsonXInput}.
  * 
  * @author David Yu
  * @created Jul 2, 2010
@@ -214,4 +216,142 @@ public final class JsonXIOUtil
         LinkedBuffer.writeTo(out, buffer);
     }
 
+    /**
+     * Merges the {@code message} from the json utf8 bytes via {@link JsonXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema, boolean numeric)
+            throws IOException
+    {
+        mergeFully(new JsonXInput(data, numeric), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} from the json utf8 bytes via {@link JsonXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema, boolean numeric) throws IOException
+    {
+        mergeFully(new JsonXInput(data, offset, length, numeric), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} from the remaining json utf8 bytes of the {@link ByteBuffer} via {@link JsonXInput}
+     * using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema, boolean numeric)
+            throws IOException
+    {
+        mergeFully(new JsonXInput(data, numeric), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} from the {@link JsonXInput} using the given {@code schema}. The input is left right
+     * after the closing brace of the message.
+     */
+    public static <T> void mergeFrom(JsonXInput input, T message, Schema<T> schema)
+            throws IOException
+    {
+        input.beginMessage(schema);
+
+        // consumes the closing brace
+        schema.mergeFrom(input, message);
+    }
+
+    /**
+     * Merges the {@code message} that must span the whole input (only whitespace can follow it).
+     */
+    private static <T> void mergeFully(JsonXInput input, T message, Schema<T> schema)
+            throws IOException
+    {
+        mergeFrom(input, message, schema);
+        input.expectEnd();
+    }
+
+    /**
+     * Returns an iterator that lazily parses the {@code messages} of the json array, which can be
+     * {@link JsonXArrayIterator#trySplit() split} for parallel decoding.
+     */
+    public static <T> JsonXArrayIterator<T> iterateFrom(byte[] data, Schema<T> schema,
+            boolean numeric) throws IOException
+    {
+        return new JsonXArrayIterator<T>(data, 0, data.length, schema, numeric);
+    }
+
+    /**
+     * Returns an iterator that lazily parses the {@code messages} of the json array in the given range.
+     */
+    public static <T> JsonXArrayIterator<T> iterateFrom(byte[] data, int offset, int length,
+            Schema<T> schema, boolean numeric) throws IOException
+    {
+        return new JsonXArrayIterator<T>(data, offset, length, schema, numeric);
+    }
+
+    /**
+     * Returns an iterator that lazily parses the {@code messages} of the json array from the remaining bytes of the
+     * {@link ByteBuffer}. A direct buffer is copied.
+     */
+    public static <T> JsonXArrayIterator<T> iterateFrom(ByteBuffer data, Schema<T> schema,
+            boolean numeric) throws IOException
+    {
+        if (data.hasArray())
+        {
+            return new JsonXArrayIterator<T>(data.array(), data.arrayOffset() + data.position(),
+                    data.remaining(), schema, numeric);
+        }
+
+        final byte[] copy = new byte[data.remaining()];
+        data.duplicate().get(copy);
+        return new JsonXArrayIterator<T>(copy, 0, copy.length, schema, numeric);
+    }
+
+    /**
+     * Parses the {@code messages} from the json utf8 bytes via {@link JsonXInput} using the given {@code schema}.
+     */
+    public static <T> List<T> parseListFrom(byte[] data, Schema<T> schema, boolean numeric)
+            throws IOException
+    {
+        final JsonXInput input = new JsonXInput(data, numeric);
+        if (input.peek() != '[')
+        {
+            throw new JsonInputException("Expected token: [ but was '" +
+                    (char) input.peek() + "' on message: " +
+                    schema.messageFullName());
+        }
+        input.expect((byte) '[', "[");
+
+        final List<T> list = new ArrayList<T>();
+        for (byte b = input.peek(); b != ']'; b = input.peek())
+        {
+            if (!list.isEmpty())
+                input.expect((byte) ',', "',' or ']'");
+
+            input.beginMessage(schema);
+
+            final T message = schema.newMessage();
+            schema.mergeFrom(input, message);
+
+            list.add(message);
+            input.reset();
+        }
+        input.expect((byte) ']', "]");
+        input.expectEnd();
+        return list;
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes json-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget(final boolean numeric)
+    {
+        return new Transcoder.Target()
+        {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema)
+                    throws IOException
+            {
+                JsonXIOUtil.writeTo(buffer, pipe, pipeSchema, numeric);
+            }
+        };
+    }
+
 }
@@ -0,0 +1,862 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A json input that parses utf8 bytes directly (without jackson), to pair with {@link JsonXOutput}.
+ * <p>
+ * Field names are matched against utf8 keys cached per {@link Schema} via {@link FieldNumberCache} (no {@link String}
+ * is created for a known key once the cache is warm), numbers are parsed in place via {@link NumberParser}, and
+ * strings are decoded from the bytes without an intermediate {@code char[]}.
+ * <p>
+ * The semantics follow {@link JsonInput}: null values and null array elements are skipped, and repeated fields are
+ * json arrays.
+ */
+public final class JsonXInput implements Input
+{
+
+    private final byte[] buffer;
+    private int offset;
+    private final int limit;
+
+    /**
+     * If true, the field number will be used on json keys.
+     */
+    public final boolean numeric;
+
+    private boolean lastRepeated;
+    private int lastNumber;
+    /**
+     * True until the first field of the current message is read (the fields after it must be preceded by a comma).
+     */
+    private boolean firstField;
+
+    private byte[] scratch;
+
+    public JsonXInput(byte[] buffer, boolean numeric)
+    {
+        this(buffer, 0, buffer.length, numeric);
+    }
+
+    public JsonXInput(byte[] buffer, int offset, int length, boolean numeric)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.numeric = numeric;
+    }
+
+    /**
+     * Reads from the remaining bytes of the {@link ByteBuffer}. A direct buffer is copied.
+     */
+    public JsonXInput(ByteBuffer bb, boolean numeric)
+    {
+        if (bb.hasArray())
+        {
+            this.buffer = bb.array();
+            this.offset = bb.arrayOffset() + bb.position();
+        }
+        else
+        {
+            this.buffer = new byte[bb.remaining()];
+            bb.duplicate().get(buffer);
+            this.offset = 0;
+        }
+        this.limit = offset + bb.remaining();
+        this.numeric = numeric;
+    }
+
+    /**
+     * Returns whether the incoming messages' field names are numeric.
+     */
+    public boolean isNumeric()
+    {
+        return numeric;
+    }
+
+    /**
+     * Gets the last field number read.
+     */
+    public int getLastNumber()
+    {
+        return lastNumber;
+    }
+
+    /**
+     * Returns true if the last read field was a repeated field.
+     */
+    public boolean isLastRepeated()
+    {
+        return lastRepeated;
+    }
+
+    /**
+     * Resets this input (the position is unchanged).
+     */
+    public JsonXInput reset()
+    {
+        lastRepeated = false;
+        lastNumber = 0;
+        return this;
+    }
+
+    /**
+     * Returns the current offset (the position).
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+
+    // ---------------------------------------------------------------- tokens
+
+    private JsonInputException truncated()
+    {
+        return new JsonInputException("Truncated json.");
+    }
+
+    private JsonInputException unexpected(String expected)
+    {
+        return new JsonInputException("Expected " + expected + " but was '"
+                + (char) buffer[offset] + "' at offset " + offset);
+    }
+
+    /**
+     * Skips the whitespace and returns the next byte (not consumed).
+     */
+    byte peek() throws JsonInputException
+    {
+        final byte[] buffer = this.buffer;
+        for (int i = offset; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+            {
+                offset = i;
+                return b;
+            }
+        }
+        offset = limit;
+        throw truncated();
+    }
+
+    void expect(byte b, String expected) throws JsonInputException
+    {
+        if (peek() != b)
+            throw unexpected(expected);
+
+        offset++;
+    }
+
+    /**
+     * Moves past the opening brace of a message, whose fields are then read via {@link #readFieldNumber(Schema)}.
+     */
+    void beginMessage(Schema<?> schema) throws JsonInputException
+    {
+        if (peek() != '{')
+        {
+            throw new JsonInputException("Expected token: { but was '" + (char) buffer[offset] +
+                    "' on message " + schema.messageFullName());
+        }
+        offset++;
+        firstField = true;
+    }
+
+    /**
+     * Throws if anything but whitespace is left.
+     */
+    void expectEnd() throws JsonInputException
+    {
+        final byte[] buffer = this.buffer;
+        for (int i = offset; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+            {
+                offset = i;
+                throw unexpected("the end of the json");
+            }
+        }
+        offset = limit;
+    }
+
+    private void expectLiteral(String literal) throws JsonInputException
+    {
+        final int len = literal.length();
+        if (offset + len > limit)
+            throw truncated();
+
+        for (int i = 0; i < len; i++)
+        {
+            if (buffer[offset + i] != literal.charAt(i))
+                throw unexpected(literal);
+        }
+        offset += len;
+    }
+
+    private boolean isNull() throws JsonInputException
+    {
+        return peek() == 'n';
+    }
+
+    /**
+     * Scans a string starting at the opening quote and returns the offset of the closing quote. Returns the negated
+     * offset if the string contains escapes.
+     */
+    private int scanString() throws JsonInputException
+    {
+        final byte[] buffer = this.buffer;
+        boolean escaped = false;
+        for (int i = offset + 1; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b == '"')
+                return escaped ? -i : i;
+
+            if (b == '\\')
+            {
+                escaped = true;
+                i++;
+            }
+        }
+        throw truncated();
+    }
+
+    /**
+     * Skips a scalar token (number, true, false, null).
+     */
+    private int scanScalar()
+    {
+        final byte[] buffer = this.buffer;
+        int i = offset;
+        for (; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n'
+                    || b == '\r' || b == '\t')
+            {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Skips the next value (including nested objects and arrays).
+     */
+    void skipValue() throws JsonInputException
+    {
+        switch (peek())
+        {
+            case '"':
+            {
+                final int end = scanString();
+                offset = (end < 0 ? -end : end) + 1;
+                return;
+            }
+            case '{':
+            case '[':
+            {
+                int depth = 0;
+                do
+                {
+                    final byte b = peek();
+                    if (b == '"')
+                    {
+                        final int end = scanString();
+                        offset = (end < 0 ? -end : end) + 1;
+                        continue;
+                    }
+                    if (b == '{' || b == '[')
+                        depth++;
+                    else if (b == '}' || b == ']')
+                        depth--;
+
+                    offset++;
+                }
+                while (depth != 0);
+                return;
+            }
+            default:
+                offset = scanScalar();
+        }
+    }
+
+    /**
+     * Called after an array element is read. Moves to the next non-null element, or past the end of the array (in
+     * which case {@link #lastRepeated} is reset).
+     */
+    private void nextElement() throws JsonInputException
+    {
+        for (;;)
+        {
+            final byte b = peek();
+            if (b == ']')
+            {
+                offset++;
+                lastRepeated = false;
+                return;
+            }
+
+            if (b != ',')
+                throw unexpected("',' or ']'");
+
+            offset++;
+            if (!isNull())
+                return;
+
+            // skip null elements
+            expectLiteral("null");
+        }
+    }
+
+    /**
+     * Moves to the first non-null element of the array (the '[' already consumed). Returns false if there is none.
+     */
+    private boolean firstElement() throws JsonInputException
+    {
+        byte b = peek();
+        if (b == ']')
+        {
+            offset++;
+            return false;
+        }
+
+        while (b == 'n')
+        {
+            expectLiteral("null");
+            b = peek();
+            if (b == ']')
+            {
+                offset++;
+                return false;
+            }
+
+            if (b != ',')
+                throw unexpected("',' or ']'");
+
+            offset++;
+            b = peek();
+        }
+        return true;
+    }
+
+    private void afterValue() throws JsonInputException
+    {
+        if (lastRepeated)
+            nextElement();
+    }
+
+    // ---------------------------------------------------------------- fields
+
+    @Override
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        if (lastRepeated)
+        {
+            // skip the remaining elements
+            do
+            {
+                skipValue();
+                nextElement();
+            }
+            while (lastRepeated);
+        }
+        else
+            skipValue();
+    }
+
+    @Override
+    public <T> int readFieldNumber(final Schema<T> schema) throws IOException
+    {
+        if (lastRepeated)
+            return lastNumber;
+
+        final byte[] buffer = this.buffer;
+        for (;;)
+        {
+            byte b = peek();
+            if (b == '}')
+            {
+                offset++;
+                // the message is the value of a field in the parent
+                firstField = false;
+                return 0;
+            }
+
+            if (firstField)
+                firstField = false;
+            else
+            {
+                if (b != ',')
+                    throw unexpected("',' or '}'");
+
+                offset++;
+                b = peek();
+            }
+
+            if (b != '"')
+            {
+                throw new JsonInputException("Expected token: $field: but was '" + (char) b +
+                        "' on message " + schema.messageFullName());
+            }
+
+            final int end = scanString();
+            final int start = offset + 1;
+            final int number;
+            if (end < 0)
+            {
+                // escaped key
+                final String name = decodeString(start, -end);
+                offset = -end + 1;
+                number = numeric ? Integer.parseInt(name) : schema.getFieldNumber(name);
+            }
+            else
+            {
+                offset = end + 1;
+                number = numeric ? NumberParser.parseInt(buffer, start, end - start, 10) :
+                        FieldNumberCache.getFieldNumber(schema, buffer, start, end - start);
+            }
+
+            expect((byte) ':', "':'");
+
+            b = peek();
+            if (b == 'n')
+            {
+                // skip null value
+                expectLiteral("null");
+                continue;
+            }
+
+            if (number == 0)
+            {
+                // we can skip this unknown field
+                skipValue();
+                continue;
+            }
+
+            if (b == '[')
+            {
+                offset++;
+                // if empty array or all elements are null, read the next field
+                if (!firstElement())
+                    continue;
+
+                lastRepeated = true;
+            }
+
+            lastNumber = number;
+            return number;
+        }
+    }
+
+    // ---------------------------------------------------------------- scalars
+
+    /**
+     * Returns the end of the current scalar token, which is optionally quoted. The {@link #offset} is moved to its
+     * start.
+     */
+    private int scalarEnd() throws JsonInputException
+    {
+        if (peek() == '"')
+        {
+            final int end = scanString();
+            if (end < 0)
+                throw unexpected("a number");
+
+            offset++;
+            return end;
+        }
+
+        final int end = scanScalar();
+        if (end == offset)
+            throw unexpected("a number");
+
+        return end;
+    }
+
+    /**
+     * Moves past the scalar token that ends at {@code end}.
+     */
+    private void consumeScalar(int end) throws JsonInputException
+    {
+        offset = end < limit && buffer[end] == '"' ? end + 1 : end;
+        afterValue();
+    }
+
+    private static boolean isFloatingPoint(byte[] buffer, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            final byte b = buffer[i];
+            if (b == '.' || b == 'e' || b == 'E')
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean readBool() throws IOException
+    {
+        final boolean value;
+        final byte b = peek();
+        if (b == 't')
+        {
+            expectLiteral("true");
+            value = true;
+        }
+        else if (b == 'f')
+        {
+            expectLiteral("false");
+            value = false;
+        }
+        else
+            throw unexpected("true/false");
+
+        afterValue();
+        return value;
+    }
+
+    @Override
+    public int readInt32() throws IOException
+    {
+        final int end = scalarEnd(), start = offset;
+        final int value = isFloatingPoint(buffer, start, end) ?
+                (int) Double.parseDouble(STRING.deser(buffer, start, end - start)) :
+                NumberParser.parseInt(buffer, start, end - start, 10);
+
+        consumeScalar(end);
+        return value;
+    }
+
+    @Override
+    public long readInt64() throws IOException
+    {
+        final int end = scalarEnd(), start = offset;
+        final long value = isFloatingPoint(buffer, start, end) ?
+                (long) Double.parseDouble(STRING.deser(buffer, start, end - start)) :
+                NumberParser.parseLong(buffer, start, end - start, 10);
+
+        consumeScalar(end);
+        return value;
+    }
+
+    @Override
+    public int readUInt32() throws IOException
+    {
+        final int end = scalarEnd(), start = offset;
+        // covers both the signed and unsigned ranges
+        final long value = NumberParser.parseLong(buffer, start, end - start, 10);
+        if (value < Integer.MIN_VALUE || value > 0xFFFFFFFFL)
+            throw new NumberFormatException(STRING.deser(buffer, start, end - start));
+
+        consumeScalar(end);
+        return (int) value;
+    }
+
+    @Override
+    public long readUInt64() throws IOException
+    {
+        final int end = scalarEnd(), start = offset, len = end - start;
+        final long value = buffer[start] == '-' || len < 19 ?
+                NumberParser.parseLong(buffer, start, len, 10) :
+                UnsignedNumberUtil.parseUnsignedLong(STRING.deser(buffer, start, len));
+
+        consumeScalar(end);
+        return value;
+    }
+
+    @Override
+    public int readFixed32() throws IOException
+    {
+        return readUInt32();
+    }
+
+    @Override
+    public long readFixed64() throws IOException
+    {
+        return readUInt64();
+    }
+
+    @Override
+    public int readSFixed32() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public long readSFixed64() throws IOException
+    {
+        return readInt64();
+    }
+
+    @Override
+    public int readSInt32() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public long readSInt64() throws IOException
+    {
+        return readInt64();
+    }
+
+    @Override
+    public int readEnum() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        // also handles NaN, Infinity and -Infinity (quoted or not)
+        final int end = scalarEnd(), start = offset;
+        final double value = Double.parseDouble(STRING.deser(buffer, start, end - start));
+
+        consumeScalar(end);
+        return value;
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        final int end = scalarEnd(), start = offset;
+        final float value = Float.parseFloat(STRING.deser(buffer, start, end - start));
+
+        consumeScalar(end);
+        return value;
+    }
+
+    // ---------------------------------------------------------------- strings
+
+    @Override
+    public String readString() throws IOException
+    {
+        if (peek() != '"')
+            throw unexpected("string");
+
+        final int end = scanString(), start = offset + 1;
+        final String value;
+        if (end < 0)
+        {
+            value = decodeString(start, -end);
+            offset = -end + 1;
+        }
+        else
+        {
+            value = STRING.deser(buffer, start, end - start);
+            offset = end + 1;
+        }
+
+        afterValue();
+        return value;
+    }
+
+    @Override
+    public byte[] readByteArray() throws IOException
+    {
+        if (peek() != '"')
+            throw unexpected("base64 string");
+
+        final int end = scanString(), start = offset + 1;
+        final byte[] value;
+        if (end < 0)
+        {
+            final int len = unescape(start, -end);
+            value = B64Code.decode(scratch, 0, len);
+            offset = -end + 1;
+        }
+        else
+        {
+            value = B64Code.decode(buffer, start, end - start);
+            offset = end + 1;
+        }
+
+        afterValue();
+        return value;
+    }
+
+    @Override
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+
+    @Override
+    public void readBytes(final ByteBuffer bb) throws IOException
+    {
+        bb.put(readByteArray());
+    }
+
+    /**
+     * Reads a byte array/ByteBuffer value.
+     */
+    @Override
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        return ByteBuffer.wrap(readByteArray());
+    }
+
+    @Override
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        if (utf8String)
+            output.writeString(fieldNumber, readString(), repeated);
+        else
+            output.writeByteArray(fieldNumber, readByteArray(), repeated);
+    }
+
+    private String decodeString(int start, int end) throws JsonInputException
+    {
+        final int len = unescape(start, end);
+        return STRING.deser(scratch, 0, len);
+    }
+
+    private static int hex(byte b) throws JsonInputException
+    {
+        if (b >= '0' && b <= '9')
+            return b - '0';
+        if (b >= 'a' && b <= 'f')
+            return b - 'a' + 10;
+        if (b >= 'A' && b <= 'F')
+            return b - 'A' + 10;
+
+        throw new JsonInputException("Invalid hex digit: " + (char) b);
+    }
+
+    private int readHex4(int i) throws JsonInputException
+    {
+        if (i + 4 > limit)
+            throw truncated();
+
+        return hex(buffer[i]) << 12 | hex(buffer[i + 1]) << 8
+                | hex(buffer[i + 2]) << 4 | hex(buffer[i + 3]);
+    }
+
+    /**
+     * Unescapes the utf8 bytes of the string into the {@link #scratch} buffer and returns the length.
+     */
+    private int unescape(int start, int end) throws JsonInputException
+    {
+        final byte[] buffer = this.buffer;
+        byte[] out = scratch;
+        // the unescaped utf8 is never bigger than the escaped one
+        if (out == null || out.length < end - start)
+            scratch = out = new byte[Math.max(64, end - start)];
+
+        int len = 0;
+        for (int i = start; i < end;)
+        {
+            final byte b = buffer[i++];
+            if (b != '\\')
+            {
+                out[len++] = b;
+                continue;
+            }
+
+            final byte e = buffer[i++];
+            switch (e)
+            {
+                case '"':
+                case '\\':
+                case '/':
+                    out[len++] = e;
+                    break;
+                case 'b':
+                    out[len++] = '\b';
+                    break;
+                case 'f':
+                    out[len++] = '\f';
+                    break;
+                case 'n':
+                    out[len++] = '\n';
+                    break;
+                case 'r':
+                    out[len++] = '\r';
+                    break;
+                case 't':
+                    out[len++] = '\t';
+                    break;
+                case 'u':
+                {
+                    int c = readHex4(i);
+                    i += 4;
+                    if (c >= 0xD800 && c <= 0xDBFF && i + 6 <= end
+                            && buffer[i] == '\\' && buffer[i + 1] == 'u')
+                    {
+                        final int low = readHex4(i + 2);
+                        if (low >= 0xDC00 && low <= 0xDFFF)
+                        {
+                            c = 0x10000 + ((c - 0xD800) << 10) + (low - 0xDC00);
+                            i += 6;
+                        }
+                    }
+
+                    // 6 escaped bytes (12 for a pair) always fit the utf8 output
+                    if (c < 0x80)
+                        out[len++] = (byte) c;
+                    else if (c < 0x800)
+                    {
+                        out[len++] = (byte) (0xC0 | (c >> 6));
+                        out[len++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                    else if (c < 0x10000)
+                    {
+                        out[len++] = (byte) (0xE0 | (c >> 12));
+                        out[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        out[len++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                    else
+                    {
+                        out[len++] = (byte) (0xF0 | (c >> 18));
+                        out[len++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                        out[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        out[len++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                    break;
+                }
+                default:
+                    throw new JsonInputException("Invalid escape: \\" + (char) e);
+            }
+        }
+        return len;
+    }
+
+    // ---------------------------------------------------------------- messages
+
+    @Override
+    public <T> T mergeObject(T value, final Schema<T> schema) throws IOException
+    {
+        beginMessage(schema);
+
+        final int lastNumber = this.lastNumber;
+        final boolean lastRepeated = this.lastRepeated;
+
+        // reset
+        this.lastRepeated = false;
+
+        if (value == null)
+            value = schema.newMessage();
+
+        // consumes the closing brace
+        schema.mergeFrom(this, value);
+
+        if (!schema.isInitialized(value))
+            throw new UninitializedMessageException(value, schema);
+
+        // restore state
+        this.lastNumber = lastNumber;
+        this.lastRepeated = lastRepeated;
+
+        afterValue();
+
+        return value;
+    }
+
+}
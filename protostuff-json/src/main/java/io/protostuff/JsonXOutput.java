@@ -82,10 +82,65 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
             (byte) ']', (byte) ',', (byte) '"'
     };
 
+    // the key variants (suffixes), combined with the prefix that separates it from the previous field
+    private static final int KEY = 0, KEY_ARRAY = 1, KEY_ARRAY_OBJECT = 2,
+            KEY_ARRAY_STRING = 3, KEY_OBJECT = 4, KEY_STRING = 5;
+
+    private static final byte[][] KEY_SUFFIXES = new byte[][] {
+            KEY_SUFFIX, KEY_SUFFIX_ARRAY, KEY_SUFFIX_ARRAY_OBJECT,
+            KEY_SUFFIX_ARRAY_STRING, KEY_SUFFIX_OBJECT, KEY_SUFFIX_STRING
+    };
+
+    private static final byte[][] KEY_PREFIXES = new byte[][] {
+            new byte[] { QUOTE }, COMMA_AND_QUOTE, END_ARRAY__COMMA__QUOTE
+    };
+
+    private static final int PREFIX_FIRST = 0, PREFIX_NEXT = KEY_SUFFIXES.length,
+            PREFIX_END_ARRAY = 2 * KEY_SUFFIXES.length;
+
+    /**
+     * The pre-encoded keys (prefix, field name/number and suffix in a single byte array).
+     */
+    static final class JsonKeyCache extends KeyCache<byte[]>
+    {
+        final boolean numeric;
+
+        JsonKeyCache(boolean numeric)
+        {
+            super(KEY_PREFIXES.length * KEY_SUFFIXES.length);
+            this.numeric = numeric;
+        }
+
+        @Override
+        protected byte[] encode(Schema<?> schema, int number, int variant)
+        {
+            final String name = numeric ? Integer.toString(number) : schema.getFieldName(number);
+            if (name == null)
+                return null;
+
+            final byte[] prefix = KEY_PREFIXES[variant / KEY_SUFFIXES.length],
+                    suffix = KEY_SUFFIXES[variant % KEY_SUFFIXES.length];
+            final int len = name.length();
+            final byte[] key = new byte[prefix.length + len + suffix.length];
+
+            System.arraycopy(prefix, 0, key, 0, prefix.length);
+            // ascii, like WriteSink.writeStrAscii
+            for (int i = 0; i < len; i++)
+                key[prefix.length + i] = (byte) name.charAt(i);
+            System.arraycopy(suffix, 0, key, prefix.length + len, suffix.length);
+
+            return key;
+        }
+    }
+
+    static final JsonKeyCache NAMED_KEYS = new JsonKeyCache(false),
+            NUMERIC_KEYS = new JsonKeyCache(true);
+
     private Schema<?> schema;
     private final boolean numeric;
     private boolean lastRepeated;
     private int lastNumber;
+    private KeyCache.Keys<byte[]> keys;
 
     public JsonXOutput(LinkedBuffer head, boolean numeric, Schema<?> schema)
     {
@@ -203,88 +258,23 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
     }
 
     private LinkedBuffer writeKey(final int fieldNumber, final WriteSink sink,
-            final byte[] keySuffix) throws IOException
+            final int variant) throws IOException
     {
-        if (numeric)
-        {
-            if (lastRepeated)
-            {
-                return sink.writeByteArray(
-                        keySuffix,
-                        this,
-                        sink.writeStrFromInt(
-                                fieldNumber,
-                                this,
-                                sink.writeByteArray(
-                                        END_ARRAY__COMMA__QUOTE,
-                                        this,
-                                        tail)));
-            }
-
-            if (lastNumber == 0)
-            {
-                return sink.writeByteArray(
-                        keySuffix,
-                        this,
-                        sink.writeStrFromInt(
-                                fieldNumber,
-                                this,
-                                sink.writeByte(
-                                        QUOTE,
-                                        this,
-                                        tail)));
-            }
-
-            return sink.writeByteArray(
-                    keySuffix,
-                    this,
-                    sink.writeStrFromInt(
-                            fieldNumber,
-                            this,
-                            sink.writeByteArray(
-                                    COMMA_AND_QUOTE,
-                                    this,
-                                    tail)));
-        }
-
-        if (lastRepeated)
-        {
-            return sink.writeByteArray(
-                    keySuffix,
-                    this,
-                    sink.writeStrAscii(
-                            schema.getFieldName(fieldNumber),
-                            this,
-                            sink.writeByteArray(
-                                    END_ARRAY__COMMA__QUOTE,
-                                    this,
-                                    tail)));
-        }
-
-        if (lastNumber == 0)
-        {
-            return sink.writeByteArray(
-                    keySuffix,
-                    this,
-                    sink.writeStrAscii(
-                            schema.getFieldName(fieldNumber),
-                            this,
-                            sink.writeByte(
-                                    QUOTE,
-                                    this,
-                                    tail)));
-        }
+        final int prefix = lastRepeated ? PREFIX_END_ARRAY : (lastNumber == 0 ? PREFIX_FIRST : PREFIX_NEXT);
 
         return sink.writeByteArray(
-                keySuffix,
+                keys().get(fieldNumber, prefix + variant),
                 this,
-                sink.writeStrAscii(
-                        schema.getFieldName(fieldNumber),
-                        this,
-                        sink.writeByteArray(
-                                COMMA_AND_QUOTE,
-                                this,
-                                tail)));
+                tail);
+    }
+
+    private KeyCache.Keys<byte[]> keys()
+    {
+        final KeyCache.Keys<byte[]> keys = this.keys;
+        if (keys != null && keys.schema() == (numeric ? null : schema))
+            return keys;
+
+        return this.keys = numeric ? NUMERIC_KEYS.getKeys(null) : NAMED_KEYS.getKeys(schema);
     }
 
     @Override
@@ -310,7 +300,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                 writeKey(
                         fieldNumber,
                         sink,
-                        repeated ? KEY_SUFFIX_ARRAY : KEY_SUFFIX));
+                        repeated ? KEY_ARRAY : KEY));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -345,7 +335,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                         writeKey(
                                 fieldNumber,
                                 sink,
-                                repeated ? KEY_SUFFIX_ARRAY_STRING : KEY_SUFFIX_STRING)));
+                                repeated ? KEY_ARRAY_STRING : KEY_STRING)));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -385,7 +375,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                             writeKey(
                                     fieldNumber,
                                     sink,
-                                    repeated ? KEY_SUFFIX_ARRAY_STRING : KEY_SUFFIX_STRING)));
+                                    repeated ? KEY_ARRAY_STRING : KEY_STRING)));
 
             lastNumber = fieldNumber;
             lastRepeated = repeated;
@@ -417,7 +407,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                         writeKey(
                                 fieldNumber,
                                 sink,
-                                repeated ? KEY_SUFFIX_ARRAY_STRING : KEY_SUFFIX_STRING)));
+                                repeated ? KEY_ARRAY_STRING : KEY_STRING)));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -452,7 +442,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                 writeKey(
                         fieldNumber,
                         sink,
-                        repeated ? KEY_SUFFIX_ARRAY : KEY_SUFFIX));
+                        repeated ? KEY_ARRAY : KEY));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -499,7 +489,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                 writeKey(
                         fieldNumber,
                         sink,
-                        repeated ? KEY_SUFFIX_ARRAY : KEY_SUFFIX));
+                        repeated ? KEY_ARRAY : KEY));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -528,7 +518,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                 writeKey(
                         fieldNumber,
                         sink,
-                        repeated ? KEY_SUFFIX_ARRAY : KEY_SUFFIX));
+                        repeated ? KEY_ARRAY : KEY));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -557,7 +547,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                 writeKey(
                         fieldNumber,
                         sink,
-                        repeated ? KEY_SUFFIX_ARRAY : KEY_SUFFIX));
+                        repeated ? KEY_ARRAY : KEY));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -618,7 +608,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
                         writeKey(
                                 fieldNumber,
                                 sink,
-                                repeated ? KEY_SUFFIX_ARRAY_STRING : KEY_SUFFIX_STRING)));
+                                repeated ? KEY_ARRAY_STRING : KEY_STRING)));
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
@@ -655,7 +645,7 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
             tail = writeKey(
                     fieldNumber,
                     sink,
-                    repeated ? KEY_SUFFIX_ARRAY_OBJECT : KEY_SUFFIX_OBJECT);
+                    repeated ? KEY_ARRAY_OBJECT : KEY_OBJECT);
         }
 
         // reset
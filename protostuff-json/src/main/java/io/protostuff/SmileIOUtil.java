@@ -189,6 +189,35 @@ public final class SmileIOUtil
                 bufferRecyclable);
     }
 
+    /**
+     * Creates a writer that keeps the smile back-reference tables across the messages written to the stream. If
+     * {@code buffer} is not null, its internal byte array is used as the write buffer for the whole session.
+     */
+    public static SmileSessionWriter newSessionWriter(OutputStream out, boolean numeric,
+            LinkedBuffer buffer) throws IOException
+    {
+        return new SmileSessionWriter(out, numeric, buffer);
+    }
+
+    /**
+     * Creates a reader for the messages written by a {@link SmileSessionWriter}. If {@code buffer} is not null, its
+     * internal byte array is used as the read buffer for the whole session.
+     */
+    public static SmileSessionReader newSessionReader(InputStream in, boolean numeric,
+            LinkedBuffer buffer) throws IOException
+    {
+        return new SmileSessionReader(in, null, 0, 0, numeric, buffer);
+    }
+
+    /**
+     * Creates a reader for the messages written by a {@link SmileSessionWriter}.
+     */
+    public static SmileSessionReader newSessionReader(byte[] data, int offset, int length,
+            boolean numeric) throws IOException
+    {
+        return new SmileSessionReader(null, data, offset, length, numeric, null);
+    }
+
     /**
      * Merges the {@code message} with the byte array using the given {@code schema}.
      */
@@ -0,0 +1,135 @@
+package io.protostuff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+/**
+ * Reads the sequence of smile messages written by a {@link SmileSessionWriter} with a single {@link SmileParser}, so
+ * that the back-references to the field names and string values of the previous messages resolve. The tables are
+ * cleared whenever a header is read (the writer's {@link SmileSessionWriter#reset() reset points}).
+ * <p>
+ * Not thread-safe.
+ *
+ * @see SmileIOUtil#newSessionReader(InputStream, boolean, LinkedBuffer)
+ */
+public final class SmileSessionReader implements Closeable
+{
+
+    /**
+     * A parser that also clears the shared names on a header (jackson only clears the shared string values).
+     */
+    static final class SessionParser extends SmileParser
+    {
+
+        SessionParser(IOContext context, InputStream in, byte[] buf, int start, int end,
+                boolean bufferRecyclable)
+        {
+            super(context,
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY.getParserFeatures(),
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY.getSmileParserFeatures(),
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY.getCodec(),
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY.getRootByteSymbols().makeChild(1),
+                    in, buf, start, end, bufferRecyclable);
+        }
+
+        @Override
+        protected boolean handleSignature(boolean consumeFirstByte, boolean throwException)
+                throws IOException
+        {
+            if (!super.handleSignature(consumeFirstByte, throwException))
+                return false;
+
+            if (_seenNames != null)
+                _seenNameCount = 0;
+
+            return true;
+        }
+    }
+
+    public final boolean numeric;
+
+    private final SessionParser parser;
+    private final JsonInput input;
+
+    SmileSessionReader(InputStream in, byte[] data, int offset, int length, boolean numeric,
+            LinkedBuffer buffer) throws IOException
+    {
+        this.numeric = numeric;
+
+        if (in == null)
+        {
+            parser = new SessionParser(new IOContext(
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY._getBufferRecycler(), data, false),
+                    null, data, offset, offset + length, false);
+        }
+        else
+        {
+            final IOContext context = new IOContext(
+                    SmileIOUtil.DEFAULT_SMILE_FACTORY._getBufferRecycler(), in, false);
+            parser = buffer == null ?
+                    new SessionParser(context, in, context.allocReadIOBuffer(), 0, 0, true) :
+                    new SessionParser(context, in, buffer.buffer, 0, 0, false);
+        }
+
+        input = new JsonInput(parser, numeric);
+    }
+
+    /**
+     * Merges the next message into {@code message}. Returns false if the end of the stream was reached (in which case
+     * the message is untouched).
+     */
+    public <T> boolean mergeFrom(T message, Schema<T> schema) throws IOException
+    {
+        JsonToken t = parser.nextToken();
+        if (t == null)
+        {
+            // jackson ends the current document on a (reset point) header, the next one follows
+            t = parser.nextToken();
+            if (t == null)
+                return false;
+        }
+
+        if (t != JsonToken.START_OBJECT)
+        {
+            throw new JsonInputException("Expected token: { but was " +
+                    parser.getCurrentToken() + " on message " +
+                    schema.messageFullName());
+        }
+
+        schema.mergeFrom(input, message);
+
+        if (parser.getCurrentToken() != JsonToken.END_OBJECT)
+        {
+            throw new JsonInputException("Expected token: } but was " +
+                    parser.getCurrentToken() + " on message " +
+                    schema.messageFullName());
+        }
+
+        input.reset();
+        return true;
+    }
+
+    /**
+     * Parses the next message, or returns null if the end of the stream was reached.
+     */
+    public <T> T parseFrom(Schema<T> schema) throws IOException
+    {
+        final T message = schema.newMessage();
+        return mergeFrom(message, schema) ? message : null;
+    }
+
+    /**
+     * Releases the parser (the stream is not closed).
+     */
+    @Override
+    public void close() throws IOException
+    {
+        parser.close();
+    }
+
+}
@@ -0,0 +1,132 @@
+package io.protostuff;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Writes a sequence of smile messages to a stream with a single {@link SmileGenerator}, so that the back-reference
+ * tables of the field names and short string values are kept across messages (instead of being reset per message
+ * like {@link SmileIOUtil#writeTo(OutputStream, Object, Schema, boolean)} does).
+ * <p>
+ * The stream starts with a smile header. {@link #reset()} writes another header, which is the point where both the
+ * writer and the {@link SmileSessionReader reader} clear their tables (e.g to bound the state kept per connection or
+ * to let a new reader join).
+ * <p>
+ * Not thread-safe.
+ *
+ * @see SmileIOUtil#newSessionWriter(OutputStream, boolean, LinkedBuffer)
+ */
+public final class SmileSessionWriter implements Flushable, Closeable
+{
+
+    /**
+     * A generator whose shared string tables can be cleared.
+     */
+    static final class SessionGenerator extends SmileGenerator
+    {
+
+        SessionGenerator(IOContext ctxt, int stdFeatures, int smileFeatures,
+                ObjectCodec codec, OutputStream out, byte[] outputBuffer, int offset,
+                boolean bufferRecyclable)
+        {
+            super(ctxt, stdFeatures, smileFeatures, codec, out, outputBuffer, offset,
+                    bufferRecyclable);
+        }
+
+        void resetSharedStrings()
+        {
+            if (_seenNames != null)
+            {
+                Arrays.fill(_seenNames, null);
+                _seenNameCount = 0;
+            }
+
+            if (_seenStringValues != null)
+            {
+                Arrays.fill(_seenStringValues, null);
+                _seenStringValueCount = 0;
+            }
+        }
+    }
+
+    public final boolean numeric;
+
+    private final SessionGenerator generator;
+    private int count;
+
+    SmileSessionWriter(OutputStream out, boolean numeric, LinkedBuffer buffer)
+            throws IOException
+    {
+        this.numeric = numeric;
+
+        final IOContext context = new IOContext(
+                SmileIOUtil.DEFAULT_SMILE_FACTORY._getBufferRecycler(), out, false);
+        generator = new SessionGenerator(context,
+                SmileIOUtil.DEFAULT_SMILE_FACTORY.getGeneratorFeatures(),
+                SmileIOUtil.DEFAULT_SMILE_FACTORY.getSmileGeneratorFeatures()
+                        | SmileGenerator.Feature.CHECK_SHARED_NAMES.getMask()
+                        | SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES.getMask(),
+                SmileIOUtil.DEFAULT_SMILE_FACTORY.getCodec(),
+                out,
+                buffer == null ? context.allocWriteEncodingBuffer() : buffer.buffer,
+                0,
+                buffer == null);
+
+        generator.writeHeader();
+    }
+
+    /**
+     * Returns the number of messages written since the last {@link #reset()}.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Writes the {@code message} (buffered, see {@link #flush()}).
+     */
+    public <T> SmileSessionWriter write(T message, Schema<T> schema) throws IOException
+    {
+        JsonIOUtil.writeTo(generator, message, schema, numeric);
+        count++;
+        return this;
+    }
+
+    /**
+     * Clears the back-reference tables, and writes a new header to have the reader do the same.
+     */
+    public SmileSessionWriter reset() throws IOException
+    {
+        generator.resetSharedStrings();
+        generator.writeHeader();
+        count = 0;
+        return this;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        generator.flush();
+    }
+
+    /**
+     * Flushes and releases the generator (the stream is not closed).
+     */
+    @Override
+    public void close() throws IOException
+    {
+        generator.close();
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for {@link JsonArrayIterator} and {@link JsonXArrayIterator}.
+ */
+public class JsonArrayIteratorTest extends AbstractTest
+{
+
+    static List<Bar> newBars(int count)
+    {
+        final ArrayList<Bar> bars = new ArrayList<Bar>(count);
+        for (int i = 0; i < count; i++)
+        {
+            bars.add(new Bar(i, "bar" + i, new Baz(i, "baz", i * 10L), null,
+                    null, true, i, i, i));
+        }
+        return bars;
+    }
+
+    static byte[] toJson(List<Bar> bars) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonIOUtil.writeListTo(out, bars, Bar.getSchema(), false);
+        return out.toByteArray();
+    }
+
+    static <T> List<T> drain(Iterator<T> it)
+    {
+        final ArrayList<T> list = new ArrayList<T>();
+        while (it.hasNext())
+            list.add(it.next());
+        return list;
+    }
+
+    public void testIterate() throws Exception
+    {
+        final List<Bar> bars = newBars(10);
+        final byte[] json = toJson(bars);
+
+        assertEquals(bars, drain(JsonIOUtil.iterateFrom(
+                new ByteArrayInputStream(json), Bar.getSchema(), false)));
+        assertEquals(bars, drain(JsonXIOUtil.iterateFrom(json, Bar.getSchema(), false)));
+    }
+
+    public void testEmpty() throws Exception
+    {
+        final JsonArrayIterator<Bar> it = JsonIOUtil.iterateFrom(
+                new ByteArrayInputStream(STRING.ser(" [ ] ")), Bar.getSchema(), false);
+        assertFalse(it.hasNext());
+        try
+        {
+            it.next();
+            fail("Expected NoSuchElementException");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+
+        assertFalse(JsonXIOUtil.iterateFrom(STRING.ser(" [ ] "), Bar.getSchema(),
+                false).hasNext());
+    }
+
+    public void testReuse() throws Exception
+    {
+        final List<Bar> bars = newBars(3);
+        final JsonXArrayIterator<Bar> it = JsonXIOUtil.iterateFrom(toJson(bars),
+                Bar.getSchema(), false);
+        final Bar bar = new Bar();
+        for (int i = 0; it.hasNext(); i++)
+        {
+            assertSame(bar, it.next(bar));
+            assertEquals(bars.get(i), bar);
+        }
+    }
+
+    public void testSplit() throws Exception
+    {
+        final List<Bar> bars = newBars(1000);
+        final byte[] json = toJson(bars);
+
+        final JsonXArrayIterator<Bar> suffix = JsonXIOUtil.iterateFrom(json,
+                Bar.getSchema(), false);
+        final JsonXArrayIterator<Bar> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        final JsonXArrayIterator<Bar> prefixOfPrefix = prefix.trySplit();
+        assertNotNull(prefixOfPrefix);
+
+        final List<Bar> first = drain(prefixOfPrefix), second = drain(prefix),
+                third = drain(suffix);
+        assertFalse(first.isEmpty());
+        assertFalse(second.isEmpty());
+        assertFalse(third.isEmpty());
+
+        final ArrayList<Bar> all = new ArrayList<Bar>();
+        all.addAll(first);
+        all.addAll(second);
+        all.addAll(third);
+        assertEquals(bars, all);
+    }
+
+    public void testNoSplitWhenSmall() throws Exception
+    {
+        final List<Bar> bars = Arrays.asList(SerializableObjects.bar);
+        final JsonXArrayIterator<Bar> it = JsonXIOUtil.iterateFrom(toJson(bars),
+                Bar.getSchema(), false);
+        assertNull(it.trySplit());
+        assertEquals(bars, drain(it));
+    }
+
+}
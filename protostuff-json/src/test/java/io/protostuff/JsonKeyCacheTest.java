@@ -0,0 +1,51 @@
+package io.protostuff;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the pre-encoded keys of {@link JsonXOutput} and {@link JsonOutput}.
+ */
+public class JsonKeyCacheTest extends AbstractTest
+{
+
+    public void testCachedPerSchema()
+    {
+        final KeyCache.Keys<byte[]> keys = JsonXOutput.NAMED_KEYS.getKeys(Bar.getSchema());
+        assertSame(keys, JsonXOutput.NAMED_KEYS.getKeys(Bar.getSchema()));
+        assertSame(keys.get(1, 0), keys.get(1, 0));
+        assertEquals("\"someInt\":", STRING.deser(keys.get(1, 0)));
+
+        // the numeric keys do not depend on the schema
+        assertSame(JsonXOutput.NUMERIC_KEYS.getKeys(null),
+                JsonXOutput.NUMERIC_KEYS.getKeys(null));
+        assertEquals("\"1\":", STRING.deser(
+                JsonXOutput.NUMERIC_KEYS.getKeys(null).get(1, 0)));
+    }
+
+    public void testUnknownFieldNotCached()
+    {
+        final KeyCache.Keys<byte[]> keys = JsonXOutput.NAMED_KEYS.getKeys(Bar.getSchema());
+        assertNull(keys.get(99, 0));
+        assertEquals("\"99\":", STRING.deser(
+                JsonXOutput.NUMERIC_KEYS.getKeys(null).get(99, 0)));
+    }
+
+    public void testSameOutput() throws Exception
+    {
+        final Foo foo = SerializableObjects.foo;
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final String expected = STRING.deser(
+                    JsonIOUtil.toByteArray(foo, Foo.getSchema(), numeric));
+
+            // twice, the second time with the keys cached
+            assertEquals(expected, STRING.deser(
+                    JsonXIOUtil.toByteArray(foo, Foo.getSchema(), numeric, buf())));
+            assertEquals(expected, STRING.deser(
+                    JsonXIOUtil.toByteArray(foo, Foo.getSchema(), numeric, buf())));
+            assertEquals(expected, STRING.deser(
+                    JsonIOUtil.toByteArray(foo, Foo.getSchema(), numeric)));
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Tests for the {@link Transcoder} from/to json.
+ */
+public class JsonTranscoderTest extends AbstractTest
+{
+
+    static final Transcoder PROTOSTUFF_TO_JSON = new Transcoder(
+            ProtostuffIOUtil.transcoderSource(), JsonXIOUtil.transcoderTarget(false));
+
+    static final Transcoder JSON_TO_PROTOBUF = new Transcoder(
+            JsonIOUtil.transcoderSource(false), ProtobufIOUtil.transcoderTarget());
+
+    public void testProtostuffToJson() throws Exception
+    {
+        for (Foo foo : new Foo[] { SerializableObjects.foo, new Foo() })
+        {
+            final byte[] protostuff = ProtostuffIOUtil.toByteArray(foo, foo, buf());
+            final byte[] expected = JsonXIOUtil.toByteArray(foo, foo, false, buf());
+
+            final byte[] json = PROTOSTUFF_TO_JSON.transcode(protostuff, Foo.getPipeSchema());
+            assertTrue(Arrays.equals(expected, json));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(expected.length, PROTOSTUFF_TO_JSON.transcode(protostuff, 0,
+                    protostuff.length, Foo.getPipeSchema(), out));
+            assertTrue(Arrays.equals(expected, out.toByteArray()));
+        }
+    }
+
+    public void testJsonToProtobuf() throws Exception
+    {
+        final Foo foo = SerializableObjects.foo;
+        final byte[] json = JsonIOUtil.toByteArray(foo, foo, false);
+
+        final byte[] protobuf = JSON_TO_PROTOBUF.transcode(json, Foo.getPipeSchema());
+        assertTrue(Arrays.equals(ProtobufIOUtil.toByteArray(foo, foo, buf()), protobuf));
+
+        final Foo parsed = new Foo();
+        ProtobufIOUtil.mergeFrom(protobuf, parsed, parsed);
+        assertEquals(foo, parsed);
+    }
+
+}
@@ -0,0 +1,24 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * Json standard tests (numeric) using {@link JsonXOutput} and {@link JsonXInput}.
+ */
+public class JsonXInputNumericStandardTest extends StandardTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema) throws IOException
+    {
+        JsonXIOUtil.mergeFrom(data, offset, length, message, schema, true);
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return JsonXIOUtil.toByteArray(message, schema, true, buf());
+    }
+
+}
@@ -0,0 +1,26 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Test jsonx ser/deser via {@link JsonXInput} for runtime {@link Object} fields.
+ */
+public class JsonXInputRuntimeObjectSchemaTest extends JsonXRuntimeObjectSchemaTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema) throws IOException
+    {
+        JsonXIOUtil.mergeFrom(data, offset, length, message, schema, isNumeric());
+    }
+
+    @Override
+    protected <T> void mergeFrom(InputStream in, T message, Schema<T> schema)
+            throws IOException
+    {
+        JsonXIOUtil.mergeFrom(JsonXInputTest.readAll(in), message, schema, isNumeric());
+    }
+
+}
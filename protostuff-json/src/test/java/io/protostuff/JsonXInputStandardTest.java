@@ -0,0 +1,24 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * Json standard tests using {@link JsonXOutput} and {@link JsonXInput}.
+ */
+public class JsonXInputStandardTest extends StandardTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema) throws IOException
+    {
+        JsonXIOUtil.mergeFrom(data, offset, length, message, schema, false);
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return JsonXIOUtil.toByteArray(message, schema, false, buf());
+    }
+
+}
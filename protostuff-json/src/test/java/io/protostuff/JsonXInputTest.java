@@ -0,0 +1,170 @@
+package io.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the parsing done by {@link JsonXInput}.
+ */
+public class JsonXInputTest extends AbstractTest
+{
+
+    static byte[] readAll(InputStream in) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        for (int n = in.read(buf); n != -1; n = in.read(buf))
+            out.write(buf, 0, n);
+
+        return out.toByteArray();
+    }
+
+    static Bar parseBar(String json) throws IOException
+    {
+        Bar bar = new Bar();
+        JsonXIOUtil.mergeFrom(STRING.ser(json), bar, Bar.getSchema(), false);
+        return bar;
+    }
+
+    public void testWhitespaceNullsAndUnknownFields() throws Exception
+    {
+        Bar bar = parseBar(" {\n \"someInt\" : 1 ,\t\"unknown\": {\"a\": [1, \"]\", {}]},"
+                + " \"someString\": null, \"unknown2\": [\"x\", null], \"someLong\": \"-5\" ,"
+                + " \"someBaz\" : { \"id\": 2, \"name\": \"baz\" } } ");
+
+        assertEquals(1, bar.getSomeInt());
+        assertNull(bar.getSomeString());
+        assertEquals(-5L, bar.getSomeLong());
+        assertEquals(2, bar.getSomeBaz().getId());
+        assertEquals("baz", bar.getSomeBaz().getName());
+    }
+
+    public void testEscapes() throws Exception
+    {
+        Bar bar = parseBar("{\"some\\u0053tring\":\"a\\\"b\\\\c\\/d\\n\\u00e9\\u4e2d\\ud83d\\ude00\"}");
+        assertEquals("a\"b\\c/d\n\u00e9\u4e2d\ud83d\ude00", bar.getSomeString());
+    }
+
+    public void testUtf8() throws Exception
+    {
+        Bar bar = parseBar("{\"someString\":\"\u00e9\u4e2d\ud83d\ude00\"}");
+        assertEquals("\u00e9\u4e2d\ud83d\ude00", bar.getSomeString());
+    }
+
+    public void testSpecialFloatingPoint() throws Exception
+    {
+        Bar bar = parseBar("{\"someFloat\":\"NaN\",\"someDouble\":-Infinity}");
+        assertTrue(Float.isNaN(bar.getSomeFloat()));
+        assertEquals(Double.NEGATIVE_INFINITY, bar.getSomeDouble());
+
+        bar = parseBar("{\"someFloat\":1.5e2,\"someDouble\":\"Infinity\"}");
+        assertEquals(150f, bar.getSomeFloat());
+        assertEquals(Double.POSITIVE_INFINITY, bar.getSomeDouble());
+    }
+
+    public void testRepeatedWithNulls() throws Exception
+    {
+        Foo foo = new Foo();
+        JsonXIOUtil.mergeFrom(STRING.ser("{\"someInt\":[null, 1, null, 2, null],"
+                + "\"someString\":[null, null],\"someBar\":[{\"someInt\":3}, null]}"),
+                foo, Foo.getSchema(), false);
+
+        assertEquals(Arrays.asList(1, 2), foo.getSomeInt());
+        assertNull(foo.getSomeString());
+        assertEquals(1, foo.getSomeBar().size());
+        assertEquals(3, foo.getSomeBar().get(0).getSomeInt());
+    }
+
+    public void testNumeric() throws Exception
+    {
+        Bar bar = new Bar();
+        JsonXIOUtil.mergeFrom(STRING.ser("{\"1\":7,\"2\":\"s\",\"99\":[1,2]}"), bar,
+                Bar.getSchema(), true);
+        assertEquals(7, bar.getSomeInt());
+        assertEquals("s", bar.getSomeString());
+    }
+
+    public void testByteBuffer() throws Exception
+    {
+        byte[] json = JsonXIOUtil.toByteArray(SerializableObjects.bar, Bar.getSchema(),
+                false, buf());
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+        direct.put(json).flip();
+
+        Bar bar = new Bar();
+        JsonXIOUtil.mergeFrom(direct, bar, Bar.getSchema(), false);
+        assertEquals(SerializableObjects.bar, bar);
+    }
+
+    public void testParseList() throws Exception
+    {
+        List<Bar> bars = Arrays.asList(SerializableObjects.bar, SerializableObjects.negativeBar);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonXIOUtil.writeListTo(out, bars, Bar.getSchema(), false, buf());
+        byte[] json = out.toByteArray();
+
+        assertEquals(bars, JsonXIOUtil.parseListFrom(json, Bar.getSchema(), false));
+        assertTrue(JsonXIOUtil.parseListFrom(STRING.ser(" [ ] "), Bar.getSchema(),
+                false).isEmpty());
+    }
+
+    public void testTruncated() throws Exception
+    {
+        try
+        {
+            parseBar("{\"someInt\":1");
+            fail("Expected JsonInputException");
+        }
+        catch (JsonInputException e)
+        {
+            // expected
+        }
+    }
+
+    public void testMalformed() throws Exception
+    {
+        final String[] malformed = {
+                "{,\"someInt\":1}",
+                "{\"someInt\":1,}",
+                "{\"someInt\":1,,\"someLong\":2}",
+                "{\"someInt\":1 \"someLong\":2}",
+                "{\"someBaz\":{\"id\":2,}}",
+                "{\"someInt\":1}garbage",
+                "{\"someInt\":1} {}"
+        };
+        for (String json : malformed)
+        {
+            try
+            {
+                parseBar(json);
+                fail("Expected JsonInputException on " + json);
+            }
+            catch (JsonInputException e)
+            {
+                // expected
+            }
+        }
+
+        // the commas around nested and skipped values
+        Bar bar = parseBar("{\"someBaz\":{},\"unknown\":{\"a\":1},\"someInt\":1}");
+        assertEquals(1, bar.getSomeInt());
+        assertNotNull(bar.getSomeBaz());
+
+        try
+        {
+            JsonXIOUtil.parseListFrom(STRING.ser("[{}]x"), Bar.getSchema(), false);
+            fail("Expected JsonInputException");
+        }
+        catch (JsonInputException e)
+        {
+            // expected
+        }
+    }
+
+}
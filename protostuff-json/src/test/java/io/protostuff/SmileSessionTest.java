@@ -0,0 +1,89 @@
+package io.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link SmileSessionWriter} and {@link SmileSessionReader}.
+ */
+public class SmileSessionTest extends AbstractTest
+{
+
+    static List<Bar> newBars(int count)
+    {
+        final ArrayList<Bar> bars = new ArrayList<Bar>(count);
+        for (int i = 0; i < count; i++)
+        {
+            bars.add(new Bar(i, i % 2 == 0 ? "even" : "odd", new Baz(i, "baz", i),
+                    Bar.Status.STARTED, null, true, i, i, i));
+        }
+        return bars;
+    }
+
+    static List<Bar> readAll(SmileSessionReader reader) throws Exception
+    {
+        final ArrayList<Bar> bars = new ArrayList<Bar>();
+        for (Bar bar = reader.parseFrom(Bar.getSchema()); bar != null;
+                bar = reader.parseFrom(Bar.getSchema()))
+        {
+            bars.add(bar);
+        }
+        reader.close();
+        return bars;
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final List<Bar> bars = newBars(100);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final SmileSessionWriter writer = SmileIOUtil.newSessionWriter(out, numeric,
+                    LinkedBuffer.allocate(1024));
+            int separateSize = 0;
+            for (Bar bar : bars)
+            {
+                writer.write(bar, Bar.getSchema());
+                separateSize += SmileIOUtil.toByteArray(bar, Bar.getSchema(), numeric).length;
+            }
+            assertEquals(100, writer.getCount());
+            writer.close();
+
+            final byte[] data = out.toByteArray();
+            // the names (and repeated string values) are back-references after the first message
+            assertTrue(data.length < separateSize);
+
+            assertEquals(bars, readAll(SmileIOUtil.newSessionReader(
+                    new ByteArrayInputStream(data), numeric, LinkedBuffer.allocate(1024))));
+            assertEquals(bars, readAll(SmileIOUtil.newSessionReader(
+                    data, 0, data.length, numeric)));
+        }
+    }
+
+    public void testResetPoint() throws Exception
+    {
+        final List<Bar> bars = newBars(20);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SmileSessionWriter writer = SmileIOUtil.newSessionWriter(out, false, null);
+        for (Bar bar : bars.subList(0, 10))
+            writer.write(bar, Bar.getSchema());
+
+        writer.flush();
+        final int resetOffset = out.size();
+        writer.reset();
+        assertEquals(0, writer.getCount());
+        for (Bar bar : bars.subList(10, 20))
+            writer.write(bar, Bar.getSchema());
+        writer.close();
+
+        final byte[] data = out.toByteArray();
+        assertEquals(bars, readAll(SmileIOUtil.newSessionReader(data, 0, data.length, false)));
+
+        // a reader can join at the reset point
+        assertEquals(bars.subList(10, 20), readAll(SmileIOUtil.newSessionReader(
+                data, resetOffset, data.length - resetOffset, false)));
+    }
+
+}
@@ -0,0 +1,316 @@
+package io.protostuff;
+
+import static io.protostuff.NumberParser.parseInt;
+import static io.protostuff.NumberParser.parseLong;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A kvp input that reads directly from a {@link ByteBuffer} (heap or direct), e.g the request buffer of a nio server.
+ * Same encoding as {@link KvpByteArrayInput}.
+ * <p>
+ * Keys are matched as raw bytes against the names cached per {@link Schema} (see {@link FieldNumberCache}), so no
+ * string is created to resolve a field. Values are parsed in place from the backing array of a heap buffer, while the
+ * bytes of a direct buffer are first copied into a reusable scratch buffer. {@link #readByteBuffer()} returns a slice
+ * that shares the content of the input.
+ * <p>
+ * The position of the given buffer is not changed.
+ */
+public final class KvpByteBufferInput implements Input
+{
+
+    private ByteBuffer bb;
+    private byte[] array;
+    private int arrayOffset, offset, limit;
+
+    public final boolean numeric;
+
+    /**
+     * The array holding the bytes last {@link #fetch(int) fetched}.
+     */
+    private byte[] data;
+    private byte[] scratch;
+
+    public KvpByteBufferInput(ByteBuffer bb, boolean numeric)
+    {
+        this.numeric = numeric;
+        reset(bb);
+    }
+
+    /**
+     * Resets this input to read the remaining bytes of the {@link ByteBuffer} (the scratch buffer is kept).
+     */
+    public KvpByteBufferInput reset(ByteBuffer bb)
+    {
+        this.bb = bb.duplicate();
+        offset = bb.position();
+        limit = bb.limit();
+
+        if (bb.hasArray())
+        {
+            array = bb.array();
+            arrayOffset = bb.arrayOffset();
+        }
+        else
+        {
+            array = null;
+            arrayOffset = 0;
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the position of the next byte to read.
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+
+    private byte getByte(int index)
+    {
+        return array != null ? array[arrayOffset + index] : bb.get(index);
+    }
+
+    /**
+     * Reads the length prefix (uint16 little endian) of the next key or value.
+     */
+    private int readSize() throws ProtostuffException
+    {
+        if (offset + 2 > limit)
+            throw new ProtostuffException("Truncated message.");
+
+        final int size = (getByte(offset) & 0xFF) | (getByte(offset + 1) & 0xFF) << 8;
+        offset += 2;
+
+        if (offset + size > limit)
+            throw new ProtostuffException("Misreported size.");
+
+        return size;
+    }
+
+    /**
+     * Makes the next {@code size} bytes available in {@link #data}, and returns their offset.
+     */
+    private int fetch(int size)
+    {
+        final int start = offset;
+        offset += size;
+
+        if (array != null)
+        {
+            data = array;
+            return arrayOffset + start;
+        }
+
+        byte[] scratch = this.scratch;
+        if (scratch == null || scratch.length < size)
+            this.scratch = scratch = new byte[Math.max(64, size)];
+
+        bb.position(start);
+        bb.get(scratch, 0, size);
+        data = scratch;
+        return 0;
+    }
+
+    /**
+     * Returns the next {@code size} bytes as a slice of the input.
+     */
+    private ByteBuffer slice(int size)
+    {
+        bb.limit(offset + size);
+        bb.position(offset);
+        final ByteBuffer slice = bb.slice();
+        bb.limit(limit);
+
+        offset += size;
+        return slice;
+    }
+
+    @Override
+    public <T> int readFieldNumber(Schema<T> schema) throws IOException
+    {
+        while (offset != limit)
+        {
+            final int size = readSize(), start = fetch(size);
+            final int number = numeric ? parseInt(data, start, size, 10, true) :
+                    FieldNumberCache.getFieldNumber(schema, data, start, size);
+
+            if (number != 0)
+                return number;
+
+            // skip unknown fields.
+            handleUnknownField(number, schema);
+        }
+
+        return 0;
+    }
+
+    @Override
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        final int size = readSize();
+        offset += size;
+    }
+
+    @Override
+    public <T> T mergeObject(T value, Schema<T> schema) throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean readBool() throws IOException
+    {
+        if (readSize() != 1)
+            throw new ProtostuffException("Not a valid kvp boolean");
+
+        return getByte(offset++) != 0x30;
+    }
+
+    @Override
+    public byte[] readByteArray() throws IOException
+    {
+        final int size = readSize();
+        if (size == 0)
+            return ByteString.EMPTY_BYTE_ARRAY;
+
+        final int start = fetch(size);
+        final byte[] value = new byte[size];
+        System.arraycopy(data, start, value, 0, size);
+        return value;
+    }
+
+    @Override
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+
+    @Override
+    public void readBytes(final ByteBuffer bb) throws IOException
+    {
+        bb.put(slice(readSize()));
+    }
+
+    /**
+     * Reads a byte array/ByteBuffer value. The returned buffer shares the content of the input (no copy).
+     */
+    @Override
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        return slice(readSize());
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        return Double.parseDouble(readString());
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        return Float.parseFloat(readString());
+    }
+
+    @Override
+    public int readUInt32() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public long readUInt64() throws IOException
+    {
+        return readInt64();
+    }
+
+    @Override
+    public int readInt32() throws IOException
+    {
+        final int size = readSize();
+        if (size == 0)
+            return 0;
+
+        final int start = fetch(size);
+        return parseInt(data, start, size, 10);
+    }
+
+    @Override
+    public long readInt64() throws IOException
+    {
+        final int size = readSize();
+        if (size == 0)
+            return 0;
+
+        final int start = fetch(size);
+        return parseLong(data, start, size, 10);
+    }
+
+    @Override
+    public int readEnum() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public int readFixed32() throws IOException
+    {
+        return readUInt32();
+    }
+
+    @Override
+    public long readFixed64() throws IOException
+    {
+        return readUInt64();
+    }
+
+    @Override
+    public int readSFixed32() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public long readSFixed64() throws IOException
+    {
+        return readInt64();
+    }
+
+    @Override
+    public int readSInt32() throws IOException
+    {
+        return readInt32();
+    }
+
+    @Override
+    public long readSInt64() throws IOException
+    {
+        return readInt64();
+    }
+
+    @Override
+    public String readString() throws IOException
+    {
+        final int size = readSize();
+        if (size == 0)
+            return ByteString.EMPTY_STRING;
+
+        final int start = fetch(size);
+        return STRING.deser(data, start, size);
+    }
+
+    @Override
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        final int size = readSize(), start = fetch(size);
+        output.writeByteRange(utf8String, fieldNumber, data, start, size, repeated);
+    }
+
+}
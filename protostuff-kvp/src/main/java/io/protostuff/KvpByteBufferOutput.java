@@ -0,0 +1,293 @@
+package io.protostuff;
+
+import static io.protostuff.StringSerializer.stringSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A kvp output that writes directly into a {@link ByteBuffer} (heap or direct), e.g the response buffer of a nio
+ * server. Same encoding as {@link KvpOutput}, whose pre-encoded keys are shared.
+ * <p>
+ * The fields are written from the position of the buffer, which is advanced. A
+ * {@link java.nio.BufferOverflowException} is thrown if the remaining space is not enough.
+ */
+public final class KvpByteBufferOutput implements Output
+{
+
+    private static final byte[] INT_MIN_VALUE = StringSerializer.STRING.ser(
+            Integer.toString(Integer.MIN_VALUE));
+
+    private static final byte[] LONG_MIN_VALUE = StringSerializer.STRING.ser(
+            Long.toString(Long.MIN_VALUE));
+
+    private final byte[] numBuf = new byte[20];
+    private ByteBuffer buffer;
+    public final boolean numeric;
+    private Schema<?> schema;
+    private KeyCache.Keys<byte[]> keys;
+
+    public KvpByteBufferOutput(ByteBuffer buffer, Schema<?> schema, boolean numeric)
+    {
+        this.buffer = buffer;
+        this.schema = schema;
+        this.numeric = numeric;
+    }
+
+    /**
+     * Resets this output to write the fields of the {@code schema} into the given buffer.
+     */
+    public KvpByteBufferOutput use(ByteBuffer buffer, Schema<?> schema)
+    {
+        this.buffer = buffer;
+        this.schema = schema;
+        return this;
+    }
+
+    /**
+     * Returns the buffer written to.
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    private KeyCache.Keys<byte[]> keys()
+    {
+        final KeyCache.Keys<byte[]> keys = this.keys;
+        if (keys != null && keys.schema() == (numeric ? null : schema))
+            return keys;
+
+        return this.keys = numeric ? KvpOutput.NUMERIC_KEYS.getKeys(null) :
+                KvpOutput.NAMED_KEYS.getKeys(schema);
+    }
+
+    private void writeField(final int number, final int valueLen)
+    {
+        buffer.put(keys().get(number, 0))
+                .put((byte) valueLen)
+                .put((byte) ((valueLen >>> 8) & 0xFF));
+    }
+
+    private void writeAscii(final int fieldNumber, final String value)
+    {
+        final int len = value.length();
+        writeField(fieldNumber, len);
+
+        final ByteBuffer buffer = this.buffer;
+        for (int i = 0; i < len; i++)
+            buffer.put((byte) value.charAt(i));
+    }
+
+    @Override
+    public void writeBool(int fieldNumber, boolean value, boolean repeated) throws IOException
+    {
+        writeField(fieldNumber, 1);
+        buffer.put((byte) (value ? 0x31 : 0x30));
+    }
+
+    @Override
+    public void writeByteArray(int fieldNumber, byte[] value, boolean repeated) throws IOException
+    {
+        writeField(fieldNumber, value.length);
+        buffer.put(value);
+    }
+
+    @Override
+    public void writeByteRange(boolean utf8String, int fieldNumber, byte[] value, int offset, int length,
+            boolean repeated) throws IOException
+    {
+        writeField(fieldNumber, length);
+        buffer.put(value, offset, length);
+    }
+
+    @Override
+    public void writeBytes(int fieldNumber, ByteString value, boolean repeated) throws IOException
+    {
+        writeByteArray(fieldNumber, value.getBytes(), repeated);
+    }
+
+    /**
+     * Writes a ByteBuffer field (heap or direct).
+     */
+    @Override
+    public void writeBytes(int fieldNumber, ByteBuffer value, boolean repeated) throws IOException
+    {
+        writeField(fieldNumber, value.remaining());
+        buffer.put(value.duplicate());
+    }
+
+    @Override
+    public void writeDouble(int fieldNumber, double value, boolean repeated) throws IOException
+    {
+        writeAscii(fieldNumber, Double.toString(value));
+    }
+
+    @Override
+    public void writeFloat(int fieldNumber, float value, boolean repeated) throws IOException
+    {
+        writeAscii(fieldNumber, Float.toString(value));
+    }
+
+    @Override
+    public void writeInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        if (value == Integer.MIN_VALUE)
+        {
+            writeByteArray(fieldNumber, INT_MIN_VALUE, repeated);
+            return;
+        }
+
+        final int size = (value < 0) ? stringSize(-value) + 1 : stringSize(value);
+        StringSerializer.putBytesFromInt(value, 0, size, numBuf);
+
+        writeField(fieldNumber, size);
+        buffer.put(numBuf, 0, size);
+    }
+
+    @Override
+    public void writeInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            writeByteArray(fieldNumber, LONG_MIN_VALUE, repeated);
+            return;
+        }
+
+        final int size = (value < 0) ? stringSize(-value) + 1 : stringSize(value);
+        StringSerializer.putBytesFromLong(value, 0, size, numBuf);
+
+        writeField(fieldNumber, size);
+        buffer.put(numBuf, 0, size);
+    }
+
+    @Override
+    public void writeEnum(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeFixed32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeFixed64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        writeInt64(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeSFixed32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeSFixed64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        writeInt64(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeSInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeSInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        writeInt64(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeUInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeUInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        writeInt64(fieldNumber, value, repeated);
+    }
+
+    @Override
+    public void writeString(int fieldNumber, CharSequence value, boolean repeated) throws IOException
+    {
+        final int len = value.length();
+        writeField(fieldNumber, computeUTF8Size(value, len));
+
+        final ByteBuffer buffer = this.buffer;
+        for (int i = 0; i < len; i++)
+        {
+            final char c = value.charAt(i);
+            if (c < 0x0080)
+            {
+                buffer.put((byte) c);
+            }
+            else if (c < 0x0800)
+            {
+                buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                // 4 bytes for a surrogate pair, like StringSerializer.writeUTF8
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | ((codePoint >> 18) & 0x07)))
+                        .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else
+            {
+                buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)))
+                        .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * The size of the utf8 encoding written by {@link #writeString}, where a surrogate pair takes 4 bytes.
+     */
+    static int computeUTF8Size(CharSequence value, int len)
+    {
+        int size = len;
+        for (int i = 0; i < len; i++)
+        {
+            final char c = value.charAt(i);
+            if (c < 0x0080)
+                continue;
+
+            if (c < 0x0800)
+            {
+                size++;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                // 4 bytes for 2 chars
+                size += 2;
+                i++;
+            }
+            else
+            {
+                size += 2;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public <T> void writeObject(int fieldNumber, T value, Schema<T> schema, boolean repeated) throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
+import io.protostuff.StringSerializer.STRING;
+
 /**
  * An output for serializing kvp-encoded messages (from a byte array as source). A kvp encoding is a binary encoding w/c
  * contains a key-value sequence. On the wire, a serialized field (key-value) would look like:
@@ -36,9 +38,43 @@ import java.nio.ByteBuffer;
 public final class KvpOutput extends WriteSession implements Output
 {
 
+    /**
+     * The pre-encoded keys (the uint16 little endian length followed by the utf8 name or the field number).
+     */
+    static final class KvpKeyCache extends KeyCache<byte[]>
+    {
+        final boolean numeric;
+
+        KvpKeyCache(boolean numeric)
+        {
+            super(1);
+            this.numeric = numeric;
+        }
+
+        @Override
+        protected byte[] encode(Schema<?> schema, int number, int variant)
+        {
+            final String name = numeric ? Integer.toString(number) : schema.getFieldName(number);
+            if (name == null)
+                return null;
+
+            final byte[] utf8 = STRING.ser(name);
+            final byte[] key = new byte[2 + utf8.length];
+            key[0] = (byte) utf8.length;
+            key[1] = (byte) ((utf8.length >>> 8) & 0xFF);
+            System.arraycopy(utf8, 0, key, 2, utf8.length);
+
+            return key;
+        }
+    }
+
+    static final KvpKeyCache NAMED_KEYS = new KvpKeyCache(false),
+            NUMERIC_KEYS = new KvpKeyCache(true);
+
     final byte[] numBuf = new byte[2];
     final boolean numeric;
     private Schema<?> schema;
+    private KeyCache.Keys<byte[]> keys;
 
     public KvpOutput(LinkedBuffer head, Schema<?> schema, boolean numeric)
     {
@@ -64,67 +100,31 @@ public final class KvpOutput extends WriteSession implements Output
         return this;
     }
 
+    private KeyCache.Keys<byte[]> keys()
+    {
+        final KeyCache.Keys<byte[]> keys = this.keys;
+        if (keys != null && keys.schema() == (numeric ? null : schema))
+            return keys;
+
+        return this.keys = numeric ? NUMERIC_KEYS.getKeys(null) : NAMED_KEYS.getKeys(schema);
+    }
+
     private LinkedBuffer writeField(final int number, final LinkedBuffer lb)
             throws IOException
     {
-        if (numeric)
-        {
-            final int len = stringSize(number);
-            numBuf[0] = (byte) len;
-            numBuf[1] = (byte) ((len >>> 8) & 0xFF);
-
-            return sink.writeStrFromInt(
-                    number,
-                    this,
-                    sink.writeByteArray(
-                            numBuf, 0, 2,
-                            this,
-                            lb));
-        }
-
-        return sink.writeStrUTF8FixedDelimited(
-                schema.getFieldName(number),
-                true,
-                this,
-                lb);
+        return sink.writeByteArray(keys().get(number, 0), this, lb);
     }
 
     private LinkedBuffer writeField(final int number, final int valueLen,
             LinkedBuffer lb) throws IOException
     {
-        if (numeric)
-        {
-            final int len = stringSize(number);
-            numBuf[0] = (byte) len;
-            numBuf[1] = (byte) ((len >>> 8) & 0xFF);
-
-            lb = sink.writeStrFromInt(
-                    number,
-                    this,
-                    sink.writeByteArray(
-                            numBuf, 0, 2,
-                            this,
-                            lb));
-
-            // value len prefix
-            numBuf[0] = (byte) valueLen;
-            numBuf[1] = (byte) ((valueLen >>> 8) & 0xFF);
-
-            return sink.writeByteArray(numBuf, 0, 2, this, lb);
-        }
+        lb = sink.writeByteArray(keys().get(number, 0), this, lb);
 
         // value len prefix
         numBuf[0] = (byte) valueLen;
         numBuf[1] = (byte) ((valueLen >>> 8) & 0xFF);
 
-        return sink.writeByteArray(
-                numBuf, 0, 2,
-                this,
-                sink.writeStrUTF8FixedDelimited(
-                        schema.getFieldName(number),
-                        true,
-                        this,
-                        lb));
+        return sink.writeByteArray(numBuf, 0, 2, this, lb);
     }
 
     @Override
@@ -298,11 +298,19 @@ public final class KvpOutput extends WriteSession implements Output
     }
 
     /**
-     * Writes a ByteBuffer field.
+     * Writes a ByteBuffer field. The content of a direct buffer is copied.
      */
     @Override
     public void writeBytes(int fieldNumber, ByteBuffer value, boolean repeated) throws IOException
     {
+        if (!value.hasArray())
+        {
+            final byte[] data = new byte[value.remaining()];
+            value.duplicate().get(data);
+            writeByteArray(fieldNumber, data, repeated);
+            return;
+        }
+
         writeByteRange(false, fieldNumber, value.array(), value.arrayOffset() + value.position(),
                 value.remaining(), repeated);
     }
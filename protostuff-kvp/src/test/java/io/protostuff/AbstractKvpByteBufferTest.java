@@ -0,0 +1,146 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Base class for the tests of {@link KvpByteBufferInput} and {@link KvpByteBufferOutput}.
+ */
+public abstract class AbstractKvpByteBufferTest extends NoNestedMessageTest
+{
+
+    protected final boolean numeric, direct;
+
+    public AbstractKvpByteBufferTest(boolean numeric, boolean direct)
+    {
+        this.numeric = numeric;
+        this.direct = direct;
+    }
+
+    ByteBuffer allocate(int capacity)
+    {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    ByteBuffer wrap(byte[] data, int offset, int length)
+    {
+        final ByteBuffer bb = allocate(length + 8);
+        bb.position(4);
+        bb.put(data, offset, length).flip();
+        bb.position(4);
+        return bb;
+    }
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int length,
+            T message, Schema<T> schema) throws IOException
+    {
+        final ByteBuffer bb = wrap(data, offset, length);
+        schema.mergeFrom(new KvpByteBufferInput(bb, numeric), message);
+        assertEquals(4, bb.position());
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        final ByteBuffer bb = allocate(1 << 16);
+        try
+        {
+            schema.writeTo(new KvpByteBufferOutput(bb, schema, numeric), message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Serializing to a byte buffer threw an IOException " +
+                    "(should never happen).", e);
+        }
+
+        final byte[] data = new byte[bb.flip().remaining()];
+        bb.get(data);
+
+        // same as the stream/buffer output
+        final KvpOutput output = new KvpOutput(buf(), schema, numeric);
+        try
+        {
+            schema.writeTo(output, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        assertTrue(Arrays.equals(output.toByteArray(), data));
+
+        return data;
+    }
+
+    public void testByteBufferSlice() throws Exception
+    {
+        final Baz baz = new Baz(1, "baz", 2L);
+        final byte[] data = toByteArray(baz, baz.cachedSchema());
+        final ByteBuffer bb = wrap(data, 0, data.length);
+
+        final KvpByteBufferInput input = new KvpByteBufferInput(bb, numeric);
+        final int nameNumber = baz.cachedSchema().getFieldNumber("name");
+        int number;
+        while ((number = input.readFieldNumber(baz.cachedSchema())) != nameNumber)
+            input.handleUnknownField(number, baz.cachedSchema());
+
+        final ByteBuffer name = input.readByteBuffer();
+        assertEquals(3, name.remaining());
+        assertEquals('b', name.get(0));
+        assertEquals(direct, name.isDirect());
+
+        // reused
+        final Baz parsed = new Baz();
+        parsed.cachedSchema().mergeFrom(input.reset(bb), parsed);
+        assertEquals(baz, parsed);
+    }
+
+    public void testSupplementaryCharacters() throws Exception
+    {
+        // 4 bytes for the emoji (a surrogate pair), like the stream/buffer output
+        final Baz baz = new Baz(1, "emoji \uD83D\uDE00 \u4E2D \u00E9 \uD83D\uDE00", 2L);
+        final byte[] data = toByteArray(baz, baz.cachedSchema());
+        final byte[] name = StringSerializer.STRING.ser(baz.getName());
+        assertEquals(22, name.length);
+
+        final Baz parsed = new Baz();
+        mergeFrom(data, 0, data.length, parsed, parsed.cachedSchema());
+        assertEquals(baz, parsed);
+
+        // an unpaired surrogate is written as 3 bytes, also like the stream/buffer output
+        toByteArray(new Baz(1, "\uD83D x \uDE00", 2L), baz.cachedSchema());
+    }
+
+    public void testOverflow() throws Exception
+    {
+        final Baz baz = new Baz(1, "baz", 2L);
+        try
+        {
+            baz.cachedSchema().writeTo(
+                    new KvpByteBufferOutput(allocate(8), baz.cachedSchema(), numeric), baz);
+            fail("Expected BufferOverflowException");
+        }
+        catch (BufferOverflowException e)
+        {
+            // expected
+        }
+    }
+
+    public void testTruncated() throws Exception
+    {
+        final Baz baz = new Baz(1, "baz", 2L);
+        final byte[] data = toByteArray(baz, baz.cachedSchema());
+        try
+        {
+            mergeFrom(data, 0, data.length - 1, new Baz(), baz.cachedSchema());
+            fail("Expected ProtostuffException");
+        }
+        catch (ProtostuffException e)
+        {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.protostuff;
+
+/**
+ * Tests for reading/writing pojos from/to a heap {@link java.nio.ByteBuffer}, with the field numbers as keys.
+ */
+public class KvpByteBufferNumericTest extends AbstractKvpByteBufferTest
+{
+
+    public KvpByteBufferNumericTest()
+    {
+        super(true, false);
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.protostuff;
+
+/**
+ * Tests for reading/writing pojos from/to a direct {@link java.nio.ByteBuffer}.
+ */
+public class KvpByteBufferTest extends AbstractKvpByteBufferTest
+{
+
+    public KvpByteBufferTest()
+    {
+        super(false, true);
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.protostuff;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the pre-encoded keys of {@link KvpOutput} and {@link KvpByteBufferOutput}.
+ */
+public class KvpKeyCacheTest extends AbstractTest
+{
+
+    static String key(byte[] key)
+    {
+        // the uint16 little endian length
+        assertEquals(key.length - 2, (key[0] & 0xFF) | (key[1] & 0xFF) << 8);
+        return STRING.deser(key, 2, key.length - 2);
+    }
+
+    static byte[] toByteBuffer(Baz baz, boolean numeric) throws Exception
+    {
+        final ByteBuffer bb = ByteBuffer.allocate(1024);
+        Baz.getSchema().writeTo(new KvpByteBufferOutput(bb, Baz.getSchema(), numeric), baz);
+        final byte[] data = new byte[bb.flip().remaining()];
+        bb.get(data);
+        return data;
+    }
+
+    static byte[] toByteArray(Baz baz, boolean numeric) throws Exception
+    {
+        final KvpOutput output = new KvpOutput(buf(), Baz.getSchema(), numeric);
+        Baz.getSchema().writeTo(output, baz);
+        return output.toByteArray();
+    }
+
+    public void testCachedPerSchema()
+    {
+        final KeyCache.Keys<byte[]> keys = KvpOutput.NAMED_KEYS.getKeys(Baz.getSchema());
+        assertSame(keys, KvpOutput.NAMED_KEYS.getKeys(Baz.getSchema()));
+        assertSame(Baz.getSchema(), keys.schema());
+        assertSame(keys.get(3, 0), keys.get(3, 0));
+        assertEquals("timestamp", key(keys.get(3, 0)));
+
+        // the numeric keys do not depend on the schema
+        final KeyCache.Keys<byte[]> numeric = KvpOutput.NUMERIC_KEYS.getKeys(null);
+        assertSame(numeric, KvpOutput.NUMERIC_KEYS.getKeys(null));
+        assertNull(numeric.schema());
+        assertEquals("3", key(numeric.get(3, 0)));
+    }
+
+    public void testUnknownFieldNotCached()
+    {
+        assertNull(KvpOutput.NAMED_KEYS.getKeys(Baz.getSchema()).get(99, 0));
+        assertEquals("99", key(KvpOutput.NUMERIC_KEYS.getKeys(null).get(99, 0)));
+    }
+
+    public void testSameOutput() throws Exception
+    {
+        final Baz baz = SerializableObjects.baz;
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final byte[] expected = toByteArray(baz, numeric);
+
+            // twice, the second time with the keys cached
+            assertTrue(Arrays.equals(expected, toByteArray(baz, numeric)));
+            assertTrue(Arrays.equals(expected, toByteBuffer(baz, numeric)));
+            assertTrue(Arrays.equals(expected, toByteBuffer(baz, numeric)));
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import static org.apache.maven.plugins.annotations.ResolutionScope.COMPILE_PLUS_
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -33,7 +34,9 @@ import org.apache.maven.project.MavenProject;
 import com.google.common.base.Joiner;
 
 import io.protostuff.compiler.CachingProtoLoader;
+import io.protostuff.compiler.CompileCache;
 import io.protostuff.compiler.CompilerMain;
+import io.protostuff.parser.ProtoCache;
 
 /**
  * Compiles proto files to java/gwt/etc.
@@ -71,6 +74,42 @@ public class ProtoCompilerMojo extends AbstractMojo
     @Parameter(property = "protostuff.compiler.cache_protos", defaultValue = "false")
     private boolean cacheProtos;
 
+    /**
+     * When set, the parsed protos are also kept in this directory, so that the next builds (and the other modules
+     * built by the same process) only parse the protos that changed. Implies {@link #cacheProtos}.
+     *
+     * @since 1.6.1
+     */
+    @Parameter(property = "protostuff.compiler.proto_cache_dir")
+    private File protoCacheDir;
+
+    /**
+     * The number of threads used to compile the modules (each output of a module is a separate task). Enabling
+     * {@link #cacheProtos} is recommended with more than one thread, so that the protos are parsed once.
+     *
+     * @since 1.6.1
+     */
+    @Parameter(property = "protostuff.compiler.threads", defaultValue = "1")
+    private int threads;
+
+    /**
+     * When {@code true}, the modules whose inputs (protos, imports, template and options) did not change since the
+     * last build are skipped. The content hashes are kept in {@link #cacheFile}.
+     *
+     * @since 1.6.1
+     */
+    @Parameter(property = "protostuff.compiler.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * The file that contains the content hashes of the compiled modules, when {@link #incremental} is enabled.
+     *
+     * @since 1.6.1
+     */
+    @Parameter(property = "protostuff.compiler.cache_file",
+            defaultValue = "${project.build.directory}/protostuff-compiler.cache")
+    private File cacheFile;
+
     /**
      * Usually most of protostuff mojos will not get executed on parent poms (i.e. projects with packaging type 'pom').
      * Setting this parameter to {@code true} will force the execution of this mojo, even if it would usually get
@@ -145,11 +184,14 @@ public class ProtoCompilerMojo extends AbstractMojo
 
         assert baseDir != null && baseDir.exists() && baseDir.isDirectory();
 
-        CachingProtoLoader loader = cacheProtos ? new CachingProtoLoader() : null;
-
         try
         {
             setSystemProperties();
+
+            // created after the system properties are set, since the loaders read the proto_path once
+            CachingProtoLoader loader = protoCacheDir != null ?
+                    new CachingProtoLoader(ProtoCache.getInstance(protoCacheDir)) :
+                    cacheProtos ? new CachingProtoLoader() : null;
             if (modulesFile == null)
             {
                 if (protoModules == null)
@@ -167,23 +209,11 @@ public class ProtoCompilerMojo extends AbstractMojo
                         }
                         m.setCachingProtoLoader(loader);
                         updateRelativeOutputLocation(m);
-                        CompilerMain.compile(m);
-
-                        // enabled by default unless overridden
-                        if (m.isAddToCompileSourceRoot())
-                        {
-                            // Include generated directory to the list of compilation sources
-                            if (GENERATE_TEST_SOURCES_PHASE.equals(execution.getLifecyclePhase()))
-                            {
-                                project.addTestCompileSourceRoot(m.getOutputDir().getAbsolutePath());
-                            }
-                            else
-                            {
-                                project.addCompileSourceRoot(m.getOutputDir().getAbsolutePath());
-                            }
-                        }
-
                     }
+
+                    compile(new ArrayList<io.protostuff.compiler.ProtoModule>(
+                            Arrays.asList(protoModules)));
+                    addCompileSourceRoots();
                 }
                 catch (Exception e)
                 {
@@ -197,24 +227,11 @@ public class ProtoCompilerMojo extends AbstractMojo
                     if (protoModules != null)
                     {
                         for (ProtoModule m : protoModules)
-                        {
                             m.setCachingProtoLoader(loader);
-                            CompilerMain.compile(m);
-
-                            // enabled by default unless overridden
-                            if (m.isAddToCompileSourceRoot())
-                            {
-                                // Include generated directory to the list of compilation sources
-                                if (GENERATE_TEST_SOURCES_PHASE.equals(execution.getLifecyclePhase()))
-                                {
-                                    project.addTestCompileSourceRoot(m.getOutputDir().getAbsolutePath());
-                                }
-                                else
-                                {
-                                    project.addCompileSourceRoot(m.getOutputDir().getAbsolutePath());
-                                }
-                            }
-                        }
+
+                        compile(new ArrayList<io.protostuff.compiler.ProtoModule>(
+                                Arrays.asList(protoModules)));
+                        addCompileSourceRoots();
                     }
 
                     if (!modulesFile.exists())
@@ -229,7 +246,7 @@ public class ProtoCompilerMojo extends AbstractMojo
                     if (outputBaseDir == null)
                         outputBaseDir = parent;
 
-                    CompilerMain.compile(CompilerMain.loadModules(modulesFile,
+                    compile(CompilerMain.loadModules(modulesFile,
                             sourceBaseDir, outputBaseDir));
                 }
                 catch (Exception e)
@@ -244,6 +261,31 @@ public class ProtoCompilerMojo extends AbstractMojo
         }
     }
 
+    private void compile(List<io.protostuff.compiler.ProtoModule> modules) throws Exception
+    {
+        CompilerMain.compile(modules, threads, incremental ? new CompileCache(cacheFile) : null);
+    }
+
+    private void addCompileSourceRoots()
+    {
+        for (ProtoModule m : protoModules)
+        {
+            // enabled by default unless overridden
+            if (m.isAddToCompileSourceRoot())
+            {
+                // Include generated directory to the list of compilation sources
+                if (GENERATE_TEST_SOURCES_PHASE.equals(execution.getLifecyclePhase()))
+                {
+                    project.addTestCompileSourceRoot(m.getOutputDir().getAbsolutePath());
+                }
+                else
+                {
+                    project.addCompileSourceRoot(m.getOutputDir().getAbsolutePath());
+                }
+            }
+        }
+    }
+
     private void updateRelativeOutputLocation(ProtoModule m)
     {
         String originalOutput = m.getOutput();
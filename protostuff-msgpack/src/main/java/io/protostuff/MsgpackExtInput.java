@@ -0,0 +1,35 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The msgpack inputs that can read the {@link MsgpackExtTypes extension types} written by {@link MsgpackExtOutput}.
+ * A {@link MsgpackInputException} is thrown if the value is not an extension of the expected type.
+ */
+public interface MsgpackExtInput extends Input
+{
+
+    /**
+     * Reads the payload of an extension value of the given type.
+     */
+    byte[] readExtension(byte type) throws IOException;
+
+    /**
+     * Reads a {@link MsgpackExtTypes#TIMESTAMP timestamp} (nanosecond precision).
+     */
+    Timestamp readTimestamp() throws IOException;
+
+    /**
+     * Reads a {@link MsgpackExtTypes#TIMESTAMP timestamp} as a date (millisecond precision).
+     */
+    Date readDate() throws IOException;
+
+    BigDecimal readDecimal() throws IOException;
+
+    UUID readUUID() throws IOException;
+
+}
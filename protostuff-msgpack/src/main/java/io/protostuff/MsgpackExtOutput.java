@@ -0,0 +1,48 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The msgpack outputs that can write {@link MsgpackExtTypes extension types}, which a schema would use instead of the
+ * generic {@link Output} calls (e.g a date as a timestamp rather than a long).
+ *
+ * <pre>
+ * if (output instanceof MsgpackExtOutput)
+ *     ((MsgpackExtOutput) output).writeDate(1, message.created, false);
+ * else
+ *     output.writeFixed64(1, message.created.getTime(), false);
+ * </pre>
+ */
+public interface MsgpackExtOutput extends Output
+{
+
+    /**
+     * Writes an extension value of the given type.
+     */
+    void writeExtension(int fieldNumber, byte type, byte[] payload, int offset, int length,
+            boolean repeated) throws IOException;
+
+    /**
+     * Writes a {@link MsgpackExtTypes#TIMESTAMP timestamp} from the seconds and nanoseconds since the epoch.
+     */
+    void writeTimestamp(int fieldNumber, long seconds, int nanos, boolean repeated) throws IOException;
+
+    /**
+     * Writes the date as a {@link MsgpackExtTypes#TIMESTAMP timestamp}.
+     */
+    void writeDate(int fieldNumber, Date value, boolean repeated) throws IOException;
+
+    /**
+     * Writes the decimal as a {@link MsgpackExtTypes#DECIMAL decimal} extension.
+     */
+    void writeDecimal(int fieldNumber, BigDecimal value, boolean repeated) throws IOException;
+
+    /**
+     * Writes the uuid as a {@link MsgpackExtTypes#UUID uuid} extension.
+     */
+    void writeUUID(int fieldNumber, UUID value, boolean repeated) throws IOException;
+
+}
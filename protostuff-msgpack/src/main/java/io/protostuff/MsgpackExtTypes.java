@@ -0,0 +1,234 @@
+package io.protostuff;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The msgpack extension types written by {@link MsgpackExtOutput} and read by {@link MsgpackExtInput}, along with the
+ * encoding of their payloads.
+ * <p>
+ * Timestamps use the standard extension type -1 (32, 64 or 96-bit payload, whichever is the smallest). The
+ * application-specific types of {@link BigDecimal} and {@link UUID} default to 1 and 2, and can be changed with the
+ * system properties {@code protostuff.msgpack.ext_type_decimal} and {@code protostuff.msgpack.ext_type_uuid} (0 to
+ * 127).
+ */
+public final class MsgpackExtTypes
+{
+
+    /**
+     * The standard timestamp extension type.
+     */
+    public static final byte TIMESTAMP = -1;
+
+    /**
+     * The payload is the scale (4 bytes, big-endian) followed by the two's-complement bytes of the unscaled value.
+     */
+    public static final byte DECIMAL = extType("protostuff.msgpack.ext_type_decimal", 1);
+
+    /**
+     * The payload is the most significant bits followed by the least significant bits (16 bytes, big-endian).
+     */
+    public static final byte UUID = extType("protostuff.msgpack.ext_type_uuid", 2);
+
+    private static final long MAX_TIMESTAMP64_SECONDS = (1L << 34) - 1;
+
+    private MsgpackExtTypes()
+    {
+    }
+
+    static byte extType(String property, int defaultValue)
+    {
+        final int type = Integer.parseInt(System.getProperty(property, String.valueOf(defaultValue)));
+        if (type < 0 || type > 127)
+            throw new IllegalArgumentException(property + " must be from 0 to 127: " + type);
+
+        return (byte) type;
+    }
+
+    // ---------------------------------------------------------------- timestamp
+
+    /**
+     * Encodes the seconds and nanoseconds since the epoch.
+     */
+    public static byte[] encodeTimestamp(long seconds, int nanos)
+    {
+        if (nanos < 0 || nanos > 999999999)
+            throw new IllegalArgumentException("nanos: " + nanos);
+
+        if (seconds >>> 34 == 0)
+        {
+            final long data64 = ((long) nanos << 34) | seconds;
+            if ((data64 & 0xffffffff00000000L) == 0)
+            {
+                // timestamp 32
+                final byte[] payload = new byte[4];
+                putInt(payload, 0, (int) data64);
+                return payload;
+            }
+
+            // timestamp 64
+            final byte[] payload = new byte[8];
+            putLong(payload, 0, data64);
+            return payload;
+        }
+
+        // timestamp 96
+        final byte[] payload = new byte[12];
+        putInt(payload, 0, nanos);
+        putLong(payload, 4, seconds);
+        return payload;
+    }
+
+    /**
+     * Encodes the date (millisecond precision, or nanosecond precision for a {@link Timestamp}).
+     */
+    public static byte[] encodeTimestamp(Date value)
+    {
+        final long millis = value.getTime();
+        long seconds = millis / 1000;
+        int millisOfSecond = (int) (millis % 1000);
+        if (millisOfSecond < 0)
+        {
+            seconds--;
+            millisOfSecond += 1000;
+        }
+
+        final int nanos = value instanceof Timestamp ? ((Timestamp) value).getNanos()
+                : millisOfSecond * 1000000;
+        return encodeTimestamp(seconds, nanos);
+    }
+
+    /**
+     * Returns the seconds since the epoch of the encoded timestamp.
+     */
+    public static long getTimestampSeconds(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        switch (length)
+        {
+            case 4:
+                return getInt(payload, offset) & 0xffffffffL;
+            case 8:
+                return getLong(payload, offset) & MAX_TIMESTAMP64_SECONDS;
+            case 12:
+                return getLong(payload, offset + 4);
+            default:
+                throw new MsgpackInputException("Invalid timestamp length: " + length);
+        }
+    }
+
+    /**
+     * Returns the nanoseconds (within the second) of the encoded timestamp.
+     */
+    public static int getTimestampNanos(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        switch (length)
+        {
+            case 4:
+                return 0;
+            case 8:
+                return (int) (getLong(payload, offset) >>> 34);
+            case 12:
+                return getInt(payload, offset);
+            default:
+                throw new MsgpackInputException("Invalid timestamp length: " + length);
+        }
+    }
+
+    /**
+     * Decodes the timestamp (nanosecond precision).
+     */
+    public static Timestamp decodeTimestamp(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        final Timestamp value = new Timestamp(
+                getTimestampSeconds(payload, offset, length) * 1000);
+        value.setNanos(getTimestampNanos(payload, offset, length));
+        return value;
+    }
+
+    /**
+     * Decodes the timestamp as a date (millisecond precision).
+     */
+    public static Date decodeDate(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        return new Date(getTimestampSeconds(payload, offset, length) * 1000 +
+                getTimestampNanos(payload, offset, length) / 1000000);
+    }
+
+    // ---------------------------------------------------------------- decimal
+
+    public static byte[] encodeDecimal(BigDecimal value)
+    {
+        final byte[] unscaled = value.unscaledValue().toByteArray();
+        final byte[] payload = new byte[4 + unscaled.length];
+        putInt(payload, 0, value.scale());
+        System.arraycopy(unscaled, 0, payload, 4, unscaled.length);
+        return payload;
+    }
+
+    public static BigDecimal decodeDecimal(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        if (length < 5)
+            throw new MsgpackInputException("Invalid decimal length: " + length);
+
+        final byte[] unscaled = new byte[length - 4];
+        System.arraycopy(payload, offset + 4, unscaled, 0, unscaled.length);
+        return new BigDecimal(new BigInteger(unscaled), getInt(payload, offset));
+    }
+
+    // ---------------------------------------------------------------- uuid
+
+    public static byte[] encodeUUID(UUID value)
+    {
+        final byte[] payload = new byte[16];
+        putLong(payload, 0, value.getMostSignificantBits());
+        putLong(payload, 8, value.getLeastSignificantBits());
+        return payload;
+    }
+
+    public static UUID decodeUUID(byte[] payload, int offset, int length)
+            throws MsgpackInputException
+    {
+        if (length != 16)
+            throw new MsgpackInputException("Invalid uuid length: " + length);
+
+        return new UUID(getLong(payload, offset), getLong(payload, offset + 8));
+    }
+
+    // ---------------------------------------------------------------- big-endian
+
+    static void putInt(byte[] buffer, int offset, int value)
+    {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    static void putLong(byte[] buffer, int offset, long value)
+    {
+        putInt(buffer, offset, (int) (value >>> 32));
+        putInt(buffer, offset + 4, (int) value);
+    }
+
+    static int getInt(byte[] buffer, int offset)
+    {
+        return (buffer[offset] & 0xff) << 24
+                | (buffer[offset + 1] & 0xff) << 16
+                | (buffer[offset + 2] & 0xff) << 8
+                | (buffer[offset + 3] & 0xff);
+    }
+
+    static long getLong(byte[] buffer, int offset)
+    {
+        return (long) getInt(buffer, offset) << 32 | (getInt(buffer, offset + 4) & 0xffffffffL);
+    }
+
+}
@@ -366,4 +366,19 @@ public final class MsgpackIOUtil
 
         return list;
     }
+
+    /**
+     * Returns the {@link Transcoder.Source} of msgpack-encoded messages.
+     */
+    public static Transcoder.Source transcoderSource(final boolean numeric)
+    {
+        return new Transcoder.Source()
+        {
+            @Override
+            public Pipe newPipe(byte[] data, int offset, int length) throws IOException
+            {
+                return MsgpackIOUtil.newPipe(data, offset, length, numeric);
+            }
+        };
+    }
 }
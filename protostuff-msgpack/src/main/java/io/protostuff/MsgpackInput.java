@@ -15,7 +15,11 @@
 package io.protostuff;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
 
 /**
  * Input is using to read source from messagepack unpacker
@@ -24,7 +28,7 @@ import java.nio.ByteBuffer;
  *
  */
 
-public class MsgpackInput implements Input
+public class MsgpackInput implements MsgpackExtInput
 {
 
     private MsgpackParser parser;
@@ -165,6 +169,40 @@ public class MsgpackInput implements Input
         return parser.readPayload();
     }
 
+    @Override
+    public byte[] readExtension(byte type) throws IOException
+    {
+        return parser.parseExtension(type);
+    }
+
+    @Override
+    public Timestamp readTimestamp() throws IOException
+    {
+        byte[] payload = parser.parseExtension(MsgpackExtTypes.TIMESTAMP);
+        return MsgpackExtTypes.decodeTimestamp(payload, 0, payload.length);
+    }
+
+    @Override
+    public Date readDate() throws IOException
+    {
+        byte[] payload = parser.parseExtension(MsgpackExtTypes.TIMESTAMP);
+        return MsgpackExtTypes.decodeDate(payload, 0, payload.length);
+    }
+
+    @Override
+    public BigDecimal readDecimal() throws IOException
+    {
+        byte[] payload = parser.parseExtension(MsgpackExtTypes.DECIMAL);
+        return MsgpackExtTypes.decodeDecimal(payload, 0, payload.length);
+    }
+
+    @Override
+    public UUID readUUID() throws IOException
+    {
+        byte[] payload = parser.parseExtension(MsgpackExtTypes.UUID);
+        return MsgpackExtTypes.decodeUUID(payload, 0, payload.length);
+    }
+
     @Override
     public <T> T mergeObject(T value, Schema<T> schema) throws IOException
     {
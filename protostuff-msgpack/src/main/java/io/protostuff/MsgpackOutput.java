@@ -15,12 +15,16 @@
 package io.protostuff;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
 
 import org.msgpack.value.ImmutableBooleanValue;
 import org.msgpack.value.impl.ImmutableBinaryValueImpl;
 import org.msgpack.value.impl.ImmutableBooleanValueImpl;
 import org.msgpack.value.impl.ImmutableDoubleValueImpl;
+import org.msgpack.value.impl.ImmutableExtensionValueImpl;
 import org.msgpack.value.impl.ImmutableLongValueImpl;
 import org.msgpack.value.impl.ImmutableStringValueImpl;
 
@@ -31,7 +35,7 @@ import io.protostuff.MsgpackGenerator.ImmutableFloatValueImpl;
  * 
  * @author Alex Shvid
  */
-public class MsgpackOutput implements Output, StatefulOutput
+public class MsgpackOutput implements MsgpackExtOutput, StatefulOutput
 {
 
     private MsgpackGenerator generator;
@@ -210,9 +214,59 @@ public class MsgpackOutput implements Output, StatefulOutput
     public void writeBytes(int fieldNumber, ByteBuffer value, boolean repeated) throws IOException
     {
 
-        writeByteRange(false, fieldNumber, value.array(), value.arrayOffset() + value.position(),
-                value.remaining(), repeated);
+        if (value.hasArray() && value.arrayOffset() + value.position() == 0
+                && value.remaining() == value.array().length)
+        {
+            // the whole array, referenced as is
+            generator.pushValue(schema, fieldNumber, new ImmutableBinaryValueImpl(value.array()), repeated);
+            return;
+        }
+
+        byte[] copiedValue = new byte[value.remaining()];
+        value.duplicate().get(copiedValue);
+
+        generator.pushValue(schema, fieldNumber, new ImmutableBinaryValueImpl(copiedValue), repeated);
+
+    }
+
+    @Override
+    public void writeExtension(int fieldNumber, byte type, byte[] payload, int offset, int length,
+            boolean repeated) throws IOException
+    {
+
+        byte[] copiedValue = new byte[length];
+        System.arraycopy(payload, offset, copiedValue, 0, length);
+
+        generator.pushValue(schema, fieldNumber, new ImmutableExtensionValueImpl(type, copiedValue), repeated);
+
+    }
 
+    @Override
+    public void writeTimestamp(int fieldNumber, long seconds, int nanos, boolean repeated) throws IOException
+    {
+        generator.pushValue(schema, fieldNumber, new ImmutableExtensionValueImpl(MsgpackExtTypes.TIMESTAMP,
+                MsgpackExtTypes.encodeTimestamp(seconds, nanos)), repeated);
+    }
+
+    @Override
+    public void writeDate(int fieldNumber, Date value, boolean repeated) throws IOException
+    {
+        generator.pushValue(schema, fieldNumber, new ImmutableExtensionValueImpl(MsgpackExtTypes.TIMESTAMP,
+                MsgpackExtTypes.encodeTimestamp(value)), repeated);
+    }
+
+    @Override
+    public void writeDecimal(int fieldNumber, BigDecimal value, boolean repeated) throws IOException
+    {
+        generator.pushValue(schema, fieldNumber, new ImmutableExtensionValueImpl(MsgpackExtTypes.DECIMAL,
+                MsgpackExtTypes.encodeDecimal(value)), repeated);
+    }
+
+    @Override
+    public void writeUUID(int fieldNumber, UUID value, boolean repeated) throws IOException
+    {
+        generator.pushValue(schema, fieldNumber, new ImmutableExtensionValueImpl(MsgpackExtTypes.UUID,
+                MsgpackExtTypes.encodeUUID(value)), repeated);
     }
 
 }
@@ -17,6 +17,7 @@ package io.protostuff;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.msgpack.core.ExtensionTypeHeader;
 import org.msgpack.core.MessageUnpacker;
 
 /**
@@ -188,6 +189,17 @@ public final class MsgpackParser
         return unpacker.readPayload(length);
     }
 
+    public byte[] parseExtension(byte type) throws IOException
+    {
+        ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+        if (header.getType() != type)
+        {
+            throw new MsgpackInputException("Expected extension type " + type + " but was " +
+                    header.getType());
+        }
+        return unpacker.readPayload(header.getLength());
+    }
+
     public ByteBuffer readPayload() throws IOException
     {
         int length = unpacker.unpackBinaryHeader();
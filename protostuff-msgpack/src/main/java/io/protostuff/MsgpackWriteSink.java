@@ -19,7 +19,15 @@ import static org.msgpack.core.MessagePack.Code.ARRAY32;
 import static org.msgpack.core.MessagePack.Code.BIN16;
 import static org.msgpack.core.MessagePack.Code.BIN32;
 import static org.msgpack.core.MessagePack.Code.BIN8;
+import static org.msgpack.core.MessagePack.Code.EXT16;
+import static org.msgpack.core.MessagePack.Code.EXT32;
+import static org.msgpack.core.MessagePack.Code.EXT8;
 import static org.msgpack.core.MessagePack.Code.FALSE;
+import static org.msgpack.core.MessagePack.Code.FIXEXT1;
+import static org.msgpack.core.MessagePack.Code.FIXEXT16;
+import static org.msgpack.core.MessagePack.Code.FIXEXT2;
+import static org.msgpack.core.MessagePack.Code.FIXEXT4;
+import static org.msgpack.core.MessagePack.Code.FIXEXT8;
 import static org.msgpack.core.MessagePack.Code.FIXARRAY_PREFIX;
 import static org.msgpack.core.MessagePack.Code.FIXMAP_PREFIX;
 import static org.msgpack.core.MessagePack.Code.FIXSTR_PREFIX;
@@ -173,6 +181,33 @@ public final class MsgpackWriteSink {
         }
     }
 
+    public LinkedBuffer packExtensionTypeHeader(byte extType, int payloadLen,
+                                                WriteSession session, LinkedBuffer lb) throws IOException {
+        if (payloadLen < (1 << 8)) {
+            if (payloadLen > 0 && (payloadLen & (payloadLen - 1)) == 0) { // check whether payloadLen == 2^x
+                if (payloadLen == 1) {
+                    return writeByteAndByte(FIXEXT1, extType, session, lb);
+                } else if (payloadLen == 2) {
+                    return writeByteAndByte(FIXEXT2, extType, session, lb);
+                } else if (payloadLen == 4) {
+                    return writeByteAndByte(FIXEXT4, extType, session, lb);
+                } else if (payloadLen == 8) {
+                    return writeByteAndByte(FIXEXT8, extType, session, lb);
+                } else if (payloadLen == 16) {
+                    return writeByteAndByte(FIXEXT16, extType, session, lb);
+                }
+            }
+            return sink.writeByte(extType, session,
+                    writeByteAndByte(EXT8, (byte) payloadLen, session, lb));
+        } else if (payloadLen < (1 << 16)) {
+            return sink.writeByte(extType, session,
+                    writeByteAndShort(EXT16, (short) payloadLen, session, lb));
+        } else {
+            return sink.writeByte(extType, session,
+                    writeByteAndInt(EXT32, payloadLen, session, lb));
+        }
+    }
+
     public LinkedBuffer packRawStringHeader(int len, WriteSession session, LinkedBuffer lb)
             throws IOException {
         if (len < (1 << 5)) {
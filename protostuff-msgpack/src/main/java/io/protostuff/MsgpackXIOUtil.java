@@ -16,6 +16,8 @@ package io.protostuff;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -210,4 +212,72 @@ public final class MsgpackXIOUtil
             output.clear();
         }
     }
+
+    /**
+     * Merges the {@code message} with the byte array via {@link MsgpackXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema, boolean numeric)
+            throws IOException
+    {
+        mergeFrom(data, 0, data.length, message, schema, numeric);
+    }
+
+    /**
+     * Merges the {@code message} with the byte array via {@link MsgpackXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema, boolean numeric) throws IOException
+    {
+        schema.mergeFrom(new MsgpackXInput(data, offset, length, numeric), message);
+    }
+
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} via {@link MsgpackXInput} using
+     * the given {@code schema}. The position of the buffer is not updated.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema, boolean numeric)
+            throws IOException
+    {
+        schema.mergeFrom(new MsgpackXInput(data, numeric), message);
+    }
+
+    /**
+     * Parses the {@code messages} (written back to back, e.g by {@link #writeListTo}) from the byte array using the
+     * given {@code schema}.
+     */
+    public static <T> List<T> parseListFrom(byte[] data, int offset, int length, Schema<T> schema,
+            boolean numeric) throws IOException
+    {
+        MsgpackXInput input = new MsgpackXInput(data, offset, length, numeric);
+
+        List<T> list = new ArrayList<T>();
+
+        while (input.hasNext())
+        {
+            T message = schema.newMessage();
+            schema.mergeFrom(input, message);
+
+            list.add(message);
+
+            input.reset();
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes msgpack-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget(final boolean numeric)
+    {
+        return new Transcoder.Target()
+        {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema)
+                    throws IOException
+            {
+                MsgpackXIOUtil.writeTo(buffer, pipe, pipeSchema, numeric);
+            }
+        };
+    }
 }
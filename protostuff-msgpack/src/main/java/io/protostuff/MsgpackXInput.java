@@ -0,0 +1,761 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A msgpack input that decodes the bytes directly (without a {@code MessageUnpacker}), to pair with
+ * {@link MsgpackXOutput}.
+ * <p>
+ * Field names are matched as raw utf8 bytes against the names cached per {@link Schema} (see {@link FieldNumberCache}),
+ * so no {@link String} is created for a known name. An instance can be {@link #reset(byte[], int, int) reset} and
+ * reused across messages.
+ * <p>
+ * The semantics follow {@link MsgpackInput}: a message is a map, and repeated fields are arrays. Entries whose name is
+ * not in the schema are skipped.
+ */
+public final class MsgpackXInput implements MsgpackExtInput
+{
+
+    private byte[] buffer;
+    private int offset, limit;
+
+    /**
+     * If true, the field number is used as the key of the entries.
+     */
+    public final boolean numeric;
+
+    /**
+     * How many entries left to parse, -1 if the map header was not read yet.
+     */
+    private int leftEntries = -1;
+
+    /**
+     * How many items left to parse in the current array.
+     */
+    private int leftItems;
+    private int lastNumber;
+
+    public MsgpackXInput(byte[] buffer, boolean numeric)
+    {
+        this(buffer, 0, buffer.length, numeric);
+    }
+
+    public MsgpackXInput(byte[] buffer, int offset, int length, boolean numeric)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.numeric = numeric;
+    }
+
+    /**
+     * Reads the remaining bytes of the {@link ByteBuffer} (copied if it has no backing array). The position of the
+     * buffer is not updated.
+     */
+    public MsgpackXInput(ByteBuffer buffer, boolean numeric)
+    {
+        this.numeric = numeric;
+        reset(buffer);
+    }
+
+    /**
+     * Resets this input to read another message from the same buffer.
+     */
+    public MsgpackXInput reset()
+    {
+        leftEntries = -1;
+        leftItems = 0;
+        lastNumber = 0;
+        return this;
+    }
+
+    /**
+     * Resets this input to read a message from the given range.
+     */
+    public MsgpackXInput reset(byte[] buffer, int offset, int length)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+        return reset();
+    }
+
+    /**
+     * Resets this input to read a message from the remaining bytes of the {@link ByteBuffer}.
+     */
+    public MsgpackXInput reset(ByteBuffer buffer)
+    {
+        if (buffer.hasArray())
+        {
+            return reset(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+        }
+
+        final byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return reset(copy, 0, copy.length);
+    }
+
+    /**
+     * Returns the offset of the next byte to read.
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Returns true if there are bytes left to read.
+     */
+    public boolean hasNext()
+    {
+        return offset < limit;
+    }
+
+    @Override
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        skipValue();
+    }
+
+    @Override
+    public <T> int readFieldNumber(Schema<T> schema) throws IOException
+    {
+        if (leftItems != 0)
+        {
+            leftItems--;
+            return lastNumber;
+        }
+
+        if (leftEntries == -1)
+        {
+            if (offset == limit)
+                return 0;
+
+            leftEntries = readMapHeader();
+        }
+
+        while (leftEntries != 0)
+        {
+            leftEntries--;
+
+            final int number;
+            if (numeric)
+            {
+                number = readInt();
+            }
+            else
+            {
+                final int len = readStringHeader();
+                final int start = offset;
+                offset += len;
+                number = FieldNumberCache.getFieldNumber(schema, buffer, start, len);
+            }
+
+            if (number == 0)
+            {
+                // unknown name
+                skipValue();
+                continue;
+            }
+
+            final int b = peek();
+            if ((b & 0xf0) == 0x90 || b == 0xdc || b == 0xdd)
+            {
+                final int items = readArrayHeader();
+                if (items == 0)
+                    continue;
+
+                leftItems = items - 1;
+                lastNumber = number;
+            }
+
+            return number;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public int readInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readUInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public long readInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readUInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        final int b = read();
+        switch (b)
+        {
+            case 0xca:
+                return Float.intBitsToFloat(readRawInt());
+            case 0xcb:
+                return (float) Double.longBitsToDouble(readRawLong());
+            default:
+                throw unexpected(b, "float");
+        }
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        final int b = read();
+        switch (b)
+        {
+            case 0xca:
+                return Float.intBitsToFloat(readRawInt());
+            case 0xcb:
+                return Double.longBitsToDouble(readRawLong());
+            default:
+                throw unexpected(b, "double");
+        }
+    }
+
+    @Override
+    public boolean readBool() throws IOException
+    {
+        final int b = read();
+        switch (b)
+        {
+            case 0xc2:
+                return false;
+            case 0xc3:
+                return true;
+            default:
+                throw unexpected(b, "boolean");
+        }
+    }
+
+    @Override
+    public int readEnum() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public String readString() throws IOException
+    {
+        final int len = readStringHeader();
+        final int start = offset;
+        offset += len;
+        return STRING.deser(buffer, start, len);
+    }
+
+    @Override
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+
+    @Override
+    public byte[] readByteArray() throws IOException
+    {
+        final int len = readBinaryHeader();
+        final byte[] value = new byte[len];
+        System.arraycopy(buffer, offset, value, 0, len);
+        offset += len;
+        return value;
+    }
+
+    @Override
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        return ByteBuffer.wrap(readByteArray());
+    }
+
+    @Override
+    public void readBytes(ByteBuffer bb) throws IOException
+    {
+        final int len = readBinaryHeader();
+        bb.put(buffer, offset, len);
+        offset += len;
+    }
+
+    @Override
+    public byte[] readExtension(byte type) throws IOException
+    {
+        final int len = readExtensionHeader(type);
+        final byte[] payload = new byte[len];
+        System.arraycopy(buffer, offset, payload, 0, len);
+        offset += len;
+        return payload;
+    }
+
+    @Override
+    public Timestamp readTimestamp() throws IOException
+    {
+        final int len = readExtensionHeader(MsgpackExtTypes.TIMESTAMP);
+        final Timestamp value = MsgpackExtTypes.decodeTimestamp(buffer, offset, len);
+        offset += len;
+        return value;
+    }
+
+    @Override
+    public Date readDate() throws IOException
+    {
+        final int len = readExtensionHeader(MsgpackExtTypes.TIMESTAMP);
+        final Date value = MsgpackExtTypes.decodeDate(buffer, offset, len);
+        offset += len;
+        return value;
+    }
+
+    @Override
+    public BigDecimal readDecimal() throws IOException
+    {
+        final int len = readExtensionHeader(MsgpackExtTypes.DECIMAL);
+        final BigDecimal value = MsgpackExtTypes.decodeDecimal(buffer, offset, len);
+        offset += len;
+        return value;
+    }
+
+    @Override
+    public UUID readUUID() throws IOException
+    {
+        final int len = readExtensionHeader(MsgpackExtTypes.UUID);
+        final UUID value = MsgpackExtTypes.decodeUUID(buffer, offset, len);
+        offset += len;
+        return value;
+    }
+
+    @Override
+    public <T> T mergeObject(T value, Schema<T> schema) throws IOException
+    {
+        if (value == null)
+            value = schema.newMessage();
+
+        // save state
+        final int leftEntries = this.leftEntries, leftItems = this.leftItems,
+                lastNumber = this.lastNumber;
+
+        this.leftEntries = readMapHeader();
+        this.leftItems = 0;
+        this.lastNumber = 0;
+
+        schema.mergeFrom(this, value);
+
+        // restore state
+        this.leftEntries = leftEntries;
+        this.leftItems = leftItems;
+        this.lastNumber = lastNumber;
+
+        return value;
+    }
+
+    @Override
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        final int len = utf8String ? readStringHeader() : readBinaryHeader();
+        output.writeByteRange(utf8String, fieldNumber, buffer, offset, len, repeated);
+        offset += len;
+    }
+
+    // ---------------------------------------------------------------- decoding
+
+    private int peek() throws IOException
+    {
+        if (offset == limit)
+            throw new MsgpackInputException("Truncated message");
+
+        return buffer[offset] & 0xff;
+    }
+
+    private int read() throws IOException
+    {
+        if (offset == limit)
+            throw new MsgpackInputException("Truncated message");
+
+        return buffer[offset++] & 0xff;
+    }
+
+    private void require(int len) throws IOException
+    {
+        if (len < 0 || limit - offset < len)
+            throw new MsgpackInputException("Truncated message");
+    }
+
+    private int readRawShort() throws IOException
+    {
+        require(2);
+        final byte[] buffer = this.buffer;
+        final int offset = this.offset;
+        this.offset += 2;
+        return (buffer[offset] & 0xff) << 8 | (buffer[offset + 1] & 0xff);
+    }
+
+    private int readRawInt() throws IOException
+    {
+        require(4);
+        final byte[] buffer = this.buffer;
+        final int offset = this.offset;
+        this.offset += 4;
+        return (buffer[offset] & 0xff) << 24
+                | (buffer[offset + 1] & 0xff) << 16
+                | (buffer[offset + 2] & 0xff) << 8
+                | (buffer[offset + 3] & 0xff);
+    }
+
+    private long readRawLong() throws IOException
+    {
+        final long high = readRawInt();
+        return high << 32 | (readRawInt() & 0xffffffffL);
+    }
+
+    private int readInt() throws IOException
+    {
+        final long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new MsgpackInputException("Integer overflow: " + value);
+
+        return (int) value;
+    }
+
+    private long readLong() throws IOException
+    {
+        final int b = read();
+        if (b < 0x80)
+            return b; // positive fixint
+
+        if (b >= 0xe0)
+            return (byte) b; // negative fixint
+
+        switch (b)
+        {
+            case 0xcc:
+                return read();
+            case 0xcd:
+                return readRawShort();
+            case 0xce:
+                return readRawInt() & 0xffffffffL;
+            case 0xcf:
+                // unsigned 64 (the bits of a negative long)
+                return readRawLong();
+            case 0xd0:
+                return (byte) read();
+            case 0xd1:
+                return (short) readRawShort();
+            case 0xd2:
+                return readRawInt();
+            case 0xd3:
+                return readRawLong();
+            default:
+                throw unexpected(b, "integer");
+        }
+    }
+
+    private int readMapHeader() throws IOException
+    {
+        final int b = read();
+        if ((b & 0xf0) == 0x80)
+            return b & 0x0f;
+
+        switch (b)
+        {
+            case 0xde:
+                return readRawShort();
+            case 0xdf:
+                return readLength(readRawInt());
+            default:
+                throw unexpected(b, "map");
+        }
+    }
+
+    private int readArrayHeader() throws IOException
+    {
+        final int b = read();
+        if ((b & 0xf0) == 0x90)
+            return b & 0x0f;
+
+        switch (b)
+        {
+            case 0xdc:
+                return readRawShort();
+            case 0xdd:
+                return readLength(readRawInt());
+            default:
+                throw unexpected(b, "array");
+        }
+    }
+
+    /**
+     * Reads the header of a str (or bin, like {@code MessageUnpacker}) and returns the length of the payload.
+     */
+    private int readStringHeader() throws IOException
+    {
+        final int b = read();
+        final int len;
+        if ((b & 0xe0) == 0xa0)
+        {
+            len = b & 0x1f;
+        }
+        else
+        {
+            switch (b)
+            {
+                case 0xd9:
+                case 0xc4:
+                    len = read();
+                    break;
+                case 0xda:
+                case 0xc5:
+                    len = readRawShort();
+                    break;
+                case 0xdb:
+                case 0xc6:
+                    len = readLength(readRawInt());
+                    break;
+                default:
+                    throw unexpected(b, "string");
+            }
+        }
+        require(len);
+        return len;
+    }
+
+    /**
+     * Reads the header of a bin (or str, like {@code MessageUnpacker}) and returns the length of the payload.
+     */
+    private int readBinaryHeader() throws IOException
+    {
+        return readStringHeader();
+    }
+
+    /**
+     * Reads the header of an ext of the given type and returns the length of the payload.
+     */
+    private int readExtensionHeader(byte type) throws IOException
+    {
+        final int b = read();
+        final int len;
+        switch (b)
+        {
+            case 0xd4:
+                len = 1;
+                break;
+            case 0xd5:
+                len = 2;
+                break;
+            case 0xd6:
+                len = 4;
+                break;
+            case 0xd7:
+                len = 8;
+                break;
+            case 0xd8:
+                len = 16;
+                break;
+            case 0xc7:
+                len = read();
+                break;
+            case 0xc8:
+                len = readRawShort();
+                break;
+            case 0xc9:
+                len = readLength(readRawInt());
+                break;
+            default:
+                throw unexpected(b, "extension");
+        }
+
+        final byte actual = (byte) read();
+        if (actual != type)
+        {
+            throw new MsgpackInputException("Expected extension type " + type + " but was " +
+                    actual);
+        }
+
+        require(len);
+        return len;
+    }
+
+    private static int readLength(int len) throws IOException
+    {
+        if (len < 0)
+            throw new MsgpackInputException("Length too large: " + (len & 0xffffffffL));
+
+        return len;
+    }
+
+    /**
+     * Skips the next value (including nested maps and arrays).
+     */
+    void skipValue() throws IOException
+    {
+        for (int count = 1; count != 0; count--)
+        {
+            final int b = read();
+            if (b < 0x80 || b >= 0xe0)
+                continue; // fixint
+
+            switch (b >> 4)
+            {
+                case 0x8:
+                    // fixmap
+                    count += 2 * (b & 0x0f);
+                    continue;
+                case 0x9:
+                    // fixarray
+                    count += b & 0x0f;
+                    continue;
+                case 0xa:
+                case 0xb:
+                    // fixstr
+                    skip(b & 0x1f);
+                    continue;
+                default:
+                    break;
+            }
+
+            switch (b)
+            {
+                case 0xc0: // nil
+                case 0xc2: // false
+                case 0xc3: // true
+                    break;
+                case 0xcc:
+                case 0xd0:
+                    skip(1);
+                    break;
+                case 0xcd:
+                case 0xd1:
+                    skip(2);
+                    break;
+                case 0xca:
+                case 0xce:
+                case 0xd2:
+                    skip(4);
+                    break;
+                case 0xcb:
+                case 0xcf:
+                case 0xd3:
+                    skip(8);
+                    break;
+                case 0xc4:
+                case 0xd9:
+                    skip(read());
+                    break;
+                case 0xc5:
+                case 0xda:
+                    skip(readRawShort());
+                    break;
+                case 0xc6:
+                case 0xdb:
+                    skip(readLength(readRawInt()));
+                    break;
+                case 0xd4: // fixext 1
+                    skip(2);
+                    break;
+                case 0xd5: // fixext 2
+                    skip(3);
+                    break;
+                case 0xd6: // fixext 4
+                    skip(5);
+                    break;
+                case 0xd7: // fixext 8
+                    skip(9);
+                    break;
+                case 0xd8: // fixext 16
+                    skip(17);
+                    break;
+                case 0xc7: // ext 8
+                    skip(read() + 1);
+                    break;
+                case 0xc8: // ext 16
+                    skip(readRawShort() + 1);
+                    break;
+                case 0xc9: // ext 32
+                    skip(readLength(readRawInt()) + 1);
+                    break;
+                case 0xdc:
+                    count += readRawShort();
+                    break;
+                case 0xdd:
+                    count += readLength(readRawInt());
+                    break;
+                case 0xde:
+                    count += 2 * readRawShort();
+                    break;
+                case 0xdf:
+                    count += 2 * readLength(readRawInt());
+                    break;
+                default:
+                    throw unexpected(b, "value");
+            }
+        }
+    }
+
+    private void skip(int len) throws IOException
+    {
+        require(len);
+        offset += len;
+    }
+
+    private MsgpackInputException unexpected(int b, String expected)
+    {
+        return new MsgpackInputException("Expected " + expected + " but was 0x" +
+                Integer.toHexString(b) + " at offset " + (offset - 1));
+    }
+
+}
@@ -15,7 +15,10 @@
 package io.protostuff;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
 
 /**
  * Custom eXtream IO output implementation that is 3x faster than MsgpackOutput
@@ -24,12 +27,18 @@ import java.nio.ByteBuffer;
  *
  */
 
-public class MsgpackXOutput extends WriteSession implements Output, StatefulOutput
+public class MsgpackXOutput extends WriteSession implements MsgpackExtOutput, StatefulOutput
 {
 
     public static final int MAX_MAPHEADER_SIZE = 5;
     public static final int MAX_ARRAYHEADER_SIZE = 5;
 
+    /**
+     * Heap {@link ByteBuffer}s of at least this size are referenced by the output (not copied), so their contents must
+     * not change until the output is written.
+     */
+    public static final int MIN_REFERENCED_BYTES = 1024;
+
     private Schema<?> schema;
     private final boolean numeric;
 
@@ -305,8 +314,77 @@ public class MsgpackXOutput extends WriteSession implements Output, StatefulOutp
     @Override
     public void writeBytes(int fieldNumber, ByteBuffer value, boolean repeated) throws IOException
     {
+        if (!value.hasArray())
+        {
+            final byte[] copy = new byte[value.remaining()];
+            value.duplicate().get(copy);
+            writeBytes(fieldNumber, copy, 0, copy.length, repeated, false);
+            return;
+        }
+
         writeBytes(fieldNumber, value.array(), value.arrayOffset() + value.position(),
-                value.remaining(), repeated, false);
+                value.remaining(), repeated, false, true);
+    }
+
+    @Override
+    public void writeExtension(int fieldNumber, byte type, byte[] payload, int offset, int length,
+            boolean repeated) throws IOException
+    {
+        if (lastNumber == fieldNumber && lastRepeated)
+        {
+            // repeated field
+            tail = packSink.packExtensionTypeHeader(type, length, this, tail);
+            tail = packSink.packBytes(payload, offset, length, this, tail);
+            arraySize++;
+            return;
+        }
+
+        if (lastRepeated)
+        {
+            writeEndArray();
+        }
+
+        writeFieldNumber(fieldNumber);
+
+        if (repeated)
+        {
+            writeStartArray();
+        }
+
+        tail = packSink.packExtensionTypeHeader(type, length, this, tail);
+        tail = packSink.packBytes(payload, offset, length, this, tail);
+
+        lastNumber = fieldNumber;
+        lastRepeated = repeated;
+    }
+
+    @Override
+    public void writeTimestamp(int fieldNumber, long seconds, int nanos, boolean repeated)
+            throws IOException
+    {
+        final byte[] payload = MsgpackExtTypes.encodeTimestamp(seconds, nanos);
+        writeExtension(fieldNumber, MsgpackExtTypes.TIMESTAMP, payload, 0, payload.length, repeated);
+    }
+
+    @Override
+    public void writeDate(int fieldNumber, Date value, boolean repeated) throws IOException
+    {
+        final byte[] payload = MsgpackExtTypes.encodeTimestamp(value);
+        writeExtension(fieldNumber, MsgpackExtTypes.TIMESTAMP, payload, 0, payload.length, repeated);
+    }
+
+    @Override
+    public void writeDecimal(int fieldNumber, BigDecimal value, boolean repeated) throws IOException
+    {
+        final byte[] payload = MsgpackExtTypes.encodeDecimal(value);
+        writeExtension(fieldNumber, MsgpackExtTypes.DECIMAL, payload, 0, payload.length, repeated);
+    }
+
+    @Override
+    public void writeUUID(int fieldNumber, UUID value, boolean repeated) throws IOException
+    {
+        final byte[] payload = MsgpackExtTypes.encodeUUID(value);
+        writeExtension(fieldNumber, MsgpackExtTypes.UUID, payload, 0, payload.length, repeated);
     }
 
     private void writeInt(int fieldNumber, int value, boolean repeated) throws IOException
@@ -495,12 +573,18 @@ public class MsgpackXOutput extends WriteSession implements Output, StatefulOutp
     private void writeBytes(int fieldNumber, byte[] src, int offset, int length, boolean repeated, boolean utf8)
             throws IOException
     {
+        writeBytes(fieldNumber, src, offset, length, repeated, utf8, false);
+    }
+
+    private void writeBytes(int fieldNumber, byte[] src, int offset, int length, boolean repeated, boolean utf8,
+            boolean reference) throws IOException
+    {
 
         if (lastNumber == fieldNumber && lastRepeated)
         {
             // repeated field
-            tail = packSink.packBinaryHeader(length, this, tail);
-            tail = packSink.packBytes(src, offset, length, this, tail);
+            tail = packBytesHeader(length, utf8);
+            tail = packBytes(src, offset, length, reference);
             arraySize++;
             return;
         }
@@ -517,14 +601,34 @@ public class MsgpackXOutput extends WriteSession implements Output, StatefulOutp
             writeStartArray();
         }
 
-        tail = packSink.packBinaryHeader(length, this, tail);
-        tail = packSink.packBytes(src, offset, length, this, tail);
+        tail = packBytesHeader(length, utf8);
+        tail = packBytes(src, offset, length, reference);
 
         lastNumber = fieldNumber;
         lastRepeated = repeated;
 
     }
 
+    /**
+     * A utf8 range (e.g a transferred string) is written as str, like {@link #writeString}.
+     */
+    private LinkedBuffer packBytesHeader(int length, boolean utf8) throws IOException
+    {
+        return utf8 ? packSink.packRawStringHeader(length, this, tail) :
+                packSink.packBinaryHeader(length, this, tail);
+    }
+
+    private LinkedBuffer packBytes(byte[] src, int offset, int length, boolean reference)
+            throws IOException
+    {
+        if (!reference || length < MIN_REFERENCED_BYTES || sink != WriteSink.BUFFERED)
+            return packSink.packBytes(src, offset, length, this, tail);
+
+        // zero-copy: the range is inserted as its own (read-only) node, and the next writes continue after it
+        size += length;
+        return new LinkedBuffer(tail, new LinkedBuffer(src, offset, offset + length, tail));
+    }
+
     private void writeFieldNumber(int fieldNumber) throws IOException
     {
         if (numeric)
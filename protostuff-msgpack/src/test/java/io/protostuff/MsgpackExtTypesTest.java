@@ -0,0 +1,239 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the msgpack {@link MsgpackExtTypes extension types}.
+ */
+public class MsgpackExtTypesTest
+{
+
+    static final class Event
+    {
+        Date created;
+        BigDecimal amount;
+        UUID id;
+        List<Timestamp> timestamps;
+        ByteBuffer data;
+    }
+
+    static final Schema<Event> SCHEMA = new Schema<Event>()
+    {
+        final String[] names = { null, "created", "amount", "id", "timestamps", "data" };
+
+        @Override
+        public String getFieldName(int number)
+        {
+            return number > 0 && number < names.length ? names[number] : null;
+        }
+
+        @Override
+        public int getFieldNumber(String name)
+        {
+            for (int i = 1; i < names.length; i++)
+            {
+                if (names[i].equals(name))
+                    return i;
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean isInitialized(Event message)
+        {
+            return true;
+        }
+
+        @Override
+        public Event newMessage()
+        {
+            return new Event();
+        }
+
+        @Override
+        public String messageName()
+        {
+            return "Event";
+        }
+
+        @Override
+        public String messageFullName()
+        {
+            return Event.class.getName();
+        }
+
+        @Override
+        public Class<? super Event> typeClass()
+        {
+            return Event.class;
+        }
+
+        @Override
+        public void mergeFrom(Input input, Event message) throws IOException
+        {
+            final MsgpackExtInput in = (MsgpackExtInput) input;
+            for (int number = input.readFieldNumber(this);; number = input.readFieldNumber(this))
+            {
+                switch (number)
+                {
+                    case 0:
+                        return;
+                    case 1:
+                        message.created = in.readDate();
+                        break;
+                    case 2:
+                        message.amount = in.readDecimal();
+                        break;
+                    case 3:
+                        message.id = in.readUUID();
+                        break;
+                    case 4:
+                        if (message.timestamps == null)
+                            message.timestamps = new ArrayList<Timestamp>();
+                        message.timestamps.add(in.readTimestamp());
+                        break;
+                    case 5:
+                        message.data = input.readByteBuffer();
+                        break;
+                    default:
+                        input.handleUnknownField(number, this);
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(Output output, Event message) throws IOException
+        {
+            final MsgpackExtOutput out = (MsgpackExtOutput) output;
+            if (message.created != null)
+                out.writeDate(1, message.created, false);
+            if (message.amount != null)
+                out.writeDecimal(2, message.amount, false);
+            if (message.id != null)
+                out.writeUUID(3, message.id, false);
+            if (message.timestamps != null)
+            {
+                for (Timestamp t : message.timestamps)
+                {
+                    // the whole seconds (floor)
+                    out.writeTimestamp(4, (t.getTime() - t.getNanos() / 1000000) / 1000,
+                            t.getNanos(), true);
+                }
+            }
+            if (message.data != null)
+                out.writeBytes(5, message.data, false);
+        }
+    };
+
+    static Timestamp timestamp(long seconds, int nanos)
+    {
+        final Timestamp t = new Timestamp(seconds * 1000);
+        t.setNanos(nanos);
+        return t;
+    }
+
+    static Event newEvent()
+    {
+        final Event event = new Event();
+        event.created = new Date(1500000000123L);
+        event.amount = new BigDecimal("-12345678901234567890.0042");
+        event.id = UUID.randomUUID();
+        event.timestamps = Arrays.asList(
+                timestamp(1500000000L, 0), // 32-bit
+                timestamp(1500000000L, 123456789), // 64-bit
+                timestamp(1L << 35, 1), // 96-bit
+                timestamp(-1L, 999999999)); // before the epoch
+        return event;
+    }
+
+    static void assertEquals(Event expected, Event actual)
+    {
+        Assert.assertEquals(expected.created, actual.created);
+        Assert.assertEquals(expected.amount, actual.amount);
+        Assert.assertEquals(expected.id, actual.id);
+        Assert.assertEquals(expected.timestamps, actual.timestamps);
+    }
+
+    @Test
+    public void roundTrip() throws Exception
+    {
+        final Event event = newEvent();
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final byte[] data = MsgpackIOUtil.toByteArray(event, SCHEMA, numeric);
+            final byte[] xdata = MsgpackXIOUtil.toByteArray(event, SCHEMA, numeric,
+                    LinkedBuffer.allocate());
+            Assert.assertTrue(Arrays.equals(data, xdata));
+
+            Event parsed = new Event();
+            MsgpackIOUtil.mergeFrom(data, parsed, SCHEMA, numeric);
+            assertEquals(event, parsed);
+
+            parsed = new Event();
+            MsgpackXIOUtil.mergeFrom(data, parsed, SCHEMA, numeric);
+            assertEquals(event, parsed);
+        }
+    }
+
+    @Test
+    public void timestampEncodings() throws Exception
+    {
+        Assert.assertEquals(4, MsgpackExtTypes.encodeTimestamp(1500000000L, 0).length);
+        Assert.assertEquals(8, MsgpackExtTypes.encodeTimestamp(1500000000L, 1).length);
+        Assert.assertEquals(12, MsgpackExtTypes.encodeTimestamp(-1L, 0).length);
+
+        final byte[] payload = MsgpackExtTypes.encodeTimestamp(new Date(-1L));
+        Assert.assertEquals(-1L, MsgpackExtTypes.getTimestampSeconds(payload, 0, payload.length));
+        Assert.assertEquals(999000000, MsgpackExtTypes.getTimestampNanos(payload, 0, payload.length));
+        Assert.assertEquals(new Date(-1L), MsgpackExtTypes.decodeDate(payload, 0, payload.length));
+    }
+
+    @Test(expected = MsgpackInputException.class)
+    public void wrongExtensionType() throws Exception
+    {
+        final byte[] data = MsgpackXIOUtil.toByteArray(newEvent(), SCHEMA, true,
+                LinkedBuffer.allocate());
+        final MsgpackXInput input = new MsgpackXInput(data, true);
+        Assert.assertEquals(1, input.readFieldNumber(SCHEMA));
+        input.readUUID();
+    }
+
+    @Test
+    public void largeByteBufferReferenced() throws Exception
+    {
+        final byte[] bytes = new byte[MsgpackXOutput.MIN_REFERENCED_BYTES * 4];
+        Arrays.fill(bytes, (byte) 7);
+
+        final Event event = new Event();
+        event.id = UUID.randomUUID();
+        event.data = ByteBuffer.wrap(bytes, 16, bytes.length - 32);
+
+        final MsgpackXOutput output = new MsgpackXOutput(LinkedBuffer.allocate(), false, SCHEMA);
+        final LinkedBuffer objectHeader = output.writeStartObject();
+        SCHEMA.writeTo(output, event);
+        output.writeEndObject(objectHeader);
+
+        // not copied, so the change is visible
+        bytes[16] = 9;
+        final byte[] data = output.toByteArray();
+        Assert.assertEquals(MsgpackIOUtil.toByteArray(event, SCHEMA, false).length, data.length);
+
+        final Event parsed = new Event();
+        MsgpackXIOUtil.mergeFrom(data, parsed, SCHEMA, false);
+        Assert.assertEquals(event.id, parsed.id);
+        Assert.assertEquals(event.data, parsed.data);
+        Assert.assertEquals(9, parsed.data.get(0));
+    }
+
+}
@@ -0,0 +1,43 @@
+package io.protostuff;
+
+import java.util.Arrays;
+
+/**
+ * Tests for the {@link Transcoder} from/to msgpack.
+ */
+public class MsgpackTranscoderTest extends AbstractTest
+{
+
+    public void testProtobufToMsgpack() throws Exception
+    {
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final Transcoder transcoder = new Transcoder(ProtobufIOUtil.transcoderSource(),
+                    MsgpackXIOUtil.transcoderTarget(numeric));
+
+            for (Foo foo : new Foo[] { SerializableObjects.foo, new Foo() })
+            {
+                final byte[] protobuf = ProtobufIOUtil.toByteArray(foo, foo, buf());
+                final byte[] msgpack = transcoder.transcode(protobuf, Foo.getPipeSchema());
+
+                // strings are transferred as str, not bin
+                assertTrue(Arrays.equals(MsgpackXIOUtil.toByteArray(foo, foo, numeric, buf()), msgpack));
+            }
+        }
+    }
+
+    public void testMsgpackToProtostuff() throws Exception
+    {
+        final Transcoder transcoder = new Transcoder(MsgpackIOUtil.transcoderSource(false),
+                ProtostuffIOUtil.transcoderTarget());
+
+        final Foo foo = SerializableObjects.foo;
+        final byte[] protostuff = transcoder.transcode(
+                MsgpackIOUtil.toByteArray(foo, foo, false), Foo.getPipeSchema());
+
+        final Foo parsed = new Foo();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, parsed);
+        assertEquals(foo, parsed);
+    }
+
+}
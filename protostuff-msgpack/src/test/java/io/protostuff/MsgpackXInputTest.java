@@ -0,0 +1,104 @@
+package io.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.protostuff.MsgpackUnknownFieldTest.TestMessage;
+import io.protostuff.MsgpackUnknownFieldTest.TestMessageExtended;
+
+/**
+ * Tests for {@link MsgpackXInput}.
+ */
+public class MsgpackXInputTest
+{
+
+    static final Schema<TestMessage> SCHEMA = MsgpackUnknownFieldTest.SCHEMA;
+    static final Schema<TestMessageExtended> EXTENDED_SCHEMA = MsgpackUnknownFieldTest.EXTENDED_SCHEMA;
+
+    static TestMessageExtended newMessage(int field1)
+    {
+        TestMessageExtended message = EXTENDED_SCHEMA.newMessage();
+        message.field1 = field1;
+        message.field2 = "value" + field1;
+        message.field3 = new byte[] { 1, 2, 3 };
+        return message;
+    }
+
+    @Test
+    public void reuse() throws Exception
+    {
+        final byte[] first = MsgpackIOUtil.toByteArray(newMessage(1), EXTENDED_SCHEMA, false);
+        final byte[] second = MsgpackXIOUtil.toByteArray(newMessage(2), EXTENDED_SCHEMA, false,
+                LinkedBuffer.allocate());
+
+        final MsgpackXInput input = new MsgpackXInput(first, false);
+        TestMessageExtended message = EXTENDED_SCHEMA.newMessage();
+        EXTENDED_SCHEMA.mergeFrom(input, message);
+        Assert.assertEquals(1, message.field1);
+        Assert.assertEquals("value1", message.field2);
+        Assert.assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, message.field3));
+
+        input.reset(second, 0, second.length);
+        message = EXTENDED_SCHEMA.newMessage();
+        EXTENDED_SCHEMA.mergeFrom(input, message);
+        Assert.assertEquals(2, message.field1);
+        Assert.assertEquals("value2", message.field2);
+    }
+
+    @Test
+    public void unknownFieldSkipped() throws Exception
+    {
+        for (boolean numeric : new boolean[] { false, true })
+        {
+            final byte[] data = MsgpackIOUtil.toByteArray(newMessage(42), EXTENDED_SCHEMA, numeric);
+
+            final TestMessage message = SCHEMA.newMessage();
+            MsgpackXIOUtil.mergeFrom(data, message, SCHEMA, numeric);
+            Assert.assertEquals(42, message.field1);
+            Assert.assertEquals("value42", message.field2);
+        }
+    }
+
+    @Test
+    public void directByteBuffer() throws Exception
+    {
+        final byte[] data = MsgpackIOUtil.toByteArray(newMessage(7), EXTENDED_SCHEMA, false);
+        final ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+        bb.put(data).flip();
+
+        final TestMessageExtended message = EXTENDED_SCHEMA.newMessage();
+        MsgpackXIOUtil.mergeFrom(bb, message, EXTENDED_SCHEMA, false);
+        Assert.assertEquals(7, message.field1);
+        Assert.assertEquals("value7", message.field2);
+        Assert.assertEquals(0, bb.position());
+    }
+
+    @Test
+    public void parseList() throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MsgpackXIOUtil.writeListTo(out, Arrays.asList(newMessage(1), newMessage(2), newMessage(3)),
+                EXTENDED_SCHEMA, false, LinkedBuffer.allocate());
+        final byte[] data = out.toByteArray();
+
+        final List<TestMessageExtended> list = MsgpackXIOUtil.parseListFrom(data, 0, data.length,
+                EXTENDED_SCHEMA, false);
+        Assert.assertEquals(3, list.size());
+        for (int i = 0; i < 3; i++)
+            Assert.assertEquals(i + 1, list.get(i).field1);
+    }
+
+    @Test(expected = MsgpackInputException.class)
+    public void truncated() throws Exception
+    {
+        final byte[] data = MsgpackIOUtil.toByteArray(newMessage(1), EXTENDED_SCHEMA, false);
+        MsgpackXIOUtil.mergeFrom(data, 0, data.length - 2, EXTENDED_SCHEMA.newMessage(),
+                EXTENDED_SCHEMA, false);
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * Msgpack standard tests for {@link MsgpackXInput} (numeric keys).
+ */
+public class MsgpackXNumericInputStandardTest extends StandardTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message, Schema<T> schema) throws IOException
+    {
+        MsgpackXIOUtil.mergeFrom(data, offset, length, message, schema, true);
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return MsgpackXIOUtil.toByteArray(message, schema, true, buf());
+    }
+
+}
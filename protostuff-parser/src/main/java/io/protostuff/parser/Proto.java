@@ -33,8 +33,9 @@ public class Proto extends AnnotationContainer implements HasOptions
     final File file;
     // if loaded form classpath.
     final URL url;
-    final Loader loader;
-    final Proto importer;
+    // only used while parsing (not part of a serialized proto)
+    final transient Loader loader;
+    final transient Proto importer;
     Mutable<String> packageName, javaPackageName;
     final LinkedHashMap<String, Proto> importedProtos = new LinkedHashMap<String, Proto>();
     final LinkedHashMap<String, Object> standardOptions = new LinkedHashMap<String, Object>();
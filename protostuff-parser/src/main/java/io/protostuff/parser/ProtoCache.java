@@ -0,0 +1,663 @@
+package io.protostuff.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import io.protostuff.GraphIOUtil;
+import io.protostuff.Input;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Output;
+import io.protostuff.Pipe;
+import io.protostuff.Schema;
+import io.protostuff.WireFormat.FieldType;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.Delegate;
+import io.protostuff.runtime.RuntimeSchema;
+
+/**
+ * A thread-safe cache of parsed protos, keyed by the canonical path of the proto file.
+ * <p>
+ * An entry is re-used for as long as the content of the proto and of its (transitive) imports did not change. The
+ * imports are loaded through the cache as well, so a proto imported by many others is parsed once. A proto requested
+ * by several threads at once is parsed only once, and the other threads wait for it.
+ * <p>
+ * When a directory is configured, the parsed protos are also serialized there (with protostuff), so that the next
+ * build can skip the parsing altogether. A proto restored from the directory has its own copies of its imports. The
+ * protos importing from the classpath are not written.
+ * <p>
+ * The protos returned by {@link #load(File)} are shared and must not be modified. The callers that modify them (e.g
+ * the compiler) use {@link #loadCopy(File)} instead, which restores a private copy from the serialized form without
+ * parsing the file again. The cache requires protostuff-core and protostuff-runtime on the classpath, which are
+ * optional dependencies of the parser.
+ */
+public final class ProtoCache
+{
+
+    /**
+     * The system property for the directory of the {@link #getDefaultInstance() default instance}.
+     */
+    public static final String CACHE_DIR_PROPERTY = "protostuff.parser.cache_dir";
+
+    static final String VERSION = "1:" + Proto.class.getPackage().getImplementationVersion();
+
+    static final DefaultIdStrategy STRATEGY = new DefaultIdStrategy();
+
+    static
+    {
+        STRATEGY.registerDelegate(new Delegate<File>()
+        {
+            @Override
+            public FieldType getFieldType()
+            {
+                return FieldType.STRING;
+            }
+
+            @Override
+            public File readFrom(Input input) throws IOException
+            {
+                return new File(input.readString());
+            }
+
+            @Override
+            public void writeTo(Output output, int number, File value, boolean repeated)
+                    throws IOException
+            {
+                output.writeString(number, value.getPath(), repeated);
+            }
+
+            @Override
+            public void transfer(Pipe pipe, Input input, Output output, int number,
+                    boolean repeated) throws IOException
+            {
+                input.transferByteRangeTo(output, true, number, repeated);
+            }
+
+            @Override
+            public Class<?> typeClass()
+            {
+                return File.class;
+            }
+        });
+        STRATEGY.registerDelegate(new Delegate<URL>()
+        {
+            @Override
+            public FieldType getFieldType()
+            {
+                return FieldType.STRING;
+            }
+
+            @Override
+            public URL readFrom(Input input) throws IOException
+            {
+                return new URL(input.readString());
+            }
+
+            @Override
+            public void writeTo(Output output, int number, URL value, boolean repeated)
+                    throws IOException
+            {
+                output.writeString(number, value.toExternalForm(), repeated);
+            }
+
+            @Override
+            public void transfer(Pipe pipe, Input input, Output output, int number,
+                    boolean repeated) throws IOException
+            {
+                input.transferByteRangeTo(output, true, number, repeated);
+            }
+
+            @Override
+            public Class<?> typeClass()
+            {
+                return URL.class;
+            }
+        });
+    }
+
+    static final Schema<Entry> ENTRY_SCHEMA = RuntimeSchema.createFrom(Entry.class, STRATEGY);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static volatile ProtoCache defaultInstance;
+
+    private static final ConcurrentHashMap<String, ProtoCache> INSTANCES =
+            new ConcurrentHashMap<String, ProtoCache>();
+
+    /**
+     * Returns the process-wide cache, which writes to the directory set by the system property
+     * {@value #CACHE_DIR_PROPERTY} (if any).
+     */
+    public static ProtoCache getDefaultInstance()
+    {
+        ProtoCache cache = defaultInstance;
+        if (cache == null)
+        {
+            synchronized (ProtoCache.class)
+            {
+                cache = defaultInstance;
+                if (cache == null)
+                {
+                    String dir = System.getProperty(CACHE_DIR_PROPERTY);
+                    defaultInstance = cache = dir == null || dir.length() == 0 ?
+                            new ProtoCache() : getInstance(new File(dir));
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the process-wide cache that writes to the given directory, so that the builds running in the same
+     * process (e.g the modules of a multi-module build) also share the protos in memory.
+     */
+    public static ProtoCache getInstance(File dir)
+    {
+        final String path = dir.getAbsolutePath();
+        ProtoCache cache = INSTANCES.get(path);
+        if (cache == null)
+        {
+            final ProtoCache existing = INSTANCES.putIfAbsent(path,
+                    cache = new ProtoCache(new File(path)));
+            if (existing != null)
+                cache = existing;
+        }
+        return cache;
+    }
+
+    /**
+     * The directory where the parsed protos are written, or null.
+     */
+    public final File dir;
+
+    final int protoSearchStrategy;
+
+    private final ConcurrentHashMap<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+
+    private final ConcurrentHashMap<String, Task> pending =
+            new ConcurrentHashMap<String, Task>();
+
+    private final ConcurrentHashMap<String, Proto> resources =
+            new ConcurrentHashMap<String, Proto>();
+
+    private final ConcurrentHashMap<String, FileState> states =
+            new ConcurrentHashMap<String, FileState>();
+
+    public ProtoCache()
+    {
+        this(null);
+    }
+
+    public ProtoCache(File dir)
+    {
+        this(dir, DefaultProtoLoader.DEFAULT_PROTO_SEARCH_STRATEGY);
+    }
+
+    public ProtoCache(File dir, int protoSearchStrategy)
+    {
+        this.dir = dir;
+        this.protoSearchStrategy = protoSearchStrategy;
+    }
+
+    /**
+     * Returns the parsed proto of the file, parsing it only if it (or one of its imports) changed since it was last
+     * loaded.
+     */
+    public Proto load(File file) throws Exception
+    {
+        return entryFor(file).proto;
+    }
+
+    /**
+     * Returns a copy of the parsed proto of the file (with its own copies of its imports), which the caller is free
+     * to modify. The copy is restored from the serialized form of the cached proto, so the file is not parsed again.
+     */
+    public Proto loadCopy(File file) throws Exception
+    {
+        final Entry entry = entryFor(file);
+        byte[] data = entry.data;
+        if (data == null)
+            entry.data = data = toByteArray(entry);
+
+        return parseEntry(data).proto;
+    }
+
+    /**
+     * Removes all the entries (but not the files written to the {@link #dir}).
+     */
+    public void clear()
+    {
+        entries.clear();
+        resources.clear();
+        states.clear();
+    }
+
+    Entry entryFor(File file) throws Exception
+    {
+        final String path = file.getCanonicalPath();
+        final Entry entry = entries.get(path);
+        if (entry != null && isUpToDate(entry))
+            return entry;
+
+        final Task task = new Task(new Callable<Entry>()
+        {
+            @Override
+            public Entry call() throws Exception
+            {
+                return resolve(path);
+            }
+        });
+        Task existing = pending.putIfAbsent(path, task);
+        if (existing == null)
+        {
+            // the entry may have been updated just before
+            final Entry current = entries.get(path);
+            if (current != null && current != entry && isUpToDate(current))
+            {
+                pending.remove(path, task);
+                return current;
+            }
+
+            task.run();
+            existing = task;
+        }
+        else if (existing.owner == Thread.currentThread())
+            throw new IllegalStateException("Circular import: " + path);
+
+        try
+        {
+            final Entry resolved = existing.get();
+            if (existing == task)
+            {
+                entries.put(path, resolved);
+                pending.remove(path);
+            }
+            return resolved;
+        }
+        catch (ExecutionException e)
+        {
+            // let the next call try again
+            pending.remove(path, existing);
+
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+
+            throw (Error) cause;
+        }
+    }
+
+    Entry resolve(String path) throws Exception
+    {
+        final File file = new File(path);
+        final long lastModified = file.lastModified(), length = file.length();
+        final byte[] content = readFrom(new FileInputStream(file));
+        final String hash = hash(content);
+        states.put(path, new FileState(lastModified, length, hash));
+
+        final File cacheFile = dir == null ? null : new File(dir, hash(path.getBytes("UTF-8")) +
+                ".ast");
+        if (cacheFile != null && cacheFile.exists())
+        {
+            final Entry entry = readEntry(cacheFile);
+            if (entry != null && path.equals(entry.files[0]) && hash.equals(entry.hashes[0]) &&
+                    isUpToDate(entry))
+            {
+                return entry;
+            }
+        }
+
+        final ImportLoader loader = new ImportLoader(protoSearchStrategy);
+        final Proto proto = new Proto(file, loader, null);
+        ProtoUtil.loadFrom(new ByteArrayInputStream(content), proto);
+
+        // the proto and its transitive imports
+        final LinkedHashMap<String, String> files = new LinkedHashMap<String, String>();
+        files.put(path, hash);
+        boolean resourceImports = loader.resourceImports;
+        for (Entry e : loader.imports)
+        {
+            for (int i = 0; i < e.files.length; i++)
+                files.put(e.files[i], e.hashes[i]);
+
+            resourceImports |= e.resourceImports;
+        }
+
+        final Entry entry = new Entry(proto, files.keySet().toArray(new String[files.size()]),
+                files.values().toArray(new String[files.size()]), resourceImports);
+
+        if (cacheFile != null && !resourceImports)
+            writeEntry(entry.data = toByteArray(entry), cacheFile);
+
+        return entry;
+    }
+
+    boolean isUpToDate(Entry entry) throws IOException
+    {
+        for (int i = 0; i < entry.files.length; i++)
+        {
+            if (!entry.hashes[i].equals(currentHash(entry.files[i])))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the content hash of the file, which is only re-computed when the file was touched.
+     */
+    String currentHash(String path) throws IOException
+    {
+        final File file = new File(path);
+        final long lastModified = file.lastModified(), length = file.length();
+        final FileState state = states.get(path);
+        if (state != null && state.lastModified == lastModified && state.length == length)
+            return state.hash;
+
+        if (!file.exists())
+            return null;
+
+        final String hash = hash(readFrom(new FileInputStream(file)));
+        states.put(path, new FileState(lastModified, length, hash));
+        return hash;
+    }
+
+    static Entry readEntry(File file)
+    {
+        try
+        {
+            final Entry entry = parseEntry(readFrom(new FileInputStream(file)));
+            if (!VERSION.equals(entry.version) || entry.proto == null || entry.files == null ||
+                    entry.hashes == null || entry.files.length != entry.hashes.length)
+            {
+                return null;
+            }
+
+            return entry;
+        }
+        catch (Exception e)
+        {
+            // written by an incompatible version or corrupt; simply parse again
+            return null;
+        }
+    }
+
+    static byte[] toByteArray(Entry entry)
+    {
+        return GraphIOUtil.toByteArray(entry, ENTRY_SCHEMA, LinkedBuffer.allocate(4096));
+    }
+
+    static Entry parseEntry(byte[] data) throws IOException, IllegalAccessException
+    {
+        final Entry entry = ENTRY_SCHEMA.newMessage();
+        GraphIOUtil.mergeFrom(data, entry, ENTRY_SCHEMA);
+        initEmptyCollections(entry.proto, new IdentityHashMap<Object, Object>());
+        entry.data = data;
+        return entry;
+    }
+
+    static void writeEntry(byte[] data, File file)
+    {
+        try
+        {
+            final File parent = file.getParentFile();
+            if (!parent.exists())
+                parent.mkdirs();
+
+            // written to a temp file first, so that other builds never read a partial file
+            final File temp = File.createTempFile(file.getName(), ".tmp", parent);
+            final FileOutputStream out = new FileOutputStream(temp);
+            try
+            {
+                out.write(data);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            if (!temp.renameTo(file))
+            {
+                file.delete();
+                if (!temp.renameTo(file))
+                    temp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            // the cache is optional
+        }
+    }
+
+    /**
+     * Empty collections are not serialized, and the classes without a no-arg constructor are instantiated without
+     * running their field initializers. This restores the (final) collections that came back null.
+     */
+    static void initEmptyCollections(Object value, IdentityHashMap<Object, Object> visited)
+            throws IllegalAccessException
+    {
+        if (value == null || visited.put(value, value) != null)
+            return;
+
+        if (value instanceof Map)
+        {
+            for (Object v : ((Map<?, ?>) value).values())
+                initEmptyCollections(v, visited);
+            return;
+        }
+
+        if (value instanceof Collection)
+        {
+            for (Object v : (Collection<?>) value)
+                initEmptyCollections(v, visited);
+            return;
+        }
+
+        if (value instanceof Enum)
+            return;
+
+        for (Class<?> c = value.getClass(); c != null &&
+                c.getPackage() == ProtoCache.class.getPackage(); c = c.getSuperclass())
+        {
+            for (java.lang.reflect.Field f : c.getDeclaredFields())
+            {
+                final int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) ||
+                        f.getType().isPrimitive())
+                {
+                    continue;
+                }
+
+                f.setAccessible(true);
+                Object v = f.get(value);
+                if (v == null && Modifier.isFinal(mod))
+                {
+                    v = newCollection(f.getType());
+                    if (v != null)
+                        f.set(value, v);
+                }
+                else
+                    initEmptyCollections(v, visited);
+            }
+        }
+    }
+
+    static Object newCollection(Class<?> type)
+    {
+        if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type))
+            return null;
+
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers()))
+        {
+            try
+            {
+                return type.newInstance();
+            }
+            catch (Exception e)
+            {
+                // fall through
+            }
+        }
+
+        if (Map.class.isAssignableFrom(type))
+            return new LinkedHashMap<Object, Object>();
+
+        if (Set.class.isAssignableFrom(type))
+            return new LinkedHashSet<Object>();
+
+        return new ArrayList<Object>();
+    }
+
+    static String hash(byte[] content)
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        final byte[] bytes = digest.digest(content);
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    static byte[] readFrom(InputStream in) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int read; (read = in.read(buf)) != -1;)
+                out.write(buf, 0, read);
+
+            return out.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Loads the imports of a proto being parsed through the cache.
+     */
+    final class ImportLoader extends DefaultProtoLoader
+    {
+        final List<Entry> imports = new ArrayList<Entry>();
+        boolean resourceImports;
+
+        ImportLoader(int protoSearchStrategy)
+        {
+            super(protoSearchStrategy);
+        }
+
+        @Override
+        protected Proto loadFrom(File file, Proto importer) throws Exception
+        {
+            final Entry entry = entryFor(file);
+            imports.add(entry);
+            return entry.proto;
+        }
+
+        @Override
+        protected Proto loadFrom(URL resource, Proto importer) throws Exception
+        {
+            resourceImports = true;
+
+            // classpath resources do not change
+            final String key = resource.toExternalForm();
+            Proto proto = resources.get(key);
+            if (proto == null)
+            {
+                proto = super.loadFrom(resource, null);
+                final Proto existing = resources.putIfAbsent(key, proto);
+                if (existing != null)
+                    proto = existing;
+            }
+            return proto;
+        }
+    }
+
+    /**
+     * A parsed proto along with the content hashes of its file and of the files it imports.
+     */
+    static final class Entry
+    {
+        String version;
+        // canonical paths, starting with the proto itself
+        String[] files;
+        String[] hashes;
+        Proto proto;
+        transient boolean resourceImports;
+        // the serialized form, from which the copies are restored
+        transient volatile byte[] data;
+
+        Entry()
+        {
+
+        }
+
+        Entry(Proto proto, String[] files, String[] hashes, boolean resourceImports)
+        {
+            this.version = VERSION;
+            this.proto = proto;
+            this.files = files;
+            this.hashes = hashes;
+            this.resourceImports = resourceImports;
+        }
+    }
+
+    static final class FileState
+    {
+        final long lastModified, length;
+        final String hash;
+
+        FileState(long lastModified, long length, String hash)
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    static final class Task extends FutureTask<Entry>
+    {
+        final Thread owner = Thread.currentThread();
+
+        Task(Callable<Entry> callable)
+        {
+            super(callable);
+        }
+    }
+
+}
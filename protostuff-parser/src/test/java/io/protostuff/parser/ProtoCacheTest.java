@@ -0,0 +1,220 @@
+package io.protostuff.parser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ProtoCache}.
+ */
+public class ProtoCacheTest extends TestCase
+{
+
+    File dir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("proto_cache", "");
+        dir.delete();
+        dir.mkdirs();
+
+        write(new File(dir, "proto/common.proto"), "package common;\n" +
+                "enum Currency { USD = 1; EUR = 2; }\n" +
+                "message Money { optional int64 units = 1; optional Currency currency = 2; }\n");
+
+        for (int i = 0; i < 4; i++)
+        {
+            write(new File(dir, "proto/m" + i + ".proto"), "package m" + i + ";\n" +
+                    "import \"common.proto\";\n" +
+                    "message Foo { optional common.Money price = 1; repeated string tags = 2; }\n");
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        delete(dir);
+    }
+
+    public void testSharedImports() throws Exception
+    {
+        final ProtoCache cache = new ProtoCache();
+        final Proto common = cache.load(new File(dir, "proto/common.proto"));
+
+        for (int i = 0; i < 4; i++)
+        {
+            Proto proto = cache.load(new File(dir, "proto/m" + i + ".proto"));
+            assertSame(common, proto.getImportedProtos().iterator().next());
+            assertSame(common.getMessage("Money"), proto.getMessage("Foo").getField("price",
+                    MessageField.class).getMessage());
+        }
+    }
+
+    public void testChanged() throws Exception
+    {
+        final ProtoCache cache = new ProtoCache();
+        final File m0 = new File(dir, "proto/m0.proto");
+        final Proto proto = cache.load(m0);
+        assertSame(proto, cache.load(new File(dir, "proto/../proto/m0.proto")));
+
+        // an import changed
+        write(new File(dir, "proto/common.proto"), "package common;\n" +
+                "message Money { optional int64 units = 1; optional int32 nanos = 2; }\n");
+
+        final Proto changed = cache.load(m0);
+        assertNotSame(proto, changed);
+        assertNotNull(changed.getImportedProtos().iterator().next().getMessage("Money")
+                .getField("nanos"));
+        assertSame(changed, cache.load(m0));
+    }
+
+    public void testLoadCopy() throws Exception
+    {
+        final ProtoCache cache = new ProtoCache();
+        final File m0 = new File(dir, "proto/m0.proto");
+        final Proto shared = cache.load(m0);
+        final Proto copy = cache.loadCopy(m0);
+        assertNotSame(shared, copy);
+        assertNotSame(shared.getImportedProtos().iterator().next(),
+                copy.getImportedProtos().iterator().next());
+        assertEquals(shared.getFile(), copy.getFile());
+
+        final Message foo = copy.getMessage("Foo");
+        assertEquals(2, foo.getFields().size());
+        assertEquals("common.Money", foo.getField("price", MessageField.class).getMessage()
+                .getFullName());
+
+        // the copies are independent
+        foo.setByteBufferFieldPresent(true);
+        copy.getMutablePackageName().override("other");
+        assertFalse(cache.loadCopy(m0).getMessage("Foo").isByteBufferFieldPresent());
+        assertEquals("m0", cache.loadCopy(m0).getPackageName());
+        assertFalse(shared.getMessage("Foo").isByteBufferFieldPresent());
+        assertEquals("m0", shared.getPackageName());
+    }
+
+    public void testConcurrentLoad() throws Exception
+    {
+        final ProtoCache cache = new ProtoCache();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            ArrayList<Future<Proto>> futures = new ArrayList<Future<Proto>>();
+            for (int i = 0; i < 32; i++)
+            {
+                final File file = new File(dir, "proto/m" + (i % 4) + ".proto");
+                futures.add(executor.submit(new Callable<Proto>()
+                {
+                    @Override
+                    public Proto call() throws Exception
+                    {
+                        return cache.load(file);
+                    }
+                }));
+            }
+
+            final Proto common = cache.load(new File(dir, "proto/common.proto"));
+            for (int i = 0; i < futures.size(); i++)
+            {
+                Proto proto = futures.get(i).get();
+                assertSame(futures.get(i % 4).get(), proto);
+                assertSame(common, proto.getImportedProtos().iterator().next());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testDiskCache() throws Exception
+    {
+        final File cacheDir = new File(dir, "cache");
+        final File m1 = new File(dir, "proto/m1.proto");
+        final Proto parsed = new ProtoCache(cacheDir).load(m1);
+
+        final File[] files = cacheDir.listFiles();
+        // m1 and common
+        assertEquals(2, files.length);
+        for (File f : files)
+            assertNotNull(ProtoCache.readEntry(f));
+
+        final Proto restored = new ProtoCache(cacheDir).load(m1);
+        assertNotSame(parsed, restored);
+        assertEquals(parsed.getFile(), restored.getFile());
+        assertEquals("m1", restored.getPackageName());
+
+        final Message foo = restored.getMessage("Foo");
+        assertEquals(2, foo.getFields().size());
+        assertTrue(foo.getField("tags").isRepeated());
+        assertTrue(foo.getNestedMessages().isEmpty());
+
+        final Message money = foo.getField("price", MessageField.class).getMessage();
+        assertSame(restored.getImportedProtos().iterator().next(), money.getProto());
+        assertEquals("common.Money", money.getFullName());
+        assertEquals("Currency", money.getField("currency", EnumField.class).getEnumGroup()
+                .getName());
+
+        // an import changed
+        write(new File(dir, "proto/common.proto"), "package common;\n" +
+                "message Money { optional int64 units = 1; }\n");
+        final Proto changed = new ProtoCache(cacheDir).load(m1);
+        assertNull(changed.getImportedProtos().iterator().next().getMessage("Money")
+                .getField("currency"));
+    }
+
+    public void testCircularImport() throws Exception
+    {
+        write(new File(dir, "proto/a.proto"), "package a;\nimport \"b.proto\";\n" +
+                "message A { optional int32 id = 1; }\n");
+        write(new File(dir, "proto/b.proto"), "package b;\nimport \"a.proto\";\n" +
+                "message B { optional int32 id = 1; }\n");
+
+        try
+        {
+            new ProtoCache().load(new File(dir, "proto/a.proto"));
+            fail("Expected circular import");
+        }
+        catch (RuntimeException e)
+        {
+            Throwable cause = e;
+            while (cause.getCause() != null)
+                cause = cause.getCause();
+
+            assertTrue(cause instanceof IllegalStateException);
+        }
+    }
+
+    static void write(File file, String content) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+                delete(f);
+        }
+        file.delete();
+    }
+}
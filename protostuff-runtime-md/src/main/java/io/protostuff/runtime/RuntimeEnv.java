@@ -117,6 +117,24 @@ public final class RuntimeEnv
      */
     public static final boolean POJO_SCHEMA_ON_MAP_FIELDS;
     
+    /**
+     * Disabled by default. If enabled, {@link java.util.EnumSet} fields are written as a bitset indexed by ordinal (a
+     * single fixed64 for enums with at most 64 constants) and the keys of {@link java.util.EnumMap} fields are written
+     * as their ordinal.
+     * <p>
+     * Since the ordinals are on the wire, reordering the enum constants is not backward compatible when this is enabled.
+     */
+    public static final boolean COMPACT_ENUM_SET_AND_MAP;
+
+    /**
+     * Disabled by default. Registers the {@link BuiltinDelegates#getDefaults() builtin delegates} (uuid and java.time
+     * types) on every {@link DefaultIdStrategy}, so those types are written compactly instead of as pojos.
+     * <p>
+     * This changes the wire format of those types, so only enable it if you have no persisted data where they were
+     * serialized as pojos.
+     */
+    public static final boolean BUILTIN_DELEGATES;
+    
     /**
      * If true, sun.misc.Unsafe is used to access the fields of the objects instead of plain java reflections. Enabled
      * by default if running on a sun jre.
@@ -211,6 +229,14 @@ public final class RuntimeEnv
                 "protostuff.runtime.pojo_schema_on_map_fields",
                 "false"));
 
+        COMPACT_ENUM_SET_AND_MAP = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.compact_enum_set_and_map",
+                "false"));
+
+        BUILTIN_DELEGATES = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.builtin_delegates",
+                "false"));
+
         // must be on a sun jre
         USE_SUN_MISC_UNSAFE = OBJECT_CONSTRUCTOR != null
                 && Boolean.parseBoolean(props.getProperty(
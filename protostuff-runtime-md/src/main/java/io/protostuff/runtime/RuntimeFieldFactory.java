@@ -250,6 +250,10 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
         if (Message.class.isAssignableFrom(clazz))
             return POJO;
 
+        // compared by name since protostuff-core is optional
+        if (RuntimeLazyFieldFactory.LAZY_CLASS_NAME.equals(clazz.getName()))
+            return RuntimeLazyFieldFactory.getFactory();
+
         if (clazz.isEnum())
             return ENUM;
 
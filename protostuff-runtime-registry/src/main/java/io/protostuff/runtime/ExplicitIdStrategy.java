@@ -30,7 +30,6 @@ package io.protostuff.runtime;
 
 import java.io.IOException;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
@@ -94,30 +93,31 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             IdentityHashMap<Class<?>, RegisteredCollectionFactory> collectionMapping =
                     newMap(initialCollectionSize);
 
-            ArrayList<RegisteredCollectionFactory> collections =
-                    newList(initialCollectionSize + 1);
+            IdTable<RegisteredCollectionFactory> collections =
+                    new IdTable<RegisteredCollectionFactory>(initialCollectionSize + 1);
 
             IdentityHashMap<Class<?>, RegisteredMapFactory> mapMapping =
                     new IdentityHashMap<Class<?>, RegisteredMapFactory>(
                             initialMapSize);
 
-            ArrayList<RegisteredMapFactory> maps = newList(initialMapSize);
+            IdTable<RegisteredMapFactory> maps = new IdTable<RegisteredMapFactory>(initialMapSize);
 
             IdentityHashMap<Class<?>, RegisteredEnumIO> enumMapping =
                     newMap(initialEnumSize);
 
-            ArrayList<RegisteredEnumIO> enums =
-                    newList(initialEnumSize + 1);
+            IdTable<RegisteredEnumIO> enums =
+                    new IdTable<RegisteredEnumIO>(initialEnumSize + 1);
 
             IdentityHashMap<Class<?>, BaseHS<?>> pojoMapping =
                     newMap(initialPojoSize);
 
-            ArrayList<BaseHS<?>> pojos = newList(initialPojoSize + 1);
+            IdTable<BaseHS<?>> pojos = new IdTable<BaseHS<?>>(initialPojoSize + 1);
 
             IdentityHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping =
                     newMap(initialDelegateSize);
 
-            ArrayList<RegisteredDelegate<?>> delegates = newList(initialDelegateSize + 1);
+            IdTable<RegisteredDelegate<?>> delegates =
+                    new IdTable<RegisteredDelegate<?>>(initialDelegateSize + 1);
 
             strategy = new ExplicitIdStrategy(
                     flags, 
@@ -139,9 +139,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("collection ids start at 1.");
 
-            if (id >= strategy.collections.size())
-                grow(strategy.collections, id + 1);
-            else if (strategy.collections.get(id) != null)
+            if (strategy.collections.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + factory.typeClass() + ")");
@@ -166,9 +164,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("map ids start at 1.");
 
-            if (id >= strategy.maps.size())
-                grow(strategy.maps, id + 1);
-            else if (strategy.maps.get(id) != null)
+            if (strategy.maps.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + factory.typeClass() + ")");
@@ -192,9 +188,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("enum ids start at 1.");
 
-            if (id >= strategy.enums.size())
-                grow(strategy.enums, id + 1);
-            else if (strategy.enums.get(id) != null)
+            if (strategy.enums.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + clazz.getName() + ")");
@@ -220,9 +214,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("enum ids start at 1.");
 
-            if (id >= strategy.enums.size())
-                grow(strategy.enums, id + 1);
-            else if (strategy.enums.get(id) != null)
+            if (strategy.enums.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + eio.enumClass.getName() + ")");
@@ -250,9 +242,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("pojo ids start at 1.");
 
-            if (id >= strategy.pojos.size())
-                grow(strategy.pojos, id + 1);
-            else if (strategy.pojos.get(id) != null)
+            if (strategy.pojos.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + clazz.getName() + ")");
@@ -276,9 +266,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
         public <T> Registry registerPojo(Schema<T> schema, Pipe.Schema<T> pipeSchema,
                 int id)
         {
-            if (id >= strategy.pojos.size())
-                grow(strategy.pojos, id + 1);
-            else if (strategy.pojos.get(id) != null)
+            if (strategy.pojos.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + schema.typeClass().getName() + ")");
@@ -329,9 +317,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("delegate ids start at 1.");
 
-            if (id >= strategy.delegates.size())
-                grow(strategy.delegates, id + 1);
-            else if (strategy.delegates.get(id) != null)
+            if (strategy.delegates.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + delegate.typeClass() + ")");
@@ -349,35 +335,35 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
 
     final IdentityHashMap<Class<?>, RegisteredCollectionFactory> collectionMapping;
 
-    final ArrayList<RegisteredCollectionFactory> collections;
+    final IdTable<RegisteredCollectionFactory> collections;
 
     final IdentityHashMap<Class<?>, RegisteredMapFactory> mapMapping;
 
-    final ArrayList<RegisteredMapFactory> maps;
+    final IdTable<RegisteredMapFactory> maps;
 
     final IdentityHashMap<Class<?>, RegisteredEnumIO> enumMapping;
 
-    final ArrayList<RegisteredEnumIO> enums;
+    final IdTable<RegisteredEnumIO> enums;
 
     final IdentityHashMap<Class<?>, BaseHS<?>> pojoMapping;
 
-    final ArrayList<BaseHS<?>> pojos;
+    final IdTable<BaseHS<?>> pojos;
 
     final IdentityHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping;
 
-    final ArrayList<RegisteredDelegate<?>> delegates;
+    final IdTable<RegisteredDelegate<?>> delegates;
 
     public ExplicitIdStrategy(
             IdentityHashMap<Class<?>, RegisteredCollectionFactory> collectionMapping,
-            ArrayList<RegisteredCollectionFactory> collections,
+            IdTable<RegisteredCollectionFactory> collections,
             IdentityHashMap<Class<?>, RegisteredMapFactory> mapMapping,
-            ArrayList<RegisteredMapFactory> maps,
+            IdTable<RegisteredMapFactory> maps,
             IdentityHashMap<Class<?>, RegisteredEnumIO> enumMapping,
-            ArrayList<RegisteredEnumIO> enums,
+            IdTable<RegisteredEnumIO> enums,
             IdentityHashMap<Class<?>, BaseHS<?>> pojoMapping,
-            ArrayList<BaseHS<?>> pojos,
+            IdTable<BaseHS<?>> pojos,
             IdentityHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping,
-            ArrayList<RegisteredDelegate<?>> delegates)
+            IdTable<RegisteredDelegate<?>> delegates)
     {
         this(DEFAULT_FLAGS, null, 0,
                 collectionMapping,
@@ -395,15 +381,15 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     public ExplicitIdStrategy(final int flags,
             IdStrategy primaryGroup, int groupId,
             IdentityHashMap<Class<?>, RegisteredCollectionFactory> collectionMapping,
-            ArrayList<RegisteredCollectionFactory> collections,
+            IdTable<RegisteredCollectionFactory> collections,
             IdentityHashMap<Class<?>, RegisteredMapFactory> mapMapping,
-            ArrayList<RegisteredMapFactory> maps,
+            IdTable<RegisteredMapFactory> maps,
             IdentityHashMap<Class<?>, RegisteredEnumIO> enumMapping,
-            ArrayList<RegisteredEnumIO> enums,
+            IdTable<RegisteredEnumIO> enums,
             IdentityHashMap<Class<?>, BaseHS<?>> pojoMapping,
-            ArrayList<BaseHS<?>> pojos,
+            IdTable<BaseHS<?>> pojos,
             IdentityHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping,
-            ArrayList<RegisteredDelegate<?>> delegates)
+            IdTable<RegisteredDelegate<?>> delegates)
     {
         super(flags, primaryGroup, groupId);
 
@@ -500,8 +486,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final CollectionSchema.MessageFactory factory = id < collections.size() ?
-                collections.get(id) : null;
+        final CollectionSchema.MessageFactory factory = collections.get(id);
         if (factory == null)
             throw new UnknownTypeException("collection id: " + id + " (Outdated registry)");
 
@@ -532,7 +517,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final MapSchema.MessageFactory factory = id < maps.size() ? maps.get(id) : null;
+        final MapSchema.MessageFactory factory = maps.get(id);
         if (factory == null)
             throw new UnknownTypeException("map id: " + id + " (Outdated registry)");
 
@@ -562,7 +547,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RegisteredEnumIO reio = id < enums.size() ? enums.get(id) : null;
+        final RegisteredEnumIO reio = enums.get(id);
         if (reio == null)
             throw new UnknownTypeException("enum id: " + id + " (Outdated registry)");
 
@@ -615,8 +600,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RegisteredDelegate<T> rd = id < delegates.size() ?
-                (RegisteredDelegate<T>) delegates.get(id) : null;
+        final RegisteredDelegate<T> rd = (RegisteredDelegate<T>) delegates.get(id);
         if (rd == null)
             throw new UnknownTypeException("delegate id: " + id + " (Outdated registry)");
 
@@ -631,8 +615,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RegisteredDelegate<T> rd = id < delegates.size() ?
-                (RegisteredDelegate<T>) delegates.get(id) : null;
+        final RegisteredDelegate<T> rd = (RegisteredDelegate<T>) delegates.get(id);
         if (rd == null)
             throw new UnknownTypeException("delegate id: " + id + " (Outdated registry)");
 
@@ -688,7 +671,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final BaseHS<T> wrapper = id < pojos.size() ? (BaseHS<T>) pojos.get(id) : null;
+        final BaseHS<T> wrapper = (BaseHS<T>) pojos.get(id);
         if (wrapper == null)
             throw new UnknownTypeException("pojo id: " + id + " (Outdated registry)");
 
@@ -714,8 +697,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> collectionClass(int id)
     {
-        final RegisteredCollectionFactory factory = id < collections.size() ?
-                collections.get(id) : null;
+        final RegisteredCollectionFactory factory = collections.get(id);
         if (factory == null)
         {
             throw new UnknownTypeException("collection id: " + id +
@@ -728,8 +710,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> mapClass(int id)
     {
-        final RegisteredMapFactory factory = id < maps.size() ?
-                maps.get(id) : null;
+        final RegisteredMapFactory factory = maps.get(id);
         if (factory == null)
         {
             throw new UnknownTypeException("map id: " + id +
@@ -742,7 +723,7 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> enumClass(int id)
     {
-        final RegisteredEnumIO reio = id < enums.size() ? enums.get(id) : null;
+        final RegisteredEnumIO reio = enums.get(id);
         if (reio == null)
         {
             throw new UnknownTypeException("enum id: " + id +
@@ -755,14 +736,14 @@ public final class ExplicitIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> delegateClass(int id)
     {
-        final RegisteredDelegate<?> rd = id < delegates.size() ? delegates.get(id) : null;
+        final RegisteredDelegate<?> rd = delegates.get(id);
         return rd == null ? null : rd.delegate.typeClass();
     }
 
     @Override
     protected Class<?> pojoClass(int id)
     {
-        final BaseHS<?> wrapper = id < pojos.size() ? pojos.get(id) : null;
+        final BaseHS<?> wrapper = pojos.get(id);
         if (wrapper == null)
         {
             throw new UnknownTypeException("pojo id: " + id +
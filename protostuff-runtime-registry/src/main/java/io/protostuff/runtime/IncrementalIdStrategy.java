@@ -30,11 +30,9 @@ package io.protostuff.runtime;
 
 import java.io.IOException;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -50,9 +48,9 @@ import io.protostuff.Schema;
 
 /**
  * The ids are generated (incremental) on the fly and you can optionally register classes by reserving the first x ids
- * via {@link Registry}. To minimize overhead, {@link ArrayList}s are used for the id mapping rather than
- * {@link ConcurrentHashMap}. This optimization has a disadvantage though. Ids will not be unlimited. You'll have to
- * specificy a max id for the 4 types (pojo, enum, collection, map)
+ * via {@link Registry}. To minimize overhead, arrays indexed by id (copied on write and read without locking) are
+ * used for the id mapping rather than {@link ConcurrentHashMap}. The max ids of the 4 types (pojo, enum, collection,
+ * map) are the initial sizes of the arrays, which grow as needed.
  * 
  * @author David Yu
  * @created Mar 27, 2012
@@ -63,9 +61,9 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
      * To use {@link IncrementalIdStrategy} without registering anything, set the system property:
      * "-Dprotostuff.runtime.id_strategy_factory=io.protostuff.runtime.IncrementalIdStrategy$Factory"
      * <p>
-     * Note that the pojos will be limited to 63 and the enums to 15.
+     * Note that the id tables are initially sized for 63 pojos and 15 enums (they grow beyond that).
      * <p>
-     * It is best that you use the {@link Registry} to configure the strategy and set the max limits for each type.
+     * It is best that you use the {@link Registry} to configure the strategy and set the max ids for each type.
      */
     public static class Factory implements IdStrategy.Factory
     {
@@ -333,9 +331,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
             if (id < 1)
                 throw new IllegalArgumentException("delegate ids start at 1.");
 
-            if (id >= strategy.delegates.size())
-                grow(strategy.delegates, id + 1);
-            else if (strategy.delegates.get(id) != null)
+            if (strategy.delegates.get(id) != null)
             {
                 throw new IllegalArgumentException("Duplicate id registration: " + id +
                         " (" + delegate.typeClass() + ")");
@@ -353,23 +349,23 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
 
     final ConcurrentHashMap<Class<?>, RuntimeCollectionFactory> collectionMapping;
 
-    final ArrayList<RuntimeCollectionFactory> collections;
+    final IdTable<RuntimeCollectionFactory> collections;
 
     final ConcurrentHashMap<Class<?>, RuntimeMapFactory> mapMapping;
 
-    final ArrayList<RuntimeMapFactory> maps;
+    final IdTable<RuntimeMapFactory> maps;
 
     final ConcurrentHashMap<Class<?>, RuntimeEnumIO> enumMapping;
 
-    final ArrayList<RuntimeEnumIO> enums;
+    final IdTable<RuntimeEnumIO> enums;
 
     final ConcurrentHashMap<Class<?>, BaseHS<?>> pojoMapping;
 
-    final ArrayList<BaseHS<?>> pojos;
+    final IdTable<BaseHS<?>> pojos;
 
-    final IdentityHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping;
+    final ConcurrentHashMap<Class<?>, RegisteredDelegate<?>> delegateMapping;
 
-    final ArrayList<RegisteredDelegate<?>> delegates;
+    final IdTable<RegisteredDelegate<?>> delegates;
 
     final AtomicInteger pojoId, enumId, collectionId, mapId;
     final int pojoIdStart, enumIdStart, collectionIdStart, mapIdStart;
@@ -408,27 +404,27 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
         collectionId = new AtomicInteger(collectionIdStart);
         collectionMapping = new ConcurrentHashMap<Class<?>, RuntimeCollectionFactory>(
                 collectionIdMax);
-        collections = newList(collectionIdMax + 1);
+        collections = new IdTable<RuntimeCollectionFactory>(collectionIdMax + 1);
 
         this.mapIdStart = mapIdStart;
         mapId = new AtomicInteger(mapIdStart);
         mapMapping = new ConcurrentHashMap<Class<?>, RuntimeMapFactory>(mapIdMax);
-        maps = newList(mapIdMax + 1);
+        maps = new IdTable<RuntimeMapFactory>(mapIdMax + 1);
 
         this.enumIdStart = enumIdStart;
         enumId = new AtomicInteger(enumIdStart);
         enumMapping = new ConcurrentHashMap<Class<?>, RuntimeEnumIO>(enumIdMax);
-        enums = newList(enumIdMax + 1);
+        enums = new IdTable<RuntimeEnumIO>(enumIdMax + 1);
 
         this.pojoIdStart = pojoIdStart;
         pojoId = new AtomicInteger(pojoIdStart);
         pojoMapping = new ConcurrentHashMap<Class<?>, BaseHS<?>>(pojoIdMax);
-        pojos = newList(pojoIdMax + 1);
+        pojos = new IdTable<BaseHS<?>>(pojoIdMax + 1);
 
         // delegates require explicit registration
-        delegateMapping = new IdentityHashMap<Class<?>, RegisteredDelegate<?>>(
+        delegateMapping = new ConcurrentHashMap<Class<?>, RegisteredDelegate<?>>(
                 10);// delegateIdMax);
-        delegates = newList(11);// delegateIdMax + 1);
+        delegates = new IdTable<RegisteredDelegate<?>>(11);// delegateIdMax + 1);
     }
 
     @Override
@@ -510,16 +506,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
                 rfactory = f;
             else
             {
-                if (clazz.getName().startsWith("java.util"))
-                {
-                    rfactory.factory = CollectionSchema.MessageFactories.valueOf(
-                            clazz.getSimpleName());
-                }
-                else
-                {
-                    rfactory.instantiator = RuntimeEnv.newInstantiator(clazz);
-                    rfactory.collectionClass = clazz;
-                }
+                rfactory.init(clazz);
 
                 int id = collectionId.getAndIncrement();
                 collections.set(id, rfactory);
@@ -550,16 +537,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
                 rfactory = f;
             else
             {
-                if (clazz.getName().startsWith("java.util"))
-                {
-                    rfactory.factory = MapSchema.MessageFactories.valueOf(
-                            clazz.getSimpleName());
-                }
-                else
-                {
-                    rfactory.instantiator = RuntimeEnv.newInstantiator(clazz);
-                    rfactory.mapClass = clazz;
-                }
+                rfactory.init(clazz);
 
                 int id = mapId.getAndIncrement();
                 maps.set(id, rfactory);
@@ -605,8 +583,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RuntimeCollectionFactory factory = id < collections.size() ?
-                collections.get(id) : null;
+        final RuntimeCollectionFactory factory = collections.get(id);
         if (factory == null)
             throw new UnknownTypeException("Unknown collection id: " + id);
 
@@ -640,7 +617,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RuntimeMapFactory factory = id < maps.size() ? maps.get(id) : null;
+        final RuntimeMapFactory factory = maps.get(id);
         if (factory == null)
             throw new UnknownTypeException("Unknown map id: " + id);
 
@@ -673,7 +650,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RuntimeEnumIO reio = id < enums.size() ? enums.get(id) : null;
+        final RuntimeEnumIO reio = enums.get(id);
         if (reio == null)
             throw new UnknownTypeException("Unknown enum id: " + id);
 
@@ -726,8 +703,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RegisteredDelegate<T> rd = id < delegates.size() ?
-                (RegisteredDelegate<T>) delegates.get(id) : null;
+        final RegisteredDelegate<T> rd = (RegisteredDelegate<T>) delegates.get(id);
         if (rd == null)
             throw new UnknownTypeException("delegate id: " + id + " (Outdated registry)");
 
@@ -742,8 +718,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final RegisteredDelegate<T> rd = id < delegates.size() ?
-                (RegisteredDelegate<T>) delegates.get(id) : null;
+        final RegisteredDelegate<T> rd = (RegisteredDelegate<T>) delegates.get(id);
         if (rd == null)
             throw new UnknownTypeException("delegate id: " + id + " (Outdated registry)");
 
@@ -791,7 +766,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final BaseHS<T> wrapper = id < pojos.size() ? (BaseHS<T>) pojos.get(id) : null;
+        final BaseHS<T> wrapper = (BaseHS<T>) pojos.get(id);
         if (wrapper == null)
             throw new UnknownTypeException("unknown pojo id: " + id);
 
@@ -806,7 +781,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     {
         final int id = input.readUInt32();
 
-        final BaseHS<T> wrapper = id < pojos.size() ? (BaseHS<T>) pojos.get(id) : null;
+        final BaseHS<T> wrapper = (BaseHS<T>) pojos.get(id);
         if (wrapper == null)
             throw new UnknownTypeException("unknown pojo id: " + id);
 
@@ -834,8 +809,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> collectionClass(int id)
     {
-        final RuntimeCollectionFactory factory = id < collections.size() ?
-                collections.get(id) : null;
+        final RuntimeCollectionFactory factory = collections.get(id);
         if (factory == null)
             throw new UnknownTypeException("Unknown collection id: " + id);
 
@@ -845,7 +819,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> mapClass(int id)
     {
-        final RuntimeMapFactory factory = id < maps.size() ? maps.get(id) : null;
+        final RuntimeMapFactory factory = maps.get(id);
         if (factory == null)
             throw new UnknownTypeException("Unknown map id: " + id);
 
@@ -855,7 +829,7 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> enumClass(int id)
     {
-        final RuntimeEnumIO reio = id < enums.size() ? enums.get(id) : null;
+        final RuntimeEnumIO reio = enums.get(id);
         if (reio == null)
             throw new UnknownTypeException("Unknown enum id: " + id);
 
@@ -865,14 +839,14 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
     @Override
     protected Class<?> delegateClass(int id)
     {
-        final RegisteredDelegate<?> rd = id < delegates.size() ? delegates.get(id) : null;
+        final RegisteredDelegate<?> rd = delegates.get(id);
         return rd == null ? null : rd.delegate.typeClass();
     }
 
     @Override
     protected Class<?> pojoClass(int id)
     {
-        final BaseHS<?> wrapper = id < pojos.size() ? pojos.get(id) : null;
+        final BaseHS<?> wrapper = pojos.get(id);
         if (wrapper == null)
             throw new UnknownTypeException("Unknown pojo id: " + id);
 
@@ -950,6 +924,97 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
         return (id << 5) | CID_POJO;
     }
 
+    /**
+     * Assigns the id of a collection that was lazily registered (by a {@link RegistrySnapshot}), before the strategy
+     * is used. The next ids start after the highest assigned.
+     */
+    void assignCollection(Class<?> clazz, int id)
+    {
+        checkAssign("collection", id, collectionIdStart);
+        if (collections.get(id) != null)
+            throw new IllegalArgumentException("Duplicate id registration: " + id + " (" + clazz + ")");
+
+        RuntimeCollectionFactory rfactory = new RuntimeCollectionFactory();
+        rfactory.init(clazz);
+        collections.set(id, rfactory);
+        if (collectionMapping.put(clazz, rfactory) != null)
+            throw new IllegalArgumentException("Duplicate registration for: " + clazz);
+
+        rfactory.id = id;
+        advance(collectionId, id);
+    }
+
+    /**
+     * Assigns the id of a map that was lazily registered (by a {@link RegistrySnapshot}), before the strategy is
+     * used. The next ids start after the highest assigned.
+     */
+    void assignMap(Class<?> clazz, int id)
+    {
+        checkAssign("map", id, mapIdStart);
+        if (maps.get(id) != null)
+            throw new IllegalArgumentException("Duplicate id registration: " + id + " (" + clazz + ")");
+
+        RuntimeMapFactory rfactory = new RuntimeMapFactory();
+        rfactory.init(clazz);
+        maps.set(id, rfactory);
+        if (mapMapping.put(clazz, rfactory) != null)
+            throw new IllegalArgumentException("Duplicate registration for: " + clazz);
+
+        rfactory.id = id;
+        advance(mapId, id);
+    }
+
+    /**
+     * Assigns the id of an enum that was lazily registered (by a {@link RegistrySnapshot}), before the strategy is
+     * used. The next ids start after the highest assigned.
+     */
+    void assignEnum(Class<?> enumClass, int id)
+    {
+        checkAssign("enum", id, enumIdStart);
+        if (enums.get(id) != null)
+            throw new IllegalArgumentException("Duplicate id registration: " + id + " (" + enumClass + ")");
+
+        RuntimeEnumIO reio = new RuntimeEnumIO();
+        reio.eio = EnumIO.newEnumIO(enumClass, this);
+        enums.set(id, reio);
+        if (enumMapping.put(enumClass, reio) != null)
+            throw new IllegalArgumentException("Duplicate registration for: " + enumClass);
+
+        reio.id = id;
+        advance(enumId, id);
+    }
+
+    /**
+     * Assigns the id of a pojo that was lazily registered (by a {@link RegistrySnapshot}), before the strategy is
+     * used. The next ids start after the highest assigned.
+     */
+    <T> void assignPojo(Class<T> typeClass, int id)
+    {
+        checkAssign("pojo", id, pojoIdStart);
+        if (pojos.get(id) != null)
+            throw new IllegalArgumentException("Duplicate id registration: " + id + " (" + typeClass + ")");
+
+        BaseHS<T> hs = new Lazy<T>(typeClass, this);
+        pojos.set(id, hs);
+        if (pojoMapping.put(typeClass, hs) != null)
+            throw new IllegalArgumentException("Duplicate registration for: " + typeClass);
+
+        hs.id = id;
+        advance(pojoId, id);
+    }
+
+    static void checkAssign(String kind, int id, int start)
+    {
+        if (id < start)
+            throw new IllegalArgumentException("Lazily registered " + kind + " ids start at " + start + ": " + id);
+    }
+
+    static void advance(AtomicInteger counter, int id)
+    {
+        if (counter.get() <= id)
+            counter.set(id + 1);
+    }
+
     static final class RuntimeCollectionFactory implements CollectionSchema.MessageFactory
     {
         volatile int id;
@@ -958,6 +1023,17 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
         Class<?> collectionClass;
         RuntimeEnv.Instantiator<?> instantiator;
 
+        void init(Class<?> clazz)
+        {
+            if (clazz.getName().startsWith("java.util"))
+                factory = CollectionSchema.MessageFactories.valueOf(clazz.getSimpleName());
+            else
+            {
+                instantiator = RuntimeEnv.newInstantiator(clazz);
+                collectionClass = clazz;
+            }
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public <V> Collection<V> newMessage()
@@ -983,6 +1059,17 @@ public final class IncrementalIdStrategy extends NumericIdStrategy
         Class<?> mapClass;
         RuntimeEnv.Instantiator<?> instantiator;
 
+        void init(Class<?> clazz)
+        {
+            if (clazz.getName().startsWith("java.util"))
+                factory = MapSchema.MessageFactories.valueOf(clazz.getSimpleName());
+            else
+            {
+                instantiator = RuntimeEnv.newInstantiator(clazz);
+                mapClass = clazz;
+            }
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public <K, V> Map<K, V> newMessage()
@@ -33,6 +33,7 @@ import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -40,6 +41,7 @@ import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import io.protostuff.ByteString;
 import io.protostuff.CollectionSchema;
@@ -358,6 +360,54 @@ public abstract class NumericIdStrategy extends IdStrategy
         }
     }
 
+    /**
+     * The registered types indexed by id, read without locking.
+     * <p>
+     * The array is copied on write (registration is rare, mostly on startup) and published through a volatile field,
+     * so the readers see either the previous array or the new one with its elements fully initialized. It grows as
+     * needed.
+     */
+    static final class IdTable<T>
+    {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<IdTable, Object[]> ARRAY =
+                AtomicReferenceFieldUpdater.newUpdater(IdTable.class, Object[].class, "array");
+
+        private volatile Object[] array;
+
+        IdTable(int size)
+        {
+            array = new Object[size];
+        }
+
+        /**
+         * Returns null if nothing is registered with the id.
+         */
+        @SuppressWarnings("unchecked")
+        T get(int id)
+        {
+            final Object[] array = this.array;
+            return id >= 0 && id < array.length ? (T) array[id] : null;
+        }
+
+        int size()
+        {
+            return array.length;
+        }
+
+        void set(int id, T value)
+        {
+            Object[] array, copy;
+            do
+            {
+                array = this.array;
+                copy = Arrays.copyOf(array, Math.max(array.length, id + 1));
+                copy[id] = value;
+            }
+            while (!ARRAY.compareAndSet(this, array, copy));
+        }
+    }
+
     /**
      * Register your pojos/enums/collections/maps/delegates here.
      */
@@ -0,0 +1,462 @@
+package io.protostuff.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.Tag;
+
+/**
+ * The id mapping of an {@link IncrementalIdStrategy} or {@link ExplicitIdStrategy} (the collections, maps, enums,
+ * pojos and delegates with their ids), which can be saved to a file (in protostuff format) and loaded on other nodes
+ * so that they all agree on the ids, including the ones lazily assigned by the incremental strategy on first use.
+ *
+ * <pre>
+ * // on the node that ran (e.g. the integration tests)
+ * RegistrySnapshot.from(strategy).writeTo(out);
+ *
+ * // on startup
+ * IncrementalIdStrategy.Registry r = RegistrySnapshot.readFrom(in)
+ *         .toIncrementalRegistry(collectionIdMax, mapIdMax, enumIdMax, pojoIdMax, delegates);
+ * </pre>
+ *
+ * Everything is registered in a single pass, with the id tables sized exactly, so the strategy does not pay for the
+ * lazy registration of the known types.
+ * <p>
+ * The types are stored by name, so the snapshot does not contain the delegates nor the custom schemas: the delegates
+ * are passed to the import, and the ids of the pojos with a custom schema are reserved, to be registered afterwards
+ * with {@link #pojoId(Class)}. The collection and map factories are recreated from their class.
+ */
+public final class RegistrySnapshot
+{
+
+    /**
+     * Registered with an id.
+     */
+    static final int REGISTERED = 0;
+    /**
+     * Assigned on first use by an {@link IncrementalIdStrategy}.
+     */
+    static final int LAZY = 1;
+    /**
+     * A pojo registered with its own schema.
+     */
+    static final int CUSTOM_SCHEMA = 2;
+    /**
+     * A base class mapped to the pojo of the id.
+     */
+    static final int MAPPED = 3;
+
+    static final Schema<RegistrySnapshot> SCHEMA = RuntimeSchema.createFrom(
+            RegistrySnapshot.class, new DefaultIdStrategy());
+
+    static final class Entry
+    {
+        @Tag(1)
+        int id;
+        @Tag(2)
+        String name;
+        @Tag(3)
+        int kind;
+
+        Entry()
+        {
+
+        }
+
+        Entry(int id, String name, int kind)
+        {
+            this.id = id;
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    @Tag(1)
+    final List<Entry> collections = new ArrayList<Entry>();
+    @Tag(2)
+    final List<Entry> maps = new ArrayList<Entry>();
+    @Tag(3)
+    final List<Entry> enums = new ArrayList<Entry>();
+    @Tag(4)
+    final List<Entry> pojos = new ArrayList<Entry>();
+    @Tag(5)
+    final List<Entry> delegates = new ArrayList<Entry>();
+
+    // the first lazily assigned ids (0 if from an explicit strategy)
+    @Tag(6)
+    int collectionIdStart;
+    @Tag(7)
+    int mapIdStart;
+    @Tag(8)
+    int enumIdStart;
+    @Tag(9)
+    int pojoIdStart;
+
+    RegistrySnapshot()
+    {
+
+    }
+
+    /**
+     * Exports the ids of the strategy, including the ones lazily assigned so far.
+     */
+    public static RegistrySnapshot from(IncrementalIdStrategy strategy)
+    {
+        final RegistrySnapshot snapshot = new RegistrySnapshot();
+        snapshot.collectionIdStart = strategy.collectionIdStart;
+        snapshot.mapIdStart = strategy.mapIdStart;
+        snapshot.enumIdStart = strategy.enumIdStart;
+        snapshot.pojoIdStart = strategy.pojoIdStart;
+
+        for (int i = 1, size = strategy.collections.size(); i < size; i++)
+        {
+            final IncrementalIdStrategy.RuntimeCollectionFactory f = strategy.collections.get(i);
+            // the id is set last (not yet if 0)
+            if (f != null && f.id != 0)
+            {
+                snapshot.collections.add(new Entry(f.id, f.typeClass().getName(),
+                        f.id < strategy.collectionIdStart ? REGISTERED : LAZY));
+            }
+        }
+        for (int i = 1, size = strategy.maps.size(); i < size; i++)
+        {
+            final IncrementalIdStrategy.RuntimeMapFactory f = strategy.maps.get(i);
+            if (f != null && f.id != 0)
+            {
+                snapshot.maps.add(new Entry(f.id, f.typeClass().getName(),
+                        f.id < strategy.mapIdStart ? REGISTERED : LAZY));
+            }
+        }
+        for (int i = 1, size = strategy.enums.size(); i < size; i++)
+        {
+            final IncrementalIdStrategy.RuntimeEnumIO reio = strategy.enums.get(i);
+            if (reio != null && reio.id != 0)
+            {
+                snapshot.enums.add(new Entry(reio.id, reio.eio.enumClass.getName(),
+                        reio.id < strategy.enumIdStart ? REGISTERED : LAZY));
+            }
+        }
+        for (int i = 1, size = strategy.pojos.size(); i < size; i++)
+        {
+            final IncrementalIdStrategy.BaseHS<?> hs = strategy.pojos.get(i);
+            if (hs != null && hs.id != 0)
+            {
+                snapshot.pojos.add(new Entry(hs.id, pojoClass(hs).getName(),
+                        hs instanceof IncrementalIdStrategy.Registered ? CUSTOM_SCHEMA :
+                                (hs instanceof IncrementalIdStrategy.Lazy ? LAZY : REGISTERED)));
+            }
+        }
+        for (Map.Entry<Class<?>, IncrementalIdStrategy.BaseHS<?>> e : strategy.pojoMapping.entrySet())
+        {
+            final IncrementalIdStrategy.BaseHS<?> hs = e.getValue();
+            if (hs.id != 0 && e.getKey() != pojoClass(hs))
+                snapshot.pojos.add(new Entry(hs.id, e.getKey().getName(), MAPPED));
+        }
+        addDelegates(snapshot, strategy.delegates);
+
+        return snapshot;
+    }
+
+    /**
+     * Exports the ids of the strategy.
+     */
+    public static RegistrySnapshot from(ExplicitIdStrategy strategy)
+    {
+        final RegistrySnapshot snapshot = new RegistrySnapshot();
+
+        for (int i = 1, size = strategy.collections.size(); i < size; i++)
+        {
+            final ExplicitIdStrategy.RegisteredCollectionFactory f = strategy.collections.get(i);
+            if (f != null)
+                snapshot.collections.add(new Entry(f.id, f.typeClass().getName(), REGISTERED));
+        }
+        for (int i = 1, size = strategy.maps.size(); i < size; i++)
+        {
+            final ExplicitIdStrategy.RegisteredMapFactory f = strategy.maps.get(i);
+            if (f != null)
+                snapshot.maps.add(new Entry(f.id, f.typeClass().getName(), REGISTERED));
+        }
+        for (int i = 1, size = strategy.enums.size(); i < size; i++)
+        {
+            final ExplicitIdStrategy.RegisteredEnumIO reio = strategy.enums.get(i);
+            if (reio != null)
+                snapshot.enums.add(new Entry(reio.id, reio.eio.enumClass.getName(), REGISTERED));
+        }
+        for (int i = 1, size = strategy.pojos.size(); i < size; i++)
+        {
+            final ExplicitIdStrategy.BaseHS<?> hs = strategy.pojos.get(i);
+            if (hs != null)
+            {
+                snapshot.pojos.add(new Entry(hs.id, pojoClass(hs).getName(),
+                        hs instanceof ExplicitIdStrategy.Registered ? CUSTOM_SCHEMA : REGISTERED));
+            }
+        }
+        for (Map.Entry<Class<?>, ExplicitIdStrategy.BaseHS<?>> e : strategy.pojoMapping.entrySet())
+        {
+            if (e.getKey() != pojoClass(e.getValue()))
+                snapshot.pojos.add(new Entry(e.getValue().id, e.getKey().getName(), MAPPED));
+        }
+        addDelegates(snapshot, strategy.delegates);
+
+        return snapshot;
+    }
+
+    static Class<?> pojoClass(IncrementalIdStrategy.BaseHS<?> hs)
+    {
+        return hs instanceof IncrementalIdStrategy.Registered ? hs.getSchema().typeClass() :
+                ((IncrementalIdStrategy.LazyRegister<?>) hs).typeClass;
+    }
+
+    static Class<?> pojoClass(ExplicitIdStrategy.BaseHS<?> hs)
+    {
+        return hs instanceof ExplicitIdStrategy.Registered ? hs.getSchema().typeClass() :
+                ((ExplicitIdStrategy.Lazy<?>) hs).typeClass;
+    }
+
+    static void addDelegates(RegistrySnapshot snapshot,
+            NumericIdStrategy.IdTable<NumericIdStrategy.RegisteredDelegate<?>> delegates)
+    {
+        for (int i = 1, size = delegates.size(); i < size; i++)
+        {
+            final NumericIdStrategy.RegisteredDelegate<?> rd = delegates.get(i);
+            if (rd != null)
+                snapshot.delegates.add(new Entry(rd.id, rd.delegate.typeClass().getName(), REGISTERED));
+        }
+    }
+
+    /**
+     * Writes the snapshot in protostuff format.
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        ProtostuffIOUtil.writeTo(out, this, SCHEMA, LinkedBuffer.allocate());
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(OutputStream)}.
+     */
+    public static RegistrySnapshot readFrom(InputStream in) throws IOException
+    {
+        final RegistrySnapshot snapshot = new RegistrySnapshot();
+        ProtostuffIOUtil.mergeFrom(in, snapshot, SCHEMA);
+        return snapshot;
+    }
+
+    /**
+     * Returns the id of the pojo (or 0 if not in the snapshot), typically to register the pojos with a custom
+     * schema after the import.
+     */
+    public int pojoId(Class<?> typeClass)
+    {
+        final String name = typeClass.getName();
+        for (Entry e : pojos)
+        {
+            if (e.kind != MAPPED && name.equals(e.name))
+                return e.id;
+        }
+        return 0;
+    }
+
+    /**
+     * Imports the snapshot in a new {@link ExplicitIdStrategy}, where the lazily assigned ids are registered.
+     */
+    public ExplicitIdStrategy.Registry toExplicitRegistry(Delegate<?>... delegates)
+    {
+        return toExplicitRegistry(IdStrategy.DEFAULT_FLAGS, null, 0, delegates);
+    }
+
+    /**
+     * Imports the snapshot in a new {@link ExplicitIdStrategy}, where the lazily assigned ids are registered.
+     */
+    public ExplicitIdStrategy.Registry toExplicitRegistry(int flags, IdStrategy primaryGroup, int groupId,
+            Delegate<?>... delegates)
+    {
+        // maps are not sized with an extra slot for the id 0
+        final ExplicitIdStrategy.Registry r = new ExplicitIdStrategy.Registry(flags, primaryGroup, groupId,
+                maxId(collections, true), maxId(maps, true) + 1, maxId(enums, true), maxId(pojos, true),
+                maxId(this.delegates, true));
+
+        register(r, r.strategy, true);
+        mapPojos(r);
+        registerDelegates(r, delegates);
+
+        return r;
+    }
+
+    /**
+     * Imports the snapshot in a new {@link IncrementalIdStrategy}, where the lazily assigned ids are preserved (and
+     * the new types are assigned ids after them).
+     * <p>
+     * The max ids must be greater than the ones of the snapshot.
+     */
+    public IncrementalIdStrategy.Registry toIncrementalRegistry(int collectionIdMax, int mapIdMax,
+            int enumIdMax, int pojoIdMax, Delegate<?>... delegates)
+    {
+        return toIncrementalRegistry(IdStrategy.DEFAULT_FLAGS, null, 0, collectionIdMax, mapIdMax,
+                enumIdMax, pojoIdMax, delegates);
+    }
+
+    /**
+     * Imports the snapshot in a new {@link IncrementalIdStrategy}, where the lazily assigned ids are preserved (and
+     * the new types are assigned ids after them).
+     * <p>
+     * The max ids must be greater than the ones of the snapshot.
+     */
+    public IncrementalIdStrategy.Registry toIncrementalRegistry(int flags, IdStrategy primaryGroup, int groupId,
+            int collectionIdMax, int mapIdMax, int enumIdMax, int pojoIdMax, Delegate<?>... delegates)
+    {
+        final IncrementalIdStrategy.Registry r = new IncrementalIdStrategy.Registry(flags, primaryGroup, groupId,
+                checkMax("collection", collectionIdMax, collections, collectionIdStart),
+                idStart(collections, collectionIdStart),
+                checkMax("map", mapIdMax, maps, mapIdStart), idStart(maps, mapIdStart),
+                checkMax("enum", enumIdMax, enums, enumIdStart), idStart(enums, enumIdStart),
+                checkMax("pojo", pojoIdMax, pojos, pojoIdStart), idStart(pojos, pojoIdStart));
+
+        final IncrementalIdStrategy strategy = r.strategy;
+        register(r, strategy, false);
+
+        for (Entry e : collections)
+        {
+            if (e.kind == LAZY)
+                strategy.assignCollection(RuntimeEnv.loadClass(e.name), e.id);
+        }
+        for (Entry e : maps)
+        {
+            if (e.kind == LAZY)
+                strategy.assignMap(RuntimeEnv.loadClass(e.name), e.id);
+        }
+        for (Entry e : enums)
+        {
+            if (e.kind == LAZY)
+                strategy.assignEnum(RuntimeEnv.loadClass(e.name), e.id);
+        }
+        for (Entry e : pojos)
+        {
+            if (e.kind == LAZY)
+                strategy.assignPojo(RuntimeEnv.loadClass(e.name), e.id);
+        }
+
+        mapPojos(r);
+        registerDelegates(r, delegates);
+
+        return r;
+    }
+
+    /**
+     * Registers the entries with an id, and the lazily assigned ones if {@code lazy}.
+     */
+    void register(NumericIdStrategy.Registry r, IdStrategy strategy, boolean lazy)
+    {
+        for (Entry e : collections)
+        {
+            if (e.kind == REGISTERED || (lazy && e.kind == LAZY))
+            {
+                final IncrementalIdStrategy.RuntimeCollectionFactory factory =
+                        new IncrementalIdStrategy.RuntimeCollectionFactory();
+                factory.init(RuntimeEnv.loadClass(e.name));
+                r.registerCollection(factory, e.id);
+            }
+        }
+        for (Entry e : maps)
+        {
+            if (e.kind == REGISTERED || (lazy && e.kind == LAZY))
+            {
+                final IncrementalIdStrategy.RuntimeMapFactory factory =
+                        new IncrementalIdStrategy.RuntimeMapFactory();
+                factory.init(RuntimeEnv.loadClass(e.name));
+                r.registerMap(factory, e.id);
+            }
+        }
+        for (Entry e : enums)
+        {
+            if (e.kind == REGISTERED || (lazy && e.kind == LAZY))
+                r.registerEnum(EnumIO.newEnumIO(RuntimeEnv.loadClass(e.name), strategy), e.id);
+        }
+        for (Entry e : pojos)
+        {
+            if (e.kind == REGISTERED || (lazy && e.kind == LAZY))
+                r.registerPojo(RuntimeEnv.loadClass(e.name), e.id);
+        }
+    }
+
+    void mapPojos(NumericIdStrategy.Registry r)
+    {
+        final HashMap<Integer, String> impls = new HashMap<Integer, String>();
+        for (Entry e : pojos)
+        {
+            if (e.kind != MAPPED)
+                impls.put(e.id, e.name);
+        }
+
+        for (Entry e : pojos)
+        {
+            if (e.kind == MAPPED)
+            {
+                final String impl = impls.get(e.id);
+                if (impl == null)
+                    throw new IllegalArgumentException("No pojo with the id " + e.id + " for: " + e.name);
+
+                r.mapPojo(RuntimeEnv.loadClass(e.name), RuntimeEnv.loadClass(impl));
+            }
+        }
+    }
+
+    void registerDelegates(NumericIdStrategy.Registry r, Delegate<?>[] delegates)
+    {
+        final HashMap<String, Delegate<?>> byName = new HashMap<String, Delegate<?>>();
+        for (Delegate<?> delegate : delegates)
+            byName.put(delegate.typeClass().getName(), delegate);
+
+        for (Entry e : this.delegates)
+        {
+            final Delegate<?> delegate = byName.remove(e.name);
+            if (delegate == null)
+                throw new IllegalArgumentException("Missing delegate for: " + e.name);
+
+            r.registerDelegate(delegate, e.id);
+        }
+
+        if (!byName.isEmpty())
+            throw new IllegalArgumentException("Delegates not in the snapshot: " + byName.keySet());
+    }
+
+    /**
+     * Returns the highest id of the entries (not mapped), or only of the ones registered with an id if not
+     * {@code lazy}.
+     */
+    static int maxId(List<Entry> entries, boolean lazy)
+    {
+        int max = 0;
+        for (Entry e : entries)
+        {
+            if (e.id > max && e.kind != MAPPED && (lazy || e.kind != LAZY))
+                max = e.id;
+        }
+        return max;
+    }
+
+    static int idStart(List<Entry> entries, int recordedStart)
+    {
+        return Math.max(recordedStart, maxId(entries, false) + 1);
+    }
+
+    static int checkMax(String kind, int idMax, List<Entry> entries, int recordedStart)
+    {
+        final int highest = Math.max(maxId(entries, true), idStart(entries, recordedStart));
+        if (idMax <= highest)
+        {
+            throw new IllegalArgumentException("The max " + kind + " id must be greater than " + highest +
+                    ": " + idMax);
+        }
+        return idMax;
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.protostuff.runtime;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link NumericIdStrategy.IdTable}.
+ */
+public class IdTableTest extends TestCase
+{
+
+    public void testGrow()
+    {
+        final NumericIdStrategy.IdTable<String> table = new NumericIdStrategy.IdTable<String>(2);
+        assertNull(table.get(1));
+        assertNull(table.get(5));
+        assertNull(table.get(-1));
+
+        table.set(1, "a");
+        table.set(5, "b");
+        assertEquals(6, table.size());
+        assertEquals("a", table.get(1));
+        assertEquals("b", table.get(5));
+        assertNull(table.get(3));
+    }
+
+    public void testConcurrentSet() throws Exception
+    {
+        final int threads = 8, perThread = 200;
+        final NumericIdStrategy.IdTable<Integer> table = new NumericIdStrategy.IdTable<Integer>(1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++)
+        {
+            final int offset = t;
+            workers[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    for (int i = 0; i < perThread; i++)
+                    {
+                        final int id = 1 + offset + i * threads;
+                        table.set(id, id);
+                        // visible to the writer right away
+                        if (!Integer.valueOf(id).equals(table.get(id)))
+                            failures.incrementAndGet();
+                    }
+                }
+            };
+            workers[t].start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals(0, failures.get());
+        // no write is lost on a concurrent copy
+        for (int id = 1; id <= threads * perThread; id++)
+            assertEquals(Integer.valueOf(id), table.get(id));
+    }
+
+    public void testIncrementalGrowsBeyondMax()
+    {
+        final IncrementalIdStrategy strategy = new IncrementalIdStrategy(
+                2, 1,
+                2, 1,
+                2, 1,
+                2, 1);
+
+        final Class<?>[] types = { A.class, B.class, C.class, D.class };
+        for (Class<?> type : types)
+            strategy.getSchemaWrapper(type, true);
+
+        for (int i = 0; i < types.length; i++)
+            assertEquals(types[i], strategy.pojoClass(i + 1));
+    }
+
+    static final class A
+    {
+        int a;
+    }
+
+    static final class B
+    {
+        int b;
+    }
+
+    static final class C
+    {
+        int c;
+    }
+
+    static final class D
+    {
+        int d;
+    }
+
+}
@@ -0,0 +1,265 @@
+package io.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+import io.protostuff.CollectionSchema;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.MapSchema;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.AbstractRuntimeObjectSchemaTest.Bat;
+import io.protostuff.runtime.SampleDelegates.ShortArrayDelegate;
+
+/**
+ * Tests for {@link RegistrySnapshot}.
+ */
+public class RegistrySnapshotTest extends TestCase
+{
+
+    enum Color
+    {
+        RED, GREEN
+    }
+
+    enum Shape
+    {
+        ROUND, SQUARE
+    }
+
+    enum Unused
+    {
+        NONE
+    }
+
+    static final class Item
+    {
+        int value;
+    }
+
+    static abstract class Base
+    {
+        String name;
+    }
+
+    static final class Impl extends Base
+    {
+        int size;
+    }
+
+    static final class Other
+    {
+        String text;
+    }
+
+    static final class Holder
+    {
+        Item item;
+        Base base;
+        Color color;
+        Object shape;
+        Object list;
+        Object map;
+        Object other;
+        Object bat;
+        short[] shorts;
+    }
+
+    static IncrementalIdStrategy.Registry newIncrementalRegistry()
+    {
+        final IncrementalIdStrategy.Registry r = new IncrementalIdStrategy.Registry(
+                20, 5,
+                20, 5,
+                20, 5,
+                40, 5);
+
+        r.registerCollection(CollectionSchema.MessageFactories.ArrayList, 1)
+                .registerMap(MapSchema.MessageFactories.HashMap, 1)
+                .registerEnum(Color.class, 1)
+                .registerPojo(Item.class, 1)
+                .registerPojo(Impl.class, 2)
+                .mapPojo(Base.class, Impl.class)
+                .registerPojo(Bat.SCHEMA, Bat.PIPE_SCHEMA, 3)
+                .registerDelegate(new ShortArrayDelegate(), 1);
+
+        return r;
+    }
+
+    static Holder newHolder()
+    {
+        final Holder holder = new Holder();
+        holder.item = new Item();
+        holder.item.value = 7;
+        final Impl impl = new Impl();
+        impl.name = "impl";
+        impl.size = 3;
+        holder.base = impl;
+        holder.color = Color.GREEN;
+        holder.shape = Shape.SQUARE;
+        holder.list = new LinkedList<String>(Arrays.asList("a", "b"));
+        final TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+        map.put("one", 1);
+        holder.map = map;
+        final Other other = new Other();
+        other.text = "other";
+        holder.other = other;
+        holder.bat = new Bat();
+        holder.shorts = new short[] { 1, 2 };
+        return holder;
+    }
+
+    static byte[] toByteArray(Holder holder, IdStrategy strategy)
+    {
+        return ProtostuffIOUtil.toByteArray(holder, RuntimeSchema.getSchema(Holder.class, strategy),
+                LinkedBuffer.allocate());
+    }
+
+    static Holder parse(byte[] data, IdStrategy strategy)
+    {
+        final Schema<Holder> schema = RuntimeSchema.getSchema(Holder.class, strategy);
+        final Holder holder = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, holder, schema);
+        return holder;
+    }
+
+    static void assertHolder(Holder holder)
+    {
+        assertEquals(7, holder.item.value);
+        assertEquals("impl", holder.base.name);
+        assertEquals(3, ((Impl) holder.base).size);
+        assertEquals(Color.GREEN, holder.color);
+        assertEquals(Shape.SQUARE, holder.shape);
+        assertEquals(LinkedList.class, holder.list.getClass());
+        assertEquals(Arrays.asList("a", "b"), holder.list);
+        assertEquals(TreeMap.class, holder.map.getClass());
+        assertEquals(Collections.singletonMap("one", 1), holder.map);
+        assertEquals("other", ((Other) holder.other).text);
+        assertEquals(Bat.class, holder.bat.getClass());
+        assertTrue(Arrays.equals(new short[] { 1, 2 }, holder.shorts));
+    }
+
+    static RegistrySnapshot copy(RegistrySnapshot snapshot) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return RegistrySnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    static List<String> describe(List<RegistrySnapshot.Entry> entries)
+    {
+        final ArrayList<String> list = new ArrayList<String>();
+        for (RegistrySnapshot.Entry e : entries)
+            list.add(e.id + ":" + e.name + ":" + e.kind);
+
+        Collections.sort(list);
+        return list;
+    }
+
+    static void assertSameIds(RegistrySnapshot expected, RegistrySnapshot actual)
+    {
+        assertEquals(describe(expected.collections), describe(actual.collections));
+        assertEquals(describe(expected.maps), describe(actual.maps));
+        assertEquals(describe(expected.enums), describe(actual.enums));
+        assertEquals(describe(expected.pojos), describe(actual.pojos));
+        assertEquals(describe(expected.delegates), describe(actual.delegates));
+    }
+
+    public void testIncremental() throws Exception
+    {
+        final IncrementalIdStrategy original = newIncrementalRegistry().strategy;
+        // assigns ids to the lazily registered types
+        final byte[] data = toByteArray(newHolder(), original);
+
+        final RegistrySnapshot snapshot = copy(RegistrySnapshot.from(original));
+        assertEquals(5, snapshot.pojoIdStart);
+        assertEquals(3, snapshot.pojoId(Bat.class));
+        assertEquals(0, snapshot.pojoId(Unused.class));
+
+        final IncrementalIdStrategy.Registry r = snapshot.toIncrementalRegistry(20, 20, 20, 40,
+                new ShortArrayDelegate());
+        r.registerPojo(Bat.SCHEMA, Bat.PIPE_SCHEMA, snapshot.pojoId(Bat.class));
+        final IncrementalIdStrategy imported = r.strategy;
+
+        assertSameIds(snapshot, RegistrySnapshot.from(imported));
+        assertTrue(imported.isRegistered(Item.class));
+        assertFalse(imported.isRegistered(Other.class));
+
+        assertHolder(parse(data, imported));
+        assertTrue(Arrays.equals(data, toByteArray(newHolder(), imported)));
+
+        // the next lazily assigned id follows the imported ones
+        final int enumIdMax = RegistrySnapshot.maxId(snapshot.enums, true);
+        imported.getEnumIO(Unused.class);
+        assertEquals(enumIdMax + 1, imported.enumMapping.get(Unused.class).id);
+    }
+
+    public void testExplicit() throws Exception
+    {
+        final IncrementalIdStrategy original = newIncrementalRegistry().strategy;
+        final byte[] data = toByteArray(newHolder(), original);
+
+        final RegistrySnapshot snapshot = copy(RegistrySnapshot.from(original));
+        final ExplicitIdStrategy.Registry r = snapshot.toExplicitRegistry(new ShortArrayDelegate());
+        r.registerPojo(Bat.SCHEMA, Bat.PIPE_SCHEMA, snapshot.pojoId(Bat.class));
+        final ExplicitIdStrategy explicit = r.strategy;
+
+        assertHolder(parse(data, explicit));
+        assertTrue(Arrays.equals(data, toByteArray(newHolder(), explicit)));
+        assertEquals(Shape.class, explicit.enums.get(
+                snapshot.enums.get(snapshot.enums.size() - 1).id).eio.enumClass);
+
+        // exported again from the explicit strategy, everything is registered
+        final RegistrySnapshot exported = copy(RegistrySnapshot.from(explicit));
+        for (RegistrySnapshot.Entry e : snapshot.pojos)
+        {
+            if (e.kind == RegistrySnapshot.LAZY)
+                e.kind = RegistrySnapshot.REGISTERED;
+        }
+        for (RegistrySnapshot.Entry e : snapshot.enums)
+            e.kind = RegistrySnapshot.REGISTERED;
+        for (RegistrySnapshot.Entry e : snapshot.collections)
+            e.kind = RegistrySnapshot.REGISTERED;
+        for (RegistrySnapshot.Entry e : snapshot.maps)
+            e.kind = RegistrySnapshot.REGISTERED;
+        assertSameIds(snapshot, exported);
+
+        final ExplicitIdStrategy reimported = exported.toExplicitRegistry(new ShortArrayDelegate())
+                .registerPojo(Bat.SCHEMA, Bat.PIPE_SCHEMA, exported.pojoId(Bat.class)).strategy;
+        assertHolder(parse(data, reimported));
+    }
+
+    public void testInvalid() throws Exception
+    {
+        final IncrementalIdStrategy original = newIncrementalRegistry().strategy;
+        toByteArray(newHolder(), original);
+        final RegistrySnapshot snapshot = RegistrySnapshot.from(original);
+
+        try
+        {
+            snapshot.toIncrementalRegistry(20, 20, 20, 40);
+            fail("Expected IllegalArgumentException for the missing delegate");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            snapshot.toIncrementalRegistry(20, 20, 20, 5, new ShortArrayDelegate());
+            fail("Expected IllegalArgumentException for the pojo id max");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+package io.protostuff.runtime;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import io.protostuff.Input;
+import io.protostuff.Output;
+import io.protostuff.Pipe;
+import io.protostuff.ProtostuffException;
+import io.protostuff.WireFormat.FieldType;
+
+/**
+ * Compact {@link Delegate delegates} for common jdk value types that would otherwise be serialized as pojos (writing
+ * their internal fields) or as strings.
+ * <p>
+ * The {@link UUID} and {@code java.time} delegates are registered on the {@link DefaultIdStrategy} when
+ * {@link IdStrategy#BUILTIN_DELEGATES} is set (opt-in via {@code -Dprotostuff.runtime.builtin_delegates=true}), since
+ * they change the wire format of those types (otherwise serialized as pojos). A delegate registered by the user for
+ * the same type replaces the builtin one. The {@link BigDecimal} delegate is never registered by default, since it
+ * would change the wire format of existing {@link BigDecimal} fields (written as strings); register it explicitly if
+ * you don't have persisted data.
+ * <p>
+ * For the numeric id strategies, register them with your own ids via {@code Registry.registerDelegate}.
+ */
+public final class BuiltinDelegates
+{
+
+    private BuiltinDelegates()
+    {
+    }
+
+    /**
+     * {@link UUID} as two fixed64 (most significant bits first), written as 16 bytes.
+     */
+    public static final Delegate<UUID> UUID_DELEGATE = new Delegate<UUID>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.BYTES;
+        }
+
+        @Override
+        public UUID readFrom(Input input) throws IOException
+        {
+            final byte[] buf = input.readByteArray();
+            if (buf.length != 16)
+                throw new ProtostuffException("Invalid uuid length: " + buf.length);
+
+            return new UUID(readLong(buf, 0), readLong(buf, 8));
+        }
+
+        @Override
+        public void writeTo(Output output, int number, UUID value,
+                boolean repeated) throws IOException
+        {
+            final byte[] buf = new byte[16];
+            writeLong(value.getMostSignificantBits(), buf, 0);
+            writeLong(value.getLeastSignificantBits(), buf, 8);
+            output.writeByteArray(number, buf, repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, false, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return UUID.class;
+        }
+    };
+
+    /**
+     * {@link BigDecimal} as the scale (sint32 varint) followed by the two's-complement bytes of the unscaled value.
+     */
+    public static final Delegate<BigDecimal> BIGDECIMAL_DELEGATE = new Delegate<BigDecimal>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.BYTES;
+        }
+
+        @Override
+        public BigDecimal readFrom(Input input) throws IOException
+        {
+            final byte[] buf = input.readByteArray();
+            final ByteReader reader = new ByteReader(buf);
+            final int scale = (int) reader.readSInt64();
+            final int offset = reader.offset;
+            if (offset == buf.length)
+                throw new ProtostuffException("Truncated BigDecimal.");
+
+            final byte[] unscaled = new byte[buf.length - offset];
+            System.arraycopy(buf, offset, unscaled, 0, unscaled.length);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+
+        @Override
+        public void writeTo(Output output, int number, BigDecimal value,
+                boolean repeated) throws IOException
+        {
+            final byte[] unscaled = value.unscaledValue().toByteArray();
+            final long scale = zigzag(value.scale());
+            final byte[] buf = new byte[varintSize(scale) + unscaled.length];
+            final int offset = writeVarint(scale, buf, 0);
+            System.arraycopy(unscaled, 0, buf, offset, unscaled.length);
+            output.writeByteArray(number, buf, repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, false, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return BigDecimal.class;
+        }
+    };
+
+    private static final List<Delegate<?>> DEFAULTS = newDefaults();
+
+    private static List<Delegate<?>> newDefaults()
+    {
+        final ArrayList<Delegate<?>> list = new ArrayList<Delegate<?>>();
+        list.add(UUID_DELEGATE);
+        try
+        {
+            // only on java 8+
+            Class.forName("java.time.Instant");
+            list.addAll(JavaTimeDelegates.all());
+        }
+        catch (ClassNotFoundException e)
+        {
+            // ignore
+        }
+        catch (LinkageError e)
+        {
+            // ignore
+        }
+
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the delegates that are registered by default: {@link UUID} and (on java 8+) the {@code java.time}
+     * delegates from {@link JavaTimeDelegates}.
+     */
+    public static List<Delegate<?>> getDefaults()
+    {
+        return DEFAULTS;
+    }
+
+    static boolean isDefault(Delegate<?> delegate)
+    {
+        for (Delegate<?> d : DEFAULTS)
+        {
+            if (d == delegate)
+                return true;
+        }
+        return false;
+    }
+
+    static long readLong(byte[] buf, int offset)
+    {
+        return ((long) buf[offset] & 0xff) << 56
+                | ((long) buf[offset + 1] & 0xff) << 48
+                | ((long) buf[offset + 2] & 0xff) << 40
+                | ((long) buf[offset + 3] & 0xff) << 32
+                | ((long) buf[offset + 4] & 0xff) << 24
+                | ((long) buf[offset + 5] & 0xff) << 16
+                | ((long) buf[offset + 6] & 0xff) << 8
+                | ((long) buf[offset + 7] & 0xff);
+    }
+
+    static void writeLong(long value, byte[] buf, int offset)
+    {
+        buf[offset] = (byte) (value >>> 56);
+        buf[offset + 1] = (byte) (value >>> 48);
+        buf[offset + 2] = (byte) (value >>> 40);
+        buf[offset + 3] = (byte) (value >>> 32);
+        buf[offset + 4] = (byte) (value >>> 24);
+        buf[offset + 5] = (byte) (value >>> 16);
+        buf[offset + 6] = (byte) (value >>> 8);
+        buf[offset + 7] = (byte) value;
+    }
+
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int varintSize(long value)
+    {
+        int size = 1;
+        while ((value & ~0x7FL) != 0)
+        {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the raw varint and returns the offset after it.
+     */
+    static int writeVarint(long value, byte[] buf, int offset)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buf[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Encodes two varints (the first one zigzag-encoded) into a single byte array.
+     */
+    static byte[] encodePair(long first, long second)
+    {
+        first = zigzag(first);
+        final byte[] buf = new byte[varintSize(first) + varintSize(second)];
+        writeVarint(second, buf, writeVarint(first, buf, 0));
+        return buf;
+    }
+
+    /**
+     * Reads varints off a byte array.
+     */
+    static final class ByteReader
+    {
+        final byte[] buf;
+        int offset;
+
+        ByteReader(byte[] buf)
+        {
+            this.buf = buf;
+        }
+
+        long readVarint() throws ProtostuffException
+        {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                if (offset == buf.length)
+                    throw new ProtostuffException("Truncated varint.");
+
+                final byte b = buf[offset++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+            }
+            throw new ProtostuffException("Malformed varint.");
+        }
+
+        long readSInt64() throws ProtostuffException
+        {
+            final long n = readVarint();
+            return (n >>> 1) ^ -(n & 1);
+        }
+    }
+
+}
@@ -44,15 +44,20 @@ public final class DefaultIdStrategy extends IdStrategy {
     final ConcurrentHashMap<String, HasDelegate<?>> delegateMapping = new ConcurrentHashMap<String, HasDelegate<?>>();
 
     public DefaultIdStrategy() {
-        super(DEFAULT_FLAGS, null, 0);
+        this(DEFAULT_FLAGS, null, 0);
     }
 
     public DefaultIdStrategy(IdStrategy primaryGroup, int groupId) {
-        super(DEFAULT_FLAGS, primaryGroup, groupId);
+        this(DEFAULT_FLAGS, primaryGroup, groupId);
     }
 
     public DefaultIdStrategy(int flags, IdStrategy primaryGroup, int groupId) {
         super(flags, primaryGroup, groupId);
+
+        if (0 != (BUILTIN_DELEGATES & flags)) {
+            for (Delegate<?> delegate : BuiltinDelegates.getDefaults())
+                registerDelegate(delegate);
+        }
     }
 
     /**
@@ -91,11 +96,17 @@ public final class DefaultIdStrategy extends IdStrategy {
     }
 
     /**
-     * Registers a delegate. Returns true if registration is successful.
+     * Registers a delegate. Returns true if registration is successful. A {@link BuiltinDelegates builtin delegate}
+     * is replaced by the delegate of the user (before the schemas using it are created).
      */
     public <T> boolean registerDelegate(Delegate<T> delegate) {
-        return null == delegateMapping.putIfAbsent(delegate.typeClass()
-                .getName(), new HasDelegate<T>(delegate, this));
+        final String name = delegate.typeClass().getName();
+        final HasDelegate<T> hd = new HasDelegate<T>(delegate, this);
+        final HasDelegate<?> last = delegateMapping.putIfAbsent(name, hd);
+
+        return last == null || (BuiltinDelegates.isDefault(last.delegate)
+                && !BuiltinDelegates.isDefault(delegate)
+                && delegateMapping.replace(name, last, hd));
     }
 
     /**
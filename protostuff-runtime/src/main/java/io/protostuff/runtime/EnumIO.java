@@ -141,6 +141,27 @@ public abstract class EnumIO<E extends Enum<E>> implements
             input.transferByteRangeTo(output, true, number, repeated);
     }
 
+    /**
+     * Transfers the ordinal-packed {@link Enum} (see {@link #writeOrdinalTo}) from the input to the output.
+     */
+    public static void transferOrdinal(Pipe pipe, Input input, Output output,
+            int number, boolean repeated) throws IOException
+    {
+        output.writeUInt32(number, input.readUInt32(), repeated);
+    }
+
+    /**
+     * Transfers the bitset-encoded {@link EnumSet} (see {@link #writeBitsTo}) from the input to the output.
+     */
+    public static void transferBits(Pipe pipe, Input input, Output output,
+            int number, boolean repeated, boolean fixed64) throws IOException
+    {
+        if (fixed64)
+            output.writeFixed64(number, input.readFixed64(), repeated);
+        else
+            input.transferByteRangeTo(output, false, number, repeated);
+    }
+
     private static <E extends Enum<E>> CollectionSchema.MessageFactory newEnumSetFactory(
             final EnumIO<E> eio)
     {
@@ -194,6 +215,16 @@ public abstract class EnumIO<E extends Enum<E>> implements
     private final String[] alias;
     private final int[] tag;
 
+    /**
+     * The enum constants, indexed by ordinal.
+     */
+    private final E[] values;
+
+    /**
+     * Dense tag-to-constant table. Null if the tags are too sparse, in which case {@link #valueByTagMap} is used.
+     */
+    private final E[] valueByTag;
+
     private final Map<String, E> valueByAliasMap;
     private final Map<Integer, E> valueByTagMap;
 
@@ -236,6 +267,44 @@ public abstract class EnumIO<E extends Enum<E>> implements
                 throw new IllegalStateException(e);
             }
         }
+
+        values = enumClass.getEnumConstants();
+        valueByTag = newValueByTag(values, tag);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E[] newArray(E[] values, int size)
+    {
+        return (E[]) java.lang.reflect.Array.newInstance(
+                values.getClass().getComponentType(), size);
+    }
+
+    /**
+     * Returns the dense table if all the tags are non-negative and not too sparse (at most 4x the number of
+     * constants, plus some slack for small enums).
+     */
+    private static <E extends Enum<E>> E[] newValueByTag(E[] values, int[] tag)
+    {
+        int max = -1;
+        for (E instance : values)
+        {
+            int t = tag[instance.ordinal()];
+            if (t < 0)
+                return null;
+
+            if (t > max)
+                max = t;
+        }
+
+        if (max >= values.length * 4 + 64)
+            return null;
+
+        final E[] valueByTag = newArray(values, max + 1);
+        // the last declared constant wins on duplicate tags (same as the map)
+        for (E instance : values)
+            valueByTag[tag[instance.ordinal()]] = instance;
+
+        return valueByTag;
     }
 
     @Override
@@ -257,7 +326,11 @@ public abstract class EnumIO<E extends Enum<E>> implements
 
     public E getByTag(int tag)
     {
-        return valueByTagMap.get(tag);
+        final E[] valueByTag = this.valueByTag;
+        if (valueByTag == null)
+            return valueByTagMap.get(tag);
+
+        return tag >= 0 && tag < valueByTag.length ? valueByTag[tag] : null;
     }
 
     public E getByAlias(String alias)
@@ -265,6 +338,107 @@ public abstract class EnumIO<E extends Enum<E>> implements
         return valueByAliasMap.get(alias);
     }
 
+    /**
+     * Returns the enum with the given ordinal, or null if out of range.
+     */
+    public E getByOrdinal(int ordinal)
+    {
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal] : null;
+    }
+
+    /**
+     * Returns true if an {@link EnumSet} of this type fits in a single fixed64 bitset.
+     */
+    public boolean isBitsFixed64()
+    {
+        return values.length <= 64;
+    }
+
+    /**
+     * Writes the enum as its ordinal (uint32). This is used for the keys of {@link EnumMap} when
+     * {@link IdStrategy#COMPACT_ENUM_SET_AND_MAP} is enabled.
+     */
+    public void writeOrdinalTo(Output output, int number, boolean repeated,
+            Enum<?> e) throws IOException
+    {
+        output.writeUInt32(number, e.ordinal(), repeated);
+    }
+
+    /**
+     * Reads the enum from its ordinal (uint32).
+     */
+    public E readOrdinalFrom(Input input) throws IOException
+    {
+        return getByOrdinal(input.readUInt32());
+    }
+
+    /**
+     * Writes the elements as a bitset indexed by ordinal; a fixed64 if the enum has at most 64 constants, otherwise
+     * a little-endian byte array. Nothing is written if the collection is empty.
+     */
+    public void writeBitsTo(Output output, int number, boolean repeated,
+            Collection<? extends Enum<?>> elements) throws IOException
+    {
+        if (values.length <= 64)
+        {
+            long bits = 0;
+            for (Enum<?> e : elements)
+            {
+                if (e != null)
+                    bits |= 1L << e.ordinal();
+            }
+
+            if (bits != 0)
+                output.writeFixed64(number, bits, repeated);
+
+            return;
+        }
+
+        final byte[] bits = new byte[(values.length + 7) >>> 3];
+        boolean empty = true;
+        for (Enum<?> e : elements)
+        {
+            if (e != null)
+            {
+                final int ordinal = e.ordinal();
+                bits[ordinal >>> 3] |= (byte) (1 << (ordinal & 7));
+                empty = false;
+            }
+        }
+
+        if (!empty)
+            output.writeByteArray(number, bits, repeated);
+    }
+
+    /**
+     * Reads the bitset (see {@link #writeBitsTo}) and adds the elements to the collection.
+     */
+    public void mergeBitsFrom(Input input, Collection<? super E> elements)
+            throws IOException
+    {
+        if (values.length <= 64)
+        {
+            long bits = input.readFixed64();
+            while (bits != 0)
+            {
+                final int ordinal = Long.numberOfTrailingZeros(bits);
+                if (ordinal < values.length)
+                    elements.add(values[ordinal]);
+
+                bits &= bits - 1;
+            }
+
+            return;
+        }
+
+        final byte[] bits = input.readByteArray();
+        for (int i = 0, limit = Math.min(bits.length << 3, values.length); i < limit; i++)
+        {
+            if (0 != (bits[i >>> 3] & (1 << (i & 7))))
+                elements.add(values[i]);
+        }
+    }
+
     /**
      * Returns the factory for an EnumSet (lazy).
      */
@@ -330,6 +504,13 @@ public abstract class EnumIO<E extends Enum<E>> implements
             super(enumClass, strategy);
         }
 
+        @Override
+        public void writeTo(Output output, int number, boolean repeated,
+                Enum<?> e) throws IOException
+        {
+            output.writeString(number, getAlias(e), repeated);
+        }
+
         @Override
         public E readFrom(Input input) throws IOException
         {
@@ -348,6 +529,13 @@ public abstract class EnumIO<E extends Enum<E>> implements
             super(enumClass, strategy);
         }
 
+        @Override
+        public void writeTo(Output output, int number, boolean repeated,
+                Enum<?> e) throws IOException
+        {
+            output.writeEnum(number, getTag(e), repeated);
+        }
+
         @Override
         public E readFrom(Input input) throws IOException
         {
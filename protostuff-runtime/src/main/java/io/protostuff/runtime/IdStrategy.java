@@ -44,6 +44,8 @@ public abstract class IdStrategy {
             COLLECTION_SCHEMA_ON_REPEATED_FIELDS = 1 << 6,
             POJO_SCHEMA_ON_COLLECTION_FIELDS = 1 << 7,
             POJO_SCHEMA_ON_MAP_FIELDS = 1 << 8,
+            COMPACT_ENUM_SET_AND_MAP = 1 << 9,
+            BUILTIN_DELEGATES = 1 << 10,
             DEFAULT_FLAGS;
 
     static {
@@ -76,6 +78,12 @@ public abstract class IdStrategy {
         if (RuntimeEnv.POJO_SCHEMA_ON_MAP_FIELDS)
             flags |= POJO_SCHEMA_ON_MAP_FIELDS;
 
+        if (RuntimeEnv.COMPACT_ENUM_SET_AND_MAP)
+            flags |= COMPACT_ENUM_SET_AND_MAP;
+
+        if (RuntimeEnv.BUILTIN_DELEGATES)
+            flags |= BUILTIN_DELEGATES;
+
         DEFAULT_FLAGS = flags;
     }
 
@@ -0,0 +1,245 @@
+package io.protostuff.runtime;
+
+import static io.protostuff.runtime.BuiltinDelegates.encodePair;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import io.protostuff.Input;
+import io.protostuff.Output;
+import io.protostuff.Pipe;
+import io.protostuff.WireFormat.FieldType;
+import io.protostuff.runtime.BuiltinDelegates.ByteReader;
+
+/**
+ * Compact {@link Delegate delegates} for the {@code java.time} value types.
+ * <p>
+ * This class must only be loaded on java 8+ (see {@link BuiltinDelegates#getDefaults()}).
+ */
+public final class JavaTimeDelegates
+{
+
+    private JavaTimeDelegates()
+    {
+    }
+
+    /**
+     * {@link Instant} as the epoch seconds (sint64 varint) followed by the nanos (varint), written as bytes.
+     */
+    public static final Delegate<Instant> INSTANT = new Delegate<Instant>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.BYTES;
+        }
+
+        @Override
+        public Instant readFrom(Input input) throws IOException
+        {
+            final ByteReader reader = new ByteReader(input.readByteArray());
+            final long seconds = reader.readSInt64();
+            return Instant.ofEpochSecond(seconds, reader.readVarint());
+        }
+
+        @Override
+        public void writeTo(Output output, int number, Instant value,
+                boolean repeated) throws IOException
+        {
+            output.writeByteArray(number,
+                    encodePair(value.getEpochSecond(), value.getNano()),
+                    repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, false, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return Instant.class;
+        }
+    };
+
+    /**
+     * {@link Duration} as the seconds (sint64 varint) followed by the nanos (varint), written as bytes.
+     */
+    public static final Delegate<Duration> DURATION = new Delegate<Duration>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.BYTES;
+        }
+
+        @Override
+        public Duration readFrom(Input input) throws IOException
+        {
+            final ByteReader reader = new ByteReader(input.readByteArray());
+            final long seconds = reader.readSInt64();
+            return Duration.ofSeconds(seconds, reader.readVarint());
+        }
+
+        @Override
+        public void writeTo(Output output, int number, Duration value,
+                boolean repeated) throws IOException
+        {
+            output.writeByteArray(number,
+                    encodePair(value.getSeconds(), value.getNano()),
+                    repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, false, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return Duration.class;
+        }
+    };
+
+    /**
+     * {@link LocalDate} as the epoch day (sint64).
+     */
+    public static final Delegate<LocalDate> LOCAL_DATE = new Delegate<LocalDate>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.SINT64;
+        }
+
+        @Override
+        public LocalDate readFrom(Input input) throws IOException
+        {
+            return LocalDate.ofEpochDay(input.readSInt64());
+        }
+
+        @Override
+        public void writeTo(Output output, int number, LocalDate value,
+                boolean repeated) throws IOException
+        {
+            output.writeSInt64(number, value.toEpochDay(), repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            output.writeSInt64(number, input.readSInt64(), repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return LocalDate.class;
+        }
+    };
+
+    /**
+     * {@link LocalTime} as the nano of day (uint64).
+     */
+    public static final Delegate<LocalTime> LOCAL_TIME = new Delegate<LocalTime>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.UINT64;
+        }
+
+        @Override
+        public LocalTime readFrom(Input input) throws IOException
+        {
+            return LocalTime.ofNanoOfDay(input.readUInt64());
+        }
+
+        @Override
+        public void writeTo(Output output, int number, LocalTime value,
+                boolean repeated) throws IOException
+        {
+            output.writeUInt64(number, value.toNanoOfDay(), repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            output.writeUInt64(number, input.readUInt64(), repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return LocalTime.class;
+        }
+    };
+
+    /**
+     * {@link LocalDateTime} as the epoch day (sint64 varint) followed by the nano of day (varint), written as bytes.
+     */
+    public static final Delegate<LocalDateTime> LOCAL_DATE_TIME = new Delegate<LocalDateTime>()
+    {
+        @Override
+        public FieldType getFieldType()
+        {
+            return FieldType.BYTES;
+        }
+
+        @Override
+        public LocalDateTime readFrom(Input input) throws IOException
+        {
+            final ByteReader reader = new ByteReader(input.readByteArray());
+            final long epochDay = reader.readSInt64();
+            return LocalDateTime.of(LocalDate.ofEpochDay(epochDay),
+                    LocalTime.ofNanoOfDay(reader.readVarint()));
+        }
+
+        @Override
+        public void writeTo(Output output, int number, LocalDateTime value,
+                boolean repeated) throws IOException
+        {
+            output.writeByteArray(number,
+                    encodePair(value.toLocalDate().toEpochDay(),
+                            value.toLocalTime().toNanoOfDay()),
+                    repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, false, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return LocalDateTime.class;
+        }
+    };
+
+    /**
+     * Returns all the {@code java.time} delegates.
+     */
+    public static List<Delegate<?>> all()
+    {
+        return Arrays.<Delegate<?>> asList(INSTANT, DURATION, LOCAL_DATE,
+                LOCAL_TIME, LOCAL_DATE_TIME);
+    }
+
+}
@@ -414,7 +414,12 @@ final class RuntimeCollectionFieldFactory
                             strategy);
                 }
 
-                // TODO optimize
+                if (0 != (IdStrategy.COMPACT_ENUM_SET_AND_MAP & strategy.flags))
+                {
+                    return RuntimeRepeatedFieldFactory.createEnumSetBitsV(
+                            number, name, f, enumType, strategy);
+                }
+
                 return createCollectionEnumV(number, name, f, strategy
                         .getEnumIO(enumType).getEnumSetFactory(), enumType,
                         strategy);
@@ -0,0 +1,115 @@
+package io.protostuff.runtime;
+
+import static io.protostuff.runtime.RuntimeFieldFactory.ID_POJO;
+import static io.protostuff.runtime.RuntimeFieldFactory.getGenericType;
+
+import java.io.IOException;
+
+import io.protostuff.Input;
+import io.protostuff.Lazy;
+import io.protostuff.Output;
+import io.protostuff.Pipe;
+import io.protostuff.Tag;
+import io.protostuff.WireFormat.FieldType;
+
+/**
+ * Creates the runtime fields for {@link Lazy} nested messages, which are read as raw bytes and decoded on access.
+ * The field is a protobuf-encoded bytes field with every format (see {@link Lazy}).
+ * <p>
+ * This class is only loaded when a field is declared as {@link Lazy} (protostuff-core is optional for the runtime).
+ */
+final class RuntimeLazyFieldFactory
+{
+
+    private RuntimeLazyFieldFactory()
+    {
+    }
+
+    static final String LAZY_CLASS_NAME = "io.protostuff.Lazy";
+
+    static RuntimeFieldFactory<Object> getFactory()
+    {
+        return LAZY;
+    }
+
+    static final RuntimeFieldFactory<Object> LAZY = new RuntimeFieldFactory<Object>(
+            ID_POJO)
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Field<T> create(int number, String name,
+                final java.lang.reflect.Field f, IdStrategy strategy)
+        {
+            final Class<Object> type = (Class<Object>) getGenericType(f, 0);
+            if (type == null || type.isInterface() || type.isArray())
+            {
+                throw new RuntimeException("The field " + f.getName() + " of "
+                        + f.getDeclaringClass() + " must declare a concrete message type for Lazy.");
+            }
+
+            final HasSchema<Object> hs = strategy.getSchemaWrapper(type, true);
+            final Accessor accessor = RuntimeFieldFactory.ACCESSOR_FACTORY.create(f);
+            return new Field<T>(FieldType.BYTES, number, name, false,
+                    f.getAnnotation(Tag.class))
+            {
+                @Override
+                protected void mergeFrom(Input input, T message)
+                        throws IOException
+                {
+                    final byte[] data = input.readByteArray();
+                    accessor.set(message, Lazy.wrap(data, 0, data.length,
+                            hs.getSchema()));
+                }
+
+                @Override
+                protected void writeTo(Output output, T message)
+                        throws IOException
+                {
+                    final Lazy<Object> existing = accessor.get(message);
+                    if (existing != null)
+                        existing.writeTo(output, number, hs.getSchema(), false);
+                }
+
+                @Override
+                protected void transfer(Pipe pipe, Input input, Output output,
+                        boolean repeated) throws IOException
+                {
+                    input.transferByteRangeTo(output, false, number, repeated);
+                }
+            };
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object readFrom(Input input) throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void writeTo(Output output, int number, Object value,
+                boolean repeated) throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FieldType getFieldType()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+}
@@ -594,12 +594,22 @@ final class RuntimeMapFieldFactory
         };
     }
 
+    /**
+     * Returns true if the enum keys of the map field are written as their ordinal.
+     */
+    static boolean ordinalKeys(java.lang.reflect.Field f, IdStrategy strategy)
+    {
+        return 0 != (IdStrategy.COMPACT_ENUM_SET_AND_MAP & strategy.flags)
+                && EnumMap.class.isAssignableFrom(f.getType());
+    }
+
     private static <T> Field<T> createMapEnumKEnumV(int number, String name,
             final java.lang.reflect.Field f, MessageFactory messageFactory,
             final Class<Object> clazzK, final Class<Object> clazzV,
             final IdStrategy strategy)
     {
         final EnumIO<?> eioK = strategy.getEnumIO(clazzK);
+        final boolean ordinalK = ordinalKeys(f, strategy);
         final EnumIO<?> eioV = strategy.getEnumIO(clazzV);
 
         return new RuntimeMapField<T, Enum<?>, Enum<?>>(FieldType.MESSAGE,
@@ -653,21 +663,28 @@ final class RuntimeMapFieldFactory
             protected Enum<?> kFrom(Input input,
                     MapWrapper<Enum<?>, Enum<?>> wrapper) throws IOException
             {
-                return eioK.readFrom(input);
+                return ordinalK ? eioK.readOrdinalFrom(input) : eioK
+                        .readFrom(input);
             }
 
             @Override
             protected void kTo(Output output, int fieldNumber, Enum<?> key,
                     boolean repeated) throws IOException
             {
-                eioK.writeTo(output, fieldNumber, repeated, key);
+                if (ordinalK)
+                    eioK.writeOrdinalTo(output, fieldNumber, repeated, key);
+                else
+                    eioK.writeTo(output, fieldNumber, repeated, key);
             }
 
             @Override
             protected void kTransfer(Pipe pipe, Input input, Output output,
                     int number, boolean repeated) throws IOException
             {
-                EnumIO.transfer(pipe, input, output, number, repeated, strategy);
+                if (ordinalK)
+                    EnumIO.transferOrdinal(pipe, input, output, number, repeated);
+                else
+                    EnumIO.transfer(pipe, input, output, number, repeated, strategy);
             }
 
             @Override
@@ -700,6 +717,7 @@ final class RuntimeMapFieldFactory
             final IdStrategy strategy)
     {
         final EnumIO<?> eioK = strategy.getEnumIO(clazzK);
+        final boolean ordinalK = ordinalKeys(f, strategy);
 
         return new RuntimeMapField<T, Enum<?>, Object>(FieldType.MESSAGE,
                 number, name, f.getAnnotation(Tag.class), messageFactory)
@@ -752,21 +770,28 @@ final class RuntimeMapFieldFactory
             protected Enum<?> kFrom(Input input,
                     MapWrapper<Enum<?>, Object> wrapper) throws IOException
             {
-                return eioK.readFrom(input);
+                return ordinalK ? eioK.readOrdinalFrom(input) : eioK
+                        .readFrom(input);
             }
 
             @Override
             protected void kTo(Output output, int fieldNumber, Enum<?> key,
                     boolean repeated) throws IOException
             {
-                eioK.writeTo(output, fieldNumber, repeated, key);
+                if (ordinalK)
+                    eioK.writeOrdinalTo(output, fieldNumber, repeated, key);
+                else
+                    eioK.writeTo(output, fieldNumber, repeated, key);
             }
 
             @Override
             protected void kTransfer(Pipe pipe, Input input, Output output,
                     int number, boolean repeated) throws IOException
             {
-                EnumIO.transfer(pipe, input, output, number, repeated, strategy);
+                if (ordinalK)
+                    EnumIO.transferOrdinal(pipe, input, output, number, repeated);
+                else
+                    EnumIO.transfer(pipe, input, output, number, repeated, strategy);
             }
 
             @Override
@@ -799,6 +824,7 @@ final class RuntimeMapFieldFactory
             final IdStrategy strategy)
     {
         final EnumIO<?> eioK = strategy.getEnumIO(clazzK);
+        final boolean ordinalK = ordinalKeys(f, strategy);
         final HasSchema<Object> schemaV = strategy.getSchemaWrapper(clazzV,
                 true);
 
@@ -853,21 +879,28 @@ final class RuntimeMapFieldFactory
             protected Enum<?> kFrom(Input input,
                     MapWrapper<Enum<?>, Object> wrapper) throws IOException
             {
-                return eioK.readFrom(input);
+                return ordinalK ? eioK.readOrdinalFrom(input) : eioK
+                        .readFrom(input);
             }
 
             @Override
             protected void kTo(Output output, int fieldNumber, Enum<?> key,
                     boolean repeated) throws IOException
             {
-                eioK.writeTo(output, fieldNumber, repeated, key);
+                if (ordinalK)
+                    eioK.writeOrdinalTo(output, fieldNumber, repeated, key);
+                else
+                    eioK.writeTo(output, fieldNumber, repeated, key);
             }
 
             @Override
             protected void kTransfer(Pipe pipe, Input input, Output output,
                     int number, boolean repeated) throws IOException
             {
-                EnumIO.transfer(pipe, input, output, number, repeated, strategy);
+                if (ordinalK)
+                    EnumIO.transferOrdinal(pipe, input, output, number, repeated);
+                else
+                    EnumIO.transfer(pipe, input, output, number, repeated, strategy);
             }
 
             @Override
@@ -902,6 +935,7 @@ final class RuntimeMapFieldFactory
             final Class<Object> clazzV, final IdStrategy strategy)
     {
         final EnumIO<?> eioK = strategy.getEnumIO(clazzK);
+        final boolean ordinalK = ordinalKeys(f, strategy);
 
         return new RuntimeMapField<T, Enum<?>, Object>(FieldType.MESSAGE,
                 number, name, f.getAnnotation(Tag.class), messageFactory)
@@ -955,21 +989,28 @@ final class RuntimeMapFieldFactory
             protected Enum<?> kFrom(Input input,
                     MapWrapper<Enum<?>, Object> wrapper) throws IOException
             {
-                return eioK.readFrom(input);
+                return ordinalK ? eioK.readOrdinalFrom(input) : eioK
+                        .readFrom(input);
             }
 
             @Override
             protected void kTo(Output output, int fieldNumber, Enum<?> key,
                     boolean repeated) throws IOException
             {
-                eioK.writeTo(output, fieldNumber, repeated, key);
+                if (ordinalK)
+                    eioK.writeOrdinalTo(output, fieldNumber, repeated, key);
+                else
+                    eioK.writeTo(output, fieldNumber, repeated, key);
             }
 
             @Override
             protected void kTransfer(Pipe pipe, Input input, Output output,
                     int number, boolean repeated) throws IOException
             {
-                EnumIO.transfer(pipe, input, output, number, repeated, strategy);
+                if (ordinalK)
+                    EnumIO.transferOrdinal(pipe, input, output, number, repeated);
+                else
+                    EnumIO.transfer(pipe, input, output, number, repeated, strategy);
             }
 
             @Override
@@ -1021,6 +1062,7 @@ final class RuntimeMapFieldFactory
             final Pipe.Schema<Object> valuePipeSchema, final IdStrategy strategy)
     {
         final EnumIO<?> eioK = strategy.getEnumIO(clazzK);
+        final boolean ordinalK = ordinalKeys(f, strategy);
 
         return new RuntimeMapField<T, Enum<?>, Object>(FieldType.MESSAGE,
                 number, name, f.getAnnotation(Tag.class), messageFactory)
@@ -1074,21 +1116,28 @@ final class RuntimeMapFieldFactory
             protected Enum<?> kFrom(Input input,
                     MapWrapper<Enum<?>, Object> wrapper) throws IOException
             {
-                return eioK.readFrom(input);
+                return ordinalK ? eioK.readOrdinalFrom(input) : eioK
+                        .readFrom(input);
             }
 
             @Override
             protected void kTo(Output output, int fieldNumber, Enum<?> key,
                     boolean repeated) throws IOException
             {
-                eioK.writeTo(output, fieldNumber, repeated, key);
+                if (ordinalK)
+                    eioK.writeOrdinalTo(output, fieldNumber, repeated, key);
+                else
+                    eioK.writeTo(output, fieldNumber, repeated, key);
             }
 
             @Override
             protected void kTransfer(Pipe pipe, Input input, Output output,
                     int number, boolean repeated) throws IOException
             {
-                EnumIO.transfer(pipe, input, output, number, repeated, strategy);
+                if (ordinalK)
+                    EnumIO.transferOrdinal(pipe, input, output, number, repeated);
+                else
+                    EnumIO.transfer(pipe, input, output, number, repeated, strategy);
             }
 
             @Override
@@ -140,6 +140,50 @@ final class RuntimeRepeatedFieldFactory
         };
     }
 
+    /**
+     * Creates an {@link EnumSet} field that is written as a single bitset (see {@link EnumIO#writeBitsTo}).
+     */
+    static <T> Field<T> createEnumSetBitsV(int number, String name,
+            java.lang.reflect.Field f, final Class<Object> enumType,
+            final IdStrategy strategy)
+    {
+        final EnumIO<?> eio = strategy.getEnumIO(enumType);
+        final boolean fixed64 = eio.isBitsFixed64();
+        final Accessor accessor = AF.create(f);
+        return new Field<T>(fixed64 ? FieldType.FIXED64 : FieldType.BYTES,
+                number, name, false, f.getAnnotation(Tag.class))
+        {
+            @Override
+            protected void mergeFrom(Input input, T message) throws IOException
+            {
+                Collection<Enum<?>> existing = accessor.get(message);
+                if (existing == null)
+                {
+                    accessor.set(message, existing = eio.getEnumSetFactory()
+                            .<Enum<?>> newMessage());
+                }
+
+                eio.mergeBitsFrom(input, existing);
+            }
+
+            @Override
+            protected void writeTo(Output output, T message) throws IOException
+            {
+                final Collection<Enum<?>> collection = accessor.get(message);
+                if (collection != null && !collection.isEmpty())
+                    eio.writeBitsTo(output, number, false, collection);
+            }
+
+            @Override
+            protected void transfer(Pipe pipe, Input input, Output output,
+                    boolean repeated) throws IOException
+            {
+                EnumIO.transferBits(pipe, input, output, number, repeated,
+                        fixed64);
+            }
+        };
+    }
+
     private static <T> Field<T> createCollectionPojoV(int number, String name,
             java.lang.reflect.Field f,
             final MessageFactory messageFactory,
@@ -360,6 +404,12 @@ final class RuntimeRepeatedFieldFactory
                             strategy);
                 }
 
+                if (0 != (IdStrategy.COMPACT_ENUM_SET_AND_MAP & strategy.flags))
+                {
+                    return createEnumSetBitsV(number, name, f, enumType,
+                            strategy);
+                }
+
                 return createCollectionEnumV(number, name, f, strategy
                         .getEnumIO(enumType).getEnumSetFactory(), enumType,
                         strategy);
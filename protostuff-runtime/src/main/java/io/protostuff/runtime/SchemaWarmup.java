@@ -0,0 +1,413 @@
+package io.protostuff.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import io.protostuff.Message;
+import io.protostuff.Schema;
+
+/**
+ * Creates the schemas of the given classes ahead of time (on application startup), so the first message of each
+ * type does not pay for the reflection, the field factories and the registration in the {@link IdStrategy}.
+ *
+ * <pre>
+ * SchemaWarmup.Result result = new SchemaWarmup(strategy)
+ *         .addPackage("com.example.dto")
+ *         .addClass(Order.class)
+ *         .run();
+ * </pre>
+ *
+ * The schemas are created in parallel (one thread per core by default), including the schemas of the pojos and
+ * enums reached from their fields (also through arrays, collections, maps and {@link io.protostuff.Lazy}). Fields
+ * declared as an interface, an abstract class or {@code Object} are polymorphic: the concrete types are only known
+ * at runtime, so add them (or their package) explicitly.
+ * <p>
+ * Failures (e.g. types unknown to an explicit id strategy) do not stop the warm-up, they are reported in the
+ * {@link Result}.
+ */
+public final class SchemaWarmup
+{
+
+    /**
+     * The outcome of {@link SchemaWarmup#run()}.
+     */
+    public static final class Result
+    {
+        /**
+         * The pojos and enums whose schema (or {@link EnumIO}) is created, in no particular order.
+         */
+        public final List<Class<?>> warmed;
+
+        /**
+         * The types that failed, with their error.
+         */
+        public final Map<Class<?>, Throwable> failed;
+
+        Result(List<Class<?>> warmed, Map<Class<?>, Throwable> failed)
+        {
+            this.warmed = warmed;
+            this.failed = failed;
+        }
+    }
+
+    final IdStrategy strategy;
+    final LinkedHashSet<Class<?>> classes = new LinkedHashSet<Class<?>>();
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Warms up the schemas of the {@link RuntimeEnv#ID_STRATEGY default strategy}.
+     */
+    public SchemaWarmup()
+    {
+        this(RuntimeEnv.ID_STRATEGY);
+    }
+
+    public SchemaWarmup(IdStrategy strategy)
+    {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Sets the number of threads (the number of cores by default).
+     */
+    public SchemaWarmup threads(int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads: " + threads);
+
+        this.threads = threads;
+        return this;
+    }
+
+    public SchemaWarmup addClass(Class<?> typeClass)
+    {
+        classes.add(typeClass);
+        return this;
+    }
+
+    public SchemaWarmup addClasses(Collection<? extends Class<?>> typeClasses)
+    {
+        classes.addAll(typeClasses);
+        return this;
+    }
+
+    /**
+     * Adds the classes of the package and its sub-packages, found on the classpath of the context class loader (see
+     * {@link #scan(String, ClassLoader)}).
+     */
+    public SchemaWarmup addPackage(String packageName) throws IOException
+    {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null)
+            loader = SchemaWarmup.class.getClassLoader();
+
+        return addPackage(packageName, loader);
+    }
+
+    /**
+     * Adds the classes of the package and its sub-packages, found on the classpath of the {@code loader} (see
+     * {@link #scan(String, ClassLoader)}).
+     */
+    public SchemaWarmup addPackage(String packageName, ClassLoader loader) throws IOException
+    {
+        classes.addAll(scan(packageName, loader));
+        return this;
+    }
+
+    /**
+     * Creates the schemas and waits for them.
+     */
+    public Result run() throws InterruptedException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                final Thread t = new Thread(r, "protostuff-warmup-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final Walk walk = new Walk(strategy, executor);
+        try
+        {
+            for (Class<?> typeClass : classes)
+                walk.submit(typeClass);
+
+            walk.await();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return new Result(new ArrayList<Class<?>>(walk.warmed),
+                Collections.unmodifiableMap(walk.failed));
+    }
+
+    /**
+     * The traversal of the types, each visited once.
+     */
+    static final class Walk
+    {
+        final IdStrategy strategy;
+        final ExecutorService executor;
+        final ConcurrentHashMap<Class<?>, Boolean> visited = new ConcurrentHashMap<Class<?>, Boolean>();
+        final ConcurrentLinkedQueue<Class<?>> warmed = new ConcurrentLinkedQueue<Class<?>>();
+        final ConcurrentHashMap<Class<?>, Throwable> failed = new ConcurrentHashMap<Class<?>, Throwable>();
+
+        // the submitting thread holds one until await
+        final AtomicInteger pending = new AtomicInteger(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Walk(IdStrategy strategy, ExecutorService executor)
+        {
+            this.strategy = strategy;
+            this.executor = executor;
+        }
+
+        void await() throws InterruptedException
+        {
+            release();
+            done.await();
+        }
+
+        void release()
+        {
+            if (pending.decrementAndGet() == 0)
+                done.countDown();
+        }
+
+        void submit(final Class<?> typeClass)
+        {
+            if (visited.putIfAbsent(typeClass, Boolean.TRUE) != null)
+                return;
+
+            pending.incrementAndGet();
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        visit(typeClass);
+                    }
+                    catch (Throwable e)
+                    {
+                        failed.put(typeClass, e);
+                    }
+                    finally
+                    {
+                        release();
+                    }
+                }
+            });
+        }
+
+        void visit(Class<?> typeClass)
+        {
+            final RuntimeFieldFactory<?> factory = RuntimeFieldFactory.getFieldFactory(typeClass,
+                    strategy);
+            if (factory == RuntimeFieldFactory.ENUM)
+            {
+                strategy.getEnumIO(typeClass);
+                warmed.add(typeClass);
+                return;
+            }
+
+            if ((factory != RuntimeFieldFactory.POJO && factory != RuntimeFieldFactory.POLYMORPHIC_POJO)
+                    || typeClass.isInterface() || Modifier.isAbstract(typeClass.getModifiers()))
+            {
+                // scalars, delegates, collections and the polymorphic types
+                return;
+            }
+
+            final Schema<?> schema = strategy.getSchemaWrapper(typeClass, true).getSchema();
+            warmed.add(typeClass);
+
+            // the schemas of messages are not created from their fields
+            if (!(schema instanceof RuntimeSchema))
+                return;
+
+            for (java.lang.reflect.Field f : RuntimeSchema.findInstanceFields(typeClass).values())
+                reach(f);
+        }
+
+        void reach(java.lang.reflect.Field f)
+        {
+            final Class<?> type = componentType(f.getType());
+            final RuntimeFieldFactory<?> factory = RuntimeFieldFactory.getFieldFactory(type, strategy);
+            if (factory == RuntimeFieldFactory.COLLECTION
+                    || RuntimeLazyFieldFactory.LAZY_CLASS_NAME.equals(type.getName()))
+            {
+                reach(RuntimeFieldFactory.getGenericType(f, 0));
+            }
+            else if (factory == RuntimeMapFieldFactory.MAP)
+            {
+                reach(RuntimeFieldFactory.getGenericType(f, 0));
+                reach(RuntimeFieldFactory.getGenericType(f, 1));
+            }
+            else
+                submit(type);
+        }
+
+        void reach(Class<?> type)
+        {
+            // null if not resolvable (type variables and nested generics)
+            if (type != null)
+                submit(componentType(type));
+        }
+
+        static Class<?> componentType(Class<?> type)
+        {
+            while (type.isArray())
+                type = type.getComponentType();
+
+            return type;
+        }
+    }
+
+    /**
+     * Returns the classes of the package and its sub-packages, from the directories and jars of the {@code loader}.
+     * <p>
+     * Only the classes that can have a schema are returned: the enums, the {@link Message messages} and the concrete
+     * (static) classes with instance fields. Abstract classes, interfaces, anonymous/local/inner classes and
+     * throwables are skipped, as well as the classes that fail to load.
+     */
+    public static List<Class<?>> scan(String packageName, ClassLoader loader) throws IOException
+    {
+        final String path = packageName.replace('.', '/');
+        final LinkedHashSet<String> classNames = new LinkedHashSet<String>();
+        for (Enumeration<URL> e = loader.getResources(path); e.hasMoreElements();)
+        {
+            final URL url = e.nextElement();
+            if ("file".equals(url.getProtocol()))
+            {
+                try
+                {
+                    scanDirectory(new File(url.toURI()), packageName, classNames);
+                }
+                catch (URISyntaxException ex)
+                {
+                    throw new IOException("Invalid url: " + url, ex);
+                }
+            }
+            else if ("jar".equals(url.getProtocol()))
+            {
+                final JarURLConnection connection = (JarURLConnection) url.openConnection();
+                connection.setUseCaches(false);
+                final JarFile jar = connection.getJarFile();
+                try
+                {
+                    scanJar(jar, path, classNames);
+                }
+                finally
+                {
+                    jar.close();
+                }
+            }
+        }
+
+        final ArrayList<Class<?>> classes = new ArrayList<Class<?>>(classNames.size());
+        for (String className : classNames)
+        {
+            final Class<?> c;
+            try
+            {
+                c = Class.forName(className, false, loader);
+            }
+            catch (ClassNotFoundException e)
+            {
+                continue;
+            }
+            catch (LinkageError e)
+            {
+                continue;
+            }
+
+            if (isCandidate(c))
+                classes.add(c);
+        }
+        return classes;
+    }
+
+    static void scanDirectory(File dir, String packageName, Collection<String> classNames)
+    {
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        for (File file : files)
+        {
+            final String name = file.getName();
+            if (file.isDirectory())
+            {
+                scanDirectory(file, packageName.isEmpty() ? name : packageName + '.' + name,
+                        classNames);
+            }
+            else if (isClassFile(name))
+            {
+                final String simpleName = name.substring(0, name.length() - 6);
+                classNames.add(packageName.isEmpty() ? simpleName : packageName + '.' + simpleName);
+            }
+        }
+    }
+
+    static void scanJar(JarFile jar, String path, Collection<String> classNames)
+    {
+        final String prefix = path.isEmpty() ? "" : path + '/';
+        for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();)
+        {
+            final String name = e.nextElement().getName();
+            if (name.startsWith(prefix) && isClassFile(name))
+                classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+        }
+    }
+
+    static boolean isClassFile(String name)
+    {
+        return name.endsWith(".class") && !name.endsWith("package-info.class")
+                && !name.endsWith("module-info.class");
+    }
+
+    static boolean isCandidate(Class<?> c)
+    {
+        if (c.isEnum())
+            return true;
+
+        final int mod = c.getModifiers();
+        if (c.isInterface() || Modifier.isAbstract(mod) || c.isSynthetic() || c.isAnonymousClass()
+                || c.isLocalClass() || Throwable.class.isAssignableFrom(c)
+                || (c.getEnclosingClass() != null && !Modifier.isStatic(mod)))
+        {
+            return false;
+        }
+
+        return Message.class.isAssignableFrom(c) || !RuntimeSchema.findInstanceFields(c).isEmpty();
+    }
+
+}
@@ -0,0 +1,224 @@
+package io.protostuff.runtime;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import io.protostuff.AbstractTest;
+import io.protostuff.Input;
+import io.protostuff.Output;
+import io.protostuff.Pipe;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.WireFormat.FieldType;
+
+/**
+ * Tests for {@link BuiltinDelegates} and {@link JavaTimeDelegates}.
+ */
+public class BuiltinDelegatesTest extends AbstractTest
+{
+
+    static final class Event
+    {
+        UUID id;
+        Instant at;
+        Duration took;
+        LocalDate day;
+        LocalTime time;
+        LocalDateTime local;
+        BigDecimal amount;
+        List<UUID> related;
+        Object any;
+
+        Event fill()
+        {
+            id = UUID.randomUUID();
+            at = Instant.ofEpochSecond(1500000000L, 123456789);
+            took = Duration.ofSeconds(-5, 42);
+            day = LocalDate.of(1960, 2, 29);
+            time = LocalTime.of(23, 59, 59, 999999999);
+            local = LocalDateTime.of(day, time);
+            amount = new BigDecimal("-12345678901234567890.000123");
+            related = new ArrayList<UUID>();
+            related.add(UUID.randomUUID());
+            related.add(new UUID(0, 0));
+            any = Instant.EPOCH;
+            return this;
+        }
+
+        void assertEqualTo(Event other)
+        {
+            assertEquals(id, other.id);
+            assertEquals(at, other.at);
+            assertEquals(took, other.took);
+            assertEquals(day, other.day);
+            assertEquals(time, other.time);
+            assertEquals(local, other.local);
+            assertEquals(amount, other.amount);
+            assertEquals(related, other.related);
+            assertEquals(any, other.any);
+        }
+    }
+
+    static DefaultIdStrategy newBuiltinStrategy()
+    {
+        return new DefaultIdStrategy(
+                IdStrategy.DEFAULT_FLAGS | IdStrategy.BUILTIN_DELEGATES,
+                null, 0);
+    }
+
+    static DefaultIdStrategy newStrategy()
+    {
+        DefaultIdStrategy strategy = newBuiltinStrategy();
+        strategy.registerDelegate(BuiltinDelegates.BIGDECIMAL_DELEGATE);
+        return strategy;
+    }
+
+    public void testDefaultsRegistered()
+    {
+        DefaultIdStrategy strategy = newBuiltinStrategy();
+        assertTrue(strategy.isDelegateRegistered(UUID.class));
+        assertTrue(strategy.isDelegateRegistered(Instant.class));
+        assertTrue(strategy.isDelegateRegistered(LocalDate.class));
+        assertFalse(strategy.isDelegateRegistered(BigDecimal.class));
+
+        // opt-in
+        DefaultIdStrategy without = new DefaultIdStrategy(
+                IdStrategy.DEFAULT_FLAGS & ~IdStrategy.BUILTIN_DELEGATES,
+                null, 0);
+        assertFalse(without.isDelegateRegistered(UUID.class));
+    }
+
+    /**
+     * A user delegate (here writing the same as the builtin).
+     */
+    static final class ForwardingDelegate<T> implements Delegate<T>
+    {
+        final Delegate<T> delegate;
+
+        ForwardingDelegate(Delegate<T> delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public FieldType getFieldType()
+        {
+            return delegate.getFieldType();
+        }
+
+        @Override
+        public T readFrom(Input input) throws IOException
+        {
+            return delegate.readFrom(input);
+        }
+
+        @Override
+        public void writeTo(Output output, int number, T value, boolean repeated)
+                throws IOException
+        {
+            delegate.writeTo(output, number, value, repeated);
+        }
+
+        @Override
+        public void transfer(Pipe pipe, Input input, Output output, int number,
+                boolean repeated) throws IOException
+        {
+            delegate.transfer(pipe, input, output, number, repeated);
+        }
+
+        @Override
+        public Class<?> typeClass()
+        {
+            return delegate.typeClass();
+        }
+    }
+
+    public void testUserDelegateReplacesBuiltin()
+    {
+        DefaultIdStrategy strategy = newBuiltinStrategy();
+        Delegate<UUID> custom = new ForwardingDelegate<UUID>(
+                BuiltinDelegates.UUID_DELEGATE);
+
+        assertTrue(strategy.registerDelegate(custom));
+        assertSame(custom, strategy.getDelegateWrapper(UUID.class).delegate);
+        // a builtin does not replace the delegate of the user
+        assertFalse(strategy.registerDelegate(BuiltinDelegates.UUID_DELEGATE));
+        assertSame(custom, strategy.getDelegateWrapper(UUID.class).delegate);
+    }
+
+    public static final class Id
+    {
+        UUID id;
+    }
+
+    public void testReadsPojoEncodedUuid() throws Exception
+    {
+        // Id { UUID id = new UUID(1, 2) } as written before the builtin delegates: the uuid as a nested message of
+        // its fields (mostSigBits = 1, leastSigBits = 2)
+        final byte[] baseline = new byte[] { 0x0a, 0x04, 0x08, 0x01, 0x10, 0x02 };
+
+        Schema<Id> schema = RuntimeSchema.createFrom(Id.class,
+                new DefaultIdStrategy(IdStrategy.DEFAULT_FLAGS & ~IdStrategy.BUILTIN_DELEGATES,
+                        null, 0));
+        Id parsed = new Id();
+        ProtobufIOUtil.mergeFrom(baseline, parsed, schema);
+        assertEquals(new UUID(1, 2), parsed.id);
+
+        parsed.id = new UUID(1, 2);
+        assertTrue(Arrays.equals(baseline,
+                ProtobufIOUtil.toByteArray(parsed, schema, buf())));
+    }
+
+    public void testProtostuff() throws Exception
+    {
+        Schema<Event> schema = RuntimeSchema.createFrom(Event.class,
+                newStrategy());
+        Event event = new Event().fill();
+
+        byte[] data = ProtostuffIOUtil.toByteArray(event, schema, buf());
+
+        Event parsed = new Event();
+        ProtostuffIOUtil.mergeFrom(data, parsed, schema);
+        event.assertEqualTo(parsed);
+    }
+
+    public void testProtobuf() throws Exception
+    {
+        Schema<Event> schema = RuntimeSchema.createFrom(Event.class,
+                newStrategy());
+        Event event = new Event().fill();
+
+        byte[] data = ProtobufIOUtil.toByteArray(event, schema, buf());
+
+        Event parsed = new Event();
+        ProtobufIOUtil.mergeFrom(data, parsed, schema);
+        event.assertEqualTo(parsed);
+    }
+
+    public static final class Day
+    {
+        LocalDate day;
+    }
+
+    public void testLocalDateIsVarint() throws Exception
+    {
+        Schema<Day> schema = RuntimeSchema.createFrom(Day.class,
+                newBuiltinStrategy());
+        Day d = new Day();
+        d.day = LocalDate.of(2026, 10, 19);
+
+        // tag + 3 byte varint
+        assertEquals(4, ProtostuffIOUtil.toByteArray(d, schema, buf()).length);
+    }
+
+}
@@ -31,6 +31,7 @@ import io.protostuff.GraphIOUtil;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
+import io.protostuff.Tag;
 
 /**
  * Test ser/deser of pojos with {@link EnumSet} and {@link EnumMap} fields.
@@ -339,6 +340,92 @@ public class EnumSetAndMapTest extends AbstractTest
         assertEquals(list, parsedList);
     }
 
+    static DefaultIdStrategy newCompactStrategy()
+    {
+        return new DefaultIdStrategy(IdStrategy.DEFAULT_FLAGS
+                | IdStrategy.COMPACT_ENUM_SET_AND_MAP, null, 0);
+    }
+
+    public void testPojoWithEnumSetCompact() throws Exception
+    {
+        Schema<PojoWithEnumSet> schema = RuntimeSchema.createFrom(
+                PojoWithEnumSet.class, newCompactStrategy());
+        PojoWithEnumSet p = new PojoWithEnumSet().fill();
+
+        byte[] data = ProtostuffIOUtil.toByteArray(p, schema, buf());
+
+        PojoWithEnumSet p2 = new PojoWithEnumSet();
+        ProtostuffIOUtil.mergeFrom(data, 0, data.length, p2, schema);
+
+        assertEquals(p, p2);
+    }
+
+    public void testPojoWithEnumMapCompact() throws Exception
+    {
+        Schema<PojoWithEnumMap> schema = RuntimeSchema.createFrom(
+                PojoWithEnumMap.class, newCompactStrategy());
+        PojoWithEnumMap p = new PojoWithEnumMap().fill();
+
+        byte[] data = ProtostuffIOUtil.toByteArray(p, schema, buf());
+
+        PojoWithEnumMap p2 = new PojoWithEnumMap();
+        ProtostuffIOUtil.mergeFrom(data, 0, data.length, p2, schema);
+
+        assertEquals(p, p2);
+    }
+
+    public static class PojoWithOnlyEnumSet
+    {
+        EnumSet<Sequence> enumSet;
+    }
+
+    public void testEnumSetBitsIsSingleFixed64() throws Exception
+    {
+        Schema<PojoWithOnlyEnumSet> schema = RuntimeSchema.createFrom(
+                PojoWithOnlyEnumSet.class, newCompactStrategy());
+        PojoWithOnlyEnumSet p = new PojoWithOnlyEnumSet();
+        p.enumSet = EnumSet.allOf(Sequence.class);
+
+        byte[] data = ProtostuffIOUtil.toByteArray(p, schema, buf());
+        // tag + fixed64
+        assertEquals(9, data.length);
+
+        PojoWithOnlyEnumSet p2 = new PojoWithOnlyEnumSet();
+        ProtostuffIOUtil.mergeFrom(data, p2, schema);
+        assertEquals(p.enumSet, p2.enumSet);
+
+        p.enumSet = EnumSet.noneOf(Sequence.class);
+        assertEquals(0,
+                ProtostuffIOUtil.toByteArray(p, schema, buf()).length);
+    }
+
+    public enum Sparse
+    {
+        @Tag(value = 3, alias = "three")
+        THREE,
+        @Tag(value = 100000, alias = "big")
+        BIG,
+        @Tag(value = 1, alias = "\u00e9t\u00e9")
+        SUMMER
+    }
+
+    public void testEnumIOLookup() throws Exception
+    {
+        EnumIO<?> dense = new DefaultIdStrategy().getEnumIO(Sequence.class);
+        assertSame(Sequence.THREE, dense.getByTag(2));
+        assertNull(dense.getByTag(5));
+        assertNull(dense.getByTag(-1));
+
+        EnumIO<?> sparse = new DefaultIdStrategy().getEnumIO(Sparse.class);
+        assertSame(Sparse.BIG, sparse.getByTag(100000));
+        assertSame(Sparse.THREE, sparse.getByTag(3));
+        assertNull(sparse.getByTag(2));
+
+        for (Sparse s : Sparse.values())
+            assertSame(s, sparse.getByAlias(sparse.getAlias(s)));
+        assertNull(sparse.getByAlias("tree"));
+    }
+
     @SuppressWarnings("rawtypes")
     // explicitly without generics
     public static class Bean
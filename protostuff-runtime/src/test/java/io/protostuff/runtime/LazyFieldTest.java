@@ -0,0 +1,140 @@
+package io.protostuff.runtime;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.protostuff.AbstractTest;
+import io.protostuff.Lazy;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+
+/**
+ * Tests for {@link Lazy} fields on the runtime schema.
+ */
+public class LazyFieldTest extends AbstractTest
+{
+
+    static final class Body
+    {
+        String name;
+        List<Integer> values;
+
+        Body()
+        {
+        }
+
+        Body(String name, Integer... values)
+        {
+            this.name = name;
+            this.values = Arrays.asList(values);
+        }
+    }
+
+    static final class Envelope
+    {
+        String header;
+        Lazy<Body> body;
+    }
+
+    static final class EagerEnvelope
+    {
+        String header;
+        Body body;
+    }
+
+    static Envelope newEnvelope()
+    {
+        Envelope e = new Envelope();
+        e.header = "h";
+        e.body = Lazy.of(new Body("b", 1, 2, 3));
+        return e;
+    }
+
+    static void assertBody(Body body)
+    {
+        assertEquals("b", body.name);
+        assertEquals(Arrays.asList(1, 2, 3), body.values);
+    }
+
+    public void testProtobuf() throws Exception
+    {
+        Schema<Envelope> schema = RuntimeSchema.getSchema(Envelope.class);
+        byte[] data = ProtobufIOUtil.toByteArray(newEnvelope(), schema, buf());
+
+        Envelope e = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, e, schema);
+        assertEquals("h", e.header);
+        assertTrue(e.body.isRaw());
+        assertBody(e.body.get());
+        assertFalse(e.body.isRaw());
+
+        // re-encoded after access
+        assertTrue(Arrays.equals(data,
+                ProtobufIOUtil.toByteArray(e, schema, buf())));
+    }
+
+    public void testProtostuff() throws Exception
+    {
+        Schema<Envelope> schema = RuntimeSchema.getSchema(Envelope.class);
+        byte[] data = ProtostuffIOUtil.toByteArray(newEnvelope(), schema, buf());
+
+        Envelope e = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, e, schema);
+        assertEquals("h", e.header);
+        assertBody(e.body.get());
+    }
+
+    public void testPassThroughIsVerbatim() throws Exception
+    {
+        Schema<Envelope> schema = RuntimeSchema.getSchema(Envelope.class);
+        byte[] data = ProtostuffIOUtil.toByteArray(newEnvelope(), schema, buf());
+
+        Envelope e = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, e, schema);
+        e.header = "forwarded";
+
+        byte[] forwarded = ProtostuffIOUtil.toByteArray(e, schema, buf());
+        assertTrue(e.body.isRaw());
+
+        Envelope copy = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(forwarded, copy, schema);
+        assertEquals("forwarded", copy.header);
+        assertBody(copy.body.get());
+    }
+
+    public void testSetReplacesRaw() throws Exception
+    {
+        Schema<Envelope> schema = RuntimeSchema.getSchema(Envelope.class);
+        byte[] data = ProtobufIOUtil.toByteArray(newEnvelope(), schema, buf());
+
+        Envelope e = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, e, schema);
+        e.body.set(new Body("x", 9));
+
+        Envelope copy = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(ProtobufIOUtil.toByteArray(e, schema, buf()),
+                copy, schema);
+        assertEquals("x", copy.body.get().name);
+        assertEquals(Arrays.asList(9), copy.body.get().values);
+    }
+
+    public void testProtobufCompatibleWithEagerField() throws Exception
+    {
+        Schema<Envelope> lazySchema = RuntimeSchema.getSchema(Envelope.class);
+        Schema<EagerEnvelope> eagerSchema = RuntimeSchema.getSchema(EagerEnvelope.class);
+
+        EagerEnvelope eager = new EagerEnvelope();
+        eager.header = "h";
+        eager.body = new Body("b", 1, 2, 3);
+        byte[] data = ProtobufIOUtil.toByteArray(eager, eagerSchema, buf());
+
+        Envelope e = lazySchema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, e, lazySchema);
+        assertBody(e.body.get());
+
+        assertTrue(Arrays.equals(data,
+                ProtobufIOUtil.toByteArray(e, lazySchema, buf())));
+    }
+
+}
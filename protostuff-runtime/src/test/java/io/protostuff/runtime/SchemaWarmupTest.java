@@ -0,0 +1,124 @@
+package io.protostuff.runtime;
+
+import java.util.List;
+import java.util.Map;
+
+import io.protostuff.AbstractTest;
+import io.protostuff.Tag;
+
+/**
+ * Tests for {@link SchemaWarmup}.
+ */
+public class SchemaWarmupTest extends AbstractTest
+{
+
+    enum Status
+    {
+        NEW, DONE
+    }
+
+    static final class Order
+    {
+        int id;
+        Status status;
+        Customer customer;
+        List<Line> lines;
+        Map<String, Note> notes;
+        Item[][] items;
+        Object any;
+        Runnable callback;
+    }
+
+    static final class Customer
+    {
+        String name;
+    }
+
+    static final class Line
+    {
+        int quantity;
+    }
+
+    static final class Note
+    {
+        String text;
+    }
+
+    static final class Item
+    {
+        long sku;
+    }
+
+    static final class Invalid
+    {
+        @Tag(1)
+        int a;
+        int b;
+    }
+
+    public void testNested() throws Exception
+    {
+        final DefaultIdStrategy strategy = new DefaultIdStrategy();
+        final SchemaWarmup.Result result = new SchemaWarmup(strategy)
+                .threads(4)
+                .addClass(Order.class)
+                .run();
+
+        assertTrue(result.failed.isEmpty());
+        assertEquals(6, result.warmed.size());
+        for (Class<?> c : new Class<?>[] { Order.class, Status.class, Customer.class, Line.class,
+                Note.class, Item.class })
+        {
+            assertTrue(c.getName(), result.warmed.contains(c));
+        }
+
+        for (Class<?> c : new Class<?>[] { Order.class, Customer.class, Line.class, Note.class,
+                Item.class })
+        {
+            final HasSchema<?> hs = strategy.getSchemaWrapper(c, false);
+            assertNotNull(hs);
+            assertSame(hs.getSchema(), RuntimeSchema.getSchema(c, strategy));
+        }
+    }
+
+    public void testFailure() throws Exception
+    {
+        final SchemaWarmup.Result result = new SchemaWarmup(new DefaultIdStrategy())
+                .threads(1)
+                .addClass(Invalid.class)
+                .addClass(Customer.class)
+                .run();
+
+        assertEquals(1, result.failed.size());
+        assertTrue(result.failed.containsKey(Invalid.class));
+        assertEquals(1, result.warmed.size());
+        assertTrue(result.warmed.contains(Customer.class));
+    }
+
+    public void testScanDirectory() throws Exception
+    {
+        final List<Class<?>> classes = SchemaWarmup.scan("io.protostuff.runtime",
+                getClass().getClassLoader());
+
+        assertTrue(classes.contains(Foo.class));
+        assertTrue(classes.contains(Bar.class));
+        assertTrue(classes.contains(Order.class));
+        assertTrue(classes.contains(Status.class));
+        // abstract, interface
+        assertFalse(classes.contains(AbstractRuntimeMapTest.class));
+        assertFalse(classes.contains(Delegate.class));
+        // no instance fields
+        assertFalse(classes.contains(RuntimeEnv.class));
+    }
+
+    public void testScanJar() throws Exception
+    {
+        final List<Class<?>> classes = SchemaWarmup.scan("org.junit.runner",
+                getClass().getClassLoader());
+
+        assertTrue(classes.contains(org.junit.runner.Result.class));
+        for (Class<?> c : classes)
+            assertTrue(c.getName(), c.getName().startsWith("org.junit.runner."));
+    }
+
+}
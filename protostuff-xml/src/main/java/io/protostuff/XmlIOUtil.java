@@ -606,4 +606,19 @@ public final class XmlIOUtil
         return list;
     }
 
+    /**
+     * Returns the {@link Transcoder.Source} of xml-encoded messages.
+     */
+    public static Transcoder.Source transcoderSource()
+    {
+        return new Transcoder.Source()
+        {
+            @Override
+            public Pipe newPipe(byte[] data, int offset, int length) throws IOException
+            {
+                return XmlIOUtil.newPipe(data, offset, length);
+            }
+        };
+    }
+
 }
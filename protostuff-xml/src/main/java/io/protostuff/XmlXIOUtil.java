@@ -16,9 +16,12 @@ package io.protostuff;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * IO Utils for writing xml via {@link XmlXOutput}.
+ * IO Utils for writing xml via {@link XmlXOutput}, and reading it via {@link XmlXInput}.
  * 
  * @author David Yu
  * @created Aug 30, 2012
@@ -138,4 +141,89 @@ public final class XmlXIOUtil
         return output.size;
     }
 
+    /**
+     * Merges the {@code message} with the byte array via {@link XmlXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema) throws IOException
+    {
+        mergeFrom(data, 0, data.length, message, schema);
+    }
+
+    /**
+     * Merges the {@code message} with the byte array via {@link XmlXInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema) throws IOException
+    {
+        mergeFrom(new XmlXInput(data, offset, length), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} via {@link XmlXInput} using the
+     * given {@code schema}.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema) throws IOException
+    {
+        mergeFrom(new XmlXInput(data), message, schema);
+    }
+
+    static <T> void mergeFrom(XmlXInput input, T message, Schema<T> schema) throws IOException
+    {
+        input.skipProlog();
+
+        if (input.readStartTag(schema.messageName()))
+        {
+            // consumes the end tag of the root element
+            schema.mergeFrom(input, message);
+        }
+
+        input.expectEnd();
+    }
+
+    /**
+     * Parses the {@code messages} (written by {@link XmlIOUtil#writeListTo}) from the byte array via
+     * {@link XmlXInput} using the given {@code schema}.
+     */
+    public static <T> List<T> parseListFrom(byte[] data, int offset, int length, Schema<T> schema)
+            throws IOException
+    {
+        final XmlXInput input = new XmlXInput(data, offset, length);
+        input.skipProlog();
+
+        final ArrayList<T> list = new ArrayList<T>();
+        if (input.readStartTag("list"))
+        {
+            final String name = schema.messageName();
+            while (!input.isEndTag())
+            {
+                final T message = schema.newMessage();
+                if (input.readStartTag(name))
+                    schema.mergeFrom(input, message);
+
+                list.add(message);
+            }
+            input.readEndTag();
+        }
+
+        input.expectEnd();
+
+        return list;
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes xml-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget()
+    {
+        return new Transcoder.Target()
+        {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema)
+                    throws IOException
+            {
+                XmlXIOUtil.writeTo(buffer, pipe, pipeSchema);
+            }
+        };
+    }
+
 }
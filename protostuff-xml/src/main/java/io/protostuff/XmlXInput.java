@@ -0,0 +1,694 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * An xml input that parses utf8 bytes directly (without StAX), to pair with {@link XmlXOutput}.
+ * <p>
+ * Only the subset written by {@link XmlXOutput} and {@link XmlOutput} is supported: elements without attributes or
+ * namespaces, an optional {@code <?xml ...?>} declaration, and the predefined entities and character references as
+ * escapes. Comments, CDATA sections and DTDs are rejected.
+ * <p>
+ * Element names are matched as raw bytes against the names cached per {@link Schema} (see {@link FieldNumberCache}).
+ * Unlike {@link XmlInput}, unknown elements are skipped even if they have children.
+ */
+public final class XmlXInput implements Input
+{
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] buffer;
+    private int offset;
+    private final int limit;
+
+    /**
+     * True if the last start tag read was self-closing ({@code <name/>}).
+     */
+    private boolean emptyElement;
+
+    /**
+     * The offset and length of the names of the open elements (in pairs), to match their end tags.
+     */
+    private int[] openElements = new int[32];
+    private int openCount;
+
+    private byte[] scratch;
+
+    public XmlXInput(byte[] buffer)
+    {
+        this(buffer, 0, buffer.length);
+    }
+
+    public XmlXInput(byte[] buffer, int offset, int length)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Reads from the remaining bytes of the {@link ByteBuffer}. A direct buffer is copied.
+     */
+    public XmlXInput(ByteBuffer bb)
+    {
+        if (bb.hasArray())
+        {
+            this.buffer = bb.array();
+            this.offset = bb.arrayOffset() + bb.position();
+        }
+        else
+        {
+            this.buffer = new byte[bb.remaining()];
+            bb.duplicate().get(buffer);
+            this.offset = 0;
+        }
+        this.limit = offset + bb.remaining();
+    }
+
+    /**
+     * Returns the offset of the next byte to read.
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+
+    // ---------------------------------------------------------------- structure
+
+    /**
+     * Skips the xml declaration (if any) and the whitespace before the root element.
+     */
+    void skipProlog() throws XmlInputException
+    {
+        skipWhitespace();
+        if (startsWith('<', '?'))
+        {
+            final int end = indexOf('?', '>', offset + 2);
+            if (end == -1)
+                throw new XmlInputException("Unterminated xml declaration");
+
+            offset = end + 2;
+            skipWhitespace();
+        }
+    }
+
+    /**
+     * Reads the start tag of the element with the given name (e.g the root element).
+     *
+     * @return false if the element is empty ({@code <name/>}).
+     */
+    boolean readStartTag(String name) throws XmlInputException
+    {
+        skipWhitespace();
+        final int start = readStartTagName();
+        if (!matches(name, start, offset - start))
+            throw new XmlInputException("Expected token START_ELEMENT: " + name);
+
+        finishStartTag(start);
+        return !emptyElement;
+    }
+
+    /**
+     * Throws if anything but whitespace follows the root element.
+     */
+    void expectEnd() throws XmlInputException
+    {
+        skipWhitespace();
+        if (offset != limit)
+            throw new XmlInputException("Unexpected content after the root element at offset " + offset);
+    }
+
+    /**
+     * Returns true if the end tag of the current element is next (whitespace skipped).
+     */
+    boolean isEndTag() throws XmlInputException
+    {
+        skipWhitespace();
+        return startsWith('<', '/');
+    }
+
+    private void skipWhitespace()
+    {
+        final byte[] buffer = this.buffer;
+        int offset = this.offset;
+        while (offset < limit && isWhitespace(buffer[offset]))
+            offset++;
+
+        this.offset = offset;
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private boolean startsWith(char first, char second)
+    {
+        return offset + 1 < limit && buffer[offset] == first && buffer[offset + 1] == second;
+    }
+
+    private int indexOf(char first, char second, int from)
+    {
+        final byte[] buffer = this.buffer;
+        for (int i = from, end = limit - 1; i < end; i++)
+        {
+            if (buffer[i] == first && buffer[i + 1] == second)
+                return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(char b, int from)
+    {
+        final byte[] buffer = this.buffer;
+        for (int i = from; i < limit; i++)
+        {
+            if (buffer[i] == b)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean matches(String name, int start, int len)
+    {
+        if (name.length() != len)
+            return false;
+
+        for (int i = 0; i < len; i++)
+        {
+            if (buffer[start + i] != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads {@code <name} and returns the offset of the name (the current offset is after the name).
+     */
+    private int readStartTagName() throws XmlInputException
+    {
+        if (offset == limit || buffer[offset] != '<')
+            throw new XmlInputException("Expected token START_ELEMENT at offset " + offset);
+
+        final int start = ++offset;
+        final byte[] buffer = this.buffer;
+        while (offset < limit)
+        {
+            final byte b = buffer[offset];
+            if (b == '>' || b == '/' || isWhitespace(b))
+                break;
+
+            if (b == '!' || b == '?')
+                throw new XmlInputException("Unsupported markup at offset " + (offset - 1));
+
+            offset++;
+        }
+
+        if (offset == start)
+            throw new XmlInputException("Expected element name at offset " + start);
+
+        return start;
+    }
+
+    /**
+     * Reads the rest of the start tag ({@code >} or {@code />}) of the element whose name starts at {@code start} and
+     * ends at the current offset.
+     */
+    private void finishStartTag(int start) throws XmlInputException
+    {
+        final int len = offset - start;
+        skipWhitespace();
+        if (offset < limit && buffer[offset] == '>')
+        {
+            offset++;
+            emptyElement = false;
+
+            int[] open = openElements;
+            if (openCount == open.length)
+            {
+                open = new int[open.length * 2];
+                System.arraycopy(openElements, 0, open, 0, openCount);
+                openElements = open;
+            }
+            open[openCount++] = start;
+            open[openCount++] = len;
+            return;
+        }
+
+        if (startsWith('/', '>'))
+        {
+            offset += 2;
+            emptyElement = true;
+            return;
+        }
+
+        throw new XmlInputException("Attributes are not supported (offset " + offset + ")");
+    }
+
+    /**
+     * Reads the end tag ({@code </name>}) of the current element, which must have the name of its start tag.
+     */
+    void readEndTag() throws XmlInputException
+    {
+        if (!startsWith('<', '/') || openCount == 0)
+            throw new XmlInputException("Expected token END_ELEMENT at offset " + offset);
+
+        final int start = openElements[openCount - 2], len = openElements[openCount - 1];
+        final int nameStart = offset + 2, nameEnd = nameStart + len;
+        final byte[] buffer = this.buffer;
+        boolean matches = nameEnd < limit;
+        for (int i = 0; matches && i < len; i++)
+            matches = buffer[nameStart + i] == buffer[start + i];
+
+        if (!matches || (buffer[nameEnd] != '>' && !isWhitespace(buffer[nameEnd])))
+        {
+            throw new XmlInputException("Expected token END_ELEMENT: " + STRING.deser(buffer, start, len)
+                    + " at offset " + offset);
+        }
+
+        offset = nameEnd;
+        skipWhitespace();
+        if (offset == limit || buffer[offset] != '>')
+            throw new XmlInputException("Unterminated end tag at offset " + offset);
+
+        offset++;
+        openCount -= 2;
+    }
+
+    /**
+     * Skips the content and the end tag of the current element (nested elements included).
+     */
+    private void skipElement() throws XmlInputException
+    {
+        if (emptyElement)
+        {
+            emptyElement = false;
+            return;
+        }
+
+        for (int depth = 1; depth != 0;)
+        {
+            final int lt = indexOf('<', offset);
+            if (lt == -1)
+                throw new XmlInputException("Truncated message");
+
+            offset = lt;
+            if (startsWith('<', '/'))
+            {
+                readEndTag();
+                depth--;
+            }
+            else
+            {
+                finishStartTag(readStartTagName());
+                if (!emptyElement)
+                    depth++;
+            }
+        }
+        emptyElement = false;
+    }
+
+    // ---------------------------------------------------------------- text
+
+    /**
+     * Reads the text of the current element up to its end tag (consumed), and returns the end offset of the raw
+     * text, which starts at {@code start}. The text is raw if the returned value is positive, and has escapes if
+     * negative (~end).
+     */
+    private int readText(int start) throws XmlInputException
+    {
+        final byte[] buffer = this.buffer;
+        boolean escaped = false;
+        int i = start;
+        for (; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b == '<')
+                break;
+
+            if (b == '&')
+                escaped = true;
+        }
+
+        if (i == limit)
+            throw new XmlInputException("Truncated message");
+
+        offset = i;
+        readEndTag();
+        return escaped ? ~i : i;
+    }
+
+    private String getText() throws XmlInputException
+    {
+        if (emptyElement)
+        {
+            emptyElement = false;
+            return "";
+        }
+
+        final int start = offset, end = readText(start);
+        if (end < 0)
+            return unescapeString(start, ~end);
+
+        return STRING.deser(buffer, start, end - start);
+    }
+
+    private String unescapeString(int start, int end) throws XmlInputException
+    {
+        final int len = unescape(start, end);
+        return STRING.deser(scratch, 0, len);
+    }
+
+    /**
+     * Unescapes the utf8 bytes of the text into the {@link #scratch} buffer and returns the length.
+     */
+    private int unescape(int start, int end) throws XmlInputException
+    {
+        byte[] out = scratch;
+        // the unescaped utf8 is never bigger than the escaped one
+        if (out == null || out.length < end - start)
+            scratch = out = new byte[Math.max(64, end - start)];
+
+        final byte[] buffer = this.buffer;
+        int len = 0;
+        for (int i = start; i < end;)
+        {
+            final byte b = buffer[i];
+            if (b != '&')
+            {
+                out[len++] = b;
+                i++;
+                continue;
+            }
+
+            final int semi = indexOf(';', i);
+            if (semi == -1 || semi > end)
+                throw new XmlInputException("Unterminated entity at offset " + i);
+
+            final int nameStart = i + 1, nameLen = semi - nameStart;
+            if (nameLen > 1 && buffer[nameStart] == '#')
+            {
+                final int cp = buffer[nameStart + 1] == 'x' ?
+                        NumberParser.parseInt(buffer, nameStart + 2, nameLen - 2, 16) :
+                        NumberParser.parseInt(buffer, nameStart + 1, nameLen - 1, 10);
+                len = writeUtf8(cp, out, len);
+            }
+            else if (matches("lt", nameStart, nameLen))
+                out[len++] = '<';
+            else if (matches("gt", nameStart, nameLen))
+                out[len++] = '>';
+            else if (matches("amp", nameStart, nameLen))
+                out[len++] = '&';
+            else if (matches("quot", nameStart, nameLen))
+                out[len++] = '"';
+            else if (matches("apos", nameStart, nameLen))
+                out[len++] = '\'';
+            else
+                throw new XmlInputException("Unknown entity at offset " + i);
+
+            i = semi + 1;
+        }
+        return len;
+    }
+
+    private static int writeUtf8(int cp, byte[] out, int len) throws XmlInputException
+    {
+        // a character reference (at least 4 bytes) is never shorter than its utf8 encoding
+        if (cp < 0x80)
+        {
+            out[len++] = (byte) cp;
+        }
+        else if (cp < 0x800)
+        {
+            out[len++] = (byte) (0xc0 | (cp >> 6));
+            out[len++] = (byte) (0x80 | (cp & 0x3f));
+        }
+        else if (cp < 0x10000)
+        {
+            out[len++] = (byte) (0xe0 | (cp >> 12));
+            out[len++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            out[len++] = (byte) (0x80 | (cp & 0x3f));
+        }
+        else if (cp <= 0x10ffff)
+        {
+            out[len++] = (byte) (0xf0 | (cp >> 18));
+            out[len++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            out[len++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            out[len++] = (byte) (0x80 | (cp & 0x3f));
+        }
+        else
+        {
+            throw new XmlInputException("Invalid character reference: " + cp);
+        }
+        return len;
+    }
+
+    private byte[] getB64Decoded() throws XmlInputException
+    {
+        if (emptyElement)
+        {
+            emptyElement = false;
+            return EMPTY;
+        }
+
+        final int start = offset, end = readText(start);
+        if (end < 0)
+        {
+            final int len = unescape(start, ~end);
+            return B64Code.decode(scratch, 0, len);
+        }
+
+        return start == end ? EMPTY : B64Code.decode(buffer, start, end - start);
+    }
+
+    // ---------------------------------------------------------------- Input
+
+    @Override
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        skipElement();
+    }
+
+    @Override
+    public <T> int readFieldNumber(final Schema<T> schema) throws IOException
+    {
+        while (true)
+        {
+            skipWhitespace();
+            if (startsWith('<', '/'))
+            {
+                // end of the message
+                readEndTag();
+                return 0;
+            }
+
+            final int start = readStartTagName(), len = offset - start;
+            finishStartTag(start);
+
+            final int number = FieldNumberCache.getFieldNumber(schema, buffer, start, len);
+            if (number != 0)
+                return number;
+
+            skipElement();
+        }
+    }
+
+    @Override
+    public int readInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readUInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public long readInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readUInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    private int readInt() throws XmlInputException
+    {
+        if (emptyElement)
+            throw new NumberFormatException("empty element");
+
+        final int start = offset, end = readText(start);
+        if (end < 0)
+            return Integer.parseInt(unescapeString(start, ~end));
+
+        return NumberParser.parseInt(buffer, start, end - start, 10);
+    }
+
+    private long readLong() throws XmlInputException
+    {
+        if (emptyElement)
+            throw new NumberFormatException("empty element");
+
+        final int start = offset, end = readText(start);
+        if (end < 0)
+            return Long.parseLong(unescapeString(start, ~end));
+
+        return NumberParser.parseLong(buffer, start, end - start, 10);
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        return Float.parseFloat(getText());
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        return Double.parseDouble(getText());
+    }
+
+    @Override
+    public boolean readBool() throws IOException
+    {
+        if (emptyElement)
+        {
+            emptyElement = false;
+            return false;
+        }
+
+        final int start = offset, end = readText(start);
+        // like Boolean.parseBoolean
+        if (end - start != 4)
+            return end < 0 && Boolean.parseBoolean(unescapeString(start, ~end));
+
+        final byte[] buffer = this.buffer;
+        return (buffer[start] | 0x20) == 't' && (buffer[start + 1] | 0x20) == 'r'
+                && (buffer[start + 2] | 0x20) == 'u' && (buffer[start + 3] | 0x20) == 'e';
+    }
+
+    @Override
+    public int readEnum() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public String readString() throws IOException
+    {
+        return getText();
+    }
+
+    @Override
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+
+    @Override
+    public byte[] readByteArray() throws IOException
+    {
+        return getB64Decoded();
+    }
+
+    @Override
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        return ByteBuffer.wrap(getB64Decoded());
+    }
+
+    @Override
+    public void readBytes(final ByteBuffer bb) throws IOException
+    {
+        bb.put(getB64Decoded());
+    }
+
+    @Override
+    public <T> T mergeObject(T value, final Schema<T> schema) throws IOException
+    {
+        if (value == null)
+            value = schema.newMessage();
+
+        if (emptyElement)
+            emptyElement = false;
+        else
+            schema.mergeFrom(this, value); // consumes the end tag
+
+        if (!schema.isInitialized(value))
+            throw new UninitializedMessageException(value, schema);
+
+        return value;
+    }
+
+    @Override
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        if (!utf8String)
+        {
+            output.writeByteArray(fieldNumber, readByteArray(), repeated);
+            return;
+        }
+
+        if (emptyElement)
+        {
+            emptyElement = false;
+            output.writeByteRange(true, fieldNumber, buffer, offset, 0, repeated);
+            return;
+        }
+
+        final int start = offset, end = readText(start);
+        if (end < 0)
+        {
+            final int len = unescape(start, ~end);
+            output.writeByteRange(true, fieldNumber, scratch, 0, len, repeated);
+        }
+        else
+            output.writeByteRange(true, fieldNumber, buffer, start, end - start, repeated);
+    }
+
+}
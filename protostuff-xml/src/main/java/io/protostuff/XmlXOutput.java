@@ -34,7 +34,36 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
             TRUE = new byte[] { 't', 'r', 'u', 'e' },
             FALSE = new byte[] { 'f', 'a', 'l', 's', 'e' };
 
+    static final int START_KEY = 0, END_KEY = 1;
+
+    /**
+     * The pre-encoded start ({@code <name>}) and end ({@code </name>}) tags of the fields.
+     */
+    static final KeyCache<byte[]> KEYS = new KeyCache<byte[]>(2)
+    {
+        @Override
+        protected byte[] encode(Schema<?> schema, int number, int variant)
+        {
+            final String name = schema.getFieldName(number);
+            if (name == null)
+                return null;
+
+            final int len = name.length(), start = variant == START_KEY ? 1 : 2;
+            final byte[] tag = new byte[start + len + 1];
+            tag[0] = START_TAG;
+            if (variant == END_KEY)
+                tag[1] = SLASH;
+            // ascii, like WriteSink.writeStrAscii
+            for (int i = 0; i < len; i++)
+                tag[start + i] = (byte) name.charAt(i);
+            tag[start + len] = END_TAG;
+
+            return tag;
+        }
+    };
+
     private Schema<?> schema;
+    private KeyCache.Keys<byte[]> keys;
 
     public XmlXOutput(LinkedBuffer head, Schema<?> schema)
     {
@@ -74,6 +103,12 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
         return this;
     }
 
+    private KeyCache.Keys<byte[]> keys()
+    {
+        final KeyCache.Keys<byte[]> keys = this.keys;
+        return keys != null && keys.schema() == schema ? keys : (this.keys = KEYS.getKeys(schema));
+    }
+
     @Override
     public void updateLast(Schema<?> schema, Schema<?> lastSchema)
     {
@@ -86,43 +121,31 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
     @Override
     public void writeBool(int fieldNumber, boolean value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeByteArray(value ? TRUE : FALSE, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeByteArray(value ? TRUE : FALSE, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
     public void writeDouble(int fieldNumber, double value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeStrFromDouble(value, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeStrFromDouble(value, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
     public void writeFloat(int fieldNumber, float value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeStrFromFloat(value, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeStrFromFloat(value, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
@@ -140,15 +163,11 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
     @Override
     public void writeInt32(int fieldNumber, int value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeStrFromInt(value, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeStrFromInt(value, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
@@ -178,15 +197,11 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
     @Override
     public void writeInt64(int fieldNumber, long value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeStrFromLong(value, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeStrFromLong(value, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
@@ -210,15 +225,11 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
     @Override
     public void writeString(int fieldNumber, CharSequence value, boolean repeated) throws IOException
     {
-        final String name = schema.getFieldName(fieldNumber);
-
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeStrUTF8(value, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeStrUTF8(value, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
@@ -228,31 +239,24 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
         if (!utf8String)
         {
             // B64 encode
-            writeB64(schema.getFieldName(fieldNumber), value, offset, length, repeated);
+            writeB64(fieldNumber, value, offset, length, repeated);
             return;
         }
 
         // write direct
-        final String name = schema.getFieldName(fieldNumber);
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeByteArray(value, offset, length, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeByteArray(value, offset, length, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
-    private void writeB64(String name, byte[] value, int offset, int length,
+    private void writeB64(int fieldNumber, byte[] value, int offset, int length,
             boolean repeated) throws IOException
     {
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this,
-                                sink.writeByteArrayB64(value, offset, length, this,
-                                        sink.writeByte(END_TAG, this,
-                                                sink.writeStrAscii(name, this,
-                                                        sink.writeByte(START_TAG, this, tail)))))));
+        final KeyCache.Keys<byte[]> keys = keys();
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this,
+                sink.writeByteArrayB64(value, offset, length, this,
+                        sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail)));
     }
 
     @Override
@@ -264,7 +268,7 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
     @Override
     public void writeByteArray(int fieldNumber, byte[] value, boolean repeated) throws IOException
     {
-        writeB64(schema.getFieldName(fieldNumber), value, 0, value.length, repeated);
+        writeB64(fieldNumber, value, 0, value.length, repeated);
     }
 
     @Override
@@ -272,21 +276,16 @@ public final class XmlXOutput extends WriteSession implements Output, StatefulOu
             throws IOException
     {
         final Schema<?> lastSchema = this.schema;
+        final KeyCache.Keys<byte[]> keys = keys();
         this.schema = schema;
 
-        final String name = lastSchema.getFieldName(fieldNumber);
-
         // start tag
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByte(START_TAG, this, tail)));
+        tail = sink.writeByteArray(keys.get(fieldNumber, START_KEY), this, tail);
 
         schema.writeTo(this, value);
 
         // end tag
-        tail = sink.writeByte(END_TAG, this,
-                sink.writeStrAscii(name, this,
-                        sink.writeByteArray(START_SLASH_TAG, this, tail)));
+        tail = sink.writeByteArray(keys.get(fieldNumber, END_KEY), this, tail);
 
         // restore state
         this.schema = lastSchema;
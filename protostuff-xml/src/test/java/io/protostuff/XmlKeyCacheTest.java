@@ -0,0 +1,48 @@
+package io.protostuff;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the pre-encoded tags of {@link XmlXOutput}.
+ */
+public class XmlKeyCacheTest extends AbstractTest
+{
+
+    public void testCachedPerSchema()
+    {
+        final KeyCache.Keys<byte[]> keys = XmlXOutput.KEYS.getKeys(Bar.getSchema());
+        assertSame(keys, XmlXOutput.KEYS.getKeys(Bar.getSchema()));
+        assertSame(Bar.getSchema(), keys.schema());
+        assertSame(keys.get(1, XmlXOutput.START_KEY), keys.get(1, XmlXOutput.START_KEY));
+        assertEquals("<someInt>", STRING.deser(keys.get(1, XmlXOutput.START_KEY)));
+        assertEquals("</someInt>", STRING.deser(keys.get(1, XmlXOutput.END_KEY)));
+
+        // another schema, other keys
+        assertNotSame(keys, XmlXOutput.KEYS.getKeys(Baz.getSchema()));
+        assertEquals("<id>", STRING.deser(
+                XmlXOutput.KEYS.getKeys(Baz.getSchema()).get(1, XmlXOutput.START_KEY)));
+    }
+
+    public void testUnknownFieldNotCached()
+    {
+        final KeyCache.Keys<byte[]> keys = XmlXOutput.KEYS.getKeys(Bar.getSchema());
+        assertNull(keys.get(99, XmlXOutput.START_KEY));
+        assertNull(keys.get(99, XmlXOutput.END_KEY));
+    }
+
+    public void testSameOutput() throws Exception
+    {
+        for (Foo foo : new Foo[] { SerializableObjects.foo, new Foo() })
+        {
+            final String expected = STRING.deser(
+                    XmlXIOUtil.toByteArray(foo, Foo.getSchema(), buf()));
+
+            // the nested messages switch the keys of the output back and forth
+            assertEquals(expected, STRING.deser(
+                    XmlXIOUtil.toByteArray(foo, Foo.getSchema(), buf())));
+            assertEquals(expected, STRING.deser(
+                    XmlIOUtil.toByteArray(foo, Foo.getSchema())));
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * Xml standard tests for {@link XmlXInput}.
+ */
+public class XmlXInputStandardTest extends StandardTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int len, T message,
+            Schema<T> schema)
+            throws IOException
+    {
+        XmlXIOUtil.mergeFrom(data, offset, len, message, schema);
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return XmlXIOUtil.toByteArray(message, schema, buf());
+    }
+
+}
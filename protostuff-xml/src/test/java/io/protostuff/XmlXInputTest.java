@@ -0,0 +1,133 @@
+package io.protostuff;
+
+import java.util.List;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the xml subset parsed by {@link XmlXInput}.
+ */
+public class XmlXInputTest extends AbstractTest
+{
+
+    static Bar parseBar(String xml) throws Exception
+    {
+        final Bar bar = new Bar();
+        XmlXIOUtil.mergeFrom(STRING.ser(xml), bar, bar);
+        return bar;
+    }
+
+    public void testEscapes() throws Exception
+    {
+        final Bar bar = parseBar("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<Bar><someString>a &lt;b&gt; &amp; &quot;c&apos; &#233;&#x4e2d;</someString></Bar>");
+        assertEquals("a <b> & \"c' é中", bar.getSomeString());
+    }
+
+    public void testEmptyElements() throws Exception
+    {
+        final Bar bar = parseBar("<Bar><someString/><someBaz/><someInt>5</someInt></Bar>");
+        assertEquals("", bar.getSomeString());
+        assertNotNull(bar.getSomeBaz());
+        assertEquals(5, bar.getSomeInt());
+
+        assertNull(parseBar("<Bar/>").getSomeString());
+    }
+
+    public void testUnknownElementsSkipped() throws Exception
+    {
+        final Bar bar = parseBar("<Bar>\n  <someInt>1</someInt>\n" +
+                "  <unknown><nested><deeper>x</deeper><empty/></nested></unknown>\n" +
+                "  <someBaz><id>2</id><extra/></someBaz>\n" +
+                "  <someBoolean>true</someBoolean>\n</Bar>");
+        assertEquals(1, bar.getSomeInt());
+        assertEquals(2, bar.getSomeBaz().getId());
+        assertTrue(bar.getSomeBoolean());
+    }
+
+    public void testUnsupportedMarkup() throws Exception
+    {
+        try
+        {
+            parseBar("<Bar><!-- comment --><someInt>1</someInt></Bar>");
+            fail("Expected XmlInputException");
+        }
+        catch (XmlInputException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            parseBar("<Bar><someInt a=\"1\">1</someInt></Bar>");
+            fail("Expected XmlInputException");
+        }
+        catch (XmlInputException e)
+        {
+            // expected
+        }
+    }
+
+    public void testMismatchedEndTags() throws Exception
+    {
+        final String[] malformed = {
+                "<Bar><someInt>1</foo></Bar>",
+                "<Bar><someInt>1</someIntX></Bar>",
+                "<Bar><someInt>1</some></Bar>",
+                "<Bar><someInt>1</someInt></Baz>",
+                "<Bar><unknown><nested>x</unknown></nested></Bar>",
+                "<Bar><someBaz><id>2</id></someInt></Bar>",
+                "<Bar><someInt>1</someInt></Bar>garbage",
+                "<Bar/><Bar/>"
+        };
+        for (String xml : malformed)
+        {
+            try
+            {
+                parseBar(xml);
+                fail("Expected XmlInputException on " + xml);
+            }
+            catch (XmlInputException e)
+            {
+                // expected
+            }
+        }
+
+        // whitespace in the end tag and after the root
+        assertEquals(1, parseBar("<Bar><someInt>1</someInt ></Bar>\n ").getSomeInt());
+
+        try
+        {
+            final byte[] data = STRING.ser("<list><Bar/></list><list/>");
+            XmlXIOUtil.parseListFrom(data, 0, data.length, new Bar());
+            fail("Expected XmlInputException");
+        }
+        catch (XmlInputException e)
+        {
+            // expected
+        }
+    }
+
+    public void testParseList() throws Exception
+    {
+        final byte[] data = STRING.ser("<?xml version=\"1.0\" ?><list>" +
+                "<Bar><someInt>1</someInt></Bar><Bar/><Bar><someInt>3</someInt></Bar></list>");
+        final List<Bar> list = XmlXIOUtil.parseListFrom(data, 0, data.length, new Bar());
+        assertEquals(3, list.size());
+        assertEquals(1, list.get(0).getSomeInt());
+        assertEquals(0, list.get(1).getSomeInt());
+        assertEquals(3, list.get(2).getSomeInt());
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        for (Bar message : new Bar[] { SerializableObjects.bar, SerializableObjects.negativeBar })
+        {
+            final byte[] data = XmlXIOUtil.toByteArray(message, message, buf());
+            final Bar parsed = new Bar();
+            XmlXIOUtil.mergeFrom(data, parsed, parsed);
+            assertEquals(message, parsed);
+        }
+    }
+
+}
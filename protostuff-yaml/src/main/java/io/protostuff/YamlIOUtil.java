@@ -14,12 +14,16 @@
 
 package io.protostuff;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Utility for the YAML serialization of messages and objects tied to a schema.
+ * Utility for the YAML serialization and deserialization of messages and objects tied to a schema.
  * 
  * @author David Yu
  * @created Jun 28, 2010
@@ -203,4 +207,103 @@ public final class YamlIOUtil
         return output.getSize();
     }
 
+    /**
+     * Merges the {@code message} with the byte array via {@link YamlInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema) throws IOException
+    {
+        mergeFrom(data, 0, data.length, message, schema);
+    }
+
+    /**
+     * Merges the {@code message} with the byte array via {@link YamlInput} using the given {@code schema}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message,
+            Schema<T> schema) throws IOException
+    {
+        mergeFrom(new YamlInput(data, offset, length), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} via {@link YamlInput} using the
+     * given {@code schema}.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema) throws IOException
+    {
+        mergeFrom(new YamlInput(data), message, schema);
+    }
+
+    /**
+     * Merges the {@code message} from the {@link InputStream} (read until the end) via {@link YamlInput} using the
+     * given {@code schema}.
+     */
+    public static <T> void mergeFrom(InputStream in, T message, Schema<T> schema) throws IOException
+    {
+        final byte[] data = readFully(in);
+        mergeFrom(data, 0, data.length, message, schema);
+    }
+
+    static <T> void mergeFrom(YamlInput input, T message, Schema<T> schema) throws IOException
+    {
+        input.skipDocumentStart();
+        schema.mergeFrom(input, message);
+    }
+
+    /**
+     * Parses the {@code messages} (a sequence written by {@link #writeListTo}) from the byte array via
+     * {@link YamlInput} using the given {@code schema}.
+     */
+    public static <T> List<T> parseListFrom(byte[] data, int offset, int length, Schema<T> schema)
+            throws IOException
+    {
+        final YamlInput input = new YamlInput(data, offset, length);
+        input.skipDocumentStart();
+
+        final ArrayList<T> list = new ArrayList<T>();
+        while (input.readListItem())
+        {
+            final T message = schema.newMessage();
+            schema.mergeFrom(input, message);
+            list.add(message);
+        }
+
+        return list;
+    }
+
+    /**
+     * Parses the {@code messages} (a sequence written by {@link #writeListTo}) from the {@link InputStream} (read
+     * until the end) via {@link YamlInput} using the given {@code schema}.
+     */
+    public static <T> List<T> parseListFrom(InputStream in, Schema<T> schema) throws IOException
+    {
+        final byte[] data = readFully(in);
+        return parseListFrom(data, 0, data.length, schema);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        for (int read; (read = in.read(buf)) != -1;)
+            out.write(buf, 0, read);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the {@link Transcoder.Target} that writes yaml-encoded messages.
+     */
+    public static Transcoder.Target transcoderTarget()
+    {
+        return new Transcoder.Target()
+        {
+            @Override
+            public void writeTo(LinkedBuffer buffer, Pipe pipe, Pipe.Schema<?> pipeSchema)
+                    throws IOException
+            {
+                YamlIOUtil.writeTo(buffer, pipe, pipeSchema);
+            }
+        };
+    }
+
 }
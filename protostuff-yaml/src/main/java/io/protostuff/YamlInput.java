@@ -0,0 +1,478 @@
+package io.protostuff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * A yaml input that parses the utf8 bytes directly, to pair with {@link YamlOutput}. The values are decoded straight
+ * into the message (no intermediate document tree).
+ * <p>
+ * Only the block subset written by {@link YamlOutput} is supported: one {@code name: value} per line, nested messages
+ * tagged with {@code !Name} (or {@code !Name[]} when repeated) and indented deeper, and repeated fields as a sequence
+ * of {@code - value} lines. Scalars are plain (the rest of the line, unquoted and unescaped), bytes are base64, and
+ * both LF and CRLF line breaks are accepted. Flow collections, quoting, anchors and multi-line scalars are not.
+ * <p>
+ * Field names are matched as raw bytes against the names cached per {@link Schema} (see {@link FieldNumberCache}).
+ * Unknown fields are skipped along with their nested lines.
+ */
+public final class YamlInput implements Input
+{
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] buffer;
+    private int offset;
+    private final int limit;
+
+    /**
+     * The indent of the fields of the current message (-1 until its first field is read), and the indent of its
+     * parent's line (-1 for the root).
+     */
+    private int indent = -1, parentIndent = -1;
+
+    /**
+     * The field number and the indent of the items ({@code - }) of the current sequence, if any.
+     */
+    private int lastNumber, seqIndent;
+
+    public YamlInput(byte[] buffer)
+    {
+        this(buffer, 0, buffer.length);
+    }
+
+    public YamlInput(byte[] buffer, int offset, int length)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Reads from the remaining bytes of the {@link ByteBuffer}. A direct buffer is copied.
+     */
+    public YamlInput(ByteBuffer bb)
+    {
+        if (bb.hasArray())
+        {
+            this.buffer = bb.array();
+            this.offset = bb.arrayOffset() + bb.position();
+        }
+        else
+        {
+            this.buffer = new byte[bb.remaining()];
+            bb.duplicate().get(buffer);
+            this.offset = 0;
+        }
+        this.limit = offset + bb.remaining();
+    }
+
+    /**
+     * Returns the offset of the next byte to read.
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+
+    // ---------------------------------------------------------------- structure
+
+    /**
+     * Skips the document start ({@code --- !Name} or {@code --- !Name[]}) if present.
+     */
+    void skipDocumentStart()
+    {
+        final int start = nextLine(offset);
+        if (start != -1 && start + 2 < limit && buffer[start] == '-' && buffer[start + 1] == '-'
+                && buffer[start + 2] == '-')
+        {
+            offset = endOfLine(start);
+        }
+    }
+
+    /**
+     * Reads the {@code - } of the next top-level sequence item (a message), which is merged next.
+     *
+     * @return false if there are no more items.
+     */
+    boolean readListItem() throws YamlInputException
+    {
+        final int start = nextLine(offset);
+        if (start == -1)
+            return false;
+
+        final int itemIndent = indentOf(start);
+        if (!isSequenceItem(start + itemIndent))
+            throw new YamlInputException("Expected a sequence item at offset " + start);
+
+        offset = start + itemIndent + 2;
+        parentIndent = itemIndent;
+        indent = -1;
+        lastNumber = 0;
+        return true;
+    }
+
+    /**
+     * Returns the start of the next line that is not blank, or -1 if there is none.
+     */
+    private int nextLine(int from)
+    {
+        final byte[] buffer = this.buffer;
+        int lineStart = from;
+        for (int i = from; i < limit; i++)
+        {
+            final byte b = buffer[i];
+            if (b == '\n' || b == '\r')
+                lineStart = i + 1;
+            else if (b != ' ' && b != '\t')
+                return lineStart;
+        }
+        return -1;
+    }
+
+    private int indentOf(int lineStart)
+    {
+        int i = lineStart;
+        while (i < limit && buffer[i] == ' ')
+            i++;
+
+        return i - lineStart;
+    }
+
+    private int endOfLine(int from)
+    {
+        final byte[] buffer = this.buffer;
+        int i = from;
+        while (i < limit && buffer[i] != '\n' && buffer[i] != '\r')
+            i++;
+
+        return i;
+    }
+
+    /**
+     * Returns true if a {@code - } (or a {@code -} ending the line) is at the offset.
+     */
+    private boolean isSequenceItem(int i)
+    {
+        if (i == limit || buffer[i] != '-')
+            return false;
+
+        if (++i == limit)
+            return true;
+
+        final byte b = buffer[i];
+        return b == ' ' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Returns true if the value from the offset is empty or a repeated tag ({@code !Name[]}), which is how a
+     * sequence starts.
+     */
+    private boolean isSequenceStart(int start, int end)
+    {
+        return start == end || (buffer[start] == '!' && end - start > 3
+                && buffer[end - 2] == '[' && buffer[end - 1] == ']');
+    }
+
+    /**
+     * Skips the rest of the current value, along with the lines indented deeper than the current field (or item).
+     */
+    private void skipValue()
+    {
+        final int fieldIndent = lastNumber != 0 ? seqIndent : indent;
+        int end = endOfLine(offset);
+        for (int start; (start = nextLine(end)) != -1 && indentOf(start) > fieldIndent;)
+            end = endOfLine(start);
+
+        offset = end;
+    }
+
+    // ---------------------------------------------------------------- scalar
+
+    /**
+     * Reads the value up to the end of the line, and returns the end offset (the start is the offset before the
+     * call).
+     */
+    private int readValue()
+    {
+        return offset = endOfLine(offset);
+    }
+
+    private String readText()
+    {
+        final int start = offset;
+        return STRING.deser(buffer, start, readValue() - start);
+    }
+
+    private byte[] getB64Decoded()
+    {
+        final int start = offset, end = readValue();
+        return start == end ? EMPTY : B64Code.decode(buffer, start, end - start);
+    }
+
+    // ---------------------------------------------------------------- Input
+
+    @Override
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        skipValue();
+    }
+
+    @Override
+    public <T> int readFieldNumber(final Schema<T> schema) throws IOException
+    {
+        if (lastNumber != 0)
+        {
+            final int start = nextLine(offset);
+            if (start != -1 && indentOf(start) == seqIndent && isSequenceItem(start + seqIndent))
+            {
+                // the next item
+                offset = Math.min(start + seqIndent + 2, limit);
+                return lastNumber;
+            }
+            lastNumber = 0;
+        }
+
+        final byte[] buffer = this.buffer;
+        while (true)
+        {
+            final int start = nextLine(offset);
+            if (start == -1)
+            {
+                offset = limit;
+                return 0;
+            }
+
+            final int lineIndent = indentOf(start);
+            if (indent == -1)
+            {
+                if (lineIndent <= parentIndent)
+                    return 0; // empty message
+
+                indent = lineIndent;
+            }
+            else if (lineIndent != indent)
+            {
+                if (lineIndent < indent)
+                    return 0; // end of the message
+
+                throw new YamlInputException("Unexpected indentation at offset " + start);
+            }
+
+            final int nameStart = start + lineIndent, eol = endOfLine(nameStart);
+            int colon = nameStart;
+            while (colon < eol && buffer[colon] != ':')
+                colon++;
+
+            if (colon == eol || colon == nameStart)
+                throw new YamlInputException("Expected a field name at offset " + nameStart);
+
+            offset = colon + 1;
+            if (offset < eol && buffer[offset] == ' ')
+                offset++;
+
+            final int number = FieldNumberCache.getFieldNumber(schema, buffer, nameStart,
+                    colon - nameStart);
+            if (number == 0)
+            {
+                skipValue();
+                continue;
+            }
+
+            if (isSequenceStart(offset, eol))
+            {
+                final int next = nextLine(eol);
+                if (next != -1)
+                {
+                    final int nextIndent = indentOf(next);
+                    if (nextIndent > indent && isSequenceItem(next + nextIndent))
+                    {
+                        // the first item
+                        lastNumber = number;
+                        seqIndent = nextIndent;
+                        offset = Math.min(next + nextIndent + 2, limit);
+                    }
+                }
+            }
+
+            return number;
+        }
+    }
+
+    @Override
+    public int readInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readUInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSInt32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public int readSFixed32() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public long readInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readUInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSInt64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    @Override
+    public long readSFixed64() throws IOException
+    {
+        return readLong();
+    }
+
+    private int readInt()
+    {
+        final int start = offset;
+        return NumberParser.parseInt(buffer, start, readValue() - start, 10);
+    }
+
+    private long readLong()
+    {
+        final int start = offset;
+        return NumberParser.parseLong(buffer, start, readValue() - start, 10);
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        return Float.parseFloat(readText());
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        return Double.parseDouble(readText());
+    }
+
+    @Override
+    public boolean readBool() throws IOException
+    {
+        final int start = offset, end = readValue();
+        // like Boolean.parseBoolean
+        if (end - start != 4)
+            return false;
+
+        final byte[] buffer = this.buffer;
+        return (buffer[start] | 0x20) == 't' && (buffer[start + 1] | 0x20) == 'r'
+                && (buffer[start + 2] | 0x20) == 'u' && (buffer[start + 3] | 0x20) == 'e';
+    }
+
+    @Override
+    public int readEnum() throws IOException
+    {
+        return readInt();
+    }
+
+    @Override
+    public String readString() throws IOException
+    {
+        return readText();
+    }
+
+    @Override
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+
+    @Override
+    public byte[] readByteArray() throws IOException
+    {
+        return getB64Decoded();
+    }
+
+    @Override
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        return ByteBuffer.wrap(getB64Decoded());
+    }
+
+    @Override
+    public void readBytes(final ByteBuffer bb) throws IOException
+    {
+        bb.put(getB64Decoded());
+    }
+
+    @Override
+    public <T> T mergeObject(T value, final Schema<T> schema) throws IOException
+    {
+        if (value == null)
+            value = schema.newMessage();
+
+        final int indent = this.indent, parentIndent = this.parentIndent,
+                lastNumber = this.lastNumber, seqIndent = this.seqIndent;
+
+        // the tag (if any)
+        offset = endOfLine(offset);
+        this.parentIndent = lastNumber != 0 ? seqIndent : indent;
+        this.indent = -1;
+        this.lastNumber = 0;
+
+        schema.mergeFrom(this, value);
+
+        if (!schema.isInitialized(value))
+            throw new UninitializedMessageException(value, schema);
+
+        this.indent = indent;
+        this.parentIndent = parentIndent;
+        this.lastNumber = lastNumber;
+        this.seqIndent = seqIndent;
+
+        return value;
+    }
+
+    @Override
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        if (!utf8String)
+        {
+            output.writeByteArray(fieldNumber, readByteArray(), repeated);
+            return;
+        }
+
+        final int start = offset, end = readValue();
+        output.writeByteRange(true, fieldNumber, buffer, start, end - start, repeated);
+    }
+
+}
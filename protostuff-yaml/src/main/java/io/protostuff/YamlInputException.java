@@ -0,0 +1,16 @@
+package io.protostuff;
+
+/**
+ * Thrown when a yaml-encoded message being parsed is invalid in some way.
+ */
+public class YamlInputException extends ProtostuffException
+{
+
+    private static final long serialVersionUID = -3570383126548917296L;
+
+    public YamlInputException(String message)
+    {
+        super(message);
+    }
+
+}
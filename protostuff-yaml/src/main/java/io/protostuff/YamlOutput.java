@@ -63,7 +63,31 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
 
     private int indent = 0, lastNumber = 0;
 
+    /**
+     * The pre-encoded keys (the field name followed by ": ").
+     */
+    static final KeyCache<byte[]> KEYS = new KeyCache<byte[]>(1)
+    {
+        @Override
+        protected byte[] encode(Schema<?> schema, int number, int variant)
+        {
+            final String name = schema.getFieldName(number);
+            if (name == null)
+                return null;
+
+            final int len = name.length();
+            final byte[] key = new byte[len + COLON_AND_SPACE.length];
+            // ascii, like WriteSink.writeStrAscii
+            for (int i = 0; i < len; i++)
+                key[i] = (byte) name.charAt(i);
+            System.arraycopy(COLON_AND_SPACE, 0, key, len, COLON_AND_SPACE.length);
+
+            return key;
+        }
+    };
+
     private Schema<?> schema;
+    private KeyCache.Keys<byte[]> keys;
 
     public YamlOutput(LinkedBuffer buffer, Schema<?> schema)
     {
@@ -113,6 +137,12 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
         return this;
     }
 
+    private KeyCache.Keys<byte[]> keys()
+    {
+        final KeyCache.Keys<byte[]> keys = this.keys;
+        return keys != null && keys.schema() == schema ? keys : (this.keys = KEYS.getKeys(schema));
+    }
+
     @Override
     public void updateLast(Schema<?> schema, Schema<?> lastSchema)
     {
@@ -168,7 +198,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value ? TRUE : FALSE,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -204,7 +234,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -240,7 +270,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -288,7 +318,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -348,7 +378,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -402,7 +432,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -444,7 +474,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -483,7 +513,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                     value, offset, length,
                     this,
                     writeKey(
-                            schema.getFieldName(fieldNumber),
+                            keys().get(fieldNumber, 0),
                             indent,
                             repeated,
                             sink,
@@ -516,7 +546,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                 value, offset, length,
                 this,
                 writeKey(
-                        schema.getFieldName(fieldNumber),
+                        keys().get(fieldNumber, 0),
                         indent,
                         repeated,
                         sink,
@@ -542,7 +572,7 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
                     sink,
                     this,
                     writeKey(
-                            lastSchema.getFieldName(fieldNumber),
+                            keys().get(fieldNumber, 0),
                             lastIndent,
                             false,
                             sink,
@@ -595,21 +625,18 @@ public final class YamlOutput extends WriteSession implements Output, StatefulOu
         return lb;
     }
 
-    private static LinkedBuffer writeKey(final String name, final int indent,
+    private static LinkedBuffer writeKey(final byte[] key, final int indent,
             final boolean repeated, final WriteSink sink,
             final WriteSession session, LinkedBuffer lb) throws IOException
     {
         lb = sink.writeByteArray(
-                COLON_AND_SPACE,
+                key,
                 session,
-                sink.writeStrAscii(
-                        name,
+                newLine(
+                        indent,
+                        sink,
                         session,
-                        newLine(
-                                indent,
-                                sink,
-                                session,
-                                lb)));
+                        lb));
         if (repeated)
         {
             return sink.writeByteArray(
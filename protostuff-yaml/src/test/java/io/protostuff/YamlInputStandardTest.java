@@ -0,0 +1,25 @@
+package io.protostuff;
+
+import java.io.IOException;
+
+/**
+ * Yaml standard tests for {@link YamlInput}.
+ */
+public class YamlInputStandardTest extends StandardTest
+{
+
+    @Override
+    protected <T> void mergeFrom(byte[] data, int offset, int len, T message,
+            Schema<T> schema)
+            throws IOException
+    {
+        YamlIOUtil.mergeFrom(data, offset, len, message, schema);
+    }
+
+    @Override
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return YamlIOUtil.toByteArray(message, schema, buf());
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the yaml subset parsed by {@link YamlInput}.
+ */
+public class YamlInputTest extends AbstractTest
+{
+
+    static Bar parseBar(String yaml) throws Exception
+    {
+        final Bar bar = new Bar();
+        YamlIOUtil.mergeFrom(STRING.ser(yaml), bar, bar);
+        return bar;
+    }
+
+    public void testCrlfAndBlankLines() throws Exception
+    {
+        final Bar bar = parseBar("--- !Bar\r\nsomeInt: 3\r\n\r\nsomeString: a: b \r\n" +
+                "someBaz: !Baz\r\n  id: 4\r\n  name: \r\nsomeBoolean: true\r\n");
+        assertEquals(3, bar.getSomeInt());
+        assertEquals("a: b ", bar.getSomeString());
+        assertEquals(4, bar.getSomeBaz().getId());
+        assertEquals("", bar.getSomeBaz().getName());
+        assertTrue(bar.getSomeBoolean());
+    }
+
+    public void testUnknownFieldsSkipped() throws Exception
+    {
+        final Bar bar = parseBar("--- !Bar\nsomeInt: 1\n" +
+                "unknown: !Unknown\n  nested: !Nested[]\n    - \n      deeper: x\n" +
+                "unknownList: \n  - 1\n  - 2\n" +
+                "someBaz: !Baz\n  extra: \n    - y\n  id: 2\n" +
+                "someLong: 5\n");
+        assertEquals(1, bar.getSomeInt());
+        assertEquals(2, bar.getSomeBaz().getId());
+        assertEquals(5, bar.getSomeLong());
+    }
+
+    public void testExtraIndent() throws Exception
+    {
+        final Foo foo = new Foo();
+        YamlIOUtil.mergeFrom(STRING.ser("--- !Foo\nsomeInt: \n     - 1\n     - 2\n" +
+                "someBar: !Bar[]\n     - \n          someInt: 3\n     - \n" +
+                "     - \n          someBaz: !Baz\n               id: 4\nsomeLong: \n     - 5\n"), foo, foo);
+        assertEquals(Arrays.asList(1, 2), foo.getSomeInt());
+        assertEquals(3, foo.getSomeBar().size());
+        assertEquals(3, foo.getSomeBar().get(0).getSomeInt());
+        assertEquals(new Bar(), foo.getSomeBar().get(1));
+        assertEquals(4, foo.getSomeBar().get(2).getSomeBaz().getId());
+        assertEquals(Arrays.asList(5L), foo.getSomeLong());
+    }
+
+    public void testBadIndentation() throws Exception
+    {
+        try
+        {
+            parseBar("--- !Bar\nsomeInt: 1\n  someLong: 2\n");
+            fail("Expected YamlInputException");
+        }
+        catch (YamlInputException e)
+        {
+            // expected
+        }
+    }
+
+    public void testParseList() throws Exception
+    {
+        final List<Bar> bars = Arrays.asList(SerializableObjects.bar, new Bar(),
+                SerializableObjects.negativeBar);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        YamlIOUtil.writeListTo(out, bars, SerializableObjects.bar.cachedSchema(), buf());
+        final byte[] data = out.toByteArray();
+
+        assertEquals(bars, YamlIOUtil.parseListFrom(data, 0, data.length,
+                SerializableObjects.bar.cachedSchema()));
+        assertEquals(bars, YamlIOUtil.parseListFrom(new ByteArrayInputStream(data),
+                SerializableObjects.bar.cachedSchema()));
+    }
+
+    public void testMergeFromStream() throws Exception
+    {
+        final Foo foo = SerializableObjects.foo;
+        final byte[] data = YamlIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+
+        final Foo parsed = new Foo();
+        YamlIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, parsed.cachedSchema());
+        assertEquals(foo, parsed);
+    }
+
+}
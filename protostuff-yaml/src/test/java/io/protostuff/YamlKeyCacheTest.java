@@ -0,0 +1,41 @@
+package io.protostuff;
+
+import io.protostuff.StringSerializer.STRING;
+
+/**
+ * Tests for the pre-encoded keys of {@link YamlOutput}.
+ */
+public class YamlKeyCacheTest extends AbstractTest
+{
+
+    public void testCachedPerSchema()
+    {
+        final KeyCache.Keys<byte[]> keys = YamlOutput.KEYS.getKeys(Bar.getSchema());
+        assertSame(keys, YamlOutput.KEYS.getKeys(Bar.getSchema()));
+        assertSame(Bar.getSchema(), keys.schema());
+        assertSame(keys.get(1, 0), keys.get(1, 0));
+        assertEquals("someInt: ", STRING.deser(keys.get(1, 0)));
+
+        assertNotSame(keys, YamlOutput.KEYS.getKeys(Baz.getSchema()));
+        assertEquals("id: ", STRING.deser(YamlOutput.KEYS.getKeys(Baz.getSchema()).get(1, 0)));
+    }
+
+    public void testUnknownFieldNotCached()
+    {
+        assertNull(YamlOutput.KEYS.getKeys(Bar.getSchema()).get(99, 0));
+    }
+
+    public void testSameOutput() throws Exception
+    {
+        for (Foo foo : new Foo[] { SerializableObjects.foo, new Foo() })
+        {
+            final String expected = STRING.deser(
+                    YamlIOUtil.toByteArray(foo, Foo.getSchema(), buf()));
+
+            // twice, the second time with the keys cached
+            assertEquals(expected, STRING.deser(
+                    YamlIOUtil.toByteArray(foo, Foo.getSchema(), buf())));
+        }
+    }
+
+}